@@ -0,0 +1,148 @@
+package benchmark;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.AdaptivePoolSizing;
+import task.ITask;
+import task.RetryPolicy;
+import task.TaskRunner;
+
+/**
+ * A load generator comparing fixed pool sizes with adaptive pool sizing on two
+ * kinds of task.
+ *
+ * <code>io</code> tasks stand in for port probes: each blocks for a
+ * millisecond against a target that serves at most
+ * <code>TARGET_CONCURRENCY</code> of them at once, so throughput grows with
+ * threads up to that many and no further. <code>cpu</code> tasks stand in for
+ * file stats served from cache: each burns a little CPU, so throughput stops
+ * growing at the number of cores. Each invocation keeps the pool backlogged
+ * with <code>BATCH_SIZE</code> tasks.
+ *
+ * The <code>adaptive</code> runner starts with one thread and may grow to 64.
+ * Warmup gives it time to converge; the size it finished at is printed at the
+ * end of each trial, to compare with the best fixed size for the workload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdaptivePoolBenchmark
+{
+	/** Number of tasks submitted per invocation. */
+	public static final int BATCH_SIZE = 1000;
+	/** The number of <code>io</code> tasks the simulated target serves at once. */
+	public static final int TARGET_CONCURRENCY = 16;
+
+	@Param({ "io", "cpu" })
+	public String workload;
+
+	@Param({ "1", "cores", "16", "64", "adaptive" })
+	public String poolSize;
+
+	private TaskRunner taskRunner;
+	private ITask<Boolean> task;
+	private final RetryPolicy retryPolicy = RetryPolicy.fixed(1, 1);
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		if ("adaptive".equals(this.poolSize))
+		{
+			this.taskRunner = new TaskRunner(1);
+			this.taskRunner.setAdaptivePoolSizing(new AdaptivePoolSizing(1, 64));
+		} else
+		{
+			this.taskRunner = new TaskRunner(PoolSizes.resolve(this.poolSize));
+		}
+		this.taskRunner.setMetricsEnabled(false);
+		this.task = "io".equals(this.workload) ? new SaturatingTask(new Semaphore(TARGET_CONCURRENCY), 1)
+				: new BenchmarkTasks.SpinningTask(10000);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		System.out.println("Pool size at end of trial: " + this.taskRunner.getMetrics().getPoolSize());
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void backlog(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		@SuppressWarnings("unchecked")
+		final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			pending[i] = this.taskRunner.runTaskAsync(this.task, this.retryPolicy, Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			blackhole.consume(pending[i].get());
+		}
+	}
+
+	/**
+	 * Blocks for a fixed time while holding one of the target's permits, waiting
+	 * for one if the target is busy.
+	 */
+	static final class SaturatingTask implements ITask<Boolean>
+	{
+		private final Semaphore target;
+		private final long blockMillis;
+
+		SaturatingTask(Semaphore target, long blockMillis)
+		{
+			this.target = target;
+			this.blockMillis = blockMillis;
+		}
+
+		@Override
+		public boolean isComplete()
+		{
+			return true;
+		}
+
+		@Override
+		public Boolean call(Class<Boolean> targetClass) throws ClassCastException
+		{
+			try
+			{
+				this.target.acquire();
+				try
+				{
+					Thread.sleep(this.blockMillis);
+				} finally
+				{
+					this.target.release();
+				}
+			} catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return targetClass.cast(true);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.ITask;
+import task.RetryPolicy;
+import task.TaskRunner;
+
+/**
+ * Compares gathering many results by waiting on each Future in turn with
+ * gathering them through completion callbacks, which leave no thread waiting
+ * per result.
+ *
+ * Each invocation submits <code>BATCH_SIZE</code> tasks and counts the
+ * successful results. Callbacks run on the thread that completed each task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark
+{
+	/** Number of tasks submitted per invocation. */
+	public static final int BATCH_SIZE = 1000;
+
+	private TaskRunner taskRunner;
+	private final ITask<Boolean> completingTask = new BenchmarkTasks.CompletingTask();
+	private final RetryPolicy oneAttempt = RetryPolicy.fixed(1, 1);
+
+	@SuppressWarnings("unchecked")
+	private final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.taskRunner = new TaskRunner(PoolSizes.resolve("cores"));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public long blockingGets() throws InterruptedException, ExecutionException
+	{
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			this.pending[i] = this.taskRunner.runTaskAsync(this.completingTask, this.oneAttempt, Boolean.class);
+		}
+		long successes = 0;
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			if (this.pending[i].get())
+			{
+				successes++;
+			}
+		}
+		return successes;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void callbacks(Blackhole blackhole) throws InterruptedException
+	{
+		final LongAdder successes = new LongAdder();
+		final CountDownLatch done = new CountDownLatch(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			this.taskRunner.runTaskAsync(this.completingTask, this.oneAttempt, Boolean.class)
+					.onComplete((result, e) -> {
+						if (e == null && result)
+						{
+							successes.increment();
+						}
+						done.countDown();
+					});
+		}
+		done.await();
+		blackhole.consume(successes.sum());
+	}
+}
@@ -0,0 +1,133 @@
+package benchmark;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.ITask;
+
+/**
+ * Minimal <code>ITask</code> implementations used by the benchmarks. They do no
+ * real work so that the measurements reflect the cost of the task runner
+ * itself rather than the cost of the task.
+ */
+final class BenchmarkTasks
+{
+	private BenchmarkTasks()
+	{
+	}
+
+	/**
+	 * Completes on its first call. Stateless, so a single instance can be shared
+	 * between submissions.
+	 */
+	static final class CompletingTask implements ITask<Boolean>
+	{
+		@Override
+		public boolean isComplete()
+		{
+			return true;
+		}
+
+		@Override
+		public Boolean call(Class<Boolean> targetClass) throws ClassCastException
+		{
+			return targetClass.cast(true);
+		}
+	}
+
+	/**
+	 * Never completes, so the runner uses every attempt it was given.
+	 */
+	static final class NeverCompletingTask implements ITask<Boolean>
+	{
+		@Override
+		public boolean isComplete()
+		{
+			return false;
+		}
+
+		@Override
+		public Boolean call(Class<Boolean> targetClass) throws ClassCastException
+		{
+			return targetClass.cast(false);
+		}
+	}
+
+	/**
+	 * Throws on every call, driving the runner's exception handling path on every
+	 * attempt.
+	 */
+	static final class ThrowingTask implements ITask<Boolean>
+	{
+		@Override
+		public boolean isComplete()
+		{
+			return false;
+		}
+
+		@Override
+		public Boolean call(Class<Boolean> targetClass) throws ClassCastException
+		{
+			throw new IllegalStateException("Benchmark failure");
+		}
+	}
+
+	/**
+	 * Blocks the calling thread for a fixed time before completing, standing in
+	 * for a blocking I/O probe.
+	 */
+	static final class BlockingTask implements ITask<Boolean>
+	{
+		private final long blockMillis;
+
+		BlockingTask(long blockMillis)
+		{
+			this.blockMillis = blockMillis;
+		}
+
+		@Override
+		public boolean isComplete()
+		{
+			return true;
+		}
+
+		@Override
+		public Boolean call(Class<Boolean> targetClass) throws ClassCastException
+		{
+			try
+			{
+				Thread.sleep(this.blockMillis);
+			} catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return targetClass.cast(true);
+		}
+	}
+
+	/**
+	 * Burns a fixed amount of CPU before completing, standing in for a task that
+	 * does a little real work.
+	 */
+	static final class SpinningTask implements ITask<Boolean>
+	{
+		private final long tokens;
+
+		SpinningTask(long tokens)
+		{
+			this.tokens = tokens;
+		}
+
+		@Override
+		public boolean isComplete()
+		{
+			return true;
+		}
+
+		@Override
+		public Boolean call(Class<Boolean> targetClass) throws ClassCastException
+		{
+			Blackhole.consumeCPU(this.tokens);
+			return targetClass.cast(true);
+		}
+	}
+}
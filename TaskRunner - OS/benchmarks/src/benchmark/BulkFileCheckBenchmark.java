@@ -0,0 +1,127 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import task.TaskRunner;
+import util.tasks.BulkFileCheckerTask;
+import util.tasks.FileCheckerTask;
+import util.tasks.FileScanResult;
+
+/**
+ * Compares checking many files with one <code>FileCheckerTask</code> each,
+ * which stats every file, against one <code>BulkFileCheckerTask</code>, which
+ * lists each directory once.
+ *
+ * Half of the requested files in each directory exist. Each invocation checks
+ * <code>directories</code> x <code>filesPerDirectory</code> files; the bulk
+ * task makes <code>directories</code> listings where the single tasks make one
+ * stat per file. On a local disk with a warm cache both are cheap; the gap
+ * grows with the cost of a metadata round trip, as on network file systems.
+ * <code>bulkTaskListedInParallel</code> gives the bulk task a pool of its own to
+ * list directories on, one thread per core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkFileCheckBenchmark
+{
+	@Param({ "100" })
+	public int directories;
+
+	@Param({ "50" })
+	public int filesPerDirectory;
+
+	private TaskRunner taskRunner;
+	private ExecutorService listingExecutor;
+	private File root;
+	private final List<String> fileNames = new ArrayList<String>();
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.root = Files.createTempDirectory("bulk-file-check").toFile();
+		for (int d = 0; d < this.directories; d++)
+		{
+			final File directory = new File(this.root, "dir" + d);
+			directory.mkdir();
+			for (int f = 0; f < this.filesPerDirectory; f++)
+			{
+				final File file = new File(directory, "file" + f);
+				if (f % 2 == 0)
+				{
+					file.createNewFile();
+				}
+				this.fileNames.add(file.getPath());
+			}
+		}
+		this.taskRunner = new TaskRunner(PoolSizes.resolve("cores"));
+		this.listingExecutor = Executors.newFixedThreadPool(PoolSizes.resolve("cores"));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+		this.listingExecutor.shutdown();
+		for (final String fileName : this.fileNames)
+		{
+			new File(fileName).delete();
+		}
+		for (int d = 0; d < this.directories; d++)
+		{
+			new File(this.root, "dir" + d).delete();
+		}
+		this.root.delete();
+	}
+
+	@Benchmark
+	public List<Boolean> singleTasks() throws InterruptedException, ExecutionException
+	{
+		final List<FileCheckerTask<Boolean>> tasks = new ArrayList<FileCheckerTask<Boolean>>(this.fileNames.size());
+		for (final String fileName : this.fileNames)
+		{
+			tasks.add(new FileCheckerTask<Boolean>(fileName));
+		}
+		return this.taskRunner.runTasksAsync(tasks, 1, 1, Boolean.class).allOf().get();
+	}
+
+	@Benchmark
+	public FileScanResult bulkTask() throws InterruptedException, ExecutionException
+	{
+		return this.taskRunner.runTaskAsync(new BulkFileCheckerTask<FileScanResult>(this.fileNames), 1, 1,
+				FileScanResult.class).get();
+	}
+
+	@Benchmark
+	public FileScanResult bulkTaskListedInParallel() throws InterruptedException, ExecutionException
+	{
+		return this.taskRunner.runTaskAsync(
+				new BulkFileCheckerTask<FileScanResult>(this.fileNames, this.listingExecutor), 1, 1,
+				FileScanResult.class).get();
+	}
+}
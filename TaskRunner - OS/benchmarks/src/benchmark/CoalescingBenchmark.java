@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.TaskRunner;
+import util.tasks.PortAvailableTask;
+
+/**
+ * Measures how much request coalescing cuts the number of port probes when
+ * many callers ask about the same port at the same moment.
+ *
+ * Each invocation submits <code>BURST_SIZE</code> checks of one free port in a
+ * burst and waits for all of them. The <code>probes</code> counter reports
+ * how many sockets were actually bound, at the same rate unit as the main
+ * score, so probes/ops is the socket volume per request. No result cache is
+ * set, so only checks that overlap in time are shared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoalescingBenchmark
+{
+	/** Number of checks submitted per invocation. */
+	public static final int BURST_SIZE = 500;
+
+	@Param({ "false", "true" })
+	public boolean coalescing;
+
+	private TaskRunner taskRunner;
+	private int port;
+	private final LongAdder probes = new LongAdder();
+
+	@SuppressWarnings("unchecked")
+	private final Future<Boolean>[] pending = new Future[BURST_SIZE];
+
+	/**
+	 * Reports the probes made during each iteration.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Probes
+	{
+		public long probes;
+	}
+
+	/**
+	 * A port check that counts its calls.
+	 */
+	private final class CountingPortAvailableTask extends PortAvailableTask<Boolean>
+	{
+		CountingPortAvailableTask(int port)
+		{
+			super(port);
+		}
+
+		@Override
+		public Boolean call(Class<Boolean> targetClass) throws ClassCastException
+		{
+			CoalescingBenchmark.this.probes.increment();
+			return super.call(targetClass);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		try (ServerSocket socket = new ServerSocket(0))
+		{
+			this.port = socket.getLocalPort();
+		}
+		this.taskRunner = new TaskRunner(PoolSizes.resolve("cores"));
+		this.taskRunner.setCoalescingEnabled(this.coalescing);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Single-attempt checks of the same free port.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BURST_SIZE)
+	public void portChecks(Probes counters, Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		for (int i = 0; i < BURST_SIZE; i++)
+		{
+			this.pending[i] = this.taskRunner.runTaskAsync(new CountingPortAvailableTask(this.port), 1, 1,
+					Boolean.class);
+		}
+		for (int i = 0; i < BURST_SIZE; i++)
+		{
+			blackhole.consume(this.pending[i].get());
+		}
+		counters.probes += this.probes.sumThenReset();
+	}
+}
@@ -0,0 +1,174 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.ErrorReporting;
+import task.ExpectedFailureException;
+import task.ITask;
+import task.RetryPolicy;
+import task.TaskRunner;
+
+/**
+ * Measures task throughput when half of all attempts throw, comparing how the
+ * runner used to handle failures with error reporting.
+ *
+ * <ul>
+ * <li><code>printed</code> - tasks throw exceptions with stack traces, and
+ * every one is printed with <code>printStackTrace</code>, as the runner did
+ * for each retried failure.</li>
+ * <li><code>reported</code> - tasks throw <code>ExpectedFailureException</code>,
+ * which has no stack trace, and errors go to an <code>ErrorReporting</code>
+ * listener limited to 10 reports a second.</li>
+ * <li><code>timedOut</code> - as <code>reported</code>, but each task has a
+ * deadline its first retry would miss, so half of all tasks fail with the
+ * runner's own <code>TaskTimeoutException</code>, which has no stack trace
+ * either.</li>
+ * </ul>
+ *
+ * Printed stack traces go to a <code>System.err</code> that discards its
+ * output, so the figures include formatting the traces and contending for the
+ * stream's lock, but not the terminal or log file that would be behind it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorReportingBenchmark
+{
+	/** Number of tasks submitted per invocation. */
+	public static final int BATCH_SIZE = 1000;
+
+	@Param({ "printed", "reported", "timedOut" })
+	public String errorHandling;
+
+	@Param({ "cores" })
+	public String poolSize;
+
+	private TaskRunner taskRunner;
+	private PrintStream originalErr;
+	private ITask<Boolean> task;
+	// Retries straight away, so the figures are not dominated by retry delays.
+	private final RetryPolicy retryPolicy = RetryPolicy.of(5, (failedAttempts, previousDelayMillis) -> 0);
+	// Retries after longer than the deadline allows, so the first failure times the task out.
+	private final RetryPolicy pastDeadlinePolicy = RetryPolicy.fixed(5, 1000);
+
+	@SuppressWarnings("unchecked")
+	private final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.taskRunner = new TaskRunner(PoolSizes.resolve(this.poolSize));
+		this.taskRunner.setMetricsEnabled(false);
+		this.originalErr = System.err;
+		if ("printed".equals(this.errorHandling))
+		{
+			System.setErr(new PrintStream(new OutputStream()
+			{
+				@Override
+				public void write(int b)
+				{
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len)
+				{
+				}
+			}, true));
+			this.task = new HalfFailingTask(false);
+			this.taskRunner.setErrorReporting(new ErrorReporting(
+					(failedTask, attempt, error, suppressed) -> error.printStackTrace()));
+		} else
+		{
+			this.task = new HalfFailingTask(true);
+			this.taskRunner.setErrorReporting(new ErrorReporting((failedTask, attempt, error, suppressed) ->
+			{
+			}).withDefaultRateLimit(10, 10));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+		System.setErr(this.originalErr);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void halfOfAttemptsFail(Blackhole blackhole) throws InterruptedException
+	{
+		final boolean timedOut = "timedOut".equals(this.errorHandling);
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			this.pending[i] = timedOut
+					? this.taskRunner.runTaskAsync(this.task, this.pastDeadlinePolicy, Boolean.class, 500, 500)
+					: this.taskRunner.runTaskAsync(this.task, this.retryPolicy, Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			try
+			{
+				blackhole.consume(this.pending[i].get());
+			} catch (final ExecutionException e)
+			{
+				// A task that failed all five attempts, or timed out.
+				blackhole.consume(e);
+			}
+		}
+	}
+
+	/**
+	 * Throws on half of its calls, chosen at random, and completes on the rest.
+	 * Stateless, so a single instance can be shared between submissions.
+	 */
+	private static final class HalfFailingTask implements ITask<Boolean>
+	{
+		private final boolean stackless;
+
+		HalfFailingTask(boolean stackless)
+		{
+			this.stackless = stackless;
+		}
+
+		@Override
+		public boolean isComplete()
+		{
+			return true;
+		}
+
+		@Override
+		public Boolean call(Class<Boolean> targetClass) throws ClassCastException
+		{
+			if (ThreadLocalRandom.current().nextBoolean())
+			{
+				throw this.stackless ? new ExpectedFailureException("Benchmark failure")
+						: new IllegalStateException("Benchmark failure");
+			}
+			return targetClass.cast(true);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.ExecutionMode;
+import task.ITask;
+import task.TaskRunner;
+
+/**
+ * Compares platform and virtual thread execution for blocking tasks, which
+ * stand in for the file and port probes. A pool of 10 platform threads keeps at
+ * most 10 probes in flight, while virtual threads keep the whole batch in
+ * flight.
+ *
+ * The <code>VIRTUAL_THREADS</code> rows need a JDK 21+ runtime; on older JDKs
+ * their setup fails and JMH skips them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionModeBenchmark
+{
+	/** Number of tasks submitted per invocation. */
+	public static final int BATCH_SIZE = 1000;
+
+	@Param({ "PLATFORM_THREADS", "VIRTUAL_THREADS" })
+	public ExecutionMode executionMode;
+
+	/** How long each probe blocks for. */
+	@Param({ "1" })
+	public long blockMillis;
+
+	private TaskRunner taskRunner;
+	private ITask<Boolean> blockingTask;
+
+	@SuppressWarnings("unchecked")
+	private final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.taskRunner = new TaskRunner(10, this.executionMode);
+		this.blockingTask = new BenchmarkTasks.BlockingTask(this.blockMillis);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Blocking tasks that complete on their first attempt.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void blockingProbes(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			this.pending[i] = this.taskRunner.runTaskAsync(this.blockingTask, 1, 1, Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			blackhole.consume(this.pending[i].get());
+		}
+	}
+}
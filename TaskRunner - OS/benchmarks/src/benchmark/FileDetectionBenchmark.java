@@ -0,0 +1,123 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import task.ITask;
+import task.RetryPolicy;
+import task.TaskHandle;
+import task.TaskRunner;
+import util.tasks.DirectoryWatcher;
+import util.tasks.FileCheckerTask;
+import util.tasks.FileWatcherTask;
+
+/**
+ * Measures how quickly a file is noticed after it is created, by polling with
+ * <code>FileCheckerTask</code> or by watching with
+ * <code>FileWatcherTask</code>.
+ *
+ * Each invocation deletes the file, submits a check, and creates the file
+ * <code>createDelayMillis</code> later; it ends when the check reports the
+ * file. One invocation runs at a time, so 1/score is the time from submission
+ * to detection, of which all but <code>createDelayMillis</code> is detection
+ * latency. The <code>attempts</code> counter, at the same rate unit as the
+ * score, reports the attempts made: each polling attempt checks the file
+ * once, each watching attempt at most three times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileDetectionBenchmark
+{
+	@Param({ "polling", "watching" })
+	public String detector;
+
+	/** The time between polling attempts. */
+	@Param({ "10" })
+	public long pollMillis;
+
+	@Param({ "5" })
+	public long createDelayMillis;
+
+	private TaskRunner taskRunner;
+	private ScheduledExecutorService creator;
+	private DirectoryWatcher watcher;
+	private File directory;
+	private File file;
+
+	/**
+	 * Reports the attempts made during each iteration.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Attempts
+	{
+		public long attempts;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.directory = Files.createTempDirectory("file-detection").toFile();
+		this.file = new File(this.directory, "ready.flag");
+		this.taskRunner = new TaskRunner(1);
+		this.creator = Executors.newSingleThreadScheduledExecutor();
+		this.watcher = new DirectoryWatcher();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException, IOException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+		this.creator.shutdown();
+		this.watcher.close();
+		this.file.delete();
+		this.directory.delete();
+	}
+
+	@Benchmark
+	public boolean detectCreation(Attempts counters) throws InterruptedException, ExecutionException
+	{
+		this.file.delete();
+		final ITask<Boolean> task = "watching".equals(this.detector)
+				? new FileWatcherTask<Boolean>(this.file.getPath(), 1000, this.watcher)
+				: new FileCheckerTask<Boolean>(this.file.getPath());
+		final TaskHandle<Boolean> handle = this.taskRunner.runTaskAsync(task,
+				RetryPolicy.fixed(Integer.MAX_VALUE, this.pollMillis), Boolean.class);
+		this.creator.schedule(() -> {
+			try
+			{
+				this.file.createNewFile();
+			} catch (final IOException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}, this.createDelayMillis, TimeUnit.MILLISECONDS);
+		final boolean detected = handle.get();
+		counters.attempts += handle.getAttempts();
+		return detected;
+	}
+}
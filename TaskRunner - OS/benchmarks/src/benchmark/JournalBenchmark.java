@@ -0,0 +1,111 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.RetryPolicy;
+import task.TaskJournal;
+import task.TaskRunner;
+import util.tasks.FileCheckerTask;
+
+/**
+ * Measures what journaling costs per task, comparing a runner without a
+ * <code>TaskJournal</code> against one with.
+ *
+ * Each task checks for a file that exists, so it completes on its first
+ * attempt and is journaled as submitted and then completed. The journal is
+ * forced to disk in the background every commit interval, so the cost on the
+ * submitting and worker threads is encoding and copying two records into the
+ * mapped segment, plus compaction as segments fill.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JournalBenchmark
+{
+	/** Number of tasks submitted per invocation. */
+	public static final int BATCH_SIZE = 1000;
+
+	@Param({ "false", "true" })
+	public boolean journaled;
+
+	private TaskRunner taskRunner;
+	private TaskJournal journal;
+	private Path directory;
+	private File existingFile;
+	private final RetryPolicy retryPolicy = RetryPolicy.fixed(3, 1);
+
+	@SuppressWarnings("unchecked")
+	private final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.directory = Files.createTempDirectory("journal-benchmark");
+		this.existingFile = File.createTempFile("journal-benchmark", null);
+		this.taskRunner = new TaskRunner(PoolSizes.resolve("cores"));
+		this.taskRunner.setMetricsEnabled(false);
+		if (this.journaled)
+		{
+			this.journal = TaskJournal.open(this.directory);
+			this.taskRunner.setJournal(this.journal);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException, IOException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+		if (this.journal != null)
+		{
+			this.journal.close();
+		}
+		final File[] segments = this.directory.toFile().listFiles();
+		for (final File segment : segments)
+		{
+			segment.delete();
+		}
+		Files.delete(this.directory);
+		this.existingFile.delete();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void submitAndComplete(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		final String fileName = this.existingFile.getPath();
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			this.pending[i] = this.taskRunner.runTaskAsync(new FileCheckerTask<Boolean>(fileName), this.retryPolicy,
+					Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			blackhole.consume(this.pending[i].get());
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.ITask;
+import task.TaskRunner;
+
+/**
+ * Measures what recording metrics costs on the task hot path, by running the
+ * same tasks with metrics off, with every task timed, and with one in 16
+ * tasks timed.
+ *
+ * Each invocation submits <code>BATCH_SIZE</code> tasks and waits for all of
+ * them, and each task counts as one operation. Run with <code>-prof gc</code>
+ * to check that recording adds nothing to <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark
+{
+	/** Number of tasks submitted per invocation. */
+	public static final int BATCH_SIZE = 100;
+
+	/** "off", or the latency sample interval with metrics on. */
+	@Param({ "off", "1", "16" })
+	public String metrics;
+
+	@Param({ "1", "cores" })
+	public String poolSize;
+
+	private TaskRunner taskRunner;
+	private final ITask<Boolean> completingTask = new BenchmarkTasks.CompletingTask();
+	private final ITask<Boolean> neverCompletingTask = new BenchmarkTasks.NeverCompletingTask();
+	private final ITask<Boolean> spinningTask = new BenchmarkTasks.SpinningTask(1000);
+
+	@SuppressWarnings("unchecked")
+	private final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.taskRunner = new TaskRunner(PoolSizes.resolve(this.poolSize));
+		if ("off".equals(this.metrics))
+		{
+			this.taskRunner.setMetricsEnabled(false);
+		} else
+		{
+			this.taskRunner.setLatencySampleInterval(Integer.parseInt(this.metrics));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Tasks that complete on their first attempt, where the fixed cost of
+	 * recording is largest relative to the work done.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void singleShot(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		this.runBatch(this.completingTask, 1, blackhole);
+	}
+
+	/**
+	 * Tasks that burn a few microseconds of CPU, about the least work a real
+	 * check does.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void shortTask(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		this.runBatch(this.spinningTask, 1, blackhole);
+	}
+
+	/**
+	 * Tasks that use all 5 attempts, recording queue wait and duration for each.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void retryAllAttempts(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		this.runBatch(this.neverCompletingTask, 5, blackhole);
+	}
+
+	private void runBatch(ITask<Boolean> task, int times, Blackhole blackhole)
+			throws InterruptedException, ExecutionException
+	{
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			this.pending[i] = this.taskRunner.runTaskAsync(task, times, 1, Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			blackhole.consume(this.pending[i].get());
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package benchmark;
+
+/**
+ * Resolves pool size parameters relative to the machine running the benchmark,
+ * so that the same parameter list can be used on any host.
+ */
+final class PoolSizes
+{
+	private PoolSizes()
+	{
+	}
+
+	/**
+	 * @param value - either a plain number, <code>cores</code> or
+	 *              <code>cores*N</code>.
+	 * @return the resolved pool size, never less than 1.
+	 */
+	static int resolve(String value)
+	{
+		final int cores = Runtime.getRuntime().availableProcessors();
+		if (value.equals("cores"))
+		{
+			return cores;
+		} else if (value.startsWith("cores*"))
+		{
+			return cores * Integer.parseInt(value.substring("cores*".length()));
+		}
+		return Math.max(1, Integer.parseInt(value));
+	}
+}
@@ -0,0 +1,132 @@
+package benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import task.ITask;
+import task.TaskRunner;
+import util.tasks.PortAvailableTask;
+import util.tasks.PortRangeTask;
+
+/**
+ * Measures the time to check a range of ports: with one task per port that
+ * opens a <code>ServerSocket</code>, as <code>PortAvailableTask</code> used
+ * to; with one <code>PortAvailableTask</code> per port; and with a single
+ * <code>PortRangeTask</code> for the whole range.
+ *
+ * The range starts at <code>fromPort</code> and is <code>ports</code> long.
+ * Ports in use on the host are reported busy by every variant, so choose a
+ * mostly idle range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PortScanBenchmark
+{
+	@Param({ "40000" })
+	public int fromPort;
+
+	@Param({ "10000" })
+	public int ports;
+
+	private TaskRunner taskRunner;
+
+	/**
+	 * The port check as it was before <code>PortProber</code>.
+	 */
+	private static final class ServerSocketPortTask implements ITask<Boolean>
+	{
+		private final int port;
+		private boolean isComplete;
+
+		ServerSocketPortTask(int port)
+		{
+			this.port = port;
+		}
+
+		@Override
+		public boolean isComplete()
+		{
+			return this.isComplete;
+		}
+
+		@Override
+		public Boolean call(Class<Boolean> targetClass)
+		{
+			try
+			{
+				final ServerSocket serverSocket = new ServerSocket(this.port);
+				serverSocket.close();
+				this.isComplete = true;
+				return true;
+			} catch (final IOException e)
+			{
+				e.printStackTrace();
+				return false;
+			}
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.taskRunner = new TaskRunner(PoolSizes.resolve("cores"));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	public List<Boolean> serverSocketTasks() throws InterruptedException, ExecutionException
+	{
+		final List<ITask<Boolean>> tasks = new ArrayList<ITask<Boolean>>(this.ports);
+		for (int port = this.fromPort; port < this.fromPort + this.ports; port++)
+		{
+			tasks.add(new ServerSocketPortTask(port));
+		}
+		return this.taskRunner.runTasksAsync(tasks, 1, 1, Boolean.class).allOf().get();
+	}
+
+	@Benchmark
+	public List<Boolean> portAvailableTasks() throws InterruptedException, ExecutionException
+	{
+		final List<ITask<Boolean>> tasks = new ArrayList<ITask<Boolean>>(this.ports);
+		for (int port = this.fromPort; port < this.fromPort + this.ports; port++)
+		{
+			tasks.add(new PortAvailableTask<Boolean>(port));
+		}
+		return this.taskRunner.runTasksAsync(tasks, 1, 1, Boolean.class).allOf().get();
+	}
+
+	@Benchmark
+	public BitSet rangeTask() throws InterruptedException, ExecutionException
+	{
+		return this.taskRunner.runTaskAsync(new PortRangeTask<BitSet>(this.fromPort, this.fromPort + this.ports - 1),
+				1, 1, BitSet.class).get();
+	}
+}
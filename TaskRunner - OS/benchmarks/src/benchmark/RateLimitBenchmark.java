@@ -0,0 +1,91 @@
+package benchmark;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.ITask;
+import task.RateLimits;
+import task.RetryPolicy;
+import task.TaskRunner;
+
+/**
+ * Measures what rate limiting costs when it does not hold anything back.
+ *
+ * Every task's class is limited to a rate far beyond what the runner can
+ * reach, so each attempt takes a permit from the same bucket without waiting.
+ * The difference from <code>unlimited</code> is the cost of the
+ * compare-and-set on a bucket every worker shares. Run with JMH's
+ * <code>-t</code> and a larger pool to load the bucket from several threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitBenchmark
+{
+	/** Number of tasks submitted per invocation. */
+	public static final int BATCH_SIZE = 1000;
+
+	@Param({ "false", "true" })
+	public boolean limited;
+
+	@Param({ "cores" })
+	public String poolSize;
+
+	private TaskRunner taskRunner;
+	private final ITask<Boolean> completingTask = new BenchmarkTasks.CompletingTask();
+	private final RetryPolicy retryPolicy = RetryPolicy.fixed(1, 1);
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.taskRunner = new TaskRunner(PoolSizes.resolve(this.poolSize));
+		this.taskRunner.setMetricsEnabled(false);
+		if (this.limited)
+		{
+			this.taskRunner.setRateLimits(
+					new RateLimits().forTaskClass(BenchmarkTasks.CompletingTask.class, 1e9, 1000000));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void submitAndComplete(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		@SuppressWarnings("unchecked")
+		final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			pending[i] = this.taskRunner.runTaskAsync(this.completingTask, this.retryPolicy, Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			blackhole.consume(pending[i].get());
+		}
+	}
+}
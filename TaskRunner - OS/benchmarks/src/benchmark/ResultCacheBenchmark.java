@@ -0,0 +1,142 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.ResultCache;
+import task.TaskRunner;
+import util.tasks.FileCheckerTask;
+
+/**
+ * Measures how much a <code>ResultCache</code> cuts the number of file system
+ * probes when many callers ask about the same few files.
+ *
+ * Each invocation submits <code>BATCH_SIZE</code> file checks spread over 16
+ * paths, half of which exist, and waits for all of them. The
+ * <code>probes</code> counter reports how many <code>File.exists</code> calls
+ * were actually made, at the same rate unit as the main score, so
+ * probes/ops is the syscall volume per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultCacheBenchmark
+{
+	/** Number of checks submitted per invocation. */
+	public static final int BATCH_SIZE = 100;
+	private static final int PATH_COUNT = 16;
+
+	@Param({ "false", "true" })
+	public boolean cached;
+
+	private TaskRunner taskRunner;
+	private File directory;
+	private final String[] paths = new String[PATH_COUNT];
+	private final LongAdder probes = new LongAdder();
+
+	@SuppressWarnings("unchecked")
+	private final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+
+	/**
+	 * Reports the probes made during each iteration.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Probes
+	{
+		public long probes;
+	}
+
+	/**
+	 * A file check that counts its calls.
+	 */
+	private final class CountingFileCheckerTask extends FileCheckerTask<Boolean>
+	{
+		CountingFileCheckerTask(String fileName)
+		{
+			super(fileName);
+		}
+
+		@Override
+		public Boolean call(Class<Boolean> targetClass) throws ClassCastException
+		{
+			ResultCacheBenchmark.this.probes.increment();
+			return super.call(targetClass);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.directory = Files.createTempDirectory("result-cache-benchmark").toFile();
+		for (int i = 0; i < PATH_COUNT; i++)
+		{
+			final File file = new File(this.directory, "file" + i);
+			if (i % 2 == 0)
+			{
+				file.createNewFile();
+			}
+			this.paths[i] = file.getPath();
+		}
+		this.taskRunner = new TaskRunner(1);
+		if (this.cached)
+		{
+			this.taskRunner.setResultCache(new ResultCache(1000, 1000, 100));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+		for (final String path : this.paths)
+		{
+			new File(path).delete();
+		}
+		this.directory.delete();
+	}
+
+	/**
+	 * Single-attempt checks of files that exist and files that do not.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void fileChecks(Probes counters, Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			this.pending[i] = this.taskRunner.runTaskAsync(new CountingFileCheckerTask(this.paths[i % PATH_COUNT]),
+					1, 1, Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			blackhole.consume(this.pending[i].get());
+		}
+		counters.probes += this.probes.sumThenReset();
+	}
+}
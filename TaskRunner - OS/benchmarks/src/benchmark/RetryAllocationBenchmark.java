@@ -0,0 +1,113 @@
+package benchmark;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.ExecutionMode;
+import task.HashedWheelRetryScheduler;
+import task.ITask;
+import task.RetryPolicy;
+import task.ScheduledExecutorRetryScheduler;
+import task.TaskRunner;
+
+/**
+ * Measures the garbage each retry creates, to be run with
+ * <code>-prof gc</code>.
+ *
+ * Every task fails each attempt it is given, so a task with one attempt
+ * allocates only what a submission costs, and a task with five attempts adds
+ * four retries on top. The difference in <code>gc.alloc.rate.norm</code>
+ * between <code>oneAttempt</code> and <code>fiveAttempts</code>, divided by
+ * four, is the cost of a delayed retry; <code>fiveImmediateAttempts</code> does
+ * the same for retries with no delay, which skip the timer. Metrics are off so
+ * only the engine itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RetryAllocationBenchmark
+{
+	/** Number of tasks submitted per invocation. */
+	public static final int BATCH_SIZE = 1000;
+
+	@Param({ "executor", "wheel" })
+	public String scheduler;
+
+	private TaskRunner taskRunner;
+	private final ITask<Boolean> neverCompletingTask = new BenchmarkTasks.NeverCompletingTask();
+	private final RetryPolicy oneAttempt = RetryPolicy.fixed(1, 1);
+	private final RetryPolicy fiveAttempts = RetryPolicy.fixed(5, 1);
+	private final RetryPolicy fiveImmediateAttempts = RetryPolicy.of(5, (failedAttempts, previousDelayMillis) -> 0);
+
+	@SuppressWarnings("unchecked")
+	private final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.taskRunner = new TaskRunner(1, ExecutionMode.PLATFORM_THREADS,
+				"wheel".equals(this.scheduler) ? new HashedWheelRetryScheduler()
+						: new ScheduledExecutorRetryScheduler(1));
+		this.taskRunner.setMetricsEnabled(false);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void oneAttempt(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		this.runBatch(this.oneAttempt, blackhole);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void fiveAttempts(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		this.runBatch(this.fiveAttempts, blackhole);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void fiveImmediateAttempts(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		this.runBatch(this.fiveImmediateAttempts, blackhole);
+	}
+
+	private void runBatch(RetryPolicy retryPolicy, Blackhole blackhole)
+			throws InterruptedException, ExecutionException
+	{
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			this.pending[i] = this.taskRunner.runTaskAsync(this.neverCompletingTask, retryPolicy, Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			blackhole.consume(this.pending[i].get());
+		}
+	}
+}
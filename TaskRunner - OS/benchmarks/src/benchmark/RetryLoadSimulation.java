@@ -0,0 +1,96 @@
+package benchmark;
+
+import java.util.PriorityQueue;
+
+import task.RetryPolicy;
+
+/**
+ * Simulates a crowd of clients that all start probing the same resource at
+ * once, to show how each backoff strategy spreads their retries out.
+ *
+ * The resource can serve a fixed number of attempts per time window; any
+ * attempt beyond that in the same window fails and is retried according to
+ * the policy. With a fixed delay the failed clients come back together and
+ * collide again, while jittered delays spread them over later windows.
+ *
+ * The table reports the total attempts made, the most retries that landed in
+ * a single window, how many clients eventually succeeded and when the last of
+ * them did.
+ *
+ * Runs in simulated time, so it needs no threads and finishes instantly:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar benchmark.RetryLoadSimulation
+ * </pre>
+ */
+public final class RetryLoadSimulation
+{
+	private static final int CLIENTS = 1000;
+	private static final int WINDOW_MILLIS = 10;
+	private static final int CAPACITY_PER_WINDOW = 50;
+	private static final int MAX_ATTEMPTS = 20;
+
+	private RetryLoadSimulation()
+	{
+	}
+
+	public static void main(String[] args)
+	{
+		System.out.printf("%d clients, capacity %d attempts per %dms, up to %d attempts each%n",
+				RetryLoadSimulation.CLIENTS, RetryLoadSimulation.CAPACITY_PER_WINDOW,
+				RetryLoadSimulation.WINDOW_MILLIS, RetryLoadSimulation.MAX_ATTEMPTS);
+		System.out.printf("%-20s %10s %18s %10s %12s%n", "policy", "attempts", "peak retries/win", "succeeded",
+				"last done ms");
+		final int attempts = RetryLoadSimulation.MAX_ATTEMPTS;
+		RetryLoadSimulation.simulate("fixed", RetryPolicy.fixed(attempts, 100));
+		RetryLoadSimulation.simulate("exponential", RetryPolicy.exponential(attempts, 100, 5000));
+		RetryLoadSimulation.simulate("full jitter", RetryPolicy.fullJitter(attempts, 100, 5000));
+		RetryLoadSimulation.simulate("decorrelated jitter", RetryPolicy.decorrelatedJitter(attempts, 100, 5000));
+	}
+
+	private static void simulate(String name, RetryPolicy policy)
+	{
+		// Each event is {time, client, attempt number, previous delay}.
+		final PriorityQueue<long[]> events = new PriorityQueue<long[]>((a, b) -> Long.compare(a[0], b[0]));
+		for (int client = 0; client < RetryLoadSimulation.CLIENTS; client++)
+		{
+			events.add(new long[] { 0, client, 1, 0 });
+		}
+		long currentWindow = -1;
+		int servedInWindow = 0;
+		int peakRetriesInWindow = 0;
+		int retriesInWindow = 0;
+		long totalAttempts = 0;
+		int succeeded = 0;
+		long lastSuccess = 0;
+		while (!events.isEmpty())
+		{
+			final long[] event = events.poll();
+			final long window = event[0] / RetryLoadSimulation.WINDOW_MILLIS;
+			if (window != currentWindow)
+			{
+				currentWindow = window;
+				servedInWindow = 0;
+				retriesInWindow = 0;
+			}
+			if (event[2] > 1)
+			{
+				retriesInWindow++;
+				peakRetriesInWindow = Math.max(peakRetriesInWindow, retriesInWindow);
+			}
+			totalAttempts++;
+			if (servedInWindow < RetryLoadSimulation.CAPACITY_PER_WINDOW)
+			{
+				servedInWindow++;
+				succeeded++;
+				lastSuccess = event[0];
+			} else if (event[2] < policy.getMaxAttempts())
+			{
+				final long delay = policy.delayMillis((int) event[2], event[3]);
+				events.add(new long[] { event[0] + delay, event[1], event[2] + 1, delay });
+			}
+		}
+		System.out.printf("%-20s %10d %18d %10d %12d%n", name, totalAttempts, peakRetriesInWindow, succeeded,
+				lastSuccess);
+	}
+}
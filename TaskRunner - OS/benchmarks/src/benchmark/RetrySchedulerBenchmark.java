@@ -0,0 +1,80 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import task.HashedWheelRetryScheduler;
+import task.RetryScheduler;
+import task.ScheduledExecutorRetryScheduler;
+
+/**
+ * Compares the cost of scheduling and cancelling a retry while a large number
+ * of other retries are already pending, for the heap based executor scheduler
+ * and the hashed timing wheel.
+ *
+ * The pending retries are given a delay longer than the run so none of them
+ * fire, and each operation cancels the retry it scheduled so the number
+ * pending stays constant. Run with <code>-t</code> greater than 1 to add
+ * contention between submitting threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RetrySchedulerBenchmark
+{
+	private static final long PENDING_DELAY_MILLIS = TimeUnit.HOURS.toMillis(1);
+	private static final Runnable NO_OP = () -> {
+	};
+
+	@Param({ "10000", "100000", "1000000" })
+	public int pendingRetries;
+
+	@Param({ "executor", "wheel" })
+	public String scheduler;
+
+	private RetryScheduler retryScheduler;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.retryScheduler = this.scheduler.equals("wheel") ? new HashedWheelRetryScheduler()
+				: new ScheduledExecutorRetryScheduler(1);
+		for (int i = 0; i < this.pendingRetries; i++)
+		{
+			this.retryScheduler.schedule(RetrySchedulerBenchmark.NO_OP,
+					RetrySchedulerBenchmark.PENDING_DELAY_MILLIS + i);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.retryScheduler.shutdownNow();
+		this.retryScheduler.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Schedules a retry among the pending ones and cancels it again.
+	 */
+	@Benchmark
+	public boolean scheduleAndCancel()
+	{
+		return this.retryScheduler.schedule(RetrySchedulerBenchmark.NO_OP, 1000).cancel();
+	}
+}
@@ -0,0 +1,143 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.ITask;
+import task.TaskRunner;
+
+/**
+ * Measures the cost of submitting tasks through
+ * <code>TaskRunner.runTaskAsync</code> and waiting for their futures.
+ *
+ * Each invocation submits <code>batchSize</code> tasks and then waits for all of
+ * them, and each task counts as one operation. Throughput mode reports tasks
+ * per second, sample mode reports the per-task latency distribution
+ * (p50/p99), and running with <code>-prof gc</code> reports
+ * <code>gc.alloc.rate.norm</code> as bytes allocated per task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskRunnerBenchmark
+{
+	/** Number of tasks submitted per invocation. */
+	public static final int BATCH_SIZE = 100;
+
+	/** Pool sizes from a single thread up to four threads per core. */
+	@Param({ "1", "2", "4", "cores", "cores*2", "cores*4" })
+	public String poolSize;
+
+	private TaskRunner taskRunner;
+	private final ITask<Boolean> completingTask = new BenchmarkTasks.CompletingTask();
+	private final ITask<Boolean> neverCompletingTask = new BenchmarkTasks.NeverCompletingTask();
+	private final ITask<Boolean> throwingTask = new BenchmarkTasks.ThrowingTask();
+	private final List<ITask<Boolean>> completingBatch = new ArrayList<ITask<Boolean>>(
+			Collections.nCopies(BATCH_SIZE, this.completingTask));
+
+	@SuppressWarnings("unchecked")
+	private final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.taskRunner = new TaskRunner(PoolSizes.resolve(this.poolSize));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Tasks that complete on their first attempt.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void singleShot(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		this.runBatch(this.completingTask, 1, blackhole);
+	}
+
+	/**
+	 * The same tasks as <code>singleShot</code>, submitted in one call to
+	 * <code>runTasksAsync</code>.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void singleShotBatched(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		blackhole.consume(this.taskRunner.runTasksAsync(this.completingBatch, 1, 1, Boolean.class).allOf().get());
+	}
+
+	/**
+	 * Tasks that never complete and so use all 5 attempts, with the minimum sleep
+	 * between attempts.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void retryAllAttempts(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		this.runBatch(this.neverCompletingTask, 5, blackhole);
+	}
+
+	/**
+	 * Tasks that throw on every one of their 5 attempts.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void exceptionThrowing(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			this.pending[i] = this.taskRunner.runTaskAsync(this.throwingTask, 5, 1, Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			try
+			{
+				this.pending[i].get();
+			} catch (final ExecutionException e)
+			{
+				blackhole.consume(e);
+			}
+		}
+	}
+
+	private void runBatch(ITask<Boolean> task, int times, Blackhole blackhole)
+			throws InterruptedException, ExecutionException
+	{
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			this.pending[i] = this.taskRunner.runTaskAsync(task, times, 1, Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			blackhole.consume(this.pending[i].get());
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package benchmark;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import task.ExecutionMode;
+import task.ITask;
+import task.RetryPolicy;
+import task.TaskRunner;
+
+/**
+ * Compares how the shared-queue pool and the work-stealing pool scale with the
+ * number of workers on short, CPU-light tasks.
+ *
+ * Each invocation submits <code>BATCH_SIZE</code> tasks and waits for all of
+ * them. Run with JMH's <code>-t</code> set to several submitting threads to
+ * load the queues from more than one side, and on a host with at least as
+ * many cores as the largest pool size for the scaling rows to be meaningful.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkStealingBenchmark
+{
+	/** Number of tasks submitted per invocation. */
+	public static final int BATCH_SIZE = 1000;
+
+	@Param({ "PLATFORM_THREADS", "WORK_STEALING" })
+	public ExecutionMode executionMode;
+
+	@Param({ "1", "4", "16", "64" })
+	public String poolSize;
+
+	/** CPU work per attempt, in <code>Blackhole.consumeCPU</code> tokens. */
+	@Param({ "100" })
+	public long tokens;
+
+	private TaskRunner taskRunner;
+	private ITask<Boolean> shortTask;
+	private ITask<Boolean> neverCompletingTask;
+	private final RetryPolicy immediateRetries = RetryPolicy.of(3, (failedAttempts, previousDelayMillis) -> 0);
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.taskRunner = new TaskRunner(PoolSizes.resolve(this.poolSize), this.executionMode);
+		this.shortTask = new BenchmarkTasks.SpinningTask(this.tokens);
+		this.neverCompletingTask = new BenchmarkTasks.NeverCompletingTask();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.taskRunner.Shutdown(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Short tasks that complete on their first attempt.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void shortTasks(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		this.runBatch(this.shortTask, RetryPolicy.fixed(1, 1), blackhole);
+	}
+
+	/**
+	 * Tasks that use all three attempts with no delay between them, so every
+	 * retry is queued by the worker that ran the failed attempt.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void immediateRetries(Blackhole blackhole) throws InterruptedException, ExecutionException
+	{
+		this.runBatch(this.neverCompletingTask, this.immediateRetries, blackhole);
+	}
+
+	private void runBatch(ITask<Boolean> task, RetryPolicy retryPolicy, Blackhole blackhole)
+			throws InterruptedException, ExecutionException
+	{
+		@SuppressWarnings("unchecked")
+		final Future<Boolean>[] pending = new Future[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			pending[i] = this.taskRunner.runTaskAsync(task, retryPolicy, Boolean.class);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++)
+		{
+			blackhole.consume(pending[i].get());
+		}
+	}
+}
@@ -3,6 +3,7 @@ package client;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import task.AdaptivePoolSizing;
 import task.TaskRunner;
 import util.tasks.FileCheckerTask;
 import util.tasks.PortAvailableTask;
@@ -31,7 +32,8 @@ public class TaskSubmitter
 		{
 			portNumber = Integer.parseInt(args[1]);
 		}
-		final TaskRunner taskRunner = new TaskRunner(10);
+		final TaskRunner taskRunner = new TaskRunner(1);
+		taskRunner.setAdaptivePoolSizing(new AdaptivePoolSizing(1, 10));
 
 		final FileCheckerTask<Boolean> fileCheckerTask = new FileCheckerTask<Boolean>(fileName);
 		final PortAvailableTask<Boolean> portAvailableTask = new PortAvailableTask<Boolean>(portNumber);
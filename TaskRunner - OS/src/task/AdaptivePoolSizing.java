@@ -0,0 +1,91 @@
+package task;
+
+/**
+ * Settings for resizing a <code>TaskRunner</code>'s worker pool to suit the
+ * load, set through <code>TaskRunner.setAdaptivePoolSizing</code>.
+ *
+ * Every sample interval the runner measures the pool's throughput, the work
+ * queued behind it and the threads busy running attempts, and a controller
+ * picks the pool size for the next interval, within the bounds given here.
+ * While attempts are queued it climbs towards the size with the most
+ * throughput: it keeps moving the size in one direction while each move raises
+ * throughput, turns back with a smaller step when one does not, and settles
+ * once a single thread either way makes no difference. A settled size is held
+ * until throughput shifts, so the pool does not oscillate around its best
+ * size. While nothing is queued the pool is trimmed, a thread per interval,
+ * to one more than the threads kept busy.
+ *
+ * Queue wait and attempt latency are not timed per attempt for this, so it
+ * costs nothing while tasks run: they follow from the samples by Little's law,
+ * as the queue depth and busy threads divided by the throughput.
+ */
+public final class AdaptivePoolSizing
+{
+	/** The default time between samples. */
+	public static final long DEFAULT_SAMPLE_INTERVAL_MILLIS = 250;
+
+	private final int minThreads;
+	private final int maxThreads;
+	private final long sampleIntervalMillis;
+
+	/**
+	 * @param minThreads - the fewest worker threads to keep.
+	 * @param maxThreads - the most worker threads to run.
+	 */
+	public AdaptivePoolSizing(int minThreads, int maxThreads)
+	{
+		this(minThreads, maxThreads, AdaptivePoolSizing.DEFAULT_SAMPLE_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * @param minThreads           - the fewest worker threads to keep.
+	 * @param maxThreads           - the most worker threads to run.
+	 * @param sampleIntervalMillis - the time between samples, and so between
+	 *                             resizes. Each sample should span many attempts
+	 *                             for the throughput it measures to be steady.
+	 */
+	public AdaptivePoolSizing(int minThreads, int maxThreads, long sampleIntervalMillis)
+	{
+		if (minThreads < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'minThreads' argument. The value should be at least 1. Actual value: "
+							+ minThreads);
+		} else if (maxThreads < minThreads)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'maxThreads' argument. The value should be at least 'minThreads'. Actual value: "
+							+ maxThreads);
+		} else if (sampleIntervalMillis < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'sampleIntervalMillis' argument. The value should be at least 1. Actual value: "
+							+ sampleIntervalMillis);
+		}
+		this.minThreads = minThreads;
+		this.maxThreads = maxThreads;
+		this.sampleIntervalMillis = sampleIntervalMillis;
+	}
+
+	public int getMinThreads()
+	{
+		return this.minThreads;
+	}
+
+	public int getMaxThreads()
+	{
+		return this.maxThreads;
+	}
+
+	public long getSampleIntervalMillis()
+	{
+		return this.sampleIntervalMillis;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "minThreads=" + this.minThreads + ", maxThreads=" + this.maxThreads + ", sampleIntervalMillis="
+				+ this.sampleIntervalMillis;
+	}
+}
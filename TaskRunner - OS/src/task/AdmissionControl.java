@@ -0,0 +1,278 @@
+package task;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how many tasks a <code>TaskRunner</code> holds at once. A task is
+ * admitted when it is submitted and holds its place until its Future
+ * completes, including while it waits between attempts.
+ *
+ * Admission is a compare-and-set on a counter while there is room and no
+ * submission is waiting. Once one is, later submissions queue behind it, so
+ * places are handed out in the order submissions arrived. Only submissions
+ * that have to wait, and completions that have someone waiting on them, take
+ * the lock.
+ */
+final class AdmissionControl
+{
+	/**
+	 * A submission waiting for room.
+	 */
+	interface Waiter
+	{
+		/**
+		 * Called once the waiter holds a place, outside of any lock.
+		 */
+		void admitted();
+	}
+
+	private final int capacity;
+	private final AdmissionPolicy policy;
+	private final AtomicInteger admitted = new AtomicInteger();
+	private final AtomicInteger waiting = new AtomicInteger();
+	private final LongAdder rejections = new LongAdder();
+	/** Guarded by this. */
+	private final Queue<Waiter> waiters = new ArrayDeque<Waiter>();
+	/** Admitted tasks in admission order, for dropping the oldest. Only kept with DROP_OLDEST. */
+	private final ConcurrentLinkedQueue<TaskExecution<?>> admissionOrder = new ConcurrentLinkedQueue<TaskExecution<?>>();
+
+	AdmissionControl(int capacity, AdmissionPolicy policy)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'capacity' argument. The value should be at least 1. Actual value: "
+							+ capacity);
+		} else if (policy == null)
+		{
+			throw new NullPointerException("'policy' argument cannot be null.");
+		}
+		this.capacity = capacity;
+		this.policy = policy;
+	}
+
+	/**
+	 * Admits a submission, applying the admission policy if the limit has been
+	 * reached.
+	 *
+	 * @param execution - the submitted task.
+	 * @return true if the task was admitted and should be handed to the workers,
+	 *         false if the caller should run its first attempt itself.
+	 * @throws TaskRejectedException - if the task is refused.
+	 */
+	boolean admit(TaskExecution<?> execution) throws TaskRejectedException
+	{
+		// Yields to earlier submissions still waiting, rather than taking the room freed for them.
+		if (this.waiting.get() == 0 && this.tryAcquire())
+		{
+			this.onAdmitted(execution);
+			return true;
+		}
+		switch (this.policy)
+		{
+		case BLOCK:
+			this.awaitAdmission(execution);
+			return true;
+		case DROP_OLDEST:
+			while (this.dropOldest())
+			{
+				if (this.tryAcquire())
+				{
+					this.onAdmitted(execution);
+					return true;
+				}
+			}
+			throw this.reject("Admission limit of " + this.capacity
+					+ " reached and every admitted task has already started.");
+		case CALLER_RUNS:
+			return false;
+		case FAIL_FAST:
+		default:
+			throw this.reject("Admission limit of " + this.capacity + " reached.");
+		}
+	}
+
+	/**
+	 * Queues <code>waiter</code> to be admitted once there is room, or admits it
+	 * straight away if there is room already.
+	 */
+	void enqueue(Waiter waiter)
+	{
+		synchronized (this)
+		{
+			this.waiters.add(waiter);
+			this.waiting.incrementAndGet();
+		}
+		this.admitWaiters();
+	}
+
+	/**
+	 * Stops waiting for room.
+	 *
+	 * @return true if <code>waiter</code> was still waiting, false if it has
+	 *         already been admitted.
+	 */
+	synchronized boolean withdraw(Waiter waiter)
+	{
+		if (this.waiters.remove(waiter))
+		{
+			this.waiting.decrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gives up the place held by a task whose Future has completed.
+	 */
+	void release()
+	{
+		this.admitted.decrementAndGet();
+		if (this.waiting.get() > 0)
+		{
+			this.admitWaiters();
+		}
+	}
+
+	/**
+	 * Records that <code>execution</code> holds a place, so it releases it on
+	 * completion and can be dropped if the policy allows.
+	 */
+	void onAdmitted(TaskExecution<?> execution)
+	{
+		execution.markAdmitted();
+		if (this.policy == AdmissionPolicy.DROP_OLDEST)
+		{
+			// Drop tasks that have already started from the head, so the queue stays
+			// roughly as long as the number of tasks waiting to start.
+			TaskExecution<?> head;
+			while ((head = this.admissionOrder.peek()) != null && (head.hasStarted() || head.isDone()))
+			{
+				this.admissionOrder.remove(head);
+			}
+			this.admissionOrder.add(execution);
+		}
+	}
+
+	int getAdmittedCount()
+	{
+		return this.admitted.get();
+	}
+
+	int getWaitingCount()
+	{
+		return this.waiting.get();
+	}
+
+	long getRejectedCount()
+	{
+		return this.rejections.sum();
+	}
+
+	int getCapacity()
+	{
+		return this.capacity;
+	}
+
+	private TaskRejectedException reject(String message)
+	{
+		this.rejections.increment();
+		return new TaskRejectedException(message);
+	}
+
+	private boolean tryAcquire()
+	{
+		while (true)
+		{
+			final int current = this.admitted.get();
+			if (current >= this.capacity)
+			{
+				return false;
+			}
+			if (this.admitted.compareAndSet(current, current + 1))
+			{
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Hands free places to waiting submissions in the order they arrived.
+	 */
+	private void admitWaiters()
+	{
+		List<Waiter> ready = null;
+		synchronized (this)
+		{
+			while (!this.waiters.isEmpty() && this.tryAcquire())
+			{
+				this.waiting.decrementAndGet();
+				if (ready == null)
+				{
+					ready = new ArrayList<Waiter>();
+				}
+				ready.add(this.waiters.poll());
+			}
+		}
+		if (ready != null)
+		{
+			for (final Waiter waiter : ready)
+			{
+				waiter.admitted();
+			}
+		}
+	}
+
+	/**
+	 * Blocks the submitting thread until <code>execution</code> is admitted. If
+	 * the thread is interrupted while waiting the submission is refused.
+	 */
+	private void awaitAdmission(TaskExecution<?> execution) throws TaskRejectedException
+	{
+		final CountDownLatch latch = new CountDownLatch(1);
+		final Waiter waiter = latch::countDown;
+		this.enqueue(waiter);
+		try
+		{
+			latch.await();
+		} catch (final InterruptedException e)
+		{
+			if (this.withdraw(waiter))
+			{
+				Thread.currentThread().interrupt();
+				throw this.reject("Interrupted while waiting for admission.");
+			}
+			// Admitted at the same moment as the interrupt; keep the place.
+			Thread.currentThread().interrupt();
+		}
+		this.onAdmitted(execution);
+	}
+
+	/**
+	 * Fails the oldest admitted task that has not started yet, freeing its place.
+	 *
+	 * @return true if a task was dropped.
+	 */
+	private boolean dropOldest()
+	{
+		TaskExecution<?> oldest;
+		while ((oldest = this.admissionOrder.poll()) != null)
+		{
+			if (oldest.dropIfNotStarted(
+					new TaskRejectedException("Dropped to admit a newer task; admission limit of " + this.capacity
+							+ " reached.")))
+			{
+				this.rejections.increment();
+				return true;
+			}
+		}
+		return false;
+	}
+}
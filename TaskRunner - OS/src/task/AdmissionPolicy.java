@@ -0,0 +1,32 @@
+package task;
+
+/**
+ * What a <code>TaskRunner</code> with a bounded admission limit does with a
+ * submission that arrives while the limit is reached.
+ */
+public enum AdmissionPolicy
+{
+	/**
+	 * The submitting thread waits until a running task completes.
+	 */
+	BLOCK,
+
+	/**
+	 * The submission is refused with a <code>TaskRejectedException</code>.
+	 */
+	FAIL_FAST,
+
+	/**
+	 * The oldest admitted task that has not started yet is dropped to make room,
+	 * and its Future fails with a <code>TaskRejectedException</code>. If every
+	 * admitted task has already started, the submission is refused instead.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * The submitting thread runs the task's first attempt itself, which slows the
+	 * caller down to the rate the runner can keep up with. Any retries are
+	 * scheduled as normal.
+	 */
+	CALLER_RUNS
+}
@@ -0,0 +1,52 @@
+package task;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * The handle returned for a submission answered from the result cache, which
+ * is complete from the start and made no attempts.
+ *
+ * @param <V> - The result type of the task.
+ */
+final class CachedTaskHandle<V> extends CompletableFuture<V> implements TaskHandle<V>
+{
+	private final TaskRunner runner;
+
+	CachedTaskHandle(TaskRunner runner, V value)
+	{
+		this.runner = runner;
+		super.complete(value);
+	}
+
+	@Override
+	public TaskHandle<V> onComplete(BiConsumer<? super V, ? super Throwable> callback)
+	{
+		this.runner.whenComplete(this, callback);
+		return this;
+	}
+
+	@Override
+	public int getAttempts()
+	{
+		return 0;
+	}
+
+	@Override
+	public Throwable getLastException()
+	{
+		return null;
+	}
+
+	@Override
+	public long getQueuedNanos()
+	{
+		return -1;
+	}
+
+	@Override
+	public long getElapsedNanos()
+	{
+		return 0;
+	}
+}
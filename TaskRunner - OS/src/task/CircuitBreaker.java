@@ -0,0 +1,241 @@
+package task;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The circuit breaker for one resource, as described in
+ * <code>CircuitBreakers</code>.
+ *
+ * While closed, which is most of the time, letting an attempt through is a
+ * few volatile reads. Outcomes are counted under the breaker's lock, which
+ * only attempts against the same resource share.
+ *
+ * Each change of state starts a new generation, and the permit an attempt is
+ * let through with names the generation it was let through in. An outcome is
+ * only counted, and a permit only given back, in the generation it was issued
+ * in, so an attempt let through while the breaker was closed cannot close a
+ * half-open breaker by succeeding late, nor give back a trial it never took.
+ */
+final class CircuitBreaker
+{
+	/** What <code>tryAcquire</code> returns when the attempt is short-circuited. */
+	static final long NO_PERMIT = -1;
+
+	final Object resourceKey;
+	private final CircuitBreakers settings;
+	private final LongAdder shortCircuits = new LongAdder();
+	private volatile CircuitState state = CircuitState.CLOSED;
+	/**
+	 * The number of changes of state so far. Written under this, before the
+	 * state it goes with.
+	 */
+	private volatile long generation;
+	/** When an open breaker lets trial attempts through. Guarded by this. */
+	private long openUntilNanos;
+	/** Whether each of the last attempts failed, oldest overwritten first. Guarded by this. */
+	private final boolean[] window;
+	/** Guarded by this. */
+	private int next;
+	/** The number of outcomes in the window. Guarded by this. */
+	private int count;
+	/** The number of failures in the window. Guarded by this. */
+	private int failures;
+	/** The trial attempts a half-open breaker may still let through. Guarded by this. */
+	private int trialsLeft;
+	/** The trial attempts that have succeeded since the breaker half opened. Guarded by this. */
+	private int trialSuccesses;
+
+	CircuitBreaker(Object resourceKey, CircuitBreakers settings)
+	{
+		this.resourceKey = resourceKey;
+		this.settings = settings;
+		this.window = new boolean[settings.getWindowSize()];
+	}
+
+	CircuitState getState()
+	{
+		return this.state;
+	}
+
+	long getShortCircuitCount()
+	{
+		return this.shortCircuits.sum();
+	}
+
+	/**
+	 * @return true if the breaker is open and not yet due to let a trial through,
+	 *         so a task against the resource can be failed without queueing it.
+	 *         Counts the task as short-circuited if so.
+	 */
+	boolean rejectsSubmission()
+	{
+		if (this.state != CircuitState.OPEN)
+		{
+			return false;
+		}
+		synchronized (this)
+		{
+			if (this.state != CircuitState.OPEN || System.nanoTime() - this.openUntilNanos >= 0)
+			{
+				return false;
+			}
+		}
+		this.shortCircuits.increment();
+		return true;
+	}
+
+	/**
+	 * Asks to run an attempt. An attempt let through must be followed by exactly
+	 * one call to <code>onSuccess</code>, <code>onFailure</code> or
+	 * <code>release</code> with the permit returned.
+	 *
+	 * @return the permit the attempt may run with, or <code>NO_PERMIT</code> if it
+	 *         is short-circuited.
+	 */
+	long tryAcquire()
+	{
+		final long generation = this.generation;
+		if (this.state == CircuitState.CLOSED && this.generation == generation)
+		{
+			return generation;
+		}
+		CircuitState from = null;
+		final long permit;
+		synchronized (this)
+		{
+			if (this.state == CircuitState.OPEN && System.nanoTime() - this.openUntilNanos >= 0)
+			{
+				from = this.transition(CircuitState.HALF_OPEN);
+				this.trialsLeft = this.settings.getHalfOpenTrials();
+				this.trialSuccesses = 0;
+			}
+			if (this.state == CircuitState.CLOSED)
+			{
+				permit = this.generation;
+			} else if (this.state == CircuitState.HALF_OPEN && this.trialsLeft > 0)
+			{
+				this.trialsLeft--;
+				permit = this.generation;
+			} else
+			{
+				permit = CircuitBreaker.NO_PERMIT;
+			}
+		}
+		this.announce(from, CircuitState.HALF_OPEN);
+		if (permit == CircuitBreaker.NO_PERMIT)
+		{
+			this.shortCircuits.increment();
+		}
+		return permit;
+	}
+
+	/**
+	 * Counts a success of the attempt let through with <code>permit</code>,
+	 * unless the breaker has changed state since.
+	 */
+	void onSuccess(long permit)
+	{
+		CircuitState from = null;
+		synchronized (this)
+		{
+			if (permit != this.generation)
+			{
+				return;
+			} else if (this.state == CircuitState.CLOSED)
+			{
+				this.record(false);
+			} else if (this.state == CircuitState.HALF_OPEN
+					&& ++this.trialSuccesses >= this.settings.getHalfOpenTrials())
+			{
+				from = this.transition(CircuitState.CLOSED);
+				this.count = 0;
+				this.failures = 0;
+				this.next = 0;
+			}
+		}
+		this.announce(from, CircuitState.CLOSED);
+	}
+
+	/**
+	 * Counts a failure of the attempt let through with <code>permit</code>,
+	 * unless the breaker has changed state since.
+	 */
+	void onFailure(long permit)
+	{
+		CircuitState from = null;
+		synchronized (this)
+		{
+			if (permit != this.generation)
+			{
+				return;
+			} else if (this.state == CircuitState.CLOSED)
+			{
+				this.record(true);
+				if (this.count >= this.settings.getMinimumAttempts()
+						&& this.failures >= this.settings.getFailureRateThreshold() * this.count)
+				{
+					from = this.open();
+				}
+			} else if (this.state == CircuitState.HALF_OPEN)
+			{
+				from = this.open();
+			}
+		}
+		this.announce(from, CircuitState.OPEN);
+	}
+
+	/**
+	 * Gives back an attempt let through whose outcome says nothing about the
+	 * resource, such as one whose task was cancelled. A permit from before the
+	 * breaker last changed state is not given back.
+	 */
+	synchronized void release(long permit)
+	{
+		if (permit == this.generation && this.state == CircuitState.HALF_OPEN)
+		{
+			this.trialsLeft++;
+		}
+	}
+
+	private void record(boolean failed)
+	{
+		if (this.count == this.window.length)
+		{
+			if (this.window[this.next])
+			{
+				this.failures--;
+			}
+		} else
+		{
+			this.count++;
+		}
+		this.window[this.next] = failed;
+		if (failed)
+		{
+			this.failures++;
+		}
+		this.next = (this.next + 1) % this.window.length;
+	}
+
+	private CircuitState open()
+	{
+		this.openUntilNanos = System.nanoTime() + this.settings.getOpenNanos();
+		return this.transition(CircuitState.OPEN);
+	}
+
+	private CircuitState transition(CircuitState to)
+	{
+		final CircuitState from = this.state;
+		this.generation++;
+		this.state = to;
+		return from;
+	}
+
+	private void announce(CircuitState from, CircuitState to)
+	{
+		if (from != null)
+		{
+			this.settings.stateChanged(this.resourceKey, from, to);
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package task;
+
+/**
+ * Told when a circuit breaker changes state.
+ *
+ * @see CircuitBreakers#withListener(CircuitBreakerListener)
+ */
+@FunctionalInterface
+public interface CircuitBreakerListener
+{
+	/**
+	 * Called on the thread whose attempt, or whose check before one, changed the
+	 * state, after the change. Should return quickly.
+	 *
+	 * @param resourceKey - the resource the breaker guards.
+	 * @param from        - the state the breaker was in.
+	 * @param to          - the state the breaker is now in.
+	 */
+	public void onStateChange(Object resourceKey, CircuitState from, CircuitState to);
+}
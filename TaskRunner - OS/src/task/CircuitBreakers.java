@@ -0,0 +1,255 @@
+package task;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breakers that stop a <code>TaskRunner</code> spending attempts on a
+ * resource that keeps failing, one breaker per resource named by
+ * <code>ITask.resourceKey</code>. Tasks without a resource key are never
+ * stopped.
+ *
+ * A breaker starts closed and counts the outcomes of the last
+ * <code>windowSize</code> attempts against its resource: an attempt fails if
+ * it throws, other than a <code>ClassCastException</code>, or overruns its
+ * timeout. Once at least <code>minimumAttempts</code> have been counted and
+ * the share that failed reaches <code>failureRateThreshold</code>, the breaker
+ * opens. While it is open, tasks against the resource are not run: a task
+ * submitted, or due another attempt, completes straight away with the fallback
+ * set for its result type, or else fails with a
+ * <code>CircuitOpenException</code>, and no further attempts are made. After
+ * <code>openMillis</code> the breaker half opens and lets
+ * <code>halfOpenTrials</code> attempts through. If they all succeed it closes
+ * again, with a fresh window; if any fails it opens for another
+ * <code>openMillis</code>.
+ *
+ * Breakers are created when a task against their resource first runs and are
+ * remembered for the life of these breakers.
+ */
+public final class CircuitBreakers
+{
+	private final double failureRateThreshold;
+	private final int windowSize;
+	private final long openNanos;
+	private volatile int minimumAttempts;
+	private volatile int halfOpenTrials = 1;
+	private final Map<Object, CircuitBreaker> breakers = new ConcurrentHashMap<Object, CircuitBreaker>();
+	private final Map<Class<?>, Object> fallbacks = new ConcurrentHashMap<Class<?>, Object>();
+	private final CopyOnWriteArrayList<CircuitBreakerListener> listeners = new CopyOnWriteArrayList<CircuitBreakerListener>();
+
+	/**
+	 * @param failureRateThreshold - the share of the attempts in the window that
+	 *                             must fail for a breaker to open, above 0 and at
+	 *                             most 1.
+	 * @param windowSize           - the number of latest attempts each breaker
+	 *                             counts.
+	 * @param openMillis           - how long a breaker stays open before letting
+	 *                             trial attempts through.
+	 */
+	public CircuitBreakers(double failureRateThreshold, int windowSize, long openMillis)
+	{
+		if (!(failureRateThreshold > 0 && failureRateThreshold <= 1))
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'failureRateThreshold' argument. The value should be above 0 and at most 1. Actual value: "
+							+ failureRateThreshold);
+		} else if (windowSize < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'windowSize' argument. The value should be at least 1. Actual value: "
+							+ windowSize);
+		} else if (openMillis < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'openMillis' argument. The value should be at least 1. Actual value: "
+							+ openMillis);
+		}
+		this.failureRateThreshold = failureRateThreshold;
+		this.windowSize = windowSize;
+		this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+		this.minimumAttempts = windowSize;
+	}
+
+	/**
+	 * Sets the number of attempts a breaker must have counted before it can open.
+	 * Defaults to <code>windowSize</code>.
+	 *
+	 * @return these breakers.
+	 */
+	public CircuitBreakers withMinimumAttempts(int minimumAttempts)
+	{
+		if (minimumAttempts < 1 || minimumAttempts > this.windowSize)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'minimumAttempts' argument. The value should be in range 1 - windowSize inclusive. Actual value: "
+							+ minimumAttempts);
+		}
+		this.minimumAttempts = minimumAttempts;
+		return this;
+	}
+
+	/**
+	 * Sets the number of trial attempts a half-open breaker lets through, all of
+	 * which must succeed for it to close. Defaults to 1.
+	 *
+	 * @return these breakers.
+	 */
+	public CircuitBreakers withHalfOpenTrials(int halfOpenTrials)
+	{
+		if (halfOpenTrials < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'halfOpenTrials' argument. The value should be at least 1. Actual value: "
+							+ halfOpenTrials);
+		}
+		this.halfOpenTrials = halfOpenTrials;
+		return this;
+	}
+
+	/**
+	 * Completes tasks of result type <code>targetClass</code> with
+	 * <code>value</code>, instead of failing them, while their breaker is open.
+	 * The fallback is not stored in the runner's result cache.
+	 *
+	 * @return these breakers.
+	 */
+	public <T> CircuitBreakers withFallback(Class<T> targetClass, T value)
+	{
+		if (targetClass == null)
+		{
+			throw new NullPointerException("'targetClass' argument cannot be null.");
+		} else if (value == null)
+		{
+			throw new NullPointerException("'value' argument cannot be null.");
+		}
+		this.fallbacks.put(targetClass, value);
+		return this;
+	}
+
+	/**
+	 * Tells <code>listener</code> whenever a breaker changes state.
+	 *
+	 * @return these breakers.
+	 */
+	public CircuitBreakers withListener(CircuitBreakerListener listener)
+	{
+		if (listener == null)
+		{
+			throw new NullPointerException("'listener' argument cannot be null.");
+		}
+		this.listeners.add(listener);
+		return this;
+	}
+
+	public double getFailureRateThreshold()
+	{
+		return this.failureRateThreshold;
+	}
+
+	public int getWindowSize()
+	{
+		return this.windowSize;
+	}
+
+	public int getMinimumAttempts()
+	{
+		return this.minimumAttempts;
+	}
+
+	public int getHalfOpenTrials()
+	{
+		return this.halfOpenTrials;
+	}
+
+	/**
+	 * @return the state of the breaker for <code>resourceKey</code>, which is
+	 *         closed if no task against it has run.
+	 */
+	public CircuitState getState(Object resourceKey)
+	{
+		final CircuitBreaker breaker = this.breakers.get(resourceKey);
+		return breaker == null ? CircuitState.CLOSED : breaker.getState();
+	}
+
+	/**
+	 * @return the state of every breaker created so far, by resource key.
+	 */
+	public Map<Object, CircuitState> getStates()
+	{
+		final Map<Object, CircuitState> states = new HashMap<Object, CircuitState>();
+		for (final CircuitBreaker breaker : this.breakers.values())
+		{
+			states.put(breaker.resourceKey, breaker.getState());
+		}
+		return Collections.unmodifiableMap(states);
+	}
+
+	/**
+	 * @return the number of tasks against <code>resourceKey</code> that were
+	 *         completed or failed without running because its breaker was open.
+	 */
+	public long getShortCircuitCount(Object resourceKey)
+	{
+		final CircuitBreaker breaker = this.breakers.get(resourceKey);
+		return breaker == null ? 0 : breaker.getShortCircuitCount();
+	}
+
+	/**
+	 * @return the number of tasks against any resource that were completed or
+	 *         failed without running because their breaker was open.
+	 */
+	public long getShortCircuitCount()
+	{
+		long total = 0;
+		for (final CircuitBreaker breaker : this.breakers.values())
+		{
+			total += breaker.getShortCircuitCount();
+		}
+		return total;
+	}
+
+	long getOpenNanos()
+	{
+		return this.openNanos;
+	}
+
+	/**
+	 * @return the breaker for the resource <code>task</code> works against, or
+	 *         null if it names none.
+	 */
+	CircuitBreaker breakerFor(ITask<?> task)
+	{
+		final Object resourceKey = task.resourceKey();
+		if (resourceKey == null)
+		{
+			return null;
+		}
+		final CircuitBreaker breaker = this.breakers.get(resourceKey);
+		if (breaker != null)
+		{
+			return breaker;
+		}
+		return this.breakers.computeIfAbsent(resourceKey, key -> new CircuitBreaker(key, this));
+	}
+
+	/**
+	 * @return the fallback for results of <code>targetClass</code>, or null if
+	 *         there is none.
+	 */
+	Object fallbackFor(Class<?> targetClass)
+	{
+		return targetClass == null ? null : this.fallbacks.get(targetClass);
+	}
+
+	void stateChanged(Object resourceKey, CircuitState from, CircuitState to)
+	{
+		for (final CircuitBreakerListener listener : this.listeners)
+		{
+			listener.onStateChange(resourceKey, from, to);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package task;
+
+/**
+ * The exception a task fails with when it is not run because the circuit
+ * breaker for its resource is open, and no fallback is set for its result
+ * type.
+ */
+public class CircuitOpenException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	private final transient Object resourceKey;
+
+	public CircuitOpenException(Object resourceKey)
+	{
+		super("Not run because the circuit breaker for '" + resourceKey + "' is open.");
+		this.resourceKey = resourceKey;
+	}
+
+	/**
+	 * Has no stack trace. One is made for every task against a failing resource,
+	 * and its trace would only point into the runner.
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
+
+	/**
+	 * @return the resource whose breaker is open.
+	 */
+	public Object getResourceKey()
+	{
+		return this.resourceKey;
+	}
+}
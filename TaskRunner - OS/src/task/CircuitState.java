@@ -0,0 +1,18 @@
+package task;
+
+/**
+ * The states of a circuit breaker guarding the tasks against one resource.
+ *
+ * @see CircuitBreakers
+ */
+public enum CircuitState
+{
+	/** Attempts run, and their outcomes are counted. */
+	CLOSED,
+
+	/** Attempts are not run: their tasks complete straight away with a fallback or fail. */
+	OPEN,
+
+	/** A limited number of trial attempts run to find out whether the resource has recovered. */
+	HALF_OPEN
+}
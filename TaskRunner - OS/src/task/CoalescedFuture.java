@@ -0,0 +1,79 @@
+package task;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * One caller's view of an execution shared by every concurrent submission of
+ * an equivalent task. It completes with the shared execution's result.
+ *
+ * Cancelling the view detaches only this caller. The shared execution is
+ * cancelled, with the same <code>mayInterruptIfRunning</code>, once the last
+ * caller attached to it has cancelled. The attempts and timings it reports are
+ * those of the shared execution.
+ *
+ * @param <V> - The result type of the task.
+ */
+final class CoalescedFuture<V> extends CompletableFuture<V> implements TaskHandle<V>
+{
+	final TaskExecution<V> shared;
+	/** Whether this caller attached first, and so is the one to submit the shared execution. */
+	final boolean leads;
+
+	CoalescedFuture(TaskExecution<V> shared, boolean leads)
+	{
+		this.shared = shared;
+		this.leads = leads;
+		shared.whenComplete((result, e) -> {
+			if (e == null)
+			{
+				this.complete(result);
+			} else
+			{
+				this.completeExceptionally(e);
+			}
+		});
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning)
+	{
+		final boolean cancelled = super.cancel(mayInterruptIfRunning);
+		if (cancelled)
+		{
+			this.shared.unsubscribe(mayInterruptIfRunning);
+		}
+		return cancelled;
+	}
+
+	@Override
+	public TaskHandle<V> onComplete(BiConsumer<? super V, ? super Throwable> callback)
+	{
+		this.shared.runner.whenComplete(this, callback);
+		return this;
+	}
+
+	@Override
+	public int getAttempts()
+	{
+		return this.shared.getAttempts();
+	}
+
+	@Override
+	public Throwable getLastException()
+	{
+		return this.shared.getLastException();
+	}
+
+	@Override
+	public long getQueuedNanos()
+	{
+		return this.shared.getQueuedNanos();
+	}
+
+	@Override
+	public long getElapsedNanos()
+	{
+		return this.shared.getElapsedNanos();
+	}
+}
@@ -0,0 +1,71 @@
+package task;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The chain of nodes that decided how long a run of a <code>TaskGraph</code>
+ * took: the node that finished last, the dependency that finished last before
+ * it, and so on back to a node with no dependencies. Shortening any other
+ * node would not have finished the run any sooner.
+ *
+ * Each node's time runs from when its last dependency completed to when it
+ * completed, so it includes the time it waited for a thread and between its
+ * attempts.
+ */
+public final class CriticalPath
+{
+	private final List<String> nodeNames;
+	private final List<Long> nodeNanos;
+	private final long totalNanos;
+
+	CriticalPath(List<String> nodeNames, List<Long> nodeNanos, long totalNanos)
+	{
+		this.nodeNames = Collections.unmodifiableList(nodeNames);
+		this.nodeNanos = Collections.unmodifiableList(nodeNanos);
+		this.totalNanos = totalNanos;
+	}
+
+	/**
+	 * @return the names of the nodes on the path, from first to run to last.
+	 */
+	public List<String> getNodeNames()
+	{
+		return this.nodeNames;
+	}
+
+	/**
+	 * @return the time each node on the path took, in nanoseconds, in the same
+	 *         order as <code>getNodeNames</code>.
+	 */
+	public List<Long> getNodeNanos()
+	{
+		return this.nodeNanos;
+	}
+
+	/**
+	 * @return the time from the start of the run until its last node completed,
+	 *         in nanoseconds.
+	 */
+	public long getTotalNanos()
+	{
+		return this.totalNanos;
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < this.nodeNames.size(); i++)
+		{
+			if (i > 0)
+			{
+				builder.append(" -> ");
+			}
+			builder.append(this.nodeNames.get(i)).append(' ')
+					.append(String.format("%.3f", this.nodeNanos.get(i) / 1e6)).append(" ms");
+		}
+		return builder.append(" (total ").append(String.format("%.3f", this.totalNanos / 1e6)).append(" ms)")
+				.toString();
+	}
+}
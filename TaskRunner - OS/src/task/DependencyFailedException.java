@@ -0,0 +1,27 @@
+package task;
+
+/**
+ * The exception a node of a <code>TaskGraph</code> fails with when it is not
+ * run because one of its dependencies failed. Its cause is the exception the
+ * dependency failed with.
+ */
+public class DependencyFailedException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	private final String dependencyName;
+
+	public DependencyFailedException(String nodeName, String dependencyName, Throwable cause)
+	{
+		super("Node '" + nodeName + "' was not run because its dependency '" + dependencyName + "' failed.", cause);
+		this.dependencyName = dependencyName;
+	}
+
+	/**
+	 * @return the name of the dependency whose failure stopped the node.
+	 */
+	public String getDependencyName()
+	{
+		return this.dependencyName;
+	}
+}
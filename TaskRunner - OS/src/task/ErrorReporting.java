@@ -0,0 +1,238 @@
+package task;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports the exceptions a <code>TaskRunner</code>'s task attempts throw to a
+ * <code>TaskErrorListener</code>, sampled and rate limited per exception
+ * class, so that a burst of failures cannot flood the listener or hold up the
+ * workers reporting them.
+ *
+ * Every exception thrown by an attempt is counted against its exact class.
+ * Of the exceptions of a class, only the first of every
+ * <code>sampleEvery</code> is a candidate for reporting, and a candidate is
+ * reported only if the class's token bucket, if it has one, has a permit free;
+ * the rest are counted as suppressed and the count is passed to the listener
+ * with the next report of that class. Taking a permit is a compare-and-set, so
+ * no worker waits on another to report.
+ *
+ * Reporting does not change how a task fails: the exception each attempt threw
+ * still reaches the task's <code>Future</code> as it would without reporting.
+ * Settings for a class, and the defaults, apply to exception classes first
+ * seen after they are made, so should be made before the reporting is given to
+ * a runner.
+ */
+public final class ErrorReporting
+{
+	private final TaskErrorListener listener;
+	private final Map<Class<?>, ErrorClass> byClass = new ConcurrentHashMap<Class<?>, ErrorClass>();
+	private volatile int defaultSampleEvery = 1;
+	/** The rate of the bucket each class without its own limit gets, or 0 for none. */
+	private volatile double defaultReportsPerSecond;
+	private volatile int defaultCapacity;
+
+	/**
+	 * Reports every exception to <code>listener</code> until sampling or rate
+	 * limits are set.
+	 */
+	public ErrorReporting(TaskErrorListener listener)
+	{
+		if (listener == null)
+		{
+			throw new NullPointerException("'listener' argument cannot be null.");
+		}
+		this.listener = listener;
+	}
+
+	/**
+	 * Reports only the first of every <code>sampleEvery</code> exceptions of
+	 * exactly <code>exceptionClass</code>.
+	 *
+	 * @return this reporting.
+	 */
+	public ErrorReporting withSampling(Class<? extends Exception> exceptionClass, int sampleEvery)
+	{
+		ErrorReporting.checkSampleEvery(sampleEvery);
+		this.errorsOf(exceptionClass).sampleEvery = sampleEvery;
+		return this;
+	}
+
+	/**
+	 * Reports exceptions of exactly <code>exceptionClass</code> at no more than
+	 * <code>reportsPerSecond</code>, after allowing a burst of up to
+	 * <code>capacity</code>.
+	 *
+	 * @return this reporting.
+	 */
+	public ErrorReporting withRateLimit(Class<? extends Exception> exceptionClass, double reportsPerSecond,
+			int capacity)
+	{
+		final TokenBucket bucket = new TokenBucket(reportsPerSecond, capacity);
+		this.errorsOf(exceptionClass).bucket = bucket;
+		return this;
+	}
+
+	/**
+	 * Reports only the first of every <code>sampleEvery</code> exceptions of each
+	 * class without its own sampling.
+	 *
+	 * @return this reporting.
+	 */
+	public ErrorReporting withDefaultSampling(int sampleEvery)
+	{
+		ErrorReporting.checkSampleEvery(sampleEvery);
+		this.defaultSampleEvery = sampleEvery;
+		return this;
+	}
+
+	/**
+	 * Gives each exception class without its own rate limit a limit of
+	 * <code>reportsPerSecond</code>, after allowing a burst of up to
+	 * <code>capacity</code>.
+	 *
+	 * @return this reporting.
+	 */
+	public ErrorReporting withDefaultRateLimit(double reportsPerSecond, int capacity)
+	{
+		// Fails now, rather than when the first exception is seen, if the limit is invalid.
+		new TokenBucket(reportsPerSecond, capacity);
+		this.defaultCapacity = capacity;
+		this.defaultReportsPerSecond = reportsPerSecond;
+		return this;
+	}
+
+	public TaskErrorListener getListener()
+	{
+		return this.listener;
+	}
+
+	/**
+	 * @return the number of exceptions of exactly <code>exceptionClass</code>
+	 *         attempts have thrown.
+	 */
+	public long getErrorCount(Class<? extends Exception> exceptionClass)
+	{
+		final ErrorClass errors = this.byClass.get(exceptionClass);
+		return errors == null ? 0 : errors.seen.get();
+	}
+
+	/**
+	 * @return the number of exceptions of exactly <code>exceptionClass</code>
+	 *         that were reported to the listener.
+	 */
+	public long getReportedCount(Class<? extends Exception> exceptionClass)
+	{
+		final ErrorClass errors = this.byClass.get(exceptionClass);
+		return errors == null ? 0 : errors.reported.sum();
+	}
+
+	/**
+	 * @return the number of exceptions attempts have thrown, by exception class.
+	 */
+	public Map<Class<?>, Long> getErrorCounts()
+	{
+		final Map<Class<?>, Long> counts = new HashMap<Class<?>, Long>();
+		for (final ErrorClass errors : this.byClass.values())
+		{
+			final long seen = errors.seen.get();
+			if (seen > 0)
+			{
+				counts.put(errors.exceptionClass, seen);
+			}
+		}
+		return Collections.unmodifiableMap(counts);
+	}
+
+	/**
+	 * Counts <code>error</code>, thrown by attempt <code>attempt</code> of
+	 * <code>task</code>, and reports it to the listener unless it is sampled out
+	 * or over its class's rate limit.
+	 */
+	void report(ITask<?> task, int attempt, Exception error)
+	{
+		final ErrorClass errors = this.errorsOf(error.getClass());
+		if (!errors.admit())
+		{
+			return;
+		}
+		final long suppressed = errors.suppressed.getAndSet(0);
+		try
+		{
+			this.listener.onError(task, attempt, error, suppressed);
+		} catch (final RuntimeException e)
+		{
+			// Reporting must not stop the task from being retried or completed.
+		}
+	}
+
+	private ErrorClass errorsOf(Class<?> exceptionClass)
+	{
+		if (exceptionClass == null)
+		{
+			throw new NullPointerException("'exceptionClass' argument cannot be null.");
+		}
+		final ErrorClass errors = this.byClass.get(exceptionClass);
+		if (errors != null)
+		{
+			return errors;
+		}
+		return this.byClass.computeIfAbsent(exceptionClass, key -> new ErrorClass(key, this.defaultSampleEvery,
+				this.defaultReportsPerSecond > 0 ? new TokenBucket(this.defaultReportsPerSecond, this.defaultCapacity)
+						: null));
+	}
+
+	private static void checkSampleEvery(int sampleEvery)
+	{
+		if (sampleEvery < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'sampleEvery' argument. The value should be at least 1. Actual value: "
+							+ sampleEvery);
+		}
+	}
+
+	/**
+	 * The settings and counts for one exception class.
+	 */
+	private static final class ErrorClass
+	{
+		final Class<?> exceptionClass;
+		volatile int sampleEvery;
+		/** The class's rate limit, or null for none. */
+		volatile TokenBucket bucket;
+		final AtomicLong seen = new AtomicLong();
+		/** The number not reported since the last report. */
+		final AtomicLong suppressed = new AtomicLong();
+		final LongAdder reported = new LongAdder();
+
+		ErrorClass(Class<?> exceptionClass, int sampleEvery, TokenBucket bucket)
+		{
+			this.exceptionClass = exceptionClass;
+			this.sampleEvery = sampleEvery;
+			this.bucket = bucket;
+		}
+
+		/**
+		 * Counts an exception of this class.
+		 *
+		 * @return true if it should be reported.
+		 */
+		boolean admit()
+		{
+			final long index = this.seen.getAndIncrement();
+			final TokenBucket bucket = this.bucket;
+			if (index % this.sampleEvery == 0 && (bucket == null || bucket.tryTake(System.nanoTime())))
+			{
+				this.reported.increment();
+				return true;
+			}
+			this.suppressed.incrementAndGet();
+			return false;
+		}
+	}
+}
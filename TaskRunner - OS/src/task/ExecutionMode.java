@@ -0,0 +1,32 @@
+package task;
+
+/**
+ * The kind of threads a <code>TaskRunner</code> runs task attempts on.
+ */
+public enum ExecutionMode
+{
+	/**
+	 * Attempts run on a fixed pool of platform threads. The pool size caps the
+	 * number of attempts in flight at once.
+	 */
+	PLATFORM_THREADS,
+
+	/**
+	 * Attempts run on a fixed-size <code>ForkJoinPool</code> of platform threads.
+	 * Each worker has its own queue and idle workers steal from busy ones, so
+	 * with many workers and short tasks they do not all contend for one shared
+	 * queue. An attempt a worker queues itself, such as a retry with no delay,
+	 * goes on that worker's own queue. Delayed retries still wait on the retry
+	 * timer, and go back on the pool's shared submission queues when due. Best
+	 * suited to short, non-blocking tasks: a blocked worker is not replaced.
+	 */
+	WORK_STEALING,
+
+	/**
+	 * Each attempt runs on its own virtual thread, so blocking tasks do not tie up
+	 * an OS thread each. The pool size only sets the number of platform threads
+	 * used to time the sleep between attempts. Requires a JDK with virtual thread
+	 * support (21+).
+	 */
+	VIRTUAL_THREADS
+}
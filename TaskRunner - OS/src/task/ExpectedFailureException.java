@@ -0,0 +1,31 @@
+package task;
+
+/**
+ * An exception for a task to throw when an attempt fails in a way that is
+ * expected, such as a resource not being ready yet, so the attempt should be
+ * retried but there is nothing to debug.
+ *
+ * It has no stack trace: filling one in walks the thread's stack on every
+ * throw, which costs more than the rest of a failed attempt, and the trace
+ * would only point at the task's own <code>call</code>.
+ */
+public class ExpectedFailureException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	public ExpectedFailureException(String message)
+	{
+		super(message);
+	}
+
+	public ExpectedFailureException(String message, Throwable cause)
+	{
+		super(message, cause);
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
+}
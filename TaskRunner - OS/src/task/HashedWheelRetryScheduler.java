@@ -0,0 +1,410 @@
+package task;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Retry scheduler backed by a hashed timing wheel.
+ *
+ * The wheel is a ring of buckets, each covering one tick of time. A retry is
+ * placed in the bucket for the tick it is due in, along with the number of
+ * full turns of the wheel still to go. A single timer thread advances one
+ * bucket per tick and runs the retries in it that have no turns left.
+ *
+ * Scheduling and cancelling only append to lock-free queues that the timer
+ * thread drains each tick, so both are O(1) regardless of how many retries are
+ * pending. The trade-off is precision: a retry runs up to one tick after its
+ * delay has elapsed, never before.
+ *
+ * Each retry is its own node in the wheel and in the queue of new retries, so
+ * scheduling allocates only the retry itself, and <code>reschedule</code>
+ * reuses the retry of a task's previous attempt, so retrying allocates
+ * nothing.
+ */
+public class HashedWheelRetryScheduler implements RetryScheduler
+{
+	private static final int RUNNING = 0;
+	private static final int SHUTDOWN = 1;
+	private static final int STOPPED = 2;
+	private static final AtomicIntegerFieldUpdater<WheelRetry> RETRY_STATE = AtomicIntegerFieldUpdater
+			.newUpdater(WheelRetry.class, "state");
+
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final long startTime;
+
+	/** The newest retry not yet moved into the wheel, linked to older ones through nextAddition. */
+	private final AtomicReference<WheelRetry> additions = new AtomicReference<WheelRetry>();
+	private final Queue<WheelRetry> cancellations = new ConcurrentLinkedQueue<WheelRetry>();
+	private final AtomicLong pendingRetries = new AtomicLong();
+	private final AtomicInteger state = new AtomicInteger(HashedWheelRetryScheduler.RUNNING);
+	private final CountDownLatch terminated = new CountDownLatch(1);
+	private final Thread timerThread;
+
+	/** Only read and written by the timer thread. */
+	private long tick;
+
+	/**
+	 * Creates a wheel with a 1ms tick and 512 buckets.
+	 */
+	public HashedWheelRetryScheduler()
+	{
+		this(1, 512);
+	}
+
+	/**
+	 * @param tickMillis    - the length of one tick. Retries are run up to this
+	 *                      long after they are due.
+	 * @param ticksPerWheel - the number of buckets, rounded up to a power of two.
+	 *                      Delays longer than a full turn of the wheel cost one
+	 *                      check per turn while they wait.
+	 */
+	public HashedWheelRetryScheduler(long tickMillis, int ticksPerWheel)
+	{
+		if (tickMillis < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'tickMillis' argument. The value should be at least 1. Actual value: "
+							+ tickMillis);
+		} else if (ticksPerWheel < 1 || ticksPerWheel > (1 << 30))
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'ticksPerWheel' argument. The value should be in the range 1-2^30 inclusive. Actual value: "
+							+ ticksPerWheel);
+		}
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		int size = 1;
+		while (size < ticksPerWheel)
+		{
+			size <<= 1;
+		}
+		this.wheel = new Bucket[size];
+		for (int i = 0; i < size; i++)
+		{
+			this.wheel[i] = new Bucket();
+		}
+		this.mask = size - 1;
+		this.startTime = System.nanoTime();
+		this.timerThread = Executors.defaultThreadFactory().newThread(this::run);
+		this.timerThread.start();
+	}
+
+	@Override
+	public ScheduledRetry schedule(Runnable command, long delayMillis) throws RejectedExecutionException
+	{
+		return this.reschedule(null, command, delayMillis);
+	}
+
+	@Override
+	public ScheduledRetry reschedule(ScheduledRetry previous, Runnable command, long delayMillis)
+			throws RejectedExecutionException
+	{
+		if (command == null)
+		{
+			throw new NullPointerException("'command' argument cannot be null.");
+		}
+		// Counted before the state is checked, so the timer thread cannot see no
+		// retries pending and exit between the check and the retry being queued.
+		this.pendingRetries.incrementAndGet();
+		if (this.state.get() != HashedWheelRetryScheduler.RUNNING)
+		{
+			this.pendingRetries.decrementAndGet();
+			throw new RejectedExecutionException("Retry scheduler has been shut down.");
+		}
+		final long deadline = System.nanoTime() - this.startTime
+				+ TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+		final WheelRetry retry;
+		if (previous instanceof WheelRetry && ((WheelRetry) previous).isReusableBy(this))
+		{
+			// It has run, so it is out of the wheel and both queues: nothing else can reach it.
+			retry = (WheelRetry) previous;
+			retry.reset(command, deadline);
+		} else
+		{
+			retry = new WheelRetry(command, deadline);
+		}
+		WheelRetry head;
+		do
+		{
+			head = this.additions.get();
+			retry.nextAddition = head;
+		} while (!this.additions.compareAndSet(head, retry));
+		return retry;
+	}
+
+	/**
+	 * @return the number of retries scheduled but not yet run or cancelled.
+	 */
+	public long getPendingRetries()
+	{
+		return this.pendingRetries.get();
+	}
+
+	@Override
+	public void shutdown()
+	{
+		this.state.compareAndSet(HashedWheelRetryScheduler.RUNNING, HashedWheelRetryScheduler.SHUTDOWN);
+	}
+
+	@Override
+	public void shutdownNow()
+	{
+		this.state.set(HashedWheelRetryScheduler.STOPPED);
+		this.timerThread.interrupt();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		return this.terminated.await(timeout, unit);
+	}
+
+	private void run()
+	{
+		try
+		{
+			while (this.state.get() != HashedWheelRetryScheduler.STOPPED)
+			{
+				final long now = this.waitForNextTick();
+				if (now < 0)
+				{
+					break;
+				}
+				this.removeCancelledRetries();
+				this.transferNewRetries();
+				this.wheel[(int) (this.tick & this.mask)].expireRetries(now);
+				this.tick++;
+				if (this.state.get() == HashedWheelRetryScheduler.SHUTDOWN && this.pendingRetries.get() == 0
+						&& this.additions.get() == null)
+				{
+					break;
+				}
+			}
+		} finally
+		{
+			this.terminated.countDown();
+		}
+	}
+
+	/**
+	 * Sleeps until the end of the current tick.
+	 *
+	 * @return the time since the wheel started, or -1 if the scheduler was
+	 *         stopped while waiting.
+	 */
+	private long waitForNextTick()
+	{
+		final long tickEnd = this.tickNanos * (this.tick + 1);
+		while (true)
+		{
+			final long now = System.nanoTime() - this.startTime;
+			final long sleepMillis = (tickEnd - now + 999999) / 1000000;
+			if (sleepMillis <= 0)
+			{
+				return now;
+			}
+			try
+			{
+				Thread.sleep(sleepMillis);
+			} catch (final InterruptedException e)
+			{
+				if (this.state.get() == HashedWheelRetryScheduler.STOPPED)
+				{
+					return -1;
+				}
+			}
+		}
+	}
+
+	private void transferNewRetries()
+	{
+		// The queue links newest first, so reverse it to keep retries due in the same
+		// tick in the order they were scheduled.
+		WheelRetry retry = this.additions.getAndSet(null);
+		WheelRetry oldestFirst = null;
+		while (retry != null)
+		{
+			final WheelRetry older = retry.nextAddition;
+			retry.nextAddition = oldestFirst;
+			oldestFirst = retry;
+			retry = older;
+		}
+		while (oldestFirst != null)
+		{
+			retry = oldestFirst;
+			oldestFirst = retry.nextAddition;
+			retry.nextAddition = null;
+			if (retry.state != WheelRetry.WAITING)
+			{
+				continue;
+			}
+			final long dueTick = retry.deadline / this.tickNanos;
+			retry.remainingRounds = (dueTick - this.tick) / this.wheel.length;
+			this.wheel[(int) (Math.max(dueTick, this.tick) & this.mask)].add(retry);
+		}
+	}
+
+	private void removeCancelledRetries()
+	{
+		WheelRetry retry;
+		while ((retry = this.cancellations.poll()) != null)
+		{
+			if (retry.bucket != null)
+			{
+				retry.bucket.remove(retry);
+			}
+		}
+	}
+
+	/**
+	 * A retry waiting in the wheel. Also a node in the queue of new retries, and
+	 * then in its bucket's linked list, which is only touched by the timer
+	 * thread.
+	 */
+	private final class WheelRetry implements ScheduledRetry
+	{
+		static final int WAITING = 0;
+		static final int CANCELLED = 1;
+		static final int EXPIRED = 2;
+
+		/** Written before the retry is queued, which publishes it to the timer thread. */
+		Runnable command;
+		long deadline;
+		volatile int state = WheelRetry.WAITING;
+		WheelRetry nextAddition;
+		long remainingRounds;
+		Bucket bucket;
+		WheelRetry next;
+		WheelRetry previous;
+
+		WheelRetry(Runnable command, long deadline)
+		{
+			this.command = command;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * @return true if the retry belongs to <code>scheduler</code> and has run, so
+		 *         can be scheduled again.
+		 */
+		boolean isReusableBy(HashedWheelRetryScheduler scheduler)
+		{
+			return HashedWheelRetryScheduler.this == scheduler && this.state == WheelRetry.EXPIRED;
+		}
+
+		void reset(Runnable command, long deadline)
+		{
+			this.command = command;
+			this.deadline = deadline;
+			this.state = WheelRetry.WAITING;
+		}
+
+		@Override
+		public boolean cancel()
+		{
+			if (!HashedWheelRetryScheduler.RETRY_STATE.compareAndSet(this, WheelRetry.WAITING, WheelRetry.CANCELLED))
+			{
+				return false;
+			}
+			HashedWheelRetryScheduler.this.pendingRetries.decrementAndGet();
+			HashedWheelRetryScheduler.this.cancellations.add(this);
+			return true;
+		}
+
+		void expire()
+		{
+			if (!HashedWheelRetryScheduler.RETRY_STATE.compareAndSet(this, WheelRetry.WAITING, WheelRetry.EXPIRED))
+			{
+				return;
+			}
+			HashedWheelRetryScheduler.this.pendingRetries.decrementAndGet();
+			try
+			{
+				this.command.run();
+			} catch (final RuntimeException e)
+			{
+				// The command only hands the attempt over to the workers. If that fails the
+				// runner has been shut down and there is nobody left to report it to.
+			}
+		}
+	}
+
+	/**
+	 * A doubly linked list of the retries due in one slot of the wheel.
+	 */
+	private static final class Bucket
+	{
+		private WheelRetry head;
+		private WheelRetry tail;
+
+		void add(WheelRetry retry)
+		{
+			retry.bucket = this;
+			if (this.head == null)
+			{
+				this.head = retry;
+				this.tail = retry;
+			} else
+			{
+				this.tail.next = retry;
+				retry.previous = this.tail;
+				this.tail = retry;
+			}
+		}
+
+		void remove(WheelRetry retry)
+		{
+			if (retry.previous != null)
+			{
+				retry.previous.next = retry.next;
+			} else
+			{
+				this.head = retry.next;
+			}
+			if (retry.next != null)
+			{
+				retry.next.previous = retry.previous;
+			} else
+			{
+				this.tail = retry.previous;
+			}
+			retry.next = null;
+			retry.previous = null;
+			retry.bucket = null;
+		}
+
+		/**
+		 * Runs the retries that are due by <code>now</code> and moves the rest one
+		 * turn closer.
+		 */
+		void expireRetries(long now)
+		{
+			WheelRetry retry = this.head;
+			while (retry != null)
+			{
+				final WheelRetry next = retry.next;
+				if (retry.remainingRounds <= 0 && retry.deadline <= now)
+				{
+					this.remove(retry);
+					retry.expire();
+				} else if (retry.state == WheelRetry.CANCELLED)
+				{
+					this.remove(retry);
+				} else
+				{
+					retry.remainingRounds--;
+				}
+				retry = next;
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package task;
+
+/**
+ * A point-in-time copy of a recorded distribution, such as the time attempts
+ * of a task spent running.
+ *
+ * Values are bucketed, so percentiles and the maximum are reported as the
+ * highest value in their bucket: at most 6.25% above the true value. The
+ * count and mean are exact.
+ */
+public final class HistogramSnapshot
+{
+	private final long[] counts;
+	private final long totalCount;
+	private final long sum;
+
+	HistogramSnapshot(long[] counts, long sum)
+	{
+		this.counts = counts;
+		this.sum = sum;
+		long total = 0;
+		for (final long count : counts)
+		{
+			total += count;
+		}
+		this.totalCount = total;
+	}
+
+	/**
+	 * @return a snapshot with nothing recorded.
+	 */
+	static HistogramSnapshot empty()
+	{
+		return new HistogramSnapshot(new long[LatencyHistogram.BUCKET_COUNT], 0);
+	}
+
+	/**
+	 * @return the combined distribution of this snapshot and <code>other</code>.
+	 */
+	HistogramSnapshot merge(HistogramSnapshot other)
+	{
+		final long[] merged = new long[this.counts.length];
+		for (int i = 0; i < merged.length; i++)
+		{
+			merged[i] = this.counts[i] + other.counts[i];
+		}
+		return new HistogramSnapshot(merged, this.sum + other.sum);
+	}
+
+	/**
+	 * @return the number of values recorded.
+	 */
+	public long getCount()
+	{
+		return this.totalCount;
+	}
+
+	/**
+	 * @return the sum of the values recorded.
+	 */
+	public long getSum()
+	{
+		return this.sum;
+	}
+
+	/**
+	 * @return the mean of the values recorded, or 0 if there are none.
+	 */
+	public double getMean()
+	{
+		return this.totalCount == 0 ? 0 : (double) this.sum / this.totalCount;
+	}
+
+	/**
+	 * @return the largest value recorded, or 0 if there are none.
+	 */
+	public long getMax()
+	{
+		for (int i = this.counts.length - 1; i >= 0; i--)
+		{
+			if (this.counts[i] > 0)
+			{
+				return LatencyHistogram.highestValue(i);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @param percentile - the percentile to find, in the range 0-100 inclusive.
+	 * @return the value that <code>percentile</code> percent of the recorded
+	 *         values are at or below, or 0 if there are none.
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		if (percentile < 0 || percentile > 100)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'percentile' argument. The value should be in the range 0-100 inclusive. Actual value: "
+							+ percentile);
+		}
+		if (this.totalCount == 0)
+		{
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.totalCount));
+		long seen = 0;
+		for (int i = 0; i < this.counts.length; i++)
+		{
+			seen += this.counts[i];
+			if (seen >= rank)
+			{
+				return LatencyHistogram.highestValue(i);
+			}
+		}
+		return this.getMax();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "count=" + this.totalCount + ", mean=" + Math.round(this.getMean()) + ", p50="
+				+ this.getValueAtPercentile(50) + ", p99=" + this.getValueAtPercentile(99) + ", max=" + this.getMax();
+	}
+}
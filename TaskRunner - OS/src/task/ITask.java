@@ -23,4 +23,60 @@ public interface ITask<T>
 	 *                    type mismatch.
 	 */
 	public T call(Class<T> targetClass) throws ClassCastException;
+
+	/**
+	 * Signals that the result of this task is no longer wanted. Called at most once,
+	 * possibly while <code>call</code> is running on another thread: from the
+	 * thread that cancelled the task's Future, or from one of the runner's
+	 * workers if the task missed its deadline.
+	 *
+	 * Tasks whose <code>call</code> can block or run for a long time should
+	 * override this to make the running call return early. The default does
+	 * nothing, leaving the runner to stop scheduling further attempts.
+	 */
+	public default void cancel()
+	{
+	}
+
+	/**
+	 * Identifies the result of this task, so that equivalent tasks can share it
+	 * rather than each being run, for example through a <code>ResultCache</code>.
+	 * Two tasks of the same class with equal keys must produce the same result
+	 * when run at the same moment.
+	 *
+	 * @return a key with value-based <code>equals</code> and
+	 *         <code>hashCode</code>, or null if the result must not be shared.
+	 *         The default is null.
+	 */
+	public default Object cacheKey()
+	{
+		return null;
+	}
+
+	/**
+	 * Describes this task well enough to build an equivalent one later, for
+	 * example in another process, so that a <code>TaskJournal</code> can replay
+	 * it after a restart.
+	 *
+	 * @return the task's descriptor, or null if the task cannot be rebuilt and so
+	 *         is not journaled. The default is null.
+	 */
+	public default TaskDescriptor descriptor()
+	{
+		return null;
+	}
+
+	/**
+	 * Names the resource this task works against, such as a host or a mount, so
+	 * that the attempts of every task against it can be limited together
+	 * through <code>RateLimits</code>.
+	 *
+	 * @return a key with value-based <code>equals</code> and
+	 *         <code>hashCode</code>, or null if the task is not limited by
+	 *         resource. The default is null.
+	 */
+	public default Object resourceKey()
+	{
+		return null;
+	}
 }
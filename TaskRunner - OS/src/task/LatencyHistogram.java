@@ -0,0 +1,110 @@
+package task;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records a distribution of non-negative values, usually durations in
+ * nanoseconds, in log-linear buckets in the style of HdrHistogram.
+ *
+ * Each power of two is split into 16 equal buckets, so a recorded value is
+ * reported at most 1/16th (6.25%) above its true value, however large it is.
+ * Values below 16 are recorded exactly, and values above
+ * <code>MAX_TRACKABLE_VALUE</code>, a little over an hour in nanoseconds, are
+ * clamped to it.
+ *
+ * Every bucket is a <code>LongAdder</code>, so threads recording at the same
+ * time do not contend on a shared counter, and recording never allocates once
+ * the adders have grown their cells.
+ */
+final class LatencyHistogram
+{
+	static final int SUB_BUCKET_BITS = 4;
+	static final int SUB_BUCKET_COUNT = 1 << LatencyHistogram.SUB_BUCKET_BITS;
+	static final int MAX_EXPONENT = 41;
+	static final long MAX_TRACKABLE_VALUE = (1L << (LatencyHistogram.MAX_EXPONENT + 1)) - 1;
+	static final int BUCKET_COUNT = LatencyHistogram.SUB_BUCKET_COUNT
+			+ (LatencyHistogram.MAX_EXPONENT - LatencyHistogram.SUB_BUCKET_BITS + 1) * LatencyHistogram.SUB_BUCKET_COUNT;
+
+	private final LongAdder[] buckets = new LongAdder[LatencyHistogram.BUCKET_COUNT];
+	private final LongAdder sum = new LongAdder();
+
+	LatencyHistogram()
+	{
+		for (int i = 0; i < this.buckets.length; i++)
+		{
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @param value - the value to record. Negative values, which can only come
+	 *              from a clock going backwards, are recorded as 0.
+	 */
+	void record(long value)
+	{
+		final long clamped = Math.min(Math.max(value, 0), LatencyHistogram.MAX_TRACKABLE_VALUE);
+		this.buckets[LatencyHistogram.bucketIndex(clamped)].increment();
+		this.sum.add(clamped);
+	}
+
+	/**
+	 * @return the sum of the values recorded, without copying the counts.
+	 */
+	long getSum()
+	{
+		return this.sum.sum();
+	}
+
+	/**
+	 * @return a copy of the current counts. Values recorded while the copy is
+	 *         taken may or may not be included.
+	 */
+	HistogramSnapshot snapshot()
+	{
+		final long[] counts = new long[this.buckets.length];
+		for (int i = 0; i < counts.length; i++)
+		{
+			counts[i] = this.buckets[i].sum();
+		}
+		return new HistogramSnapshot(counts, this.sum.sum());
+	}
+
+	static int bucketIndex(long value)
+	{
+		if (value < LatencyHistogram.SUB_BUCKET_COUNT)
+		{
+			return (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - LatencyHistogram.SUB_BUCKET_BITS;
+		final int subBucket = (int) (value >>> shift) - LatencyHistogram.SUB_BUCKET_COUNT;
+		return LatencyHistogram.SUB_BUCKET_COUNT + shift * LatencyHistogram.SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * @return the smallest value recorded in the bucket.
+	 */
+	static long lowestValue(int index)
+	{
+		if (index < LatencyHistogram.SUB_BUCKET_COUNT)
+		{
+			return index;
+		}
+		final int shift = (index - LatencyHistogram.SUB_BUCKET_COUNT) / LatencyHistogram.SUB_BUCKET_COUNT;
+		final int subBucket = (index - LatencyHistogram.SUB_BUCKET_COUNT) % LatencyHistogram.SUB_BUCKET_COUNT;
+		return (long) (LatencyHistogram.SUB_BUCKET_COUNT + subBucket) << shift;
+	}
+
+	/**
+	 * @return the largest value recorded in the bucket.
+	 */
+	static long highestValue(int index)
+	{
+		if (index < LatencyHistogram.SUB_BUCKET_COUNT)
+		{
+			return index;
+		}
+		final int shift = (index - LatencyHistogram.SUB_BUCKET_COUNT) / LatencyHistogram.SUB_BUCKET_COUNT;
+		return LatencyHistogram.lowestValue(index) + (1L << shift) - 1;
+	}
+}
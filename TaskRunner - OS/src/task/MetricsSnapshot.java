@@ -0,0 +1,134 @@
+package task;
+
+import java.util.Map;
+
+/**
+ * A point-in-time view of a <code>TaskRunner</code>: how busy its pool is and
+ * what has happened to the tasks submitted to it, in total and by task class.
+ */
+public final class MetricsSnapshot
+{
+	private final long timestampNanos;
+	private final int poolSize;
+	private final int activeThreads;
+	private final int queueDepth;
+	private final int admittedTasks;
+	private final int waitingSubmissions;
+	private final TaskMetricsSnapshot total;
+	private final Map<String, TaskMetricsSnapshot> byTaskClass;
+	private final Map<String, TaskMetricsSnapshot> byLane;
+
+	MetricsSnapshot(long timestampNanos, int poolSize, int activeThreads, int queueDepth, int admittedTasks,
+			int waitingSubmissions, TaskMetricsSnapshot total, Map<String, TaskMetricsSnapshot> byTaskClass,
+			Map<String, TaskMetricsSnapshot> byLane)
+	{
+		this.timestampNanos = timestampNanos;
+		this.poolSize = poolSize;
+		this.activeThreads = activeThreads;
+		this.queueDepth = queueDepth;
+		this.admittedTasks = admittedTasks;
+		this.waitingSubmissions = waitingSubmissions;
+		this.total = total;
+		this.byTaskClass = byTaskClass;
+		this.byLane = byLane;
+	}
+
+	/**
+	 * @return the <code>System.nanoTime</code> the snapshot was taken at. The
+	 *         difference in busy time between two snapshots divided by the time
+	 *         between them and the pool size gives the pool's utilisation.
+	 */
+	public long getTimestampNanos()
+	{
+		return this.timestampNanos;
+	}
+
+	/**
+	 * @return the number of worker threads, or 0 with
+	 *         <code>ExecutionMode.VIRTUAL_THREADS</code>.
+	 */
+	public int getPoolSize()
+	{
+		return this.poolSize;
+	}
+
+	/**
+	 * @return the number of worker threads running an attempt, or 0 with
+	 *         <code>ExecutionMode.VIRTUAL_THREADS</code>.
+	 */
+	public int getActiveThreads()
+	{
+		return this.activeThreads;
+	}
+
+	/**
+	 * @return the number of attempts waiting for a free worker thread.
+	 */
+	public int getQueueDepth()
+	{
+		return this.queueDepth;
+	}
+
+	/**
+	 * @return the number of tasks holding a place under the admission limit.
+	 */
+	public int getAdmittedTasks()
+	{
+		return this.admittedTasks;
+	}
+
+	/**
+	 * @return the number of submissions waiting for room under the admission
+	 *         limit.
+	 */
+	public int getWaitingSubmissions()
+	{
+		return this.waitingSubmissions;
+	}
+
+	/**
+	 * @return the total time spent in timed task attempts, in nanoseconds. With a
+	 *         latency sample interval above 1 this covers only the sampled tasks.
+	 */
+	public long getBusyNanos()
+	{
+		return this.total.getAttemptDuration().getSum();
+	}
+
+	/**
+	 * @return the counters and histograms over every task class.
+	 */
+	public TaskMetricsSnapshot getTotal()
+	{
+		return this.total;
+	}
+
+	/**
+	 * @return the counters and histograms for each task class run so far, keyed
+	 *         by class name.
+	 */
+	public Map<String, TaskMetricsSnapshot> getByTaskClass()
+	{
+		return this.byTaskClass;
+	}
+
+	/**
+	 * @return the counters and histograms for the task classes of each lane that
+	 *         has run tasks, keyed by lane name, or an empty map if the runner
+	 *         has no <code>TaskLanes</code>. A task class counts towards the lane
+	 *         it is assigned to now. The queue wait of a lane's tasks includes
+	 *         the time spent waiting for the lane's turn.
+	 */
+	public Map<String, TaskMetricsSnapshot> getByLane()
+	{
+		return this.byLane;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "poolSize=" + this.poolSize + ", activeThreads=" + this.activeThreads + ", queueDepth="
+				+ this.queueDepth + ", admittedTasks=" + this.admittedTasks + ", waitingSubmissions="
+				+ this.waitingSubmissions + ", total=[" + this.total + "]";
+	}
+}
@@ -0,0 +1,146 @@
+package task;
+
+/**
+ * Picks a worker pool size from one sample of the pool to the next, as
+ * described in <code>AdaptivePoolSizing</code>. Only called by one thread at a
+ * time.
+ */
+final class PoolSizeController
+{
+	/** A change in throughput smaller than this fraction is taken as noise. */
+	static final double NOISE = 0.05;
+	/** A change in throughput larger than this fraction means the load has changed. */
+	static final double LOAD_CHANGE = 0.25;
+	/**
+	 * The number of samples a settled size is held for before a step either way
+	 * is tried again, in case the best size has moved without throughput at this
+	 * one changing.
+	 */
+	static final int HOLD_SAMPLES = 40;
+
+	private final int minThreads;
+	private final int maxThreads;
+	private final int maxStep;
+	/** The best size found while exploring, or 0 when not exploring. */
+	private int bestSize;
+	private double bestThroughput;
+	/** The highest throughput seen while exploring. */
+	private double peakThroughput;
+	private int step;
+	private int direction;
+	/** Whether exploring has already turned back from the best size at a step of one. */
+	private boolean reversed;
+	/** The samples left before a settled size is explored again. */
+	private int hold;
+	private double settledThroughput;
+
+	PoolSizeController(int minThreads, int maxThreads)
+	{
+		this.minThreads = minThreads;
+		this.maxThreads = maxThreads;
+		this.maxStep = Math.max(1, (maxThreads - minThreads) / 4);
+	}
+
+	/**
+	 * @param size        - the pool size over the sample.
+	 * @param throughput  - the attempts finished per second over the sample.
+	 * @param queueDepth  - the attempts waiting for a thread at the end of the
+	 *                    sample.
+	 * @param busyThreads - the threads running attempts at the end of the sample.
+	 * @return the pool size for the next sample.
+	 */
+	int nextSize(int size, double throughput, int queueDepth, int busyThreads)
+	{
+		if (queueDepth == 0)
+		{
+			// Throughput is set by demand rather than by the pool, so there is nothing to
+			// climb: forget what was learned, and trim threads left idle.
+			this.bestSize = 0;
+			this.hold = 0;
+			return this.clamp(busyThreads + 1 < size ? size - 1 : size);
+		}
+		if (this.hold > 0)
+		{
+			this.hold--;
+			if (Math.abs(throughput - this.settledThroughput) <= PoolSizeController.LOAD_CHANGE
+					* this.settledThroughput)
+			{
+				return this.clamp(size);
+			}
+			this.hold = 0;
+			this.bestSize = 0;
+		}
+		if (this.bestSize == 0)
+		{
+			this.bestSize = size;
+			this.bestThroughput = throughput;
+			this.peakThroughput = throughput;
+			this.step = 1;
+			this.direction = 1;
+			this.reversed = false;
+			return this.probe();
+		}
+		this.peakThroughput = Math.max(this.peakThroughput, throughput);
+		// Better is more throughput, or as much from fewer threads.
+		if (throughput > this.bestThroughput * (1 + PoolSizeController.NOISE) || size < this.bestSize
+				&& throughput >= this.peakThroughput * (1 - PoolSizeController.NOISE))
+		{
+			this.bestSize = size;
+			this.bestThroughput = throughput;
+			this.step = Math.min(this.step * 2, this.maxStep);
+		} else
+		{
+			// Overshot: look again between the best size and this one.
+			this.step = Math.max(1, this.step / 2);
+			if (size - this.bestSize == this.direction)
+			{
+				if (this.reversed)
+				{
+					return this.settle();
+				}
+				this.reversed = true;
+				this.direction = -this.direction;
+			}
+		}
+		return this.probe();
+	}
+
+	/**
+	 * @return the size a step from the best size in the current direction, turning
+	 *         back or settling at a bound.
+	 */
+	private int probe()
+	{
+		int next = this.clamp(this.bestSize + this.direction * this.step);
+		if (next == this.bestSize)
+		{
+			if (this.reversed)
+			{
+				return this.settle();
+			}
+			this.reversed = true;
+			this.direction = -this.direction;
+			this.step = 1;
+			next = this.clamp(this.bestSize + this.direction);
+			if (next == this.bestSize)
+			{
+				return this.settle();
+			}
+		}
+		return next;
+	}
+
+	private int settle()
+	{
+		final int size = this.bestSize;
+		this.hold = PoolSizeController.HOLD_SAMPLES;
+		this.settledThroughput = this.bestThroughput;
+		this.bestSize = 0;
+		return size;
+	}
+
+	private int clamp(int size)
+	{
+		return Math.max(this.minThreads, Math.min(this.maxThreads, size));
+	}
+}
@@ -0,0 +1,90 @@
+package task;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Samples a runner's worker pool on a daemon thread of its own and resizes it
+ * as a <code>PoolSizeController</code> decides.
+ */
+final class PoolSizer implements Runnable
+{
+	private final ThreadPoolExecutor pool;
+	private final AdaptivePoolSizing sizing;
+	private final PoolSizeController controller;
+	private final ScheduledExecutorService sampler;
+	/** Called with each new size, so the runner can follow it. */
+	private final IntConsumer resized;
+	private long lastCompleted;
+	private long lastNanos;
+
+	PoolSizer(ThreadPoolExecutor pool, AdaptivePoolSizing sizing, IntConsumer resized)
+	{
+		this.pool = pool;
+		this.sizing = sizing;
+		this.controller = new PoolSizeController(sizing.getMinThreads(), sizing.getMaxThreads());
+		this.resized = resized;
+		this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "task-pool-sizer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Brings the pool within bounds and starts sampling it.
+	 */
+	void start()
+	{
+		final int size = this.pool.getCorePoolSize();
+		this.resize(Math.max(this.sizing.getMinThreads(), Math.min(this.sizing.getMaxThreads(), size)));
+		this.lastCompleted = this.pool.getCompletedTaskCount();
+		this.lastNanos = System.nanoTime();
+		this.sampler.scheduleWithFixedDelay(this, this.sizing.getSampleIntervalMillis(),
+				this.sizing.getSampleIntervalMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops sampling, leaving the pool at its current size.
+	 */
+	void stop()
+	{
+		this.sampler.shutdownNow();
+	}
+
+	@Override
+	public void run()
+	{
+		final long now = System.nanoTime();
+		final long completed = this.pool.getCompletedTaskCount();
+		final double throughput = (completed - this.lastCompleted) * 1e9 / Math.max(1, now - this.lastNanos);
+		this.lastCompleted = completed;
+		this.lastNanos = now;
+		final int size = this.pool.getCorePoolSize();
+		final int next = this.controller.nextSize(size, throughput, this.pool.getQueue().size(),
+				this.pool.getActiveCount());
+		if (next != size)
+		{
+			this.resize(next);
+		}
+	}
+
+	private void resize(int size)
+	{
+		// The maximum may never be below the core size, so raise it first when growing
+		// and lower it last when shrinking. Threads beyond a lowered size leave once idle.
+		if (size > this.pool.getMaximumPoolSize())
+		{
+			this.pool.setMaximumPoolSize(size);
+			this.pool.setCorePoolSize(size);
+		} else
+		{
+			this.pool.setCorePoolSize(size);
+			this.pool.setMaximumPoolSize(size);
+		}
+		this.resized.accept(size);
+	}
+}
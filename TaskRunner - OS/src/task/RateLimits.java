@@ -0,0 +1,136 @@
+package task;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limits the rate at which a <code>TaskRunner</code> starts attempts, per task
+ * class and per resource the tasks work against, as named by
+ * <code>ITask.resourceKey</code>.
+ *
+ * Each limit is a token bucket: attempts start at up to its rate, and after a
+ * quiet spell up to its capacity may start at once. An attempt subject to a
+ * task class limit and a resource limit takes a permit from both. An attempt
+ * whose permit is not yet free is not started: its worker thread moves on and
+ * the retry scheduler hands the attempt back to the workers when the permit is
+ * due, without using up one of the task's attempts. The time attempts are held
+ * back is recorded in the runner's metrics as throttle wait.
+ *
+ * Taking a permit is a compare-and-set on the bucket, so limits can be shared
+ * by many threads without locking. A permit is taken when it is reserved, so a
+ * task cancelled while held back still uses the permit it was waiting for.
+ */
+public final class RateLimits
+{
+	private final Map<Class<?>, TokenBucket> byTaskClass = new ConcurrentHashMap<Class<?>, TokenBucket>();
+	private final Map<Object, TokenBucket> byResource = new ConcurrentHashMap<Object, TokenBucket>();
+	/** The rate of the bucket each resource without its own limit gets, or 0 for none. */
+	private volatile double resourcePermitsPerSecond;
+	private volatile int resourceCapacity;
+
+	/**
+	 * Limits the attempts of tasks of exactly <code>taskClass</code>, replacing
+	 * any earlier limit for it.
+	 *
+	 * @param taskClass        - the exact class of the tasks to limit.
+	 * @param permitsPerSecond - the steady rate at which attempts may start.
+	 * @param capacity         - the number of attempts that may start at once
+	 *                         after a quiet spell.
+	 * @return these limits.
+	 */
+	@SuppressWarnings("rawtypes")
+	public RateLimits forTaskClass(Class<? extends ITask> taskClass, double permitsPerSecond, int capacity)
+	{
+		if (taskClass == null)
+		{
+			throw new NullPointerException("'taskClass' argument cannot be null.");
+		}
+		this.byTaskClass.put(taskClass, new TokenBucket(permitsPerSecond, capacity));
+		return this;
+	}
+
+	/**
+	 * Limits the attempts of tasks against <code>resourceKey</code>, whatever
+	 * their class, replacing any earlier limit for it.
+	 *
+	 * @param resourceKey      - a key returned by <code>ITask.resourceKey</code>.
+	 * @param permitsPerSecond - the steady rate at which attempts may start.
+	 * @param capacity         - the number of attempts that may start at once
+	 *                         after a quiet spell.
+	 * @return these limits.
+	 */
+	public RateLimits forResource(Object resourceKey, double permitsPerSecond, int capacity)
+	{
+		if (resourceKey == null)
+		{
+			throw new NullPointerException("'resourceKey' argument cannot be null.");
+		}
+		this.byResource.put(resourceKey, new TokenBucket(permitsPerSecond, capacity));
+		return this;
+	}
+
+	/**
+	 * Gives every resource not limited through <code>forResource</code> a limit
+	 * of its own, created the first time a task against it runs. Resources limited
+	 * this way are remembered for the life of these limits.
+	 *
+	 * @param permitsPerSecond - the steady rate at which attempts may start
+	 *                         against each resource.
+	 * @param capacity         - the number of attempts that may start at once
+	 *                         against each resource after a quiet spell.
+	 * @return these limits.
+	 */
+	public RateLimits forEachResource(double permitsPerSecond, int capacity)
+	{
+		// Validated up front rather than when the first resource is seen.
+		new TokenBucket(permitsPerSecond, capacity);
+		this.resourceCapacity = capacity;
+		this.resourcePermitsPerSecond = permitsPerSecond;
+		return this;
+	}
+
+	/**
+	 * Takes a permit for the next attempt of <code>task</code> from each limit it
+	 * is subject to.
+	 *
+	 * @return how long the attempt must wait before starting, in nanoseconds, or
+	 *         0 if it can start straight away.
+	 */
+	long reserve(ITask<?> task)
+	{
+		final long now = System.nanoTime();
+		long waitNanos = 0;
+		final TokenBucket classBucket = this.byTaskClass.get(task.getClass());
+		if (classBucket != null)
+		{
+			waitNanos = classBucket.reserve(now);
+		}
+		final Object resourceKey = task.resourceKey();
+		if (resourceKey != null)
+		{
+			final TokenBucket resourceBucket = this.resourceBucket(resourceKey);
+			if (resourceBucket != null)
+			{
+				waitNanos = Math.max(waitNanos, resourceBucket.reserve(now));
+			}
+		}
+		return waitNanos;
+	}
+
+	private TokenBucket resourceBucket(Object resourceKey)
+	{
+		final TokenBucket bucket = this.byResource.get(resourceKey);
+		if (bucket != null)
+		{
+			return bucket;
+		}
+		// The rate is written last and read first, so the capacity read goes with it.
+		final double permitsPerSecond = this.resourcePermitsPerSecond;
+		if (permitsPerSecond == 0)
+		{
+			return null;
+		}
+		final int capacity = this.resourceCapacity;
+		return this.byResource.computeIfAbsent(resourceKey, key -> new TokenBucket(permitsPerSecond, capacity));
+	}
+}
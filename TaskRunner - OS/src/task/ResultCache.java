@@ -0,0 +1,326 @@
+package task;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the results of tasks that identify themselves through
+ * <code>ITask.cacheKey</code>, so that a <code>TaskRunner</code> can answer
+ * repeated submissions of equivalent tasks without running them again.
+ *
+ * A result is positive if the task reported itself complete, and negative
+ * otherwise, for example a file that does not exist yet. Negative results are
+ * usually kept for a shorter time, as they are the ones callers are waiting to
+ * see change. Both times can be set per task class with <code>withTtl</code>.
+ * Tasks that fail with an exception are not cached.
+ *
+ * The cache holds at most <code>maximumSize</code> results and evicts the
+ * least recently used when full. It is split into independently locked
+ * segments, each with its own share of the size, so concurrent lookups of
+ * different keys rarely wait for each other.
+ */
+public class ResultCache
+{
+	private static final int SEGMENT_COUNT = 16;
+
+	private final Segment[] segments;
+	private final long defaultTtlNanos;
+	private final long defaultNegativeTtlNanos;
+	private final Map<Class<?>, long[]> ttlsByTaskClass = new ConcurrentHashMap<Class<?>, long[]>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	/**
+	 * @param maximumSize       - the most results to hold at once.
+	 * @param ttlMillis         - how long to keep positive results, unless set
+	 *                          for the task class.
+	 * @param negativeTtlMillis - how long to keep negative results, unless set
+	 *                          for the task class.
+	 */
+	public ResultCache(int maximumSize, long ttlMillis, long negativeTtlMillis)
+	{
+		if (maximumSize < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'maximumSize' argument. The value should be at least 1. Actual value: "
+							+ maximumSize);
+		}
+		ResultCache.validateTtls(ttlMillis, negativeTtlMillis);
+		final int segmentCount = Math.min(ResultCache.SEGMENT_COUNT, maximumSize);
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+		{
+			// Spread the remainder so the segment sizes add up to exactly maximumSize.
+			this.segments[i] = new Segment(maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0));
+		}
+		this.defaultTtlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.defaultNegativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+	}
+
+	/**
+	 * Sets how long results of tasks of exactly <code>taskClass</code> are kept.
+	 *
+	 * @param taskClass
+	 * @param ttlMillis         - how long to keep positive results.
+	 * @param negativeTtlMillis - how long to keep negative results. 0 to not
+	 *                          cache them at all.
+	 * @return this cache.
+	 */
+	@SuppressWarnings("rawtypes")
+	public ResultCache withTtl(Class<? extends ITask> taskClass, long ttlMillis, long negativeTtlMillis)
+	{
+		if (taskClass == null)
+		{
+			throw new NullPointerException("'taskClass' argument cannot be null.");
+		}
+		ResultCache.validateTtls(ttlMillis, negativeTtlMillis);
+		this.ttlsByTaskClass.put(taskClass, new long[] { TimeUnit.MILLISECONDS.toNanos(ttlMillis),
+				TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis) });
+		return this;
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache.
+	 */
+	public long getHitCount()
+	{
+		return this.hits.sum();
+	}
+
+	/**
+	 * @return the number of lookups that had to run the task.
+	 */
+	public long getMissCount()
+	{
+		return this.misses.sum();
+	}
+
+	/**
+	 * @return the fraction of lookups answered from the cache, or 0 if there
+	 *         have been none.
+	 */
+	public double getHitRate()
+	{
+		final long hits = this.hits.sum();
+		final long lookups = hits + this.misses.sum();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * @return the number of results evicted to keep within the maximum size.
+	 */
+	public long getEvictionCount()
+	{
+		return this.evictions.sum();
+	}
+
+	/**
+	 * @return the number of results found to have outlived their time to live.
+	 */
+	public long getExpirationCount()
+	{
+		return this.expirations.sum();
+	}
+
+	/**
+	 * @return the number of results held, including any that have expired but not
+	 *         yet been looked up or evicted.
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (final Segment segment : this.segments)
+		{
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Removes every result.
+	 */
+	public void clear()
+	{
+		for (final Segment segment : this.segments)
+		{
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @return the key for <code>task</code>'s result, or null if its result
+	 *         cannot be shared.
+	 */
+	static Key keyFor(ITask<?> task, Class<?> targetClass)
+	{
+		final Object cacheKey = task.cacheKey();
+		return cacheKey == null ? null : new Key(task.getClass(), targetClass, cacheKey);
+	}
+
+	/**
+	 * @return a current result for <code>key</code>, or null if there is none.
+	 */
+	Object get(Key key)
+	{
+		final Object value = this.segmentFor(key).get(key, System.nanoTime());
+		if (value == null)
+		{
+			this.misses.increment();
+		} else
+		{
+			this.hits.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Stores the result of a task that has completed normally.
+	 *
+	 * @param positive - true if the task reported itself complete.
+	 */
+	void put(Key key, Object value, boolean positive)
+	{
+		final long[] ttls = this.ttlsByTaskClass.get(key.taskClass);
+		final long ttlNanos = positive ? (ttls == null ? this.defaultTtlNanos : ttls[0])
+				: (ttls == null ? this.defaultNegativeTtlNanos : ttls[1]);
+		if (ttlNanos == 0 || value == null)
+		{
+			return;
+		}
+		this.segmentFor(key).put(key, new Entry(value, System.nanoTime() + ttlNanos));
+	}
+
+	private Segment segmentFor(Key key)
+	{
+		final int hash = key.hashCode();
+		return this.segments[((hash ^ (hash >>> 16)) & 0x7fffffff) % this.segments.length];
+	}
+
+	private static void validateTtls(long ttlMillis, long negativeTtlMillis)
+	{
+		if (ttlMillis < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'ttlMillis' argument. The value should be at least 1. Actual value: "
+							+ ttlMillis);
+		} else if (negativeTtlMillis < 0)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'negativeTtlMillis' argument. The value should be at least 0. Actual value: "
+							+ negativeTtlMillis);
+		}
+	}
+
+	/**
+	 * Identifies a result: the task class, the class it was asked to return and
+	 * the task's own key.
+	 */
+	static final class Key
+	{
+		final Class<?> taskClass;
+		private final Class<?> targetClass;
+		private final Object cacheKey;
+		private final int hash;
+
+		Key(Class<?> taskClass, Class<?> targetClass, Object cacheKey)
+		{
+			this.taskClass = taskClass;
+			this.targetClass = targetClass;
+			this.cacheKey = cacheKey;
+			this.hash = 31 * (31 * taskClass.hashCode() + (targetClass == null ? 0 : targetClass.hashCode()))
+					+ cacheKey.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			} else if (!(obj instanceof Key))
+			{
+				return false;
+			}
+			final Key other = (Key) obj;
+			return this.hash == other.hash && this.taskClass == other.taskClass
+					&& this.targetClass == other.targetClass && this.cacheKey.equals(other.cacheKey);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return this.hash;
+		}
+	}
+
+	private static final class Entry
+	{
+		final Object value;
+		final long expiresAtNanos;
+
+		Entry(Object value, long expiresAtNanos)
+		{
+			this.value = value;
+			this.expiresAtNanos = expiresAtNanos;
+		}
+	}
+
+	/**
+	 * A least recently used map of part of the key space, guarded by its own lock.
+	 */
+	private final class Segment
+	{
+		private final int capacity;
+		private final LinkedHashMap<Key, Entry> entries;
+
+		Segment(int capacity)
+		{
+			this.capacity = capacity;
+			this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		}
+
+		synchronized Object get(Key key, long now)
+		{
+			final Entry entry = this.entries.get(key);
+			if (entry == null)
+			{
+				return null;
+			}
+			if (now - entry.expiresAtNanos >= 0)
+			{
+				this.entries.remove(key);
+				ResultCache.this.expirations.increment();
+				return null;
+			}
+			return entry.value;
+		}
+
+		synchronized void put(Key key, Entry entry)
+		{
+			this.entries.put(key, entry);
+			if (this.entries.size() > this.capacity)
+			{
+				final Iterator<Key> eldest = this.entries.keySet().iterator();
+				eldest.next();
+				eldest.remove();
+				ResultCache.this.evictions.increment();
+			}
+		}
+
+		synchronized int size()
+		{
+			return this.entries.size();
+		}
+
+		synchronized void clear()
+		{
+			this.entries.clear();
+		}
+	}
+}
@@ -0,0 +1,330 @@
+package task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides how many times a task is attempted, how long to wait between
+ * attempts and which exceptions are worth retrying.
+ *
+ * Policies are immutable. Start from one of the backoff factories and narrow
+ * the exceptions that are retried with <code>retryOn</code> and
+ * <code>abortOn</code>, each of which returns a new policy.
+ *
+ * A <code>ClassCastException</code> is never retried, whatever the policy, as
+ * it means the task's return type was specified incorrectly.
+ */
+public final class RetryPolicy
+{
+	/**
+	 * Works out the delay before the next attempt.
+	 */
+	@FunctionalInterface
+	public interface Backoff
+	{
+		/**
+		 * @param failedAttempts      - the number of attempts made so far, at least 1.
+		 * @param previousDelayMillis - the delay before the previous attempt, or 0
+		 *                            before the first retry.
+		 * @return the delay before the next attempt in milliseconds.
+		 */
+		public long delayMillis(int failedAttempts, long previousDelayMillis);
+	}
+
+	private final int maxAttempts;
+	private final Backoff backoff;
+	private final List<Class<? extends Exception>> retryOn;
+	private final List<Class<? extends Exception>> abortOn;
+	/** The factory and arguments the backoff was built from, or null for a custom backoff. */
+	private final String backoffDescription;
+
+	private RetryPolicy(int maxAttempts, Backoff backoff, List<Class<? extends Exception>> retryOn,
+			List<Class<? extends Exception>> abortOn, String backoffDescription)
+	{
+		if (maxAttempts < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'maxAttempts' argument. The value should be at least 1. Actual value: "
+							+ maxAttempts);
+		} else if (backoff == null)
+		{
+			throw new NullPointerException("'backoff' argument cannot be null.");
+		}
+		this.maxAttempts = maxAttempts;
+		this.backoff = backoff;
+		this.retryOn = retryOn;
+		this.abortOn = abortOn;
+		this.backoffDescription = backoffDescription;
+	}
+
+	/**
+	 * @param maxAttempts - the maximum number of attempts, including the first.
+	 * @param backoff     - works out the delay before each retry.
+	 * @return a policy that retries every exception other than
+	 *         <code>ClassCastException</code>.
+	 */
+	public static RetryPolicy of(int maxAttempts, Backoff backoff)
+	{
+		return RetryPolicy.of(maxAttempts, backoff, null);
+	}
+
+	private static RetryPolicy of(int maxAttempts, Backoff backoff, String backoffDescription)
+	{
+		return new RetryPolicy(maxAttempts, backoff, Collections.<Class<? extends Exception>>emptyList(),
+				Collections.<Class<? extends Exception>>emptyList(), backoffDescription);
+	}
+
+	/**
+	 * Waits the same time before every retry. Equivalent to the
+	 * <code>times</code> and <code>sleepMillis</code> arguments of
+	 * <code>TaskRunner.runTaskAsync</code>.
+	 */
+	public static RetryPolicy fixed(int maxAttempts, long delayMillis)
+	{
+		RetryPolicy.validateDelay("delayMillis", delayMillis);
+		return RetryPolicy.of(maxAttempts, (failedAttempts, previousDelayMillis) -> delayMillis,
+				"fixed " + delayMillis);
+	}
+
+	/**
+	 * Doubles the delay after each attempt, from <code>baseDelayMillis</code> up to
+	 * <code>maxDelayMillis</code>.
+	 */
+	public static RetryPolicy exponential(int maxAttempts, long baseDelayMillis, long maxDelayMillis)
+	{
+		RetryPolicy.validateDelays(baseDelayMillis, maxDelayMillis);
+		return RetryPolicy.of(maxAttempts, (failedAttempts, previousDelayMillis) -> RetryPolicy
+				.exponentialDelay(failedAttempts, baseDelayMillis, maxDelayMillis),
+				"exponential " + baseDelayMillis + " " + maxDelayMillis);
+	}
+
+	/**
+	 * Picks a delay at random between 0 and the exponential delay for the attempt.
+	 * Spreads out tasks that started failing at the same moment, so they do not
+	 * all retry in lockstep.
+	 */
+	public static RetryPolicy fullJitter(int maxAttempts, long baseDelayMillis, long maxDelayMillis)
+	{
+		RetryPolicy.validateDelays(baseDelayMillis, maxDelayMillis);
+		return RetryPolicy.of(maxAttempts, (failedAttempts, previousDelayMillis) -> ThreadLocalRandom.current()
+				.nextLong(RetryPolicy.exponentialDelay(failedAttempts, baseDelayMillis, maxDelayMillis) + 1),
+				"fullJitter " + baseDelayMillis + " " + maxDelayMillis);
+	}
+
+	/**
+	 * Picks a delay at random between <code>baseDelayMillis</code> and three times
+	 * the previous delay, capped at <code>maxDelayMillis</code>. The first retry
+	 * treats the base delay as the previous one. Delays grow roughly exponentially
+	 * but each task drifts away from the others.
+	 */
+	public static RetryPolicy decorrelatedJitter(int maxAttempts, long baseDelayMillis, long maxDelayMillis)
+	{
+		RetryPolicy.validateDelays(baseDelayMillis, maxDelayMillis);
+		return RetryPolicy.of(maxAttempts, (failedAttempts, previousDelayMillis) -> {
+			final long previous = Math.max(baseDelayMillis, previousDelayMillis);
+			final long upper = Math.min(maxDelayMillis, previous * 3);
+			return ThreadLocalRandom.current().nextLong(baseDelayMillis, upper + 1);
+		}, "decorrelatedJitter " + baseDelayMillis + " " + maxDelayMillis);
+	}
+
+	/**
+	 * @return a copy of this policy that only retries exceptions of the given
+	 *         types and their subclasses. Can be combined with
+	 *         <code>abortOn</code> to exclude particular subclasses.
+	 */
+	@SafeVarargs
+	public final RetryPolicy retryOn(Class<? extends Exception>... exceptionTypes)
+	{
+		return new RetryPolicy(this.maxAttempts, this.backoff, RetryPolicy.append(this.retryOn, exceptionTypes),
+				this.abortOn, this.backoffDescription);
+	}
+
+	/**
+	 * @return a copy of this policy that fails the task straight away on
+	 *         exceptions of the given types and their subclasses.
+	 */
+	@SafeVarargs
+	public final RetryPolicy abortOn(Class<? extends Exception>... exceptionTypes)
+	{
+		return new RetryPolicy(this.maxAttempts, this.backoff, this.retryOn,
+				RetryPolicy.append(this.abortOn, exceptionTypes), this.backoffDescription);
+	}
+
+	/**
+	 * @return the maximum number of attempts, including the first.
+	 */
+	public int getMaxAttempts()
+	{
+		return this.maxAttempts;
+	}
+
+	/**
+	 * @return the delay before the next attempt, never negative.
+	 */
+	public long delayMillis(int failedAttempts, long previousDelayMillis)
+	{
+		return Math.max(0, this.backoff.delayMillis(failedAttempts, previousDelayMillis));
+	}
+
+	/**
+	 * @return true if an attempt that threw <code>e</code> should be retried,
+	 *         attempts permitting.
+	 */
+	public boolean shouldRetry(Exception e)
+	{
+		if (e.getClass() == ClassCastException.class || RetryPolicy.matches(this.abortOn, e))
+		{
+			return false;
+		}
+		return this.retryOn.isEmpty() || RetryPolicy.matches(this.retryOn, e);
+	}
+
+	/**
+	 * @return the policy as text that <code>fromDescription</code> turns back into
+	 *         an equivalent policy, or null if it has a custom backoff.
+	 */
+	String describe()
+	{
+		if (this.backoffDescription == null)
+		{
+			return null;
+		}
+		return this.maxAttempts + " " + this.backoffDescription + "\n" + RetryPolicy.describe(this.retryOn) + "\n"
+				+ RetryPolicy.describe(this.abortOn);
+	}
+
+	/**
+	 * Rebuilds a policy described by <code>describe</code>.
+	 *
+	 * @throws IllegalArgumentException - if the description is malformed or names
+	 *                                  an exception class that cannot be loaded.
+	 */
+	static RetryPolicy fromDescription(String description) throws IllegalArgumentException
+	{
+		final String[] lines = description.split("\n", -1);
+		final String[] backoff = lines[0].split(" ");
+		if (lines.length != 3 || backoff.length < 3)
+		{
+			throw new IllegalArgumentException("Malformed retry policy description: " + description);
+		}
+		final int maxAttempts = Integer.parseInt(backoff[0]);
+		final long firstDelayMillis = Long.parseLong(backoff[2]);
+		RetryPolicy policy;
+		if ("fixed".equals(backoff[1]))
+		{
+			policy = RetryPolicy.fixed(maxAttempts, firstDelayMillis);
+		} else if (backoff.length != 4)
+		{
+			throw new IllegalArgumentException("Malformed retry policy description: " + description);
+		} else if ("exponential".equals(backoff[1]))
+		{
+			policy = RetryPolicy.exponential(maxAttempts, firstDelayMillis, Long.parseLong(backoff[3]));
+		} else if ("fullJitter".equals(backoff[1]))
+		{
+			policy = RetryPolicy.fullJitter(maxAttempts, firstDelayMillis, Long.parseLong(backoff[3]));
+		} else if ("decorrelatedJitter".equals(backoff[1]))
+		{
+			policy = RetryPolicy.decorrelatedJitter(maxAttempts, firstDelayMillis, Long.parseLong(backoff[3]));
+		} else
+		{
+			throw new IllegalArgumentException("Unknown backoff in retry policy description: " + description);
+		}
+		return new RetryPolicy(policy.maxAttempts, policy.backoff, RetryPolicy.exceptionTypes(lines[1]),
+				RetryPolicy.exceptionTypes(lines[2]), policy.backoffDescription);
+	}
+
+	private static String describe(List<Class<? extends Exception>> exceptionTypes)
+	{
+		final StringBuilder builder = new StringBuilder();
+		for (final Class<? extends Exception> exceptionType : exceptionTypes)
+		{
+			if (builder.length() > 0)
+			{
+				builder.append(',');
+			}
+			builder.append(exceptionType.getName());
+		}
+		return builder.toString();
+	}
+
+	private static List<Class<? extends Exception>> exceptionTypes(String names) throws IllegalArgumentException
+	{
+		if (names.isEmpty())
+		{
+			return Collections.<Class<? extends Exception>>emptyList();
+		}
+		final List<Class<? extends Exception>> exceptionTypes = new ArrayList<Class<? extends Exception>>();
+		for (final String name : names.split(","))
+		{
+			try
+			{
+				final Class<?> loaded = Class.forName(name);
+				exceptionTypes.add(loaded.asSubclass(Exception.class));
+			} catch (final ClassNotFoundException | ClassCastException e)
+			{
+				throw new IllegalArgumentException("Cannot load exception type '" + name + "'.", e);
+			}
+		}
+		return Collections.unmodifiableList(exceptionTypes);
+	}
+
+	private static long exponentialDelay(int failedAttempts, long baseDelayMillis, long maxDelayMillis)
+	{
+		final int shift = Math.min(failedAttempts - 1, 62);
+		if (baseDelayMillis > (maxDelayMillis >> shift))
+		{
+			return maxDelayMillis;
+		}
+		return baseDelayMillis << shift;
+	}
+
+	private static boolean matches(List<Class<? extends Exception>> exceptionTypes, Exception e)
+	{
+		for (final Class<? extends Exception> exceptionType : exceptionTypes)
+		{
+			if (exceptionType.isInstance(e))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@SafeVarargs
+	private static List<Class<? extends Exception>> append(List<Class<? extends Exception>> existing,
+			Class<? extends Exception>... exceptionTypes)
+	{
+		final List<Class<? extends Exception>> combined = new ArrayList<Class<? extends Exception>>(existing);
+		for (final Class<? extends Exception> exceptionType : exceptionTypes)
+		{
+			if (exceptionType == null)
+			{
+				throw new NullPointerException("'exceptionTypes' argument cannot contain nulls.");
+			}
+			combined.add(exceptionType);
+		}
+		return Collections.unmodifiableList(combined);
+	}
+
+	private static void validateDelays(long baseDelayMillis, long maxDelayMillis)
+	{
+		RetryPolicy.validateDelay("baseDelayMillis", baseDelayMillis);
+		if (maxDelayMillis < baseDelayMillis)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'maxDelayMillis' argument. The value should be at least 'baseDelayMillis'. Actual value: "
+							+ maxDelayMillis);
+		}
+	}
+
+	private static void validateDelay(String name, long delayMillis)
+	{
+		if (delayMillis < 1)
+		{
+			throw new IllegalArgumentException("Illegal value given for '" + name
+					+ "' argument. The value should be at least 1. Actual value: " + delayMillis);
+		}
+	}
+}
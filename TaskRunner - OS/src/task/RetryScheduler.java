@@ -0,0 +1,85 @@
+package task;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the delay between a task's attempts. When a retry is due the scheduler
+ * runs its command on the scheduler's own thread, so commands are expected to
+ * do nothing more than hand the attempt over to the worker threads. The runner
+ * times attempt timeouts and task deadlines on the same scheduler, and their
+ * commands likewise only interrupt the attempt and hand the rest to the
+ * workers.
+ *
+ * A <code>TaskRunner</code> owns the scheduler it is given and shuts it down
+ * along with itself.
+ */
+public interface RetryScheduler
+{
+	/**
+	 * A retry waiting for its delay to elapse.
+	 */
+	public interface ScheduledRetry
+	{
+		/**
+		 * Stops the retry from running if it has not run already.
+		 *
+		 * @return true if the retry was cancelled, false if it had already run or
+		 *         been cancelled.
+		 */
+		public boolean cancel();
+	}
+
+	/**
+	 * Runs <code>command</code> once <code>delayMillis</code> has elapsed.
+	 *
+	 * @param command
+	 * @param delayMillis
+	 * @return a handle that can be used to cancel the retry.
+	 * @throws RejectedExecutionException - if the scheduler has been shut down.
+	 */
+	public ScheduledRetry schedule(Runnable command, long delayMillis) throws RejectedExecutionException;
+
+	/**
+	 * As <code>schedule</code>, but may reuse <code>previous</code>, the handle of
+	 * an earlier retry that has already run, rather than allocating a new one.
+	 * Lets a task that retries many times do so without creating garbage per
+	 * retry. Schedulers that cannot reuse handles ignore <code>previous</code>,
+	 * as this default does.
+	 *
+	 * @param previous    - the handle of an earlier retry, or null.
+	 * @param command
+	 * @param delayMillis
+	 * @return a handle that can be used to cancel the retry, possibly
+	 *         <code>previous</code>.
+	 * @throws RejectedExecutionException - if the scheduler has been shut down.
+	 */
+	public default ScheduledRetry reschedule(ScheduledRetry previous, Runnable command, long delayMillis)
+			throws RejectedExecutionException
+	{
+		return this.schedule(command, delayMillis);
+	}
+
+	/**
+	 * Stops accepting new retries. Retries that are already scheduled still run
+	 * when they are due.
+	 */
+	public void shutdown();
+
+	/**
+	 * Stops accepting new retries and drops any that are still waiting.
+	 */
+	public void shutdownNow();
+
+	/**
+	 * Blocks until all scheduled retries have run after a shutdown, or the timeout
+	 * elapses.
+	 *
+	 * @param timeout - the maximum time to wait
+	 * @param unit    - the time unit of the timeout argument
+	 * @return true if the scheduler terminated and false if the timeout elapsed
+	 *         first.
+	 * @throws InterruptedException - if interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+}
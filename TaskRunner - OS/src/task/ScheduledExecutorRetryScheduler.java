@@ -0,0 +1,52 @@
+package task;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry scheduler backed by a <code>ScheduledExecutorService</code>. Each retry
+ * is an entry in the executor's delay queue, a binary heap guarded by a single
+ * lock, so scheduling costs O(log n) in the number of pending retries. This is
+ * the default scheduler.
+ */
+public class ScheduledExecutorRetryScheduler implements RetryScheduler
+{
+	private final ScheduledThreadPoolExecutor executor;
+
+	/**
+	 * @param threadCount - the number of threads used to time retries.
+	 */
+	public ScheduledExecutorRetryScheduler(int threadCount)
+	{
+		this.executor = new ScheduledThreadPoolExecutor(threadCount);
+		// Cancelled retries would otherwise stay in the heap until their delay ran out.
+		this.executor.setRemoveOnCancelPolicy(true);
+	}
+
+	@Override
+	public ScheduledRetry schedule(Runnable command, long delayMillis) throws RejectedExecutionException
+	{
+		final ScheduledFuture<?> future = this.executor.schedule(command, delayMillis, TimeUnit.MILLISECONDS);
+		return () -> future.cancel(false);
+	}
+
+	@Override
+	public void shutdown()
+	{
+		this.executor.shutdown();
+	}
+
+	@Override
+	public void shutdownNow()
+	{
+		this.executor.shutdownNow();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		return this.executor.awaitTermination(timeout, unit);
+	}
+}
@@ -0,0 +1,147 @@
+package task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The pending results of a group of tasks submitted together through
+ * <code>TaskRunner.runTasksAsync</code>.
+ *
+ * Gives access to each task's own Future, in submission order, and to
+ * aggregate Futures over the whole batch. Each call to an aggregate method
+ * creates a new Future.
+ *
+ * @param <V> - The result type of the tasks in the batch.
+ */
+public class TaskBatch<V>
+{
+	private final List<CompletableFuture<V>> futures;
+
+	TaskBatch(List<CompletableFuture<V>> futures)
+	{
+		this.futures = futures;
+	}
+
+	/**
+	 * @return the number of tasks in the batch.
+	 */
+	public int size()
+	{
+		return this.futures.size();
+	}
+
+	/**
+	 * @return the Future for each task, in the order the tasks were submitted.
+	 */
+	public List<Future<V>> getFutures()
+	{
+		return Collections.<Future<V>>unmodifiableList(this.futures);
+	}
+
+	/**
+	 * Cancels every task in the batch that has not completed yet, stopping their
+	 * remaining attempts. Useful when the caller has stopped waiting for the batch.
+	 *
+	 * @param mayInterruptIfRunning - true if threads running an attempt should be
+	 *                              interrupted.
+	 * @return the number of tasks that were cancelled.
+	 */
+	public int cancelAll(boolean mayInterruptIfRunning)
+	{
+		int cancelled = 0;
+		for (final CompletableFuture<V> future : this.futures)
+		{
+			if (future.cancel(mayInterruptIfRunning))
+			{
+				cancelled++;
+			}
+		}
+		return cancelled;
+	}
+
+	/**
+	 * @return a Future that completes with every task's result, in submission
+	 *         order, once all tasks have completed. If any task fails then this
+	 *         Future fails with that task's exception.
+	 */
+	public Future<List<V>> allOf()
+	{
+		return CompletableFuture.allOf(this.futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+			final List<V> results = new ArrayList<V>(this.futures.size());
+			for (final CompletableFuture<V> future : this.futures)
+			{
+				results.add(future.join());
+			}
+			return results;
+		});
+	}
+
+	/**
+	 * @return a Future that completes with the result of the first task to
+	 *         succeed. It only fails if every task fails, with the exception of
+	 *         the last task to fail.
+	 * @throws IllegalArgumentException - if the batch is empty.
+	 */
+	public Future<V> anyOf() throws IllegalArgumentException
+	{
+		return this.firstCompleted(1).thenApply(results -> results.get(0));
+	}
+
+	/**
+	 * @param n - the number of successful results to wait for.
+	 * @return a Future that completes with the results of the first
+	 *         <code>n</code> tasks to succeed, in the order they completed. It
+	 *         fails as soon as so many tasks have failed that <code>n</code>
+	 *         successes are no longer possible, with the exception of the task
+	 *         that made it impossible.
+	 * @throws IllegalArgumentException - if <code>n</code> is not in the range 1
+	 *                                  to the size of the batch.
+	 */
+	public Future<List<V>> firstN(int n) throws IllegalArgumentException
+	{
+		return this.firstCompleted(n);
+	}
+
+	private CompletableFuture<List<V>> firstCompleted(int n)
+	{
+		if (n < 1 || n > this.futures.size())
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'n' argument. The value should be in the range 1-" + this.futures.size()
+							+ " inclusive. Actual value: " + n);
+		}
+		final CompletableFuture<List<V>> aggregate = new CompletableFuture<List<V>>();
+		final List<V> results = new ArrayList<V>(n);
+		final AtomicInteger failures = new AtomicInteger();
+		final int allowedFailures = this.futures.size() - n;
+		for (final CompletableFuture<V> future : this.futures)
+		{
+			future.whenComplete((result, exception) -> {
+				if (exception != null)
+				{
+					if (failures.incrementAndGet() > allowedFailures)
+					{
+						aggregate.completeExceptionally(exception);
+					}
+					return;
+				}
+				synchronized (results)
+				{
+					if (results.size() < n)
+					{
+						results.add(result);
+						if (results.size() == n)
+						{
+							aggregate.complete(new ArrayList<V>(results));
+						}
+					}
+				}
+			});
+		}
+		return aggregate;
+	}
+}
@@ -0,0 +1,80 @@
+package task;
+
+import java.util.Arrays;
+
+/**
+ * A serializable description of a task: the key of the factory that builds it
+ * and the arguments to pass to the factory. Tasks return one from
+ * <code>ITask.descriptor</code>, and a <code>TaskJournal</code> rebuilds them
+ * through the factory registered under the key.
+ */
+public final class TaskDescriptor
+{
+	private final String factoryKey;
+	private final String[] arguments;
+
+	/**
+	 * @param factoryKey - the key of the factory that builds the task.
+	 * @param arguments  - the arguments to build the task with.
+	 */
+	public TaskDescriptor(String factoryKey, String... arguments)
+	{
+		if (factoryKey == null)
+		{
+			throw new NullPointerException("'factoryKey' argument cannot be null.");
+		}
+		for (final String argument : arguments)
+		{
+			if (argument == null)
+			{
+				throw new NullPointerException("'arguments' argument cannot contain nulls.");
+			}
+		}
+		this.factoryKey = factoryKey;
+		this.arguments = arguments.clone();
+	}
+
+	public String getFactoryKey()
+	{
+		return this.factoryKey;
+	}
+
+	/**
+	 * @return a copy of the arguments.
+	 */
+	public String[] getArguments()
+	{
+		return this.arguments.clone();
+	}
+
+	String[] arguments()
+	{
+		return this.arguments;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		} else if (!(obj instanceof TaskDescriptor))
+		{
+			return false;
+		}
+		final TaskDescriptor other = (TaskDescriptor) obj;
+		return this.factoryKey.equals(other.factoryKey) && Arrays.equals(this.arguments, other.arguments);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * this.factoryKey.hashCode() + Arrays.hashCode(this.arguments);
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.factoryKey + Arrays.toString(this.arguments);
+	}
+}
@@ -0,0 +1,27 @@
+package task;
+
+/**
+ * Told about the exceptions task attempts throw, as sampled and rate limited
+ * by <code>ErrorReporting</code>.
+ *
+ * @see ErrorReporting
+ */
+@FunctionalInterface
+public interface TaskErrorListener
+{
+	/**
+	 * Called on the worker thread whose attempt threw, or, for an attempt that
+	 * overran its timeout, on the worker it was handed to. Once the workers have
+	 * shut down, a timed-out attempt is reported on the thread that found it
+	 * overrunning instead. Never called on the runner's timer thread while the
+	 * workers are running. Should return quickly; anything it throws is
+	 * ignored.
+	 *
+	 * @param task       - the task whose attempt failed.
+	 * @param attempt    - the number of the attempt, starting at 1.
+	 * @param error      - what the attempt threw.
+	 * @param suppressed - the number of exceptions of the same class that were
+	 *                   not reported since the last one that was.
+	 */
+	public void onError(ITask<?> task, int attempt, Exception error, long suppressed);
+}
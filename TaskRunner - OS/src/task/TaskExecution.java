@@ -0,0 +1,789 @@
+package task;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiConsumer;
+
+/**
+ * The state of one submitted task as it moves through its attempts, which is
+ * also the Future handed back to the caller.
+ *
+ * Cancelling the Future stops the task rather than just abandoning its result:
+ * a pending retry is removed from the retry scheduler, the task is told to stop
+ * through <code>ITask.cancel</code>, and with
+ * <code>mayInterruptIfRunning</code> the thread running an attempt is
+ * interrupted. Missing the overall deadline stops the task the same way,
+ * except that only the interrupt is delivered from the retry timer's thread;
+ * the rest is handed to the workers.
+ *
+ * Each attempt is numbered. An attempt that overruns its timeout is abandoned:
+ * it is interrupted and whatever it eventually returns is ignored, since the
+ * task has moved on to its next attempt or failed.
+ *
+ * On a runner with an admission limit the execution holds its place from
+ * admission until it completes, however it completes. Whichever thread
+ * completes the execution first claims it, then records its metrics, journals
+ * it and gives up its place, and only then completes the Future. So the
+ * callers and continuations the Future releases find the task's place free
+ * and its completion recorded.
+ *
+ * As a <code>TaskHandle</code> it reports the attempts started, the last
+ * exception, and when the task was submitted, first started and completed.
+ *
+ * On a runner with a journal, a task without a deadline is journaled when the
+ * execution is created, its retries as they are scheduled and its completion
+ * however it completes, unless the runner refused a retry because it was
+ * shutting down, which leaves the task to be replayed.
+ *
+ * @param <V> - The result type of the task.
+ */
+class TaskExecution<V> extends CompletableFuture<V> implements Runnable, TaskHandle<V>
+{
+	/** Marks an execution without an overall deadline. */
+	static final long NO_DEADLINE = Long.MAX_VALUE;
+	/** Marks an execution without a timeout per attempt. */
+	static final long NO_TIMEOUT = 0;
+
+	private static final int NOT_ADMITTED = 0;
+	private static final int ADMITTED = 1;
+	private static final int RELEASED = 2;
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<TaskExecution> ADMISSION = AtomicIntegerFieldUpdater
+			.newUpdater(TaskExecution.class, "admission");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<TaskExecution> COMPLETING = AtomicIntegerFieldUpdater
+			.newUpdater(TaskExecution.class, "completing");
+	/** Marks a shared execution that every attached caller has cancelled. */
+	private static final int CLOSED = -1;
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<TaskExecution> SUBSCRIBERS = AtomicIntegerFieldUpdater
+			.newUpdater(TaskExecution.class, "subscribers");
+
+	final TaskRunner runner;
+	final ITask<V> task;
+	final RetryPolicy retryPolicy;
+	final Class<V> targetClass;
+	final long deadlineNanos;
+	final long attemptTimeoutMillis;
+	/** Where this task's metrics are recorded, or null if metrics were off when it was submitted. */
+	final TaskMetrics metrics;
+	/** Where this task is journaled, or null if it is not. */
+	final TaskJournal journal;
+	/** The task's id in the journal, or 0 if it is not journaled. */
+	final long journalId;
+	/** Whether this task's queue waits and attempt durations are timed, which only a sample of tasks are. */
+	private final boolean timed;
+	private final long submittedNanos = System.nanoTime();
+	int remainingAttempts;
+	/** Where to store the result for equivalent tasks to share, or null if it is not shared. */
+	ResultCache.Key cacheKey;
+	/** Whether the execution is shared by equivalent submissions and registered as in flight under its cacheKey. */
+	boolean coalesced;
+	/** When the next attempt became due, for measuring how long it waits for a thread. */
+	private long queuedAtNanos;
+	/** The delay before the latest retry. Only touched by the thread that owns the latest attempt. */
+	private long previousDelayMillis;
+	/**
+	 * Whether the next run is the retry timer handing the execution back to the
+	 * workers rather than a worker running an attempt. Passed between threads
+	 * through the timer's and workers' queues, which order the accesses.
+	 */
+	private boolean retryDue;
+	/**
+	 * Whether the next attempt already holds the permits of the runner's rate
+	 * limits, having been held back until they were due. Passed between threads
+	 * in the same way as <code>retryDue</code>.
+	 */
+	boolean rateLimitReserved;
+	/**
+	 * The circuit breaker that let the latest attempt through, or null. Set by the
+	 * thread running the attempt before its timeout is scheduled, and read by
+	 * whichever finishes the attempt.
+	 */
+	CircuitBreaker attemptBreaker;
+	/** The permit <code>attemptBreaker</code> let the attempt through with. */
+	long attemptPermit;
+	/**
+	 * The handle of the last retry that ran, for the retry scheduler to reuse.
+	 * Only touched by the thread that owns the latest attempt.
+	 */
+	private RetryScheduler.ScheduledRetry spentRetry;
+
+	/** The number of attempts started so far. Guarded by this. */
+	private int attempt;
+	/** Whether the latest attempt is still running and has not been abandoned. Guarded by this. */
+	private boolean attemptActive;
+	/** The thread running the latest attempt. Guarded by this. */
+	private Thread attemptThread;
+	/** Whether the task was dropped before its first attempt. Guarded by this. */
+	private boolean dropped;
+	/** Whether the first attempt has begun. */
+	private volatile boolean started;
+	/** Whether a thread has claimed the completion of the Future, which it makes once its bookkeeping is done. */
+	private volatile int completing;
+	/** Whether the execution holds a place under the runner's admission limit. */
+	private volatile int admission = TaskExecution.NOT_ADMITTED;
+	/** The number of callers attached to a shared execution who have not cancelled, or CLOSED. */
+	private volatile int subscribers;
+	/** When the first attempt started, or 0 before then. */
+	private volatile long startedNanos;
+	/** When the execution completed, set by the thread that claimed its completion, or 0 before then. */
+	private volatile long completedNanos;
+	private volatile Throwable lastException;
+	/** Whether to leave the task in the journal when it completes, to be replayed. */
+	private volatile boolean keptInJournal;
+	private volatile RetryScheduler.ScheduledRetry pendingRetry;
+	private volatile RetryScheduler.ScheduledRetry attemptTimer;
+	private volatile RetryScheduler.ScheduledRetry deadlineTimer;
+
+	TaskExecution(TaskRunner runner, ITask<V> task, RetryPolicy retryPolicy, Class<V> targetClass)
+	{
+		this(runner, task, retryPolicy, targetClass, TaskExecution.NO_DEADLINE, TaskExecution.NO_TIMEOUT);
+	}
+
+	TaskExecution(TaskRunner runner, ITask<V> task, RetryPolicy retryPolicy, Class<V> targetClass,
+			long deadlineNanos, long attemptTimeoutMillis)
+	{
+		this(runner, task, retryPolicy, targetClass, deadlineNanos, attemptTimeoutMillis,
+				deadlineNanos == TaskExecution.NO_DEADLINE ? runner.getJournal() : null, 0);
+	}
+
+	/**
+	 * @param journal   - where to journal the task, or null not to.
+	 * @param journalId - the task's id in <code>journal</code> if it is being
+	 *                  replayed, or 0 to journal it as a new task.
+	 */
+	TaskExecution(TaskRunner runner, ITask<V> task, RetryPolicy retryPolicy, Class<V> targetClass,
+			long deadlineNanos, long attemptTimeoutMillis, TaskJournal journal, long journalId)
+	{
+		this.runner = runner;
+		this.task = task;
+		this.retryPolicy = retryPolicy;
+		this.remainingAttempts = retryPolicy.getMaxAttempts();
+		this.targetClass = targetClass;
+		this.deadlineNanos = deadlineNanos;
+		this.attemptTimeoutMillis = attemptTimeoutMillis;
+		if (journal != null && journalId == 0)
+		{
+			journalId = journal.recordSubmitted(task, retryPolicy, targetClass);
+		}
+		this.journal = journalId == 0 ? null : journal;
+		this.journalId = journalId;
+		this.metrics = runner.metricsFor(task);
+		this.timed = this.metrics != null && runner.sampleLatency();
+		if (this.metrics != null)
+		{
+			this.metrics.onSubmitted();
+		}
+		if (this.timed)
+		{
+			this.queuedAtNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Runs the next attempt or, when run by the retry timer, hands the execution
+	 * back to the workers to run it. Being its own timer command means a retry
+	 * needs no command of its own.
+	 */
+	@Override
+	public void run()
+	{
+		if (this.retryDue)
+		{
+			this.retryDue = false;
+			this.runner.execute(this);
+			return;
+		}
+		this.runner.executeTask(this);
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning)
+	{
+		if (!this.claimCompletion())
+		{
+			return this.isCancelled();
+		}
+		this.leaveInFlight();
+		try
+		{
+			this.stop(mayInterruptIfRunning);
+		} finally
+		{
+			this.onDone(null, true);
+			super.cancel(mayInterruptIfRunning);
+			this.runner.onCancelled();
+		}
+		return true;
+	}
+
+	/**
+	 * Completes the task with <code>value</code>. A value given through the
+	 * handle, rather than returned by the task, is not stored in the result
+	 * cache, so it cannot be handed to later submissions of equivalent tasks.
+	 */
+	@Override
+	public boolean complete(V value)
+	{
+		return this.complete(value, false);
+	}
+
+	/**
+	 * Completes the task with the result its last attempt returned, storing it in
+	 * the result cache if the task's result is shared.
+	 */
+	boolean completeResult(V value)
+	{
+		return this.complete(value, true);
+	}
+
+	private boolean complete(V value, boolean cache)
+	{
+		if (!this.claimCompletion())
+		{
+			return false;
+		}
+		// Stored before being taken out of flight, so a caller that submits again
+		// either joins this execution or is answered from the cache.
+		if (cache && this.cacheKey != null)
+		{
+			this.runner.cacheResult(this.cacheKey, value, this.task.isComplete());
+		}
+		this.leaveInFlight();
+		this.cancelTimers();
+		this.onDone(null, false);
+		return super.complete(value);
+	}
+
+	@Override
+	public boolean completeExceptionally(Throwable ex)
+	{
+		if (!this.claimCompletion())
+		{
+			return false;
+		}
+		this.leaveInFlight();
+		this.lastException = ex;
+		this.cancelTimers();
+		this.onDone(ex, false);
+		return super.completeExceptionally(ex);
+	}
+
+	/**
+	 * Run by the retry timer when the task's deadline passes. If the task has not
+	 * completed, claims its completion and interrupts the running attempt, if
+	 * any, which is all the timer thread does; the workers then stop the task and
+	 * fail it with a <code>TimeoutException</code>.
+	 */
+	void deadlinePassed()
+	{
+		if (!this.claimCompletion())
+		{
+			return;
+		}
+		this.interruptAttempt();
+		this.runner.handOff(this::expire);
+	}
+
+	/**
+	 * Stops any further work on a task whose deadline has passed, and fails it.
+	 */
+	private void expire()
+	{
+		this.leaveInFlight();
+		final TimeoutException e = new TaskTimeoutException("Task did not complete before its deadline: " + this.task);
+		this.lastException = e;
+		try
+		{
+			this.stop(false);
+		} finally
+		{
+			this.onDone(e, false);
+			super.completeExceptionally(e);
+		}
+	}
+
+	@Override
+	public TaskHandle<V> onComplete(BiConsumer<? super V, ? super Throwable> callback)
+	{
+		this.runner.whenComplete(this, callback);
+		return this;
+	}
+
+	@Override
+	public synchronized int getAttempts()
+	{
+		return this.attempt;
+	}
+
+	@Override
+	public Throwable getLastException()
+	{
+		return this.lastException;
+	}
+
+	@Override
+	public long getQueuedNanos()
+	{
+		final long startedNanos = this.startedNanos;
+		return startedNanos == 0 ? -1 : startedNanos - this.submittedNanos;
+	}
+
+	@Override
+	public long getElapsedNanos()
+	{
+		final long completedNanos = this.completedNanos;
+		return (completedNanos == 0 ? System.nanoTime() : completedNanos) - this.submittedNanos;
+	}
+
+	/**
+	 * Records the exception thrown by an attempt that failed but will be retried.
+	 */
+	void attemptFailed(Throwable e)
+	{
+		this.lastException = e;
+	}
+
+	/**
+	 * Records that an attempt is starting.
+	 *
+	 * @return the time the attempt started, to pass to
+	 *         <code>attemptFinished</code>, or 0 if the task is not timed.
+	 */
+	long attemptStarted()
+	{
+		if (!this.timed)
+		{
+			return 0;
+		}
+		final long now = System.nanoTime();
+		this.metrics.onQueueWait(now - this.queuedAtNanos);
+		return now;
+	}
+
+	/**
+	 * Records that the attempt started at <code>startNanos</code> has returned.
+	 */
+	void attemptFinished(long startNanos)
+	{
+		if (this.timed)
+		{
+			this.metrics.onAttemptFinished(System.nanoTime() - startNanos);
+		}
+	}
+
+	/**
+	 * Records that the next attempt will be due after <code>delayMillis</code>.
+	 */
+	void retryScheduled(long delayMillis)
+	{
+		if (this.metrics != null)
+		{
+			this.metrics.onRetryScheduled();
+		}
+		if (this.timed)
+		{
+			this.queuedAtNanos = System.nanoTime() + delayMillis * 1000000L;
+		}
+	}
+
+	/**
+	 * Records that the next attempt is held back by a rate limit for
+	 * <code>waitNanos</code>.
+	 */
+	void throttled(long waitNanos)
+	{
+		if (this.metrics != null)
+		{
+			this.metrics.onThrottled(waitNanos);
+		}
+		if (this.timed)
+		{
+			this.queuedAtNanos = System.nanoTime() + waitNanos;
+		}
+	}
+
+	/**
+	 * Journals that the next attempt will be due after <code>delayMillis</code>,
+	 * with the attempts that remain.
+	 */
+	void journalRetry(long delayMillis)
+	{
+		if (this.journal != null)
+		{
+			this.journal.recordRetry(this.journalId, this.remainingAttempts, this.previousDelayMillis, delayMillis);
+		}
+	}
+
+	/**
+	 * Leaves the task in the journal when it completes, so that it is replayed.
+	 */
+	void keepInJournal()
+	{
+		this.keptInJournal = true;
+	}
+
+	/**
+	 * Picks up a replayed task where it left off. Called before it is submitted.
+	 */
+	void resumeFrom(int remainingAttempts, long previousDelayMillis)
+	{
+		this.remainingAttempts = remainingAttempts;
+		this.previousDelayMillis = previousDelayMillis;
+	}
+
+	/**
+	 * Records that the execution holds a place under the runner's admission
+	 * limit. If it has already completed, or is completing, for example by
+	 * missing its deadline while waiting to be admitted, the place is given
+	 * straight back.
+	 */
+	void markAdmitted()
+	{
+		this.admission = TaskExecution.ADMITTED;
+		if (this.completing != 0)
+		{
+			this.releaseAdmission();
+		}
+	}
+
+	/**
+	 * Attaches another caller to a shared execution.
+	 *
+	 * @return the number of callers attached before this one, so 0 for the caller
+	 *         that should submit the execution, or -1 if every caller has
+	 *         cancelled and the execution can no longer be joined.
+	 */
+	int subscribe()
+	{
+		for (;;)
+		{
+			final int subscribers = this.subscribers;
+			if (subscribers == TaskExecution.CLOSED)
+			{
+				return -1;
+			} else if (TaskExecution.SUBSCRIBERS.compareAndSet(this, subscribers, subscribers + 1))
+			{
+				return subscribers;
+			}
+		}
+	}
+
+	/**
+	 * Detaches a caller that has cancelled its view of a shared execution, and
+	 * cancels the execution if it was the last one attached.
+	 */
+	void unsubscribe(boolean mayInterruptIfRunning)
+	{
+		for (;;)
+		{
+			final int subscribers = this.subscribers;
+			if (subscribers == 1)
+			{
+				if (TaskExecution.SUBSCRIBERS.compareAndSet(this, 1, TaskExecution.CLOSED))
+				{
+					this.cancel(mayInterruptIfRunning);
+					return;
+				}
+			} else if (TaskExecution.SUBSCRIBERS.compareAndSet(this, subscribers, subscribers - 1))
+			{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return true if the first attempt has begun.
+	 */
+	boolean hasStarted()
+	{
+		return this.started;
+	}
+
+	/**
+	 * Fails the task with <code>e</code> if its first attempt has not begun, and
+	 * makes sure it never does.
+	 *
+	 * @return true if the task was dropped.
+	 */
+	boolean dropIfNotStarted(TaskRejectedException e)
+	{
+		synchronized (this)
+		{
+			if (this.started || this.isDone())
+			{
+				return false;
+			}
+			this.dropped = true;
+		}
+		return this.completeExceptionally(e);
+	}
+
+	/**
+	 * Consumes an attempt and works out how long to wait before it, according to
+	 * the retry policy.
+	 *
+	 * @return the delay before the next attempt.
+	 */
+	long nextRetryDelayMillis()
+	{
+		final int failedAttempts = this.retryPolicy.getMaxAttempts() - this.remainingAttempts + 1;
+		this.remainingAttempts--;
+		this.previousDelayMillis = this.retryPolicy.delayMillis(failedAttempts, this.previousDelayMillis);
+		return this.previousDelayMillis;
+	}
+
+	/**
+	 * @return true if starting another attempt after <code>delayMillis</code> would
+	 *         begin at or after the deadline.
+	 */
+	boolean wouldMissDeadline(long delayMillis)
+	{
+		return this.deadlineNanos != TaskExecution.NO_DEADLINE
+				&& System.nanoTime() + delayMillis * 1000000L - this.deadlineNanos >= 0;
+	}
+
+	void setDeadlineTimer(RetryScheduler.ScheduledRetry timer)
+	{
+		this.deadlineTimer = timer;
+		if (this.completing != 0)
+		{
+			timer.cancel();
+		}
+	}
+
+	void setAttemptTimer(RetryScheduler.ScheduledRetry timer)
+	{
+		this.attemptTimer = timer;
+		if (this.completing != 0)
+		{
+			timer.cancel();
+		}
+	}
+
+	/**
+	 * Has <code>timer</code> hand the execution back to the workers after
+	 * <code>delayMillis</code>, reusing the handle of the last retry if the timer
+	 * allows, so that a retry allocates nothing.
+	 */
+	void scheduleNextAttempt(RetryScheduler timer, long delayMillis) throws RejectedExecutionException
+	{
+		this.retryDue = true;
+		this.setPendingRetry(timer.reschedule(this.spentRetry, this, delayMillis));
+	}
+
+	/**
+	 * Records the retry waiting to run this task's next attempt, cancelling it
+	 * straight away if the task was stopped while it was being scheduled.
+	 */
+	private void setPendingRetry(RetryScheduler.ScheduledRetry retry)
+	{
+		this.pendingRetry = retry;
+		if (this.completing != 0)
+		{
+			retry.cancel();
+		}
+	}
+
+	/**
+	 * Marks the calling thread as running a new attempt, so it can be interrupted
+	 * if the task is stopped or the attempt times out.
+	 *
+	 * @return the number of the new attempt, or 0 if the task was dropped before
+	 *         it started.
+	 */
+	synchronized int beginAttempt()
+	{
+		if (this.dropped)
+		{
+			return 0;
+		}
+		if (!this.started)
+		{
+			this.started = true;
+			this.startedNanos = System.nanoTime();
+		}
+		if (this.pendingRetry != null)
+		{
+			this.spentRetry = this.pendingRetry;
+			this.pendingRetry = null;
+		}
+		this.attemptThread = Thread.currentThread();
+		this.attemptActive = true;
+		return ++this.attempt;
+	}
+
+	/**
+	 * Claims the outcome of an attempt. Both the attempt itself and its timeout
+	 * race to finish it, and only the first to do so acts on the outcome.
+	 *
+	 * @param attemptNumber - the attempt to finish.
+	 * @param interrupt     - true if the attempt is being abandoned and its thread
+	 *                      should be interrupted.
+	 * @return true if the caller finished the attempt, false if it had already
+	 *         been finished.
+	 */
+	boolean finishAttempt(int attemptNumber, boolean interrupt)
+	{
+		synchronized (this)
+		{
+			if (attemptNumber != this.attempt || !this.attemptActive)
+			{
+				return false;
+			}
+			this.attemptActive = false;
+			if (interrupt)
+			{
+				this.attemptThread.interrupt();
+			}
+			this.attemptThread = null;
+		}
+		final RetryScheduler.ScheduledRetry timer = this.attemptTimer;
+		if (timer != null)
+		{
+			timer.cancel();
+		}
+		return true;
+	}
+
+	/**
+	 * Called by the thread that ran an attempt once it has returned. Clears any
+	 * interrupt that stopping or abandoning the attempt delivered, so it cannot
+	 * leak into the next task the thread runs.
+	 *
+	 * @param finishedNormally - true if the attempt finished itself rather than
+	 *                         being abandoned.
+	 */
+	void endAttempt(boolean finishedNormally)
+	{
+		if (!finishedNormally || this.isDone())
+		{
+			Thread.interrupted();
+		}
+	}
+
+	private void stop(boolean interrupt)
+	{
+		this.cancelTimers();
+		final RetryScheduler.ScheduledRetry retry = this.pendingRetry;
+		if (retry != null)
+		{
+			retry.cancel();
+		}
+		try
+		{
+			this.task.cancel();
+		} finally
+		{
+			if (interrupt)
+			{
+				this.interruptAttempt();
+			}
+		}
+	}
+
+	private synchronized void interruptAttempt()
+	{
+		if (this.attemptActive)
+		{
+			this.attemptThread.interrupt();
+		}
+	}
+
+	/**
+	 * @return true if the execution has completed, or a thread has claimed its
+	 *         completion and is about to complete it, so no further attempts
+	 *         should start.
+	 */
+	boolean isFinishing()
+	{
+		return this.completing != 0;
+	}
+
+	/**
+	 * Called once, by whichever thread claimed the completion, before it
+	 * completes the Future.
+	 *
+	 * @param failure   - the exception the Future failed with, or null.
+	 * @param cancelled - true if the Future was cancelled.
+	 */
+	private void onDone(Throwable failure, boolean cancelled)
+	{
+		try
+		{
+			if (this.metrics != null)
+			{
+				// A racy read when another thread completes the Future, which is fine for a metric.
+				final int attempts = this.attempt;
+				if (cancelled)
+				{
+					this.metrics.onCancelled(attempts);
+				} else
+				{
+					this.metrics.onDone(failure, attempts);
+				}
+			}
+			if (this.journal != null && !this.keptInJournal)
+			{
+				this.journal.recordCompleted(this.journalId);
+			}
+		} finally
+		{
+			this.releaseAdmission();
+		}
+	}
+
+	/**
+	 * Stops equivalent submissions joining a shared execution that is about to
+	 * complete, so they run afresh.
+	 */
+	private void leaveInFlight()
+	{
+		if (this.coalesced)
+		{
+			this.runner.leaveInFlight(this);
+		}
+	}
+
+	/**
+	 * Claims the completion of the execution for the calling thread, noting when
+	 * it completed before it is seen to have completed.
+	 *
+	 * @return true if the caller is to complete the Future, false if another
+	 *         thread already has or is about to.
+	 */
+	private boolean claimCompletion()
+	{
+		if (this.completing != 0 || !TaskExecution.COMPLETING.compareAndSet(this, 0, 1))
+		{
+			return false;
+		}
+		this.completedNanos = System.nanoTime();
+		return true;
+	}
+
+	private void releaseAdmission()
+	{
+		if (TaskExecution.ADMISSION.compareAndSet(this, TaskExecution.ADMITTED, TaskExecution.RELEASED))
+		{
+			this.runner.onAdmissionReleased();
+		}
+	}
+
+	private void cancelTimers()
+	{
+		final RetryScheduler.ScheduledRetry deadline = this.deadlineTimer;
+		if (deadline != null)
+		{
+			deadline.cancel();
+		}
+		final RetryScheduler.ScheduledRetry timer = this.attemptTimer;
+		if (timer != null)
+		{
+			timer.cancel();
+		}
+	}
+}
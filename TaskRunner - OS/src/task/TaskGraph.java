@@ -0,0 +1,191 @@
+package task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A set of tasks to run on a <code>TaskRunner</code> in which some tasks
+ * depend on the results of others.
+ *
+ * Each task is added as a node, naming the nodes it depends on; a node can
+ * only depend on nodes added before it, so a graph never has a cycle. When
+ * the graph is run, a node is submitted as soon as its last dependency
+ * completes, from one of the runner's workers rather than from the thread that
+ * completed the dependency, so no thread waits on a dependency and nodes on
+ * independent branches run at the same time. Nodes are submitted through
+ * <code>TaskRunner.trySubmit</code>, so they wait for admission without holding
+ * a thread whatever the admission policy. A node can be given a factory rather
+ * than a task, to build its task from its dependencies' results.
+ *
+ * If a node fails, every node that depends on it, directly or not, fails with
+ * a <code>DependencyFailedException</code> without being run. Other branches
+ * carry on.
+ *
+ * A graph can be run any number of times, each run building its tasks
+ * afresh from the factories.
+ */
+public final class TaskGraph
+{
+	private final TaskRunner runner;
+	/** The nodes in the order they were added. Guarded by this. */
+	private final List<Node<?>> nodes = new ArrayList<Node<?>>();
+
+	/**
+	 * @param runner - the runner to submit the graph's tasks to.
+	 */
+	public TaskGraph(TaskRunner runner)
+	{
+		if (runner == null)
+		{
+			throw new NullPointerException("'runner' argument cannot be null.");
+		}
+		this.runner = runner;
+	}
+
+	/**
+	 * Adds a node that runs the same task every time the graph is run.
+	 *
+	 * @param name         - the node's name, as reported in its critical path.
+	 * @param task
+	 * @param retryPolicy
+	 * @param targetClass
+	 * @param dependencies - the nodes that must complete before this one runs.
+	 * @return the new node.
+	 * @throws IllegalArgumentException - if a dependency belongs to another
+	 *                                  graph.
+	 */
+	public <V> Node<V> add(String name, ITask<V> task, RetryPolicy retryPolicy, Class<V> targetClass,
+			Node<?>... dependencies) throws IllegalArgumentException
+	{
+		if (task == null)
+		{
+			throw new NullPointerException("'Task' argument cannot be null.");
+		}
+		return this.add(name, results -> task, retryPolicy, targetClass, dependencies);
+	}
+
+	/**
+	 * Adds a node whose task is built from its dependencies' results once they
+	 * have all completed.
+	 *
+	 * @param name         - the node's name, as reported in its critical path.
+	 * @param taskFactory  - builds the node's task, given its dependencies'
+	 *                     results. Called once per run, on one of the
+	 *                     runner's workers once the last dependency has
+	 *                     completed, or on the thread calling
+	 *                     <code>run</code> for a node without dependencies.
+	 * @param retryPolicy
+	 * @param targetClass
+	 * @param dependencies - the nodes that must complete before this one runs.
+	 * @return the new node.
+	 * @throws IllegalArgumentException - if a dependency belongs to another
+	 *                                  graph.
+	 */
+	public synchronized <V> Node<V> add(String name, Function<Results, ? extends ITask<V>> taskFactory,
+			RetryPolicy retryPolicy, Class<V> targetClass, Node<?>... dependencies) throws IllegalArgumentException
+	{
+		if (name == null)
+		{
+			throw new NullPointerException("'name' argument cannot be null.");
+		} else if (taskFactory == null)
+		{
+			throw new NullPointerException("'taskFactory' argument cannot be null.");
+		} else if (retryPolicy == null)
+		{
+			throw new NullPointerException("'retryPolicy' argument cannot be null.");
+		}
+		for (final Node<?> dependency : dependencies)
+		{
+			if (dependency.graph != this)
+			{
+				throw new IllegalArgumentException(
+						"Dependency '" + dependency.name + "' of node '" + name + "' belongs to another graph.");
+			}
+		}
+		final Node<V> node = new Node<V>(this, this.nodes.size(), name, taskFactory, retryPolicy, targetClass,
+				dependencies.clone());
+		this.nodes.add(node);
+		return node;
+	}
+
+	/**
+	 * @return the number of nodes in the graph.
+	 */
+	public synchronized int size()
+	{
+		return this.nodes.size();
+	}
+
+	/**
+	 * Submits every node without dependencies and returns straight away. The
+	 * rest are submitted as their dependencies complete. Nodes added after this
+	 * call are not part of the run.
+	 *
+	 * @return the run, which gives access to each node's result.
+	 */
+	public TaskGraphRun run()
+	{
+		final Node<?>[] nodes;
+		synchronized (this)
+		{
+			nodes = this.nodes.toArray(new Node<?>[0]);
+		}
+		final TaskGraphRun run = new TaskGraphRun(this.runner, nodes);
+		run.start();
+		return run;
+	}
+
+	/**
+	 * A task in a <code>TaskGraph</code>, used to declare dependencies on it and
+	 * to look up its result.
+	 *
+	 * @param <V> - The result type of the node's task.
+	 */
+	public static final class Node<V>
+	{
+		final TaskGraph graph;
+		final int index;
+		final String name;
+		final Function<Results, ? extends ITask<V>> taskFactory;
+		final RetryPolicy retryPolicy;
+		final Class<V> targetClass;
+		final Node<?>[] dependencies;
+
+		Node(TaskGraph graph, int index, String name, Function<Results, ? extends ITask<V>> taskFactory,
+				RetryPolicy retryPolicy, Class<V> targetClass, Node<?>[] dependencies)
+		{
+			this.graph = graph;
+			this.index = index;
+			this.name = name;
+			this.taskFactory = taskFactory;
+			this.retryPolicy = retryPolicy;
+			this.targetClass = targetClass;
+			this.dependencies = dependencies;
+		}
+
+		public String getName()
+		{
+			return this.name;
+		}
+
+		@Override
+		public String toString()
+		{
+			return this.name;
+		}
+	}
+
+	/**
+	 * The results of a node's dependencies, as given to its task factory.
+	 */
+	public interface Results
+	{
+		/**
+		 * @return the result of <code>dependency</code>.
+		 * @throws IllegalArgumentException - if <code>dependency</code> is not a
+		 *                                  dependency of the node being built.
+		 */
+		public <U> U get(Node<U> dependency) throws IllegalArgumentException;
+	}
+}
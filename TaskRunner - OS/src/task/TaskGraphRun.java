@@ -0,0 +1,333 @@
+package task;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One run of a <code>TaskGraph</code>, as returned by <code>TaskGraph.run</code>.
+ *
+ * Gives access to each node's result and, once every node has completed, to
+ * the run's critical path.
+ *
+ * A node released by its dependencies completing is submitted from one of the
+ * runner's workers rather than from the thread that completed the last
+ * dependency, and through <code>TaskRunner.trySubmit</code>, so it waits for
+ * admission without holding a thread and is never run by the releasing thread
+ * whatever the admission policy.
+ */
+public final class TaskGraphRun
+{
+	private final TaskRunner runner;
+	private final TaskGraph.Node<?>[] nodes;
+	/** The nodes that depend on each node, by index. */
+	private final int[][] successors;
+	/** Each node's result, completed when the node completes or is short-circuited. */
+	private final CompletableFuture<?>[] results;
+	/** The number of each node's dependencies that have not completed yet. */
+	private final AtomicIntegerArray waitingDependencies;
+	/** The Future of each node's submitted task, once submitted. */
+	private final AtomicReferenceArray<Future<?>> submitted;
+	/**
+	 * Whether and when each node was submitted, and when it completed. Written
+	 * before the node's result is completed, so read safely once it has.
+	 */
+	private final boolean[] started;
+	private final long[] readyNanos;
+	private final long[] finishedNanos;
+	private final CompletableFuture<Void> done;
+	private final long startNanos = System.nanoTime();
+	private volatile boolean cancelled;
+
+	TaskGraphRun(TaskRunner runner, TaskGraph.Node<?>[] nodes)
+	{
+		this.runner = runner;
+		this.nodes = nodes;
+		this.results = new CompletableFuture<?>[nodes.length];
+		this.waitingDependencies = new AtomicIntegerArray(nodes.length);
+		this.submitted = new AtomicReferenceArray<Future<?>>(nodes.length);
+		this.started = new boolean[nodes.length];
+		this.readyNanos = new long[nodes.length];
+		this.finishedNanos = new long[nodes.length];
+		final int[] successorCounts = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++)
+		{
+			this.results[i] = new CompletableFuture<Object>();
+			this.waitingDependencies.set(i, nodes[i].dependencies.length);
+			for (final TaskGraph.Node<?> dependency : nodes[i].dependencies)
+			{
+				successorCounts[dependency.index]++;
+			}
+		}
+		this.successors = new int[nodes.length][];
+		for (int i = 0; i < nodes.length; i++)
+		{
+			this.successors[i] = new int[successorCounts[i]];
+			successorCounts[i] = 0;
+		}
+		for (int i = 0; i < nodes.length; i++)
+		{
+			for (final TaskGraph.Node<?> dependency : nodes[i].dependencies)
+			{
+				this.successors[dependency.index][successorCounts[dependency.index]++] = i;
+			}
+		}
+		this.done = CompletableFuture.allOf(this.results);
+	}
+
+	void start()
+	{
+		for (int i = 0; i < this.nodes.length; i++)
+		{
+			if (this.nodes[i].dependencies.length == 0)
+			{
+				this.release(i);
+			}
+		}
+	}
+
+	/**
+	 * @return the Future result of <code>node</code> in this run.
+	 * @throws IllegalArgumentException - if <code>node</code> is not part of this
+	 *                                  run.
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> Future<V> get(TaskGraph.Node<V> node) throws IllegalArgumentException
+	{
+		return (Future<V>) this.results[this.indexOf(node)];
+	}
+
+	/**
+	 * @return a Future that completes once every node has completed. If any node
+	 *         fails then this Future fails too.
+	 */
+	public Future<Void> allOf()
+	{
+		return this.done.thenApply(ignored -> null);
+	}
+
+	/**
+	 * @return true if every node has completed.
+	 */
+	public boolean isDone()
+	{
+		return this.done.isDone();
+	}
+
+	/**
+	 * Cancels every node that has not completed yet, stopping the attempts of
+	 * those already submitted and keeping the rest from being submitted.
+	 *
+	 * @param mayInterruptIfRunning - true if threads running an attempt should be
+	 *                              interrupted.
+	 * @return the number of nodes that were cancelled.
+	 */
+	public int cancel(boolean mayInterruptIfRunning)
+	{
+		this.cancelled = true;
+		int cancelled = 0;
+		for (int i = 0; i < this.nodes.length; i++)
+		{
+			if (this.results[i].cancel(false))
+			{
+				cancelled++;
+			}
+			final Future<?> future = this.submitted.get(i);
+			if (future != null)
+			{
+				future.cancel(mayInterruptIfRunning);
+			}
+		}
+		return cancelled;
+	}
+
+	/**
+	 * @return the chain of nodes that took the longest to complete, ending at
+	 *         the node that completed last.
+	 * @throws IllegalStateException - if the run has not completed yet.
+	 */
+	public CriticalPath getCriticalPath() throws IllegalStateException
+	{
+		if (!this.done.isDone())
+		{
+			throw new IllegalStateException("The run has not completed yet.");
+		}
+		final List<String> names = new ArrayList<String>();
+		final List<Long> nanos = new ArrayList<Long>();
+		int last = this.latestFinished(this.nodes);
+		if (last < 0)
+		{
+			return new CriticalPath(names, nanos, 0);
+		}
+		final long totalNanos = this.finishedNanos[last] - this.startNanos;
+		while (last >= 0)
+		{
+			names.add(this.nodes[last].name);
+			nanos.add(this.finishedNanos[last] - this.readyNanos[last]);
+			last = this.latestFinished(this.nodes[last].dependencies);
+		}
+		Collections.reverse(names);
+		Collections.reverse(nanos);
+		return new CriticalPath(names, nanos, totalNanos);
+	}
+
+	private int latestFinished(TaskGraph.Node<?>[] candidates)
+	{
+		int latest = -1;
+		for (final TaskGraph.Node<?> candidate : candidates)
+		{
+			// Nodes that were short-circuited were never submitted, so took no time.
+			if (this.started[candidate.index]
+					&& (latest < 0 || this.finishedNanos[candidate.index] - this.finishedNanos[latest] > 0))
+			{
+				latest = candidate.index;
+			}
+		}
+		return latest;
+	}
+
+	private int indexOf(TaskGraph.Node<?> node)
+	{
+		if (node.index >= this.nodes.length || this.nodes[node.index] != node)
+		{
+			throw new IllegalArgumentException("Node '" + node.name + "' is not part of this run.");
+		}
+		return node.index;
+	}
+
+	/**
+	 * Submits a node whose dependencies have all completed, once the runner
+	 * admits it.
+	 */
+	private <V> void release(int index)
+	{
+		@SuppressWarnings("unchecked")
+		final TaskGraph.Node<V> node = (TaskGraph.Node<V>) this.nodes[index];
+		if (this.cancelled)
+		{
+			this.results[index].cancel(false);
+			return;
+		}
+		final CompletableFuture<Future<V>> admitted;
+		this.started[index] = true;
+		this.readyNanos[index] = System.nanoTime();
+		try
+		{
+			final ITask<V> task = node.taskFactory.apply(new NodeResults(node));
+			admitted = this.runner.trySubmit(task, node.retryPolicy, node.targetClass);
+		} catch (final RuntimeException e)
+		{
+			this.finish(index, null, e);
+			return;
+		}
+		admitted.thenAccept(future -> this.submitted(index, (TaskHandle<V>) future));
+	}
+
+	private <V> void submitted(int index, TaskHandle<V> future)
+	{
+		this.submitted.set(index, future);
+		if (this.results[index].isDone())
+		{
+			// Cancelled, or short-circuited by a dependency that failed at the same time.
+			future.cancel(false);
+			return;
+		}
+		future.whenComplete((result, exception) -> this.finish(index, result, exception));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void finish(int index, Object result, Throwable exception)
+	{
+		this.finishedNanos[index] = System.nanoTime();
+		if (exception != null)
+		{
+			if (exception instanceof CompletionException && exception.getCause() != null)
+			{
+				exception = exception.getCause();
+			}
+			this.fail(index, exception);
+			return;
+		}
+		if (!((CompletableFuture<Object>) this.results[index]).complete(result))
+		{
+			return;
+		}
+		for (final int successor : this.successors[index])
+		{
+			if (this.waitingDependencies.decrementAndGet(successor) == 0 && !this.results[successor].isDone())
+			{
+				// Released from a worker, so the completing thread neither builds nor submits the node.
+				this.runner.handOff(() -> this.release(successor));
+			}
+		}
+	}
+
+	/**
+	 * Fails a node, and every node downstream of it that has not completed yet
+	 * with a <code>DependencyFailedException</code>. Works through the downstream
+	 * nodes breadth first rather than recursively, so a long chain cannot
+	 * overflow the stack.
+	 */
+	private void fail(int index, Throwable exception)
+	{
+		final ArrayDeque<Integer> failing = new ArrayDeque<Integer>();
+		final ArrayDeque<Throwable> causes = new ArrayDeque<Throwable>();
+		failing.add(index);
+		causes.add(exception);
+		while (!failing.isEmpty())
+		{
+			final int failed = failing.poll();
+			final Throwable cause = causes.poll();
+			if (!this.results[failed].completeExceptionally(cause))
+			{
+				continue;
+			}
+			final Future<?> future = this.submitted.get(failed);
+			if (future != null && !future.isDone())
+			{
+				future.cancel(false);
+			}
+			for (final int successor : this.successors[failed])
+			{
+				failing.add(successor);
+				causes.add(cause instanceof CancellationException ? cause
+						: new DependencyFailedException(this.nodes[successor].name, this.nodes[failed].name, cause));
+			}
+		}
+	}
+
+	/**
+	 * The results given to a node's task factory.
+	 */
+	private final class NodeResults implements TaskGraph.Results
+	{
+		private final TaskGraph.Node<?> node;
+
+		NodeResults(TaskGraph.Node<?> node)
+		{
+			this.node = node;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <U> U get(TaskGraph.Node<U> dependency) throws IllegalArgumentException
+		{
+			for (final TaskGraph.Node<?> declared : this.node.dependencies)
+			{
+				if (declared == dependency)
+				{
+					return (U) TaskGraphRun.this.results[dependency.index].join();
+				}
+			}
+			throw new IllegalArgumentException(
+					"Node '" + dependency.name + "' is not a dependency of node '" + this.node.name + "'.");
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package task;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * The pending result of a task submitted to a <code>TaskRunner</code>, which
+ * can be waited on as a <code>Future</code> or composed without blocking as a
+ * <code>CompletionStage</code>, and which reports how the task's attempts went.
+ *
+ * Continuations added through the <code>CompletionStage</code> methods run as
+ * those methods specify: on the thread that completed the task, or for the
+ * <code>Async</code> variants without an executor, on the common
+ * <code>ForkJoinPool</code>. Callbacks added through <code>onComplete</code>
+ * run on the runner's callback executor instead.
+ *
+ * Completing the Future returned by <code>toCompletableFuture</code> ends the
+ * task with that value for this caller, but a value given this way is never
+ * stored in the runner's result cache.
+ *
+ * @param <V> - The result type of the task.
+ */
+public interface TaskHandle<V> extends Future<V>, CompletionStage<V>
+{
+	/**
+	 * Calls <code>callback</code> with the task's result, or with the exception
+	 * it failed with, once it completes, on the executor set through
+	 * <code>TaskRunner.setCallbackExecutor</code> at the time of this call. An
+	 * exception thrown by the callback is ignored.
+	 *
+	 * @return this handle.
+	 */
+	public TaskHandle<V> onComplete(BiConsumer<? super V, ? super Throwable> callback);
+
+	/**
+	 * @return the number of attempts started so far. 0 for a result answered
+	 *         from the result cache.
+	 */
+	public int getAttempts();
+
+	/**
+	 * @return the exception thrown by the most recent failed attempt, or the
+	 *         exception the task failed with if that came later, or null if
+	 *         there has been none.
+	 */
+	public Throwable getLastException();
+
+	/**
+	 * @return the time from submission until the first attempt started, in
+	 *         nanoseconds, or -1 if no attempt has started.
+	 */
+	public long getQueuedNanos();
+
+	/**
+	 * @return the time from submission until the task completed, or until now if
+	 *         it has not, in nanoseconds.
+	 */
+	public long getElapsedNanos();
+}
@@ -0,0 +1,848 @@
+package task;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead journal of the tasks submitted to a <code>TaskRunner</code>,
+ * so that work still pending when the process stops is not lost.
+ *
+ * With a journal set through <code>TaskRunner.setJournal</code>, the runner
+ * records each task it is given that has a <code>TaskDescriptor</code> and a
+ * retry policy built by one of the <code>RetryPolicy</code> factories, each
+ * retry it schedules, with the attempts left and when the next is due, and
+ * each task's completion, however it completes, before the task's Future
+ * completes. So a caller that has seen a task's result and then closes the
+ * journal does not have the task replayed. Tasks with an overall deadline
+ * are not journaled. When the journal is next opened, the tasks that had not
+ * completed are read back, and <code>recover</code> submits them again with
+ * the attempts they had left, each starting when its next attempt was due.
+ * An attempt that was running when the process stopped is made again, so tasks
+ * run at least once rather than exactly once.
+ *
+ * Records are appended to memory-mapped segment files in the journal's
+ * directory, each checked by a CRC so a record torn by a crash ends the replay
+ * rather than corrupting it. Appending costs a copy into the mapping, and is
+ * all that happens under the journal's lock on the threads submitting and
+ * running tasks. Everything that touches the disk is left to a background
+ * thread: it forces what has been appended every
+ * <code>commitIntervalMillis</code>, so one fsync covers every record since
+ * the last, and a crash loses at most that interval of records. It also maps
+ * the spare segment that appending rolls onto when the current one fills, and
+ * is woken to map another; records appended while there is no spare are held
+ * in memory until there is. Once more than <code>compactAfterSegments</code>
+ * segments exist, it writes the tasks still pending afresh to a new segment,
+ * forces it, and deletes the older segments. <code>sync</code> and
+ * <code>compact</code> do the same work on the calling thread.
+ *
+ * If the journal cannot be written, it stops recording, leaving the runner to
+ * carry on without it, and <code>getFailure</code> reports why.
+ */
+public final class TaskJournal implements Closeable
+{
+	public static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+	public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 5;
+	public static final int DEFAULT_COMPACT_AFTER_SEGMENTS = 4;
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".journal";
+	private static final byte SUBMITTED = 1;
+	private static final byte RETRY_SCHEDULED = 2;
+	private static final byte COMPLETED = 3;
+	/** Each record is preceded by its length and the CRC of its bytes. */
+	private static final int HEADER_BYTES = 8;
+
+	private final Path directory;
+	private final int segmentBytes;
+	private final long commitIntervalMillis;
+	private final int compactAfterSegments;
+	private final Map<String, Function<String[], ? extends ITask<?>>> factories = new ConcurrentHashMap<String, Function<String[], ? extends ITask<?>>>();
+	/** The tasks that have not completed, by id, in the order they were submitted. Guarded by this. */
+	private final Map<Long, Entry> pending = new LinkedHashMap<Long, Entry>();
+	/** The pending tasks read back when the journal was opened that have not been recovered. Guarded by this. */
+	private final List<Entry> recovered = new ArrayList<Entry>();
+	/** The segment files, oldest first. The last is being appended to. Guarded by this. */
+	private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+	/** Segments rolled off since the last flush, which still need forcing. Guarded by this. */
+	private final List<Segment> filled = new ArrayList<Segment>();
+	/** A segment mapped ahead of time to roll onto, or null. Guarded by this. */
+	private Segment spare;
+	/**
+	 * Records appended while the current segment was full and there was no
+	 * spare, in order, waiting for the flusher to copy them into a segment.
+	 * Guarded by this.
+	 */
+	private ByteBuffer backlog = ByteBuffer.allocate(0);
+	/** The number of records in the backlog. Guarded by this. */
+	private int backlogRecords;
+	/** Whether <code>compact</code> has asked for compaction. Guarded by this. */
+	private boolean compactRequested;
+	/** Held while flushing, so only one thread maps, forces and deletes segments at a time. */
+	private final Object flushLock = new Object();
+	/** The index of the next segment to map. Guarded by flushLock once the journal is open. */
+	private long nextSegmentIndex;
+	private final CRC32 crc = new CRC32();
+	/** Where records are encoded before being copied to the segment. Guarded by this. */
+	private ByteBuffer scratch = ByteBuffer.allocate(256);
+	/** Guarded by this. */
+	private long nextId = 1;
+	/** The number of records appended. Guarded by this. */
+	private long appended;
+	/** The number of records known to be on disk, counting any later overwritten by compaction. */
+	private volatile long durable;
+	private volatile IOException failure;
+	private volatile boolean closed;
+	private final Thread flusher;
+
+	private TaskJournal(Path directory, int segmentBytes, long commitIntervalMillis, int compactAfterSegments)
+	{
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.commitIntervalMillis = commitIntervalMillis;
+		this.compactAfterSegments = compactAfterSegments;
+		this.flusher = new Thread(this::flushPeriodically, "task-journal-flusher");
+		this.flusher.setDaemon(true);
+	}
+
+	/**
+	 * Opens the journal in <code>directory</code> with the default settings.
+	 *
+	 * @see #open(Path, int, long, int)
+	 */
+	public static TaskJournal open(Path directory) throws IOException
+	{
+		return TaskJournal.open(directory, TaskJournal.DEFAULT_SEGMENT_BYTES,
+				TaskJournal.DEFAULT_COMMIT_INTERVAL_MILLIS, TaskJournal.DEFAULT_COMPACT_AFTER_SEGMENTS);
+	}
+
+	/**
+	 * Opens the journal in <code>directory</code>, creating it if need be, and
+	 * reads back the tasks that had not completed when it was last used.
+	 *
+	 * @param directory            - where the journal's segment files live.
+	 * @param segmentBytes         - the size of each segment file.
+	 * @param commitIntervalMillis - how often appended records are forced to disk.
+	 * @param compactAfterSegments - the number of segments beyond which the
+	 *                             journal is compacted.
+	 * @return the open journal.
+	 * @throws IOException - if the directory or its segments cannot be read or
+	 *                     written.
+	 */
+	public static TaskJournal open(Path directory, int segmentBytes, long commitIntervalMillis,
+			int compactAfterSegments) throws IOException
+	{
+		if (segmentBytes < 1024)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'segmentBytes' argument. The value should be at least 1024. Actual value: "
+							+ segmentBytes);
+		} else if (commitIntervalMillis < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'commitIntervalMillis' argument. The value should be at least 1. Actual value: "
+							+ commitIntervalMillis);
+		} else if (compactAfterSegments < 2)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'compactAfterSegments' argument. The value should be at least 2. Actual value: "
+							+ compactAfterSegments);
+		}
+		Files.createDirectories(directory);
+		final TaskJournal journal = new TaskJournal(directory, segmentBytes, commitIntervalMillis,
+				compactAfterSegments);
+		synchronized (journal)
+		{
+			journal.replay();
+		}
+		journal.flusher.start();
+		return journal;
+	}
+
+	/**
+	 * Registers how to rebuild tasks whose descriptor has the factory key
+	 * <code>factoryKey</code>.
+	 *
+	 * @param factoryKey - the key of the tasks' descriptors.
+	 * @param factory    - builds a task from its descriptor's arguments.
+	 * @return this journal.
+	 */
+	public TaskJournal registerFactory(String factoryKey, Function<String[], ? extends ITask<?>> factory)
+	{
+		if (factoryKey == null)
+		{
+			throw new NullPointerException("'factoryKey' argument cannot be null.");
+		} else if (factory == null)
+		{
+			throw new NullPointerException("'factory' argument cannot be null.");
+		}
+		this.factories.put(factoryKey, factory);
+		return this;
+	}
+
+	/**
+	 * Submits again every task read back when the journal was opened that had
+	 * not completed, with the attempts it had left. A task whose next attempt
+	 * was due in the future waits until then; one that was due while the
+	 * process was stopped starts straight away. Tasks whose factory is not
+	 * registered are left in the journal for a later call. Tasks that cannot be
+	 * rebuilt, because their factory or retry policy fails, are recorded as
+	 * completed and dropped.
+	 *
+	 * @param runner - the runner to submit the tasks to, which should record to
+	 *               this journal.
+	 * @return the handles of the tasks submitted, in the order they were first
+	 *         submitted.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public List<TaskHandle<?>> recover(TaskRunner runner)
+	{
+		final List<Entry> toRecover = new ArrayList<Entry>();
+		synchronized (this)
+		{
+			for (int i = 0; i < this.recovered.size(); i++)
+			{
+				final Entry entry = this.recovered.get(i);
+				if (this.factories.containsKey(entry.descriptor.getFactoryKey()))
+				{
+					toRecover.add(entry);
+					this.recovered.remove(i--);
+				}
+			}
+		}
+		final List<TaskHandle<?>> handles = new ArrayList<TaskHandle<?>>(toRecover.size());
+		final long now = System.currentTimeMillis();
+		for (final Entry entry : toRecover)
+		{
+			final ITask task;
+			final RetryPolicy retryPolicy;
+			final Class targetClass;
+			try
+			{
+				task = this.factories.get(entry.descriptor.getFactoryKey()).apply(entry.descriptor.getArguments());
+				retryPolicy = RetryPolicy.fromDescription(entry.retryPolicy);
+				targetClass = entry.targetClass.isEmpty() ? null : Class.forName(entry.targetClass);
+			} catch (final RuntimeException | ClassNotFoundException e)
+			{
+				this.recordCompleted(entry.id);
+				continue;
+			}
+			handles.add(runner.resume(task, retryPolicy, targetClass, this, entry.id, entry.remainingAttempts,
+					entry.previousDelayMillis, entry.nextRunAtMillis - now));
+		}
+		return handles;
+	}
+
+	/**
+	 * @return the number of journaled tasks that have not completed, including
+	 *         any read back and not yet recovered.
+	 */
+	public synchronized int getPendingCount()
+	{
+		return this.pending.size();
+	}
+
+	/**
+	 * @return the number of segment files.
+	 */
+	public synchronized int getSegmentCount()
+	{
+		return this.segments.size();
+	}
+
+	/**
+	 * @return the exception that stopped the journal recording, or null if it is
+	 *         still recording.
+	 */
+	public IOException getFailure()
+	{
+		return this.failure;
+	}
+
+	/**
+	 * Forces every record appended so far to disk.
+	 *
+	 * @throws IOException - if the journal has stopped recording.
+	 */
+	public void sync() throws IOException
+	{
+		this.flush(false);
+		final IOException failure = this.failure;
+		if (failure != null)
+		{
+			throw failure;
+		}
+	}
+
+	/**
+	 * Rewrites the pending tasks to a new segment and deletes the older ones.
+	 *
+	 * @throws IOException - if the journal has stopped recording.
+	 */
+	public void compact() throws IOException
+	{
+		synchronized (this)
+		{
+			this.compactRequested = true;
+		}
+		this.sync();
+	}
+
+	/**
+	 * Forces every record appended to disk and stops recording. Tasks still
+	 * running carry on, unrecorded.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (this.closed)
+		{
+			return;
+		}
+		this.flush(false);
+		synchronized (this.flushLock)
+		{
+			synchronized (this)
+			{
+				this.closed = true;
+				for (final Segment segment : this.segments)
+				{
+					segment.channel.close();
+				}
+			}
+			LockSupport.unpark(this.flusher);
+			if (this.spare != null)
+			{
+				// Never written to, so it would only be an empty segment to replay.
+				this.spare.channel.close();
+				Files.deleteIfExists(this.spare.path);
+				this.spare = null;
+			}
+		}
+	}
+
+	/**
+	 * Records a task being submitted.
+	 *
+	 * @return the task's id in the journal, or 0 if it is not journaled.
+	 */
+	long recordSubmitted(ITask<?> task, RetryPolicy retryPolicy, Class<?> targetClass)
+	{
+		final TaskDescriptor descriptor = task.descriptor();
+		final String policy = descriptor == null ? null : retryPolicy.describe();
+		if (policy == null)
+		{
+			return 0;
+		}
+		synchronized (this)
+		{
+			if (this.closed || this.failure != null)
+			{
+				return 0;
+			}
+			final Entry entry = new Entry(this.nextId++, descriptor, targetClass == null ? "" : targetClass.getName(),
+					policy, retryPolicy.getMaxAttempts(), 0, 0);
+			this.pending.put(entry.id, entry);
+			this.append(TaskJournal.SUBMITTED, entry);
+			return entry.id;
+		}
+	}
+
+	/**
+	 * Records a retry being scheduled for a journaled task.
+	 */
+	synchronized void recordRetry(long id, int remainingAttempts, long previousDelayMillis, long delayMillis)
+	{
+		final Entry entry = this.pending.get(id);
+		if (entry == null || this.closed || this.failure != null)
+		{
+			return;
+		}
+		entry.remainingAttempts = remainingAttempts;
+		entry.previousDelayMillis = previousDelayMillis;
+		entry.nextRunAtMillis = System.currentTimeMillis() + delayMillis;
+		this.append(TaskJournal.RETRY_SCHEDULED, entry);
+	}
+
+	/**
+	 * Records a journaled task completing, so it is not replayed.
+	 */
+	synchronized void recordCompleted(long id)
+	{
+		final Entry entry = this.pending.remove(id);
+		if (entry == null || this.closed || this.failure != null)
+		{
+			return;
+		}
+		this.append(TaskJournal.COMPLETED, entry);
+	}
+
+	private void append(byte type, Entry entry)
+	{
+		try
+		{
+			this.appendLocked(type, entry);
+			if (this.segments.size() > this.compactAfterSegments)
+			{
+				LockSupport.unpark(this.flusher);
+			}
+		} catch (final IOException e)
+		{
+			this.failure = e;
+		}
+	}
+
+	/**
+	 * Copies a record into the current segment, rolling onto the spare if it is
+	 * full, or into the backlog if there is no spare or the backlog already
+	 * holds records, which must stay in order.
+	 */
+	private void appendLocked(byte type, Entry entry) throws IOException
+	{
+		final ByteBuffer record = this.encode(type, entry);
+		final int length = record.remaining();
+		// Room is always left for a zero length to mark the end of the segment.
+		final int needed = TaskJournal.HEADER_BYTES + length + 4;
+		if (needed > this.segmentBytes)
+		{
+			throw new IOException("A record of " + length + " bytes does not fit in a segment: " + entry.descriptor);
+		}
+		this.crc.reset();
+		this.crc.update(record.array(), 0, length);
+		final int checksum = (int) this.crc.getValue();
+		this.appended++;
+		if (this.backlogRecords == 0)
+		{
+			Segment segment = this.segments.peekLast();
+			if (segment.buffer.remaining() < needed && this.spare != null)
+			{
+				segment = this.rollLocked();
+			}
+			if (segment.buffer.remaining() >= needed)
+			{
+				TaskJournal.putRecord(segment.buffer, record, checksum);
+				return;
+			}
+			LockSupport.unpark(this.flusher);
+		}
+		if (this.backlog.remaining() < TaskJournal.HEADER_BYTES + length)
+		{
+			final ByteBuffer larger = ByteBuffer
+					.allocate(Math.max(this.backlog.capacity() * 2, this.backlog.position() + needed));
+			this.backlog.flip();
+			larger.put(this.backlog);
+			this.backlog = larger;
+		}
+		TaskJournal.putRecord(this.backlog, record, checksum);
+		this.backlogRecords++;
+	}
+
+	private static void putRecord(ByteBuffer target, ByteBuffer record, int checksum)
+	{
+		target.putInt(record.remaining());
+		target.putInt(checksum);
+		target.put(record);
+	}
+
+	/**
+	 * Makes the spare segment the one being appended to, leaving the full one
+	 * to be forced, and wakes the flusher to map another spare.
+	 */
+	private Segment rollLocked()
+	{
+		final Segment segment = this.spare;
+		this.spare = null;
+		this.filled.add(this.segments.peekLast());
+		this.segments.addLast(segment);
+		LockSupport.unpark(this.flusher);
+		return segment;
+	}
+
+	/**
+	 * Copies backlogged records into the segments, in order, rolling onto the
+	 * spare as each fills.
+	 *
+	 * @return true if the backlog is now empty, false if it needs another spare.
+	 */
+	private boolean drainBacklogLocked()
+	{
+		if (this.backlogRecords == 0)
+		{
+			return true;
+		}
+		final ByteBuffer backlog = this.backlog;
+		backlog.flip();
+		try
+		{
+			while (backlog.hasRemaining())
+			{
+				final int framed = TaskJournal.HEADER_BYTES + backlog.getInt(backlog.position());
+				Segment segment = this.segments.peekLast();
+				if (segment.buffer.remaining() < framed + 4)
+				{
+					if (this.spare == null)
+					{
+						return false;
+					}
+					segment = this.rollLocked();
+				}
+				final ByteBuffer record = backlog.duplicate();
+				record.limit(backlog.position() + framed);
+				segment.buffer.put(record);
+				backlog.position(backlog.position() + framed);
+				this.backlogRecords--;
+			}
+			return true;
+		} finally
+		{
+			backlog.compact();
+		}
+	}
+
+	private ByteBuffer encode(byte type, Entry entry)
+	{
+		for (;;)
+		{
+			final ByteBuffer buffer = this.scratch;
+			buffer.clear();
+			try
+			{
+				buffer.put(type);
+				buffer.putLong(entry.id);
+				if (type == TaskJournal.SUBMITTED)
+				{
+					TaskJournal.putString(buffer, entry.descriptor.getFactoryKey());
+					final String[] arguments = entry.descriptor.arguments();
+					buffer.putInt(arguments.length);
+					for (final String argument : arguments)
+					{
+						TaskJournal.putString(buffer, argument);
+					}
+					TaskJournal.putString(buffer, entry.targetClass);
+					TaskJournal.putString(buffer, entry.retryPolicy);
+				}
+				if (type != TaskJournal.COMPLETED)
+				{
+					buffer.putInt(entry.remainingAttempts);
+					buffer.putLong(entry.previousDelayMillis);
+					buffer.putLong(entry.nextRunAtMillis);
+				}
+				buffer.flip();
+				return buffer;
+			} catch (final java.nio.BufferOverflowException e)
+			{
+				this.scratch = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+	}
+
+	private static void putString(ByteBuffer buffer, String value)
+	{
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static String getString(ByteBuffer buffer)
+	{
+		final byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads every segment in order, rebuilding the pending tasks, and positions
+	 * the last segment for appending after its last intact record.
+	 */
+	private void replay() throws IOException
+	{
+		final List<Long> indexes = new ArrayList<Long>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory,
+				TaskJournal.SEGMENT_PREFIX + "*" + TaskJournal.SEGMENT_SUFFIX))
+		{
+			for (final Path file : files)
+			{
+				final String name = file.getFileName().toString();
+				indexes.add(Long.parseLong(name.substring(TaskJournal.SEGMENT_PREFIX.length(),
+						name.length() - TaskJournal.SEGMENT_SUFFIX.length())));
+			}
+		}
+		Collections.sort(indexes);
+		for (final long index : indexes)
+		{
+			final Segment segment = this.mapSegment(index);
+			this.segments.addLast(segment);
+			this.replaySegment(segment);
+		}
+		if (this.segments.isEmpty())
+		{
+			this.segments.addLast(this.mapSegment(0));
+		} else
+		{
+			// Clear anything after the last intact record, so a record torn by a crash
+			// cannot be mistaken for part of the next one written over it.
+			final ByteBuffer tail = this.segments.peekLast().buffer;
+			for (int i = tail.position(); i < tail.limit(); i++)
+			{
+				tail.put(i, (byte) 0);
+			}
+		}
+		this.nextSegmentIndex = this.segments.peekLast().index + 1;
+		this.recovered.addAll(this.pending.values());
+	}
+
+	private void replaySegment(Segment segment)
+	{
+		final ByteBuffer buffer = segment.buffer;
+		while (buffer.remaining() >= TaskJournal.HEADER_BYTES)
+		{
+			final int start = buffer.position();
+			final int length = buffer.getInt();
+			final int checksum = buffer.getInt();
+			if (length <= 0 || length > buffer.remaining())
+			{
+				buffer.position(start);
+				return;
+			}
+			final byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			this.crc.reset();
+			this.crc.update(bytes, 0, length);
+			if ((int) this.crc.getValue() != checksum)
+			{
+				buffer.position(start);
+				return;
+			}
+			this.apply(ByteBuffer.wrap(bytes));
+		}
+	}
+
+	private void apply(ByteBuffer record)
+	{
+		final byte type = record.get();
+		final long id = record.getLong();
+		this.nextId = Math.max(this.nextId, id + 1);
+		if (type == TaskJournal.COMPLETED)
+		{
+			this.pending.remove(id);
+			return;
+		}
+		Entry entry = this.pending.get(id);
+		if (type == TaskJournal.SUBMITTED)
+		{
+			final String factoryKey = TaskJournal.getString(record);
+			final String[] arguments = new String[record.getInt()];
+			for (int i = 0; i < arguments.length; i++)
+			{
+				arguments[i] = TaskJournal.getString(record);
+			}
+			final String targetClass = TaskJournal.getString(record);
+			final String retryPolicy = TaskJournal.getString(record);
+			entry = new Entry(id, new TaskDescriptor(factoryKey, arguments), targetClass, retryPolicy, 0, 0, 0);
+			this.pending.put(id, entry);
+		} else if (entry == null)
+		{
+			return;
+		}
+		entry.remainingAttempts = record.getInt();
+		entry.previousDelayMillis = record.getLong();
+		entry.nextRunAtMillis = record.getLong();
+	}
+
+	/**
+	 * Writes every pending task to the spare segment, and takes the segments
+	 * before it out of the journal. They hold nothing the fresh records do not,
+	 * so can be deleted once those are forced.
+	 *
+	 * @return the segments to delete.
+	 */
+	private List<Segment> compactLocked() throws IOException
+	{
+		final Segment fresh = this.rollLocked();
+		for (final Entry entry : this.pending.values())
+		{
+			this.appendLocked(TaskJournal.SUBMITTED, entry);
+		}
+		final List<Segment> obsolete = new ArrayList<Segment>();
+		while (this.segments.peekFirst() != fresh)
+		{
+			final Segment old = this.segments.pollFirst();
+			this.filled.remove(old);
+			obsolete.add(old);
+		}
+		return obsolete;
+	}
+
+	private Segment mapSegment(long index) throws IOException
+	{
+		final Path path = this.directory
+				.resolve(String.format("%s%016d%s", TaskJournal.SEGMENT_PREFIX, index, TaskJournal.SEGMENT_SUFFIX));
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try
+		{
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentBytes);
+			return new Segment(index, path, channel, buffer);
+		} catch (final IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Forces the records appended so far to disk, unless they already are, after
+	 * mapping a spare segment, moving any backlog into the segments and
+	 * compacting if there are too many. Only the copies are made under the
+	 * journal's lock.
+	 *
+	 * @param periodic - true if called by the flusher thread.
+	 */
+	private void flush(boolean periodic)
+	{
+		synchronized (this.flushLock)
+		{
+			try
+			{
+				this.flushLocked(periodic);
+			} catch (final IOException e)
+			{
+				this.failure = e;
+			}
+		}
+	}
+
+	private void flushLocked(boolean periodic) throws IOException
+	{
+		List<Segment> obsolete = null;
+		final List<Segment> toForce;
+		final long appended;
+		for (;;)
+		{
+			final boolean needSpare;
+			synchronized (this)
+			{
+				if (this.closed || this.failure != null)
+				{
+					return;
+				}
+				needSpare = this.spare == null;
+			}
+			final Segment mapped = needSpare ? this.mapSegment(this.nextSegmentIndex++) : null;
+			synchronized (this)
+			{
+				if (mapped != null)
+				{
+					this.spare = mapped;
+				}
+				if (!this.drainBacklogLocked())
+				{
+					continue;
+				}
+				if (obsolete == null && (this.compactRequested || this.segments.size() > this.compactAfterSegments))
+				{
+					if (this.spare == null)
+					{
+						continue;
+					}
+					this.compactRequested = false;
+					obsolete = this.compactLocked();
+					continue;
+				}
+				if (periodic && obsolete == null && this.filled.isEmpty() && this.appended == this.durable)
+				{
+					return;
+				}
+				toForce = new ArrayList<Segment>(this.filled);
+				toForce.add(this.segments.peekLast());
+				this.filled.clear();
+				appended = this.appended;
+			}
+			break;
+		}
+		for (final Segment segment : toForce)
+		{
+			segment.buffer.force();
+		}
+		this.durable = appended;
+		if (obsolete != null)
+		{
+			for (final Segment old : obsolete)
+			{
+				old.channel.close();
+				Files.deleteIfExists(old.path);
+			}
+		}
+	}
+
+	private void flushPeriodically()
+	{
+		while (!this.closed)
+		{
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(this.commitIntervalMillis));
+			this.flush(true);
+		}
+	}
+
+	/**
+	 * The state of a journaled task that has not completed.
+	 */
+	private static final class Entry
+	{
+		final long id;
+		final TaskDescriptor descriptor;
+		/** The name of the target class, or empty if there was none. */
+		final String targetClass;
+		final String retryPolicy;
+		int remainingAttempts;
+		long previousDelayMillis;
+		/** When the next attempt is due, in wall-clock milliseconds, or 0 for straight away. */
+		long nextRunAtMillis;
+
+		Entry(long id, TaskDescriptor descriptor, String targetClass, String retryPolicy, int remainingAttempts,
+				long previousDelayMillis, long nextRunAtMillis)
+		{
+			this.id = id;
+			this.descriptor = descriptor;
+			this.targetClass = targetClass;
+			this.retryPolicy = retryPolicy;
+			this.remainingAttempts = remainingAttempts;
+			this.previousDelayMillis = previousDelayMillis;
+			this.nextRunAtMillis = nextRunAtMillis;
+		}
+	}
+
+	private static final class Segment
+	{
+		final long index;
+		final Path path;
+		final FileChannel channel;
+		final MappedByteBuffer buffer;
+
+		Segment(long index, Path path, FileChannel channel, MappedByteBuffer buffer)
+		{
+			this.index = index;
+			this.path = path;
+			this.channel = channel;
+			this.buffer = buffer;
+		}
+	}
+}
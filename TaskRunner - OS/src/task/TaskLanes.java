@@ -0,0 +1,223 @@
+package task;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Divides a <code>TaskRunner</code>'s worker threads between named lanes of
+ * task classes, so that a backlog in one lane cannot starve another.
+ *
+ * Each lane has its own queue of attempts waiting for a thread, and a weight.
+ * Whenever a thread comes free it takes the next attempt by deficit round
+ * robin: lanes are visited in turn, and each may start up to its weight in
+ * attempts before the next lane's turn. While every lane has work waiting, a
+ * lane of weight 4 gets four times the threads of a lane of weight 1; a lane
+ * with nothing waiting gives up its turn, so no thread is left idle. Retries
+ * rejoin the queue of their task's lane when their delay has elapsed.
+ *
+ * Task classes not assigned to a lane run in <code>DEFAULT_LANE</code>.
+ */
+public final class TaskLanes
+{
+	/** The name of the lane for task classes not assigned to any other. */
+	public static final String DEFAULT_LANE = "default";
+
+	/** The lanes in the order they take turns. Replaced, never modified, under the lock. */
+	private Lane[] lanes;
+	private final Map<Class<?>, Lane> lanesByTaskClass = new ConcurrentHashMap<Class<?>, Lane>();
+	private final Lane defaultLane;
+	/** The lane whose turn it is. Guarded by this. */
+	private int current;
+	/** The number of attempts waiting in every lane. Guarded by this. */
+	private int size;
+	/** Runs the next attempt due, whichever lane it is in. One is handed to the workers per attempt queued. */
+	final Runnable runNext = () -> {
+		final TaskExecution<?> next = this.poll();
+		if (next != null)
+		{
+			next.run();
+		}
+	};
+
+	/**
+	 * @param defaultWeight - the weight of <code>DEFAULT_LANE</code>.
+	 */
+	public TaskLanes(int defaultWeight)
+	{
+		TaskLanes.validateWeight(defaultWeight);
+		this.defaultLane = new Lane(TaskLanes.DEFAULT_LANE, defaultWeight);
+		this.defaultLane.deficit = defaultWeight;
+		this.lanes = new Lane[] { this.defaultLane };
+	}
+
+	/**
+	 * Adds a lane and assigns task classes to it. A task class assigned to an
+	 * earlier lane moves to this one.
+	 *
+	 * @param name        - the lane's name, as reported in metrics.
+	 * @param weight      - the lane's share of the threads relative to the other
+	 *                    lanes' weights.
+	 * @param taskClasses - the exact classes of the tasks to run in the lane.
+	 * @return these lanes.
+	 */
+	@SafeVarargs
+	@SuppressWarnings("rawtypes")
+	public final synchronized TaskLanes withLane(String name, int weight, Class<? extends ITask>... taskClasses)
+	{
+		if (name == null)
+		{
+			throw new NullPointerException("'name' argument cannot be null.");
+		}
+		TaskLanes.validateWeight(weight);
+		for (final Lane lane : this.lanes)
+		{
+			if (lane.name.equals(name))
+			{
+				throw new IllegalArgumentException("A lane is already named '" + name + "'.");
+			}
+		}
+		final Lane lane = new Lane(name, weight);
+		final Lane[] lanes = Arrays.copyOf(this.lanes, this.lanes.length + 1);
+		lanes[lanes.length - 1] = lane;
+		this.lanes = lanes;
+		for (final Class<?> taskClass : taskClasses)
+		{
+			this.lanesByTaskClass.put(taskClass, lane);
+		}
+		return this;
+	}
+
+	/**
+	 * @return the names of the lanes, in the order they take turns.
+	 */
+	public synchronized List<String> getLaneNames()
+	{
+		final List<String> names = new ArrayList<String>(this.lanes.length);
+		for (final Lane lane : this.lanes)
+		{
+			names.add(lane.name);
+		}
+		return Collections.unmodifiableList(names);
+	}
+
+	/**
+	 * @return the name of the lane tasks of exactly <code>taskClass</code> run in.
+	 */
+	public String getLaneName(Class<?> taskClass)
+	{
+		return this.laneFor(taskClass).name;
+	}
+
+	/**
+	 * @return the number of attempts waiting for a thread in the lane named
+	 *         <code>name</code>.
+	 * @throws IllegalArgumentException - if there is no lane of that name.
+	 */
+	public synchronized int getQueueDepth(String name) throws IllegalArgumentException
+	{
+		for (final Lane lane : this.lanes)
+		{
+			if (lane.name.equals(name))
+			{
+				return lane.queue.size();
+			}
+		}
+		throw new IllegalArgumentException("No lane is named '" + name + "'.");
+	}
+
+	/**
+	 * Queues the next attempt of <code>execution</code> in its task's lane. The
+	 * caller must then hand <code>runNext</code> to a worker to run it, or
+	 * <code>remove</code> it again if that fails.
+	 */
+	void enqueue(TaskExecution<?> execution)
+	{
+		final Lane lane = this.laneFor(execution.task.getClass());
+		synchronized (this)
+		{
+			lane.queue.add(execution);
+			this.size++;
+		}
+	}
+
+	/**
+	 * Takes back an attempt that could not be handed to a worker.
+	 */
+	synchronized void remove(TaskExecution<?> execution)
+	{
+		if (this.laneFor(execution.task.getClass()).queue.remove(execution))
+		{
+			this.size--;
+		}
+	}
+
+	/**
+	 * @return the attempt whose turn it is, or null if none is waiting.
+	 */
+	synchronized TaskExecution<?> poll()
+	{
+		if (this.size == 0)
+		{
+			return null;
+		}
+		final Lane[] lanes = this.lanes;
+		for (;;)
+		{
+			if (this.current >= lanes.length)
+			{
+				this.current = 0;
+			}
+			final Lane lane = lanes[this.current];
+			if (lane.deficit > 0 && !lane.queue.isEmpty())
+			{
+				lane.deficit--;
+				this.size--;
+				return lane.queue.poll();
+			}
+			if (lane.queue.isEmpty())
+			{
+				// An idle lane does not bank its turn.
+				lane.deficit = 0;
+			}
+			this.current = (this.current + 1) % lanes.length;
+			lanes[this.current].deficit += lanes[this.current].weight;
+		}
+	}
+
+	private Lane laneFor(Class<?> taskClass)
+	{
+		final Lane lane = this.lanesByTaskClass.get(taskClass);
+		return lane == null ? this.defaultLane : lane;
+	}
+
+	private static void validateWeight(int weight)
+	{
+		if (weight < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'weight' argument. The value should be at least 1. Actual value: "
+							+ weight);
+		}
+	}
+
+	private static final class Lane
+	{
+		final String name;
+		final int weight;
+		/** Attempts waiting for a thread. Guarded by the enclosing TaskLanes. */
+		final ArrayDeque<TaskExecution<?>> queue = new ArrayDeque<TaskExecution<?>>();
+		/** Attempts the lane may still start in its current turn. Guarded by the enclosing TaskLanes. */
+		int deficit;
+
+		Lane(String name, int weight)
+		{
+			this.name = name;
+			this.weight = weight;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package task;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the tasks of one class run by a
+ * <code>TaskRunner</code>.
+ *
+ * Each execution looks up its recorder once, when it is submitted, so
+ * recording never allocates. An untimed task that succeeds first time costs
+ * four <code>LongAdder</code> updates; timed tasks add two clock reads and two
+ * updates per attempt. Attempts are not counted separately but derived from
+ * the attempts each finished task made.
+ */
+final class TaskMetrics
+{
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder timedOut = new LongAdder();
+	private final LongAdder cancelled = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder throttled = new LongAdder();
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+	private final LatencyHistogram attemptDuration = new LatencyHistogram();
+	private final LatencyHistogram attemptsPerTask = new LatencyHistogram();
+	private final LatencyHistogram throttleWait = new LatencyHistogram();
+
+	void onSubmitted()
+	{
+		this.submitted.increment();
+	}
+
+	/**
+	 * @param queueWaitNanos - the time between an attempt being due and a thread
+	 *                       starting it.
+	 */
+	void onQueueWait(long queueWaitNanos)
+	{
+		this.queueWait.record(queueWaitNanos);
+	}
+
+	void onAttemptFinished(long durationNanos)
+	{
+		this.attemptDuration.record(durationNanos);
+	}
+
+	/**
+	 * @param waitNanos - how long an attempt is held back by a rate limit.
+	 */
+	void onThrottled(long waitNanos)
+	{
+		this.throttled.increment();
+		this.throttleWait.record(waitNanos);
+	}
+
+	void onRetryScheduled()
+	{
+		this.retries.increment();
+	}
+
+	/**
+	 * Records how a task's Future completed.
+	 *
+	 * @param failure  - the exception the Future failed with, or null if it
+	 *                 completed with a result.
+	 * @param attempts - the number of attempts the task started.
+	 */
+	void onDone(Throwable failure, int attempts)
+	{
+		if (failure == null)
+		{
+			this.completed.increment();
+		} else if (failure instanceof CancellationException)
+		{
+			this.cancelled.increment();
+		} else if (failure instanceof TimeoutException)
+		{
+			this.timedOut.increment();
+		} else if (failure instanceof TaskRejectedException)
+		{
+			this.rejected.increment();
+		} else
+		{
+			this.failed.increment();
+		}
+		this.attemptsPerTask.record(attempts);
+	}
+
+	void onCancelled(int attempts)
+	{
+		this.cancelled.increment();
+		this.attemptsPerTask.record(attempts);
+	}
+
+	long getSubmitted()
+	{
+		return this.submitted.sum();
+	}
+
+	long getAttempts()
+	{
+		return this.attemptsPerTask.getSum();
+	}
+
+	long getRetries()
+	{
+		return this.retries.sum();
+	}
+
+	long getCompleted()
+	{
+		return this.completed.sum();
+	}
+
+	long getFailed()
+	{
+		return this.failed.sum();
+	}
+
+	long getTimedOut()
+	{
+		return this.timedOut.sum();
+	}
+
+	long getCancelled()
+	{
+		return this.cancelled.sum();
+	}
+
+	long getRejected()
+	{
+		return this.rejected.sum();
+	}
+
+	long getBusyNanos()
+	{
+		return this.attemptDuration.getSum();
+	}
+
+	TaskMetricsSnapshot snapshot()
+	{
+		final HistogramSnapshot attemptsPerTask = this.attemptsPerTask.snapshot();
+		return new TaskMetricsSnapshot(this.submitted.sum(), attemptsPerTask.getSum(), this.retries.sum(),
+				this.completed.sum(), this.failed.sum(), this.timedOut.sum(), this.cancelled.sum(), this.rejected.sum(),
+				this.throttled.sum(), this.queueWait.snapshot(), this.attemptDuration.snapshot(), attemptsPerTask,
+				this.throttleWait.snapshot());
+	}
+}
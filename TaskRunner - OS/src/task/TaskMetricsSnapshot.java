@@ -0,0 +1,189 @@
+package task;
+
+/**
+ * A point-in-time copy of the counters and latency histograms for a group of
+ * tasks: either the tasks of one class or every task a runner has run.
+ *
+ * Durations are in nanoseconds and only cover the tasks sampled for timing
+ * (see <code>TaskRunner.setLatencySampleInterval</code>); counters cover every
+ * task. Counters are read one after another while tasks may still be running,
+ * so they are not guaranteed to be consistent with each other to the last
+ * task.
+ */
+public final class TaskMetricsSnapshot
+{
+	private final long submitted;
+	private final long attempts;
+	private final long retries;
+	private final long completed;
+	private final long failed;
+	private final long timedOut;
+	private final long cancelled;
+	private final long rejected;
+	private final long throttled;
+	private final HistogramSnapshot queueWait;
+	private final HistogramSnapshot attemptDuration;
+	private final HistogramSnapshot attemptsPerTask;
+	private final HistogramSnapshot throttleWait;
+
+	TaskMetricsSnapshot(long submitted, long attempts, long retries, long completed, long failed, long timedOut,
+			long cancelled, long rejected, long throttled, HistogramSnapshot queueWait,
+			HistogramSnapshot attemptDuration, HistogramSnapshot attemptsPerTask, HistogramSnapshot throttleWait)
+	{
+		this.submitted = submitted;
+		this.attempts = attempts;
+		this.retries = retries;
+		this.completed = completed;
+		this.failed = failed;
+		this.timedOut = timedOut;
+		this.cancelled = cancelled;
+		this.rejected = rejected;
+		this.throttled = throttled;
+		this.queueWait = queueWait;
+		this.attemptDuration = attemptDuration;
+		this.attemptsPerTask = attemptsPerTask;
+		this.throttleWait = throttleWait;
+	}
+
+	/**
+	 * @return a snapshot with nothing recorded.
+	 */
+	static TaskMetricsSnapshot empty()
+	{
+		return new TaskMetricsSnapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, HistogramSnapshot.empty(), HistogramSnapshot.empty(),
+				HistogramSnapshot.empty(), HistogramSnapshot.empty());
+	}
+
+	/**
+	 * @return the combined counters and histograms of this snapshot and
+	 *         <code>other</code>.
+	 */
+	TaskMetricsSnapshot merge(TaskMetricsSnapshot other)
+	{
+		return new TaskMetricsSnapshot(this.submitted + other.submitted, this.attempts + other.attempts,
+				this.retries + other.retries, this.completed + other.completed, this.failed + other.failed,
+				this.timedOut + other.timedOut, this.cancelled + other.cancelled, this.rejected + other.rejected,
+				this.throttled + other.throttled, this.queueWait.merge(other.queueWait),
+				this.attemptDuration.merge(other.attemptDuration), this.attemptsPerTask.merge(other.attemptsPerTask),
+				this.throttleWait.merge(other.throttleWait));
+	}
+
+	/**
+	 * @return the number of tasks submitted, including any later refused.
+	 */
+	public long getSubmitted()
+	{
+		return this.submitted;
+	}
+
+	/**
+	 * @return the number of attempts made by tasks that have finished.
+	 */
+	public long getAttempts()
+	{
+		return this.attempts;
+	}
+
+	/**
+	 * @return the number of retries scheduled.
+	 */
+	public long getRetries()
+	{
+		return this.retries;
+	}
+
+	/**
+	 * @return the number of tasks whose Future completed with a result, whether or
+	 *         not the task reported itself complete.
+	 */
+	public long getCompleted()
+	{
+		return this.completed;
+	}
+
+	/**
+	 * @return the number of tasks whose Future failed with an exception from the
+	 *         task, or because it could not be scheduled.
+	 */
+	public long getFailed()
+	{
+		return this.failed;
+	}
+
+	/**
+	 * @return the number of tasks whose Future failed because the task, or its
+	 *         last attempt, ran out of time.
+	 */
+	public long getTimedOut()
+	{
+		return this.timedOut;
+	}
+
+	/**
+	 * @return the number of tasks whose Future was cancelled.
+	 */
+	public long getCancelled()
+	{
+		return this.cancelled;
+	}
+
+	/**
+	 * @return the number of tasks refused or dropped under the admission limit.
+	 */
+	public long getRejected()
+	{
+		return this.rejected;
+	}
+
+	/**
+	 * @return the number of times an attempt was held back by a rate limit.
+	 */
+	public long getThrottled()
+	{
+		return this.throttled;
+	}
+
+	/**
+	 * @return the time between an attempt being due to run, on submission or
+	 *         after its retry delay, and a thread starting it.
+	 */
+	public HistogramSnapshot getQueueWait()
+	{
+		return this.queueWait;
+	}
+
+	/**
+	 * @return the time each attempt's <code>call</code> ran for.
+	 */
+	public HistogramSnapshot getAttemptDuration()
+	{
+		return this.attemptDuration;
+	}
+
+	/**
+	 * @return the number of attempts each finished task started.
+	 */
+	public HistogramSnapshot getAttemptsPerTask()
+	{
+		return this.attemptsPerTask;
+	}
+
+	/**
+	 * @return how long each attempt held back by a rate limit was held back for.
+	 *         Covers every such attempt, whether or not its task is sampled for
+	 *         timing.
+	 */
+	public HistogramSnapshot getThrottleWait()
+	{
+		return this.throttleWait;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "submitted=" + this.submitted + ", attempts=" + this.attempts + ", retries=" + this.retries
+				+ ", completed=" + this.completed + ", failed=" + this.failed + ", timedOut=" + this.timedOut
+				+ ", cancelled=" + this.cancelled + ", rejected=" + this.rejected + ", throttled=" + this.throttled
+				+ ", queueWait=[" + this.queueWait + "], attemptDuration=[" + this.attemptDuration + "]";
+	}
+}
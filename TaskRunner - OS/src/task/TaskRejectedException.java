@@ -0,0 +1,27 @@
+package task;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a <code>TaskRunner</code> refuses a submission, or drops an
+ * admitted task, because its admission limit has been reached.
+ */
+public class TaskRejectedException extends RejectedExecutionException
+{
+	private static final long serialVersionUID = 1L;
+
+	public TaskRejectedException(String message)
+	{
+		super(message);
+	}
+
+	/**
+	 * Has no stack trace: the exception is thrown whenever the runner is
+	 * overloaded, which is when filling one in would cost the most.
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
+}
@@ -1,12 +1,31 @@
 package task;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
 
 /**
  * Task runner that can accept <code>ITask</code>s and execute them
@@ -14,7 +33,29 @@ import java.util.concurrent.TimeUnit;
  */
 public class TaskRunner
 {
-	private final ScheduledExecutorService threadPool;
+	private final ExecutorService workers;
+	private final RetryScheduler timer;
+	/** The number of worker threads, which adaptive pool sizing changes. */
+	private volatile int parallelism;
+	private final AdmissionControl admission;
+	private final LongAdder cancelledTasks = new LongAdder();
+	private final ConcurrentHashMap<Class<?>, TaskMetrics> metricsByTaskClass = new ConcurrentHashMap<Class<?>, TaskMetrics>();
+	private volatile boolean metricsEnabled = true;
+	private volatile int latencySampleInterval = 1;
+	private volatile ResultCache resultCache;
+	private final ConcurrentHashMap<ResultCache.Key, TaskExecution<?>> inFlight = new ConcurrentHashMap<ResultCache.Key, TaskExecution<?>>();
+	private final LongAdder coalescedTasks = new LongAdder();
+	private volatile boolean coalescingEnabled;
+	private volatile TaskLanes lanes;
+	/** Where <code>TaskHandle.onComplete</code> callbacks run, or null for the thread that completed the task. */
+	private volatile Executor callbackExecutor;
+	private volatile TaskJournal journal;
+	private volatile RateLimits rateLimits;
+	private volatile CircuitBreakers circuitBreakers;
+	private volatile ErrorReporting errorReporting;
+	private volatile AdaptivePoolSizing adaptivePoolSizing;
+	/** Resizes the pool while adaptive pool sizing is on, or null. Guarded by this. */
+	private PoolSizer poolSizer;
 
 	/**
 	 *
@@ -23,7 +64,121 @@ public class TaskRunner
 	 */
 	public TaskRunner(int threadPoolSize)
 	{
-		this.threadPool = Executors.newScheduledThreadPool(threadPoolSize);
+		this(threadPoolSize, ExecutionMode.PLATFORM_THREADS);
+	}
+
+	/**
+	 * First attempts go straight onto the workers' FIFO queue. Only retries, which
+	 * need a delay, go through the timer, which hands them back to the workers
+	 * once their delay has elapsed.
+	 *
+	 * @param threadPoolSize - the number of worker threads to keep in the pool,
+	 *                       even if they are idle. With
+	 *                       <code>ExecutionMode.VIRTUAL_THREADS</code> this is the
+	 *                       number of timer threads instead.
+	 * @param executionMode  - the kind of threads task attempts run on.
+	 * @throws UnsupportedOperationException - if virtual threads are requested on
+	 *                                       a JVM that does not support them.
+	 */
+	public TaskRunner(int threadPoolSize, ExecutionMode executionMode) throws UnsupportedOperationException
+	{
+		this(threadPoolSize, executionMode, new ScheduledExecutorRetryScheduler(
+				executionMode == ExecutionMode.VIRTUAL_THREADS ? threadPoolSize : 1));
+	}
+
+	/**
+	 *
+	 * @param threadPoolSize - the number of worker threads to keep in the pool,
+	 *                       even if they are idle. Ignored with
+	 *                       <code>ExecutionMode.VIRTUAL_THREADS</code>.
+	 * @param executionMode  - the kind of threads task attempts run on.
+	 * @param retryScheduler - times the delay between attempts. The runner takes
+	 *                       ownership of it and shuts it down in
+	 *                       <code>Shutdown</code>.
+	 * @throws UnsupportedOperationException - if virtual threads are requested on
+	 *                                       a JVM that does not support them.
+	 */
+	public TaskRunner(int threadPoolSize, ExecutionMode executionMode, RetryScheduler retryScheduler)
+			throws UnsupportedOperationException
+	{
+		this(threadPoolSize, executionMode, retryScheduler, null);
+	}
+
+	/**
+	 * Creates a runner that holds at most <code>admissionCapacity</code> tasks at
+	 * once. A task is admitted when it is submitted and holds its place until its
+	 * Future completes, including while it waits between attempts, so the work
+	 * queued behind the pool cannot grow without limit. Submissions that arrive
+	 * while the limit is reached are dealt with according to
+	 * <code>admissionPolicy</code>.
+	 *
+	 * @param threadPoolSize    - the number of worker threads to keep in the pool,
+	 *                          even if they are idle.
+	 * @param admissionCapacity - the maximum number of tasks admitted at once.
+	 * @param admissionPolicy   - what to do with a submission while the limit is
+	 *                          reached.
+	 */
+	public TaskRunner(int threadPoolSize, int admissionCapacity, AdmissionPolicy admissionPolicy)
+	{
+		this(threadPoolSize, ExecutionMode.PLATFORM_THREADS, new ScheduledExecutorRetryScheduler(1),
+				admissionCapacity, admissionPolicy);
+	}
+
+	/**
+	 * As <code>TaskRunner(threadPoolSize, executionMode, retryScheduler)</code>,
+	 * with an admission limit as described in
+	 * <code>TaskRunner(threadPoolSize, admissionCapacity, admissionPolicy)</code>.
+	 *
+	 * @param threadPoolSize
+	 * @param executionMode
+	 * @param retryScheduler
+	 * @param admissionCapacity - the maximum number of tasks admitted at once.
+	 * @param admissionPolicy   - what to do with a submission while the limit is
+	 *                          reached.
+	 * @throws UnsupportedOperationException - if virtual threads are requested on
+	 *                                       a JVM that does not support them.
+	 */
+	public TaskRunner(int threadPoolSize, ExecutionMode executionMode, RetryScheduler retryScheduler,
+			int admissionCapacity, AdmissionPolicy admissionPolicy) throws UnsupportedOperationException
+	{
+		this(threadPoolSize, executionMode, retryScheduler, new AdmissionControl(admissionCapacity, admissionPolicy));
+	}
+
+	private TaskRunner(int threadPoolSize, ExecutionMode executionMode, RetryScheduler retryScheduler,
+			AdmissionControl admission) throws UnsupportedOperationException
+	{
+		if (executionMode == null)
+		{
+			throw new NullPointerException("'executionMode' argument cannot be null.");
+		} else if (retryScheduler == null)
+		{
+			throw new NullPointerException("'retryScheduler' argument cannot be null.");
+		}
+		this.timer = retryScheduler;
+		this.admission = admission;
+		if (executionMode == ExecutionMode.VIRTUAL_THREADS)
+		{
+			this.parallelism = Integer.MAX_VALUE;
+			try
+			{
+				this.workers = VirtualThreads.newVirtualThreadPerTaskExecutor();
+			} catch (final RuntimeException e)
+			{
+				retryScheduler.shutdownNow();
+				throw e;
+			}
+		} else if (executionMode == ExecutionMode.WORK_STEALING)
+		{
+			this.parallelism = threadPoolSize;
+			// Async mode: each worker runs its own queue first in, first out, as suits
+			// independent tasks that are never joined.
+			this.workers = new ForkJoinPool(threadPoolSize, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null,
+					true);
+		} else
+		{
+			this.parallelism = threadPoolSize;
+			this.workers = Executors.newFixedThreadPool(threadPoolSize);
+		}
 	}
 
 	/**
@@ -32,7 +187,8 @@ public class TaskRunner
 	 * result.
 	 *
 	 * This method returns immediately with a Future object which can be used to
-	 * obtain the result of the task when the task completes.
+	 * obtain the result of the task when the task completes. Cancelling the Future
+	 * stops any further attempts.
 	 *
 	 * @param task
 	 * @param times
@@ -42,110 +198,1415 @@ public class TaskRunner
 	 * @throws InterruptedException
 	 * @throws ExecutionException
 	 */
-	public <V> Future<V> runTaskAsync(ITask<V> task, int times, long sleepMillis, Class<V> targetClass)
+	public <V> TaskHandle<V> runTaskAsync(ITask<V> task, int times, long sleepMillis, Class<V> targetClass)
 			throws InterruptedException, ExecutionException
 	{
-		if (times < 1 || times > 5)
+		TaskRunner.validateRetryArguments(times, sleepMillis);
+		return this.runTaskAsync(task, RetryPolicy.fixed(times, sleepMillis), targetClass);
+	}
+
+	/**
+	 * Runs a submitted task, making as many attempts and waiting as long between
+	 * them as <code>retryPolicy</code> decides, and returns a Future result.
+	 *
+	 * This method returns immediately with a handle which can be used to obtain
+	 * the result of the task when the task completes, either by waiting on it as
+	 * a Future or by composing on it as a CompletionStage without blocking.
+	 * Cancelling the handle stops any further attempts.
+	 *
+	 * If the runner has a result cache holding a current result for an
+	 * equivalent task, the returned Future is already complete with it and the
+	 * task is not run. With request coalescing on, a task equivalent to one
+	 * already in flight is not run either; the returned handle shares the
+	 * in-flight task's result and attempts.
+	 *
+	 * @param task
+	 * @param retryPolicy
+	 * @param targetClass
+	 * @return
+	 */
+	public <V> TaskHandle<V> runTaskAsync(ITask<V> task, RetryPolicy retryPolicy, Class<V> targetClass)
+	{
+		if (task == null)
+		{
+			throw new NullPointerException("'Task' argument cannot be null.");
+		} else if (retryPolicy == null)
+		{
+			throw new NullPointerException("'retryPolicy' argument cannot be null.");
+		}
+
+		final ResultCache.Key cacheKey = this.cacheKeyFor(task, targetClass);
+		final CachedTaskHandle<V> cached = this.cachedResult(cacheKey, targetClass);
+		if (cached != null)
+		{
+			return cached;
+		}
+		if (cacheKey != null && this.coalescingEnabled)
+		{
+			final CoalescedFuture<V> view = this.joinInFlight(cacheKey, task, retryPolicy, targetClass);
+			if (view.leads)
+			{
+				this.submit(view.shared);
+			}
+			return view;
+		}
+		final TaskExecution<V> execution = new TaskExecution<V>(this, task, retryPolicy, targetClass);
+		execution.cacheKey = cacheKey;
+		this.submit(execution);
+		return execution;
+	}
+
+	/**
+	 * As <code>runTaskAsync(task, times, sleepMillis, targetClass)</code>, but
+	 * bounded in time.
+	 *
+	 * The returned Future fails with a <code>TimeoutException</code> if the task
+	 * has not completed within <code>timeoutMillis</code> of submission, and any
+	 * further work on it is stopped. No retry is scheduled if its sleep interval
+	 * would take it past the deadline; the Future fails straight away instead.
+	 *
+	 * An attempt that runs for longer than <code>attemptTimeoutMillis</code> is
+	 * abandoned: its thread is interrupted, its eventual result is ignored, and it
+	 * counts as a failed attempt. A pool thread held by a task that ignores
+	 * interrupts only returns to the pool once the task's <code>call</code>
+	 * returns.
+	 *
+	 * @param task
+	 * @param times
+	 * @param sleepMillis
+	 * @param targetClass
+	 * @param timeoutMillis        - the time allowed for the task as a whole.
+	 * @param attemptTimeoutMillis - the time allowed for each attempt.
+	 * @return
+	 */
+	public <V> TaskHandle<V> runTaskAsync(ITask<V> task, int times, long sleepMillis, Class<V> targetClass,
+			long timeoutMillis, long attemptTimeoutMillis)
+	{
+		TaskRunner.validateRetryArguments(times, sleepMillis);
+		return this.runTaskAsync(task, RetryPolicy.fixed(times, sleepMillis), targetClass, timeoutMillis,
+				attemptTimeoutMillis);
+	}
+
+	/**
+	 * As <code>runTaskAsync(task, retryPolicy, targetClass)</code>, but bounded in
+	 * time in the same way as
+	 * <code>runTaskAsync(task, times, sleepMillis, targetClass, timeoutMillis, attemptTimeoutMillis)</code>.
+	 *
+	 * @param task
+	 * @param retryPolicy
+	 * @param targetClass
+	 * @param timeoutMillis        - the time allowed for the task as a whole.
+	 * @param attemptTimeoutMillis - the time allowed for each attempt.
+	 * @return
+	 */
+	public <V> TaskHandle<V> runTaskAsync(ITask<V> task, RetryPolicy retryPolicy, Class<V> targetClass,
+			long timeoutMillis, long attemptTimeoutMillis)
+	{
+		if (timeoutMillis < 1)
 		{
 			throw new IllegalArgumentException(
-					"Illegal value given for 'times' argument. The value should be in the range 1-5 inclusive. Actual value: "
-							+ times);
-		} else if (sleepMillis < 1 || sleepMillis > 5000)
+					"Illegal value given for 'timeoutMillis' argument. The value should be at least 1. Actual value: "
+							+ timeoutMillis);
+		} else if (attemptTimeoutMillis < 1)
 		{
 			throw new IllegalArgumentException(
-					"Illegal value given for 'sleepMillis' argument. The value should be in the range 1-5000 inclusive. Actual value: "
-							+ sleepMillis);
+					"Illegal value given for 'attemptTimeoutMillis' argument. The value should be at least 1. Actual value: "
+							+ attemptTimeoutMillis);
 		} else if (task == null)
 		{
 			throw new NullPointerException("'Task' argument cannot be null.");
+		} else if (retryPolicy == null)
+		{
+			throw new NullPointerException("'retryPolicy' argument cannot be null.");
 		}
 
-		final CompletableFuture<V> completableFuture = new CompletableFuture<V>();
-		this.threadPool.schedule(() -> {
-			this.executeTask(task, times, sleepMillis, targetClass, completableFuture);
-		}, 0, TimeUnit.MILLISECONDS);
-		return completableFuture;
+		final ResultCache.Key cacheKey = this.cacheKeyFor(task, targetClass);
+		final CachedTaskHandle<V> cached = this.cachedResult(cacheKey, targetClass);
+		if (cached != null)
+		{
+			return cached;
+		}
+		final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		final TaskExecution<V> execution = new TaskExecution<V>(this, task, retryPolicy, targetClass,
+				deadlineNanos, attemptTimeoutMillis);
+		execution.cacheKey = cacheKey;
+		execution.setDeadlineTimer(this.timer.schedule(execution::deadlinePassed, timeoutMillis));
+		this.submit(execution);
+		return execution;
 	}
 
 	/**
-	 * Helper method for handling task execution. Final result is passed out via
-	 * completeableFuture argument.
-	 *
-	 * If the task finishes and is 'complete' then the result is returned as the
-	 * task result.
-	 *
-	 * If the task finishes but is not 'complete' and has attempts remaining then
-	 * the task will be scheduled to run on a new thread to try and ensure fair
-	 * access to resources for queued tasks.
+	 * Runs a group of tasks that share the same retry settings, as if each had
+	 * been passed to <code>runTaskAsync</code>, and returns their pending results
+	 * as a <code>TaskBatch</code>.
 	 *
-	 * If the task finishes but is not 'complete' and has no attempts remaining then
-	 * the last result is returned as the task result.
+	 * Rather than queueing each task separately, one drainer per pool thread is
+	 * queued, so the cost of queueing is paid per pool thread instead of per task.
+	 * Each drainer takes the next task of the batch not yet started and makes its
+	 * first attempt, until none are left, so a slow first attempt holds up only
+	 * the worker making it; any retries are scheduled per task as usual. The
+	 * trade-off is fairness: tasks queued after the batch wait behind its
+	 * drainers until the batch has been started. With
+	 * <code>ExecutionMode.VIRTUAL_THREADS</code> each task gets its own thread.
 	 *
-	 * If the task throws an exception and has attempts remaining then an attempt
-	 * will be made to schedule the task again on a new thread. If the scheduling
-	 * fails then the exception is propagated as the result of the task.
+	 * Tasks whose circuit breaker is open are short-circuited before any drainer
+	 * is queued, as <code>runTaskAsync</code> would. If the workers refuse the
+	 * first drainer, every task of the batch not yet started is completed
+	 * exceptionally and the refusal is thrown.
 	 *
-	 * If the task throws an exception and has no attempts remaining then the
-	 * exception is propagated as the result of the task.
+	 * With an admission limit each task is admitted and queued separately, in
+	 * order. If one is refused, the tasks of the batch already admitted are
+	 * cancelled and the refusal is thrown.
 	 *
-	 * If the task throws a ClassCastException then it is assumed to be programmer
-	 * error when specifying task return type and the task completes early.
+	 * This method returns immediately, unless the admission policy makes it wait
+	 * for room or run tasks itself.
 	 *
-	 * @param task
-	 * @param remainingAttempts
+	 * @param tasks       - the tasks to run. Must not contain nulls.
+	 * @param times
 	 * @param sleepMillis
 	 * @param targetClass
-	 * @param completableFuture
+	 * @return the per-task and aggregate results of the batch.
 	 */
-	private <V> void executeTask(ITask<V> task, int remainingAttempts, long sleepMillis, Class<V> targetClass,
-			CompletableFuture<V> completableFuture)
+	public <V> TaskBatch<V> runTasksAsync(Collection<? extends ITask<V>> tasks, int times, long sleepMillis,
+			Class<V> targetClass)
 	{
-		try
+		TaskRunner.validateRetryArguments(times, sleepMillis);
+		return this.runTasksAsync(tasks, RetryPolicy.fixed(times, sleepMillis), targetClass);
+	}
+
+	/**
+	 * As <code>runTasksAsync(tasks, times, sleepMillis, targetClass)</code>, with
+	 * each task's attempts governed by <code>retryPolicy</code>.
+	 *
+	 * @param tasks       - the tasks to run. Must not contain nulls.
+	 * @param retryPolicy
+	 * @param targetClass
+	 * @return the per-task and aggregate results of the batch.
+	 */
+	public <V> TaskBatch<V> runTasksAsync(Collection<? extends ITask<V>> tasks, RetryPolicy retryPolicy,
+			Class<V> targetClass)
+	{
+		if (tasks == null)
+		{
+			throw new NullPointerException("'Tasks' argument cannot be null.");
+		} else if (retryPolicy == null)
+		{
+			throw new NullPointerException("'retryPolicy' argument cannot be null.");
+		}
+		final List<CompletableFuture<V>> futures = new ArrayList<CompletableFuture<V>>(tasks.size());
+		final List<TaskExecution<V>> executions = new ArrayList<TaskExecution<V>>(tasks.size());
+		for (final ITask<V> task : tasks)
 		{
-			final V result = task.call(targetClass);
-			if (task.isComplete() || remainingAttempts <= 1)
+			if (task == null)
 			{
-				completableFuture.complete(result);
-			} else
+				throw new NullPointerException("'Tasks' argument cannot contain null tasks.");
+			}
+			final ResultCache.Key cacheKey = this.cacheKeyFor(task, targetClass);
+			final CachedTaskHandle<V> cached = this.cachedResult(cacheKey, targetClass);
+			if (cached != null)
 			{
-				this.threadPool.schedule(() -> {
-					this.executeTask(task, remainingAttempts - 1, sleepMillis, targetClass, completableFuture);
-				}, sleepMillis, TimeUnit.MILLISECONDS);
+				futures.add(cached);
+				continue;
 			}
-		} catch (final Exception e)
+			if (cacheKey != null && this.coalescingEnabled)
+			{
+				final CoalescedFuture<V> view = this.joinInFlight(cacheKey, task, retryPolicy, targetClass);
+				futures.add(view);
+				if (view.leads)
+				{
+					executions.add(view.shared);
+				}
+				continue;
+			}
+			final TaskExecution<V> execution = new TaskExecution<V>(this, task, retryPolicy, targetClass);
+			execution.cacheKey = cacheKey;
+			futures.add(execution);
+			executions.add(execution);
+		}
+
+		if (this.admission != null || this.lanes != null)
+		{
+			// Each task waits its turn on its own, rather than in a chunk.
+			this.submitAll(executions);
+			return new TaskBatch<V>(futures);
+		}
+		final List<TaskExecution<V>> startable = new ArrayList<TaskExecution<V>>(executions.size());
+		for (final TaskExecution<V> execution : executions)
 		{
-			if (e.getClass() == ClassCastException.class || remainingAttempts <= 1)
+			if (!this.shortCircuited(execution))
 			{
-				completableFuture.completeExceptionally(e);
-			} else
+				startable.add(execution);
+			}
+		}
+		final AtomicInteger next = new AtomicInteger();
+		final Runnable drainer = () -> {
+			for (int i = next.getAndIncrement(); i < startable.size(); i = next.getAndIncrement())
 			{
-				e.printStackTrace();
-				try
+				this.executeTask(startable.get(i));
+			}
+		};
+		final int drainerCount = Math.min(this.parallelism, startable.size());
+		for (int queued = 0; queued < drainerCount; queued++)
+		{
+			try
+			{
+				this.workers.execute(drainer);
+			} catch (final RejectedExecutionException e)
+			{
+				if (queued > 0)
 				{
-					this.threadPool.schedule(() -> {
-						this.executeTask(task, remainingAttempts - 1, sleepMillis, targetClass, completableFuture);
-					}, sleepMillis, TimeUnit.MILLISECONDS);
-				} catch (final RejectedExecutionException | NullPointerException e1)
+					// The drainers already queued start the rest of the batch.
+					break;
+				}
+				for (int i = next.getAndSet(startable.size()); i < startable.size(); i++)
 				{
-					completableFuture.completeExceptionally(e);	// If even scheduling fails, stop trying to execute the task.
+					startable.get(i).completeExceptionally(e);
 				}
+				throw e;
 			}
 		}
+		return new TaskBatch<V>(futures);
 	}
 
 	/**
-	 * Handles graceful shutdown of thread pool by blocking until either all
-	 * scheduled work is completed or the timeout completes and forcibly closes the
-	 * pool.
+	 * Waits until there is room to admit a task and then runs it, as if it had
+	 * been passed to <code>runTaskAsync</code>.
 	 *
-	 * @param timeout - the maximum time to wait
-	 * @param unit    - the time unit of the timeout argument
-	 * @return - true if thread pool terminated gracefully and false if the timeout
-	 *         elapsed before termination.
-	 * @throws InterruptedException - if interrupted while waiting
+	 * Unlike <code>runTaskAsync</code> this never blocks or refuses the task,
+	 * whatever the admission policy. The returned signal completes with the
+	 * task's Future once the task has been admitted, in the order submissions
+	 * arrived. Cancelling the signal before then withdraws the submission.
+	 * Without an admission limit the signal is already complete, as it is when
+	 * request coalescing joins the task to an equivalent one already in flight.
+	 *
+	 * @param task
+	 * @param retryPolicy
+	 * @param targetClass
+	 * @return a signal that completes with the task's Future once it is admitted.
 	 */
-	public boolean Shutdown(long timeout, TimeUnit unit) throws InterruptedException
+	public <V> CompletableFuture<Future<V>> trySubmit(ITask<V> task, RetryPolicy retryPolicy, Class<V> targetClass)
+	{
+		if (task == null)
+		{
+			throw new NullPointerException("'Task' argument cannot be null.");
+		} else if (retryPolicy == null)
+		{
+			throw new NullPointerException("'retryPolicy' argument cannot be null.");
+		}
+		if (this.admission == null)
+		{
+			return CompletableFuture.completedFuture(this.runTaskAsync(task, retryPolicy, targetClass));
+		}
+		final ResultCache.Key cacheKey = this.cacheKeyFor(task, targetClass);
+		final CachedTaskHandle<V> cached = this.cachedResult(cacheKey, targetClass);
+		if (cached != null)
+		{
+			return CompletableFuture.<Future<V>>completedFuture(cached);
+		}
+		final CoalescedFuture<V> view = cacheKey != null && this.coalescingEnabled
+				? this.joinInFlight(cacheKey, task, retryPolicy, targetClass)
+				: null;
+		if (view != null && !view.leads)
+		{
+			// Joining a task already in flight adds no work, so needs no admission.
+			return CompletableFuture.<Future<V>>completedFuture(view);
+		}
+		final TaskExecution<V> execution;
+		if (view == null)
+		{
+			execution = new TaskExecution<V>(this, task, retryPolicy, targetClass);
+			execution.cacheKey = cacheKey;
+		} else
+		{
+			execution = view.shared;
+		}
+		final Future<V> future = view == null ? execution : view;
+		final CompletableFuture<Future<V>> admitted = new CompletableFuture<Future<V>>();
+		final AdmissionControl.Waiter waiter = () -> {
+			this.admission.onAdmitted(execution);
+			if (!admitted.complete(future) && view == null)
+			{
+				// The signal was cancelled as the task was admitted.
+				execution.cancel(false);
+				return;
+			}
+			try
+			{
+				this.dispatch(execution);
+			} catch (final RejectedExecutionException e)
+			{
+				// The runner has been shut down; the task's Future has failed with the reason.
+			}
+		};
+		admitted.whenComplete((result, e) -> {
+			if (e == null)
+			{
+				return;
+			} else if (view != null)
+			{
+				// A shared task still runs for any callers that joined it, unless this was the last.
+				view.cancel(false);
+				if (!execution.isDone())
+				{
+					return;
+				}
+			}
+			this.admission.withdraw(waiter);
+		});
+		this.admission.enqueue(waiter);
+		return admitted;
+	}
+
+	/**
+	 * @return the number of tasks waiting in the pool's queue for a free thread.
+	 *         Always 0 with <code>ExecutionMode.VIRTUAL_THREADS</code>, as each
+	 *         attempt gets its own thread. With
+	 *         <code>ExecutionMode.WORK_STEALING</code> this is an estimate summed
+	 *         over every worker's queue.
+	 */
+	public int getQueueDepth()
+	{
+		if (this.workers instanceof ThreadPoolExecutor)
+		{
+			return ((ThreadPoolExecutor) this.workers).getQueue().size();
+		} else if (this.workers instanceof ForkJoinPool)
+		{
+			final ForkJoinPool pool = (ForkJoinPool) this.workers;
+			return (int) Math.min(Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the number of tasks currently holding a place under the admission
+	 *         limit. Always 0 without an admission limit.
+	 */
+	public int getAdmittedTaskCount()
+	{
+		return this.admission == null ? 0 : this.admission.getAdmittedCount();
+	}
+
+	/**
+	 * @return the number of submissions waiting for room under the admission
+	 *         limit. Always 0 without an admission limit.
+	 */
+	public int getWaitingSubmissionCount()
+	{
+		return this.admission == null ? 0 : this.admission.getWaitingCount();
+	}
+
+	/**
+	 * @return the number of submissions refused, and admitted tasks dropped,
+	 *         because the admission limit was reached.
+	 */
+	public long getRejectedTaskCount()
+	{
+		return this.admission == null ? 0 : this.admission.getRejectedCount();
+	}
+
+	/**
+	 * Admits a new execution, if the runner has an admission limit, and queues its
+	 * first attempt.
+	 *
+	 * @throws RejectedExecutionException - if the task is refused or the runner has
+	 *                                    been shut down. The execution is failed
+	 *                                    with the same exception.
+	 */
+	private <V> void submit(TaskExecution<V> execution) throws RejectedExecutionException
+	{
+		if (this.shortCircuited(execution))
+		{
+			return;
+		}
+		if (this.admission != null)
+		{
+			final boolean admitted;
+			try
+			{
+				admitted = this.admission.admit(execution);
+			} catch (final TaskRejectedException e)
+			{
+				execution.completeExceptionally(e);
+				throw e;
+			}
+			if (!admitted)
+			{
+				// Caller runs: the submitting thread makes the first attempt itself.
+				this.executeTask(execution);
+				return;
+			}
+		}
+		this.dispatch(execution);
+	}
+
+	/**
+	 * Completes <code>execution</code> without an attempt if its task's circuit
+	 * breaker is open.
+	 *
+	 * @return true if the execution was short-circuited.
+	 */
+	private <V> boolean shortCircuited(TaskExecution<V> execution)
+	{
+		final CircuitBreakers circuitBreakers = this.circuitBreakers;
+		if (circuitBreakers != null)
+		{
+			final CircuitBreaker breaker = circuitBreakers.breakerFor(execution.task);
+			if (breaker != null && breaker.rejectsSubmission())
+			{
+				this.shortCircuit(execution, circuitBreakers, breaker);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private <V> void submitAll(List<TaskExecution<V>> executions) throws RejectedExecutionException
+	{
+		for (int i = 0; i < executions.size(); i++)
+		{
+			try
+			{
+				this.submit(executions.get(i));
+			} catch (final RejectedExecutionException e)
+			{
+				for (int j = 0; j < executions.size(); j++)
+				{
+					if (j != i)
+					{
+						executions.get(j).cancel(true);
+					}
+				}
+				throw e;
+			}
+		}
+	}
+
+	private <V> void dispatch(TaskExecution<V> execution) throws RejectedExecutionException
+	{
+		try
+		{
+			this.execute(execution);
+		} catch (final RejectedExecutionException e)
+		{
+			execution.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Runs <code>work</code> that a retry timer command found due on the workers,
+	 * so the timer thread does nothing more than hand it over. Once the workers
+	 * have shut down it runs on the calling thread instead, so it is not lost.
+	 */
+	void handOff(Runnable work)
+	{
+		try
+		{
+			this.workers.execute(work);
+		} catch (final RejectedExecutionException e)
+		{
+			work.run();
+		}
+	}
+
+	/**
+	 * Hands the next attempt of <code>execution</code> to the workers, through its
+	 * task's lane if the runner has lanes.
+	 */
+	void execute(TaskExecution<?> execution) throws RejectedExecutionException
 	{
-		return this.threadPool.awaitTermination(timeout, unit);
+		final TaskLanes lanes = this.lanes;
+		if (lanes == null)
+		{
+			if (ForkJoinTask.getPool() == this.workers)
+			{
+				// One of our own work-stealing workers: keep the attempt on its local queue.
+				ForkJoinTask.adapt(execution).fork();
+				return;
+			}
+			this.workers.execute(execution);
+			return;
+		}
+		lanes.enqueue(execution);
+		try
+		{
+			this.workers.execute(lanes.runNext);
+		} catch (final RejectedExecutionException e)
+		{
+			lanes.remove(execution);
+			throw e;
+		}
+	}
+
+	private static void validateRetryArguments(int times, long sleepMillis) throws IllegalArgumentException
+	{
+		if (times < 1 || times > 5)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'times' argument. The value should be in the range 1-5 inclusive. Actual value: "
+							+ times);
+		} else if (sleepMillis < 1 || sleepMillis > 5000)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'sleepMillis' argument. The value should be in the range 1-5000 inclusive. Actual value: "
+							+ sleepMillis);
+		}
+	}
+
+	/**
+	 * Helper method for handling task execution. Runs the next attempt of the given
+	 * execution, and the final result is passed out by completing it.
+	 *
+	 * If the task finishes and is 'complete' then the result is returned as the
+	 * task result.
+	 *
+	 * If the task finishes but is not 'complete' and has attempts remaining then
+	 * the task will be scheduled to run on a new thread to try and ensure fair
+	 * access to resources for queued tasks. With <code>TaskLanes</code> set, the
+	 * retry rejoins its lane's queue, and lanes share the threads by weight.
+	 *
+	 * If the task finishes but is not 'complete' and has no attempts remaining then
+	 * the last result is returned as the task result.
+	 *
+	 * If the task throws an exception and has attempts remaining then an attempt
+	 * will be made to schedule the task again on a new thread. If the scheduling
+	 * fails then the exception is propagated as the result of the task.
+	 *
+	 * If the task throws an exception and has no attempts remaining then the
+	 * exception is propagated as the result of the task.
+	 *
+	 * Whatever an attempt throws is passed to the runner's error reporting, if it
+	 * has any, rather than printed.
+	 *
+	 * If the task throws a ClassCastException then it is assumed to be programmer
+	 * error when specifying task return type and the task completes early. The
+	 * same happens for any exception the task's retry policy does not retry.
+	 *
+	 * If the execution has been cancelled then no further attempts are made.
+	 *
+	 * If the runner has rate limits and the attempt's permits are not yet due,
+	 * the attempt is handed back to the retry scheduler instead of being run. If
+	 * the circuit breaker for the task's resource is open, the task is completed
+	 * with a fallback or failed instead.
+	 *
+	 * @param execution
+	 */
+	<V> void executeTask(TaskExecution<V> execution)
+	{
+		if (execution.isFinishing())
+		{
+			return;
+		}
+		if (execution.rateLimitReserved)
+		{
+			execution.rateLimitReserved = false;
+		} else if (this.throttle(execution))
+		{
+			return;
+		}
+		final CircuitBreakers circuitBreakers = this.circuitBreakers;
+		final CircuitBreaker breaker = circuitBreakers == null ? null : circuitBreakers.breakerFor(execution.task);
+		final long permit = breaker == null ? CircuitBreaker.NO_PERMIT : breaker.tryAcquire();
+		if (breaker != null && permit == CircuitBreaker.NO_PERMIT)
+		{
+			this.shortCircuit(execution, circuitBreakers, breaker);
+			return;
+		}
+		execution.attemptBreaker = breaker;
+		execution.attemptPermit = permit;
+		final ITask<V> task = execution.task;
+		final int attempt = execution.beginAttempt();
+		if (attempt == 0)
+		{
+			if (breaker != null)
+			{
+				breaker.release(permit);
+			}
+			return;
+		}
+		final long startNanos = execution.attemptStarted();
+		boolean finishedNormally = false;
+		boolean returned = false;
+		try
+		{
+			if (execution.attemptTimeoutMillis != TaskExecution.NO_TIMEOUT)
+			{
+				execution.setAttemptTimer(this.timer.schedule(() -> this.attemptTimedOut(execution, attempt),
+						execution.attemptTimeoutMillis));
+			}
+			final V result = task.call(execution.targetClass);
+			returned = true;
+			execution.attemptFinished(startNanos);
+			finishedNormally = execution.finishAttempt(attempt, false);
+			if (finishedNormally)
+			{
+				TaskRunner.recordOutcome(execution, null);
+			}
+			if (!finishedNormally || execution.isFinishing())
+			{
+				return;
+			} else if (task.isComplete() || execution.remainingAttempts <= 1)
+			{
+				execution.completeResult(result);
+			} else
+			{
+				this.scheduleRetry(execution, null);
+			}
+		} catch (final Exception e)
+		{
+			if (!returned)
+			{
+				execution.attemptFinished(startNanos);
+			}
+			finishedNormally = execution.finishAttempt(attempt, false);
+			if (finishedNormally)
+			{
+				TaskRunner.recordOutcome(execution, e);
+				this.reportError(execution, attempt, e);
+			}
+			if (!finishedNormally || execution.isFinishing())
+			{
+				return;
+			} else if (!execution.retryPolicy.shouldRetry(e) || execution.remainingAttempts <= 1)
+			{
+				execution.completeExceptionally(e);
+			} else
+			{
+				this.scheduleRetry(execution, e);
+			}
+		} finally
+		{
+			execution.endAttempt(finishedNormally);
+		}
+	}
+
+	/**
+	 * Takes the permits the next attempt of <code>execution</code> needs from the
+	 * runner's rate limits and, if they are not yet due, has the retry scheduler
+	 * hand the attempt back to the workers once they are.
+	 *
+	 * @return true if the attempt was held back.
+	 */
+	private <V> boolean throttle(TaskExecution<V> execution)
+	{
+		final RateLimits rateLimits = this.rateLimits;
+		if (rateLimits == null)
+		{
+			return false;
+		}
+		final long waitNanos = rateLimits.reserve(execution.task);
+		if (waitNanos == 0)
+		{
+			return false;
+		}
+		execution.throttled(waitNanos);
+		execution.rateLimitReserved = true;
+		try
+		{
+			execution.scheduleNextAttempt(this.timer, TimeUnit.NANOSECONDS.toMillis(waitNanos + 999999));
+		} catch (final RejectedExecutionException e)
+		{
+			if (!(e instanceof TaskRejectedException))
+			{
+				// The runner is shutting down: leave the task to be replayed when it next starts.
+				execution.keepInJournal();
+			}
+			execution.completeExceptionally(e);
+		}
+		return true;
+	}
+
+	/**
+	 * Counts the outcome of the attempt just finished against the circuit breaker
+	 * that let it through, if any. Attempts of tasks already stopped, and
+	 * attempts that failed through programmer error, say nothing about the
+	 * resource and are not counted.
+	 *
+	 * @param failure - what the attempt threw, or null if it returned.
+	 */
+	private static void recordOutcome(TaskExecution<?> execution, Exception failure)
+	{
+		final CircuitBreaker breaker = execution.attemptBreaker;
+		if (breaker == null)
+		{
+			return;
+		}
+		execution.attemptBreaker = null;
+		if (execution.isFinishing() || failure instanceof ClassCastException)
+		{
+			breaker.release(execution.attemptPermit);
+		} else if (failure == null)
+		{
+			breaker.onSuccess(execution.attemptPermit);
+		} else
+		{
+			breaker.onFailure(execution.attemptPermit);
+		}
+	}
+
+	/**
+	 * Passes what a failed attempt threw to the runner's error reporting, if it
+	 * has any.
+	 */
+	private void reportError(TaskExecution<?> execution, int attempt, Exception failure)
+	{
+		final ErrorReporting errorReporting = this.errorReporting;
+		if (errorReporting != null)
+		{
+			errorReporting.report(execution.task, attempt, failure);
+		}
+	}
+
+	/**
+	 * Completes a task whose resource's circuit breaker is open with the fallback
+	 * for its result type, or fails it if there is none, without running it.
+	 */
+	@SuppressWarnings("unchecked")
+	private <V> void shortCircuit(TaskExecution<V> execution, CircuitBreakers circuitBreakers,
+			CircuitBreaker breaker)
+	{
+		final Object fallback = circuitBreakers.fallbackFor(execution.targetClass);
+		if (fallback != null)
+		{
+			execution.complete((V) fallback);
+		} else
+		{
+			execution.completeExceptionally(new CircuitOpenException(breaker.resourceKey));
+		}
+	}
+
+	/**
+	 * Run by the retry timer when an attempt overruns its timeout. If the attempt
+	 * has not finished, interrupts its thread and hands the attempt's abandonment
+	 * to the workers, so the timer thread does nothing more.
+	 *
+	 * @param execution
+	 * @param attempt   - the number of the attempt that timed out.
+	 */
+	private <V> void attemptTimedOut(TaskExecution<V> execution, int attempt)
+	{
+		if (execution.finishAttempt(attempt, true))
+		{
+			this.handOff(() -> this.abandonAttempt(execution, attempt));
+		}
+	}
+
+	/**
+	 * Gives up on an attempt that has overrun its timeout and been interrupted.
+	 * If the task has attempts remaining, the next attempt is scheduled as if this
+	 * one had thrown a <code>TimeoutException</code>.
+	 *
+	 * @param execution
+	 * @param attempt   - the number of the attempt that timed out.
+	 */
+	private <V> void abandonAttempt(TaskExecution<V> execution, int attempt)
+	{
+		final TimeoutException e = new TaskTimeoutException("Attempt " + attempt + " did not finish within "
+				+ execution.attemptTimeoutMillis + "ms: " + execution.task);
+		TaskRunner.recordOutcome(execution, e);
+		this.reportError(execution, attempt, e);
+		if (execution.isFinishing())
+		{
+			return;
+		}
+		if (!execution.retryPolicy.shouldRetry(e) || execution.remainingAttempts <= 1)
+		{
+			execution.completeExceptionally(e);
+		} else
+		{
+			this.scheduleRetry(execution, e);
+		}
+	}
+
+	/**
+	 * Schedules the next attempt after the delay given by the task's retry policy.
+	 * If the next
+	 * attempt would start after the task's deadline then the task fails with a
+	 * <code>TimeoutException</code> straight away instead.
+	 *
+	 * @param execution
+	 * @param cause     - the exception thrown by the last attempt, or null if it
+	 *                  returned normally.
+	 */
+	private <V> void scheduleRetry(TaskExecution<V> execution, Exception cause)
+	{
+		if (cause != null)
+		{
+			execution.attemptFailed(cause);
+		}
+		final long delayMillis = execution.nextRetryDelayMillis();
+		if (execution.wouldMissDeadline(delayMillis))
+		{
+			final TimeoutException e = new TaskTimeoutException(
+					"Next attempt would start after the task's deadline: " + execution.task);
+			if (cause != null)
+			{
+				e.addSuppressed(cause);
+			}
+			execution.completeExceptionally(e);
+			return;
+		}
+		execution.retryScheduled(delayMillis);
+		execution.journalRetry(delayMillis);
+		try
+		{
+			if (delayMillis == 0)
+			{
+				// Nothing to wait for, so skip the timer and queue the retry straight away.
+				this.execute(execution);
+				return;
+			}
+			execution.scheduleNextAttempt(this.timer, delayMillis);
+		} catch (final RejectedExecutionException | NullPointerException e1)
+		{
+			if (e1 instanceof RejectedExecutionException && !(e1 instanceof TaskRejectedException))
+			{
+				// The runner is shutting down: leave the task to be replayed when it next starts.
+				execution.keepInJournal();
+			}
+			execution.completeExceptionally(cause != null ? cause : e1);	// If even scheduling fails, stop trying to execute the task.
+		}
+	}
+
+	/**
+	 * @return the number of submitted tasks that have been cancelled through their
+	 *         Future.
+	 */
+	public long getCancelledTaskCount()
+	{
+		return this.cancelledTasks.sum();
+	}
+
+	void onCancelled()
+	{
+		this.cancelledTasks.increment();
+	}
+
+	/**
+	 * Turns metrics recording on or off for tasks submitted from now on. Tasks
+	 * already submitted keep recording, or not, as they were. On by default.
+	 */
+	public void setMetricsEnabled(boolean enabled)
+	{
+		this.metricsEnabled = enabled;
+	}
+
+	public boolean isMetricsEnabled()
+	{
+		return this.metricsEnabled;
+	}
+
+	/**
+	 * Times the queue waits and attempts of only one in every
+	 * <code>interval</code> tasks submitted from now on, picked at random.
+	 * Counters still cover every task.
+	 *
+	 * Timing costs two clock reads per attempt plus one per submission, which is
+	 * significant next to tasks that take well under a microsecond. Sampling
+	 * keeps the percentiles representative at a fraction of the cost.
+	 *
+	 * @param interval - 1, the default, to time every task.
+	 */
+	public void setLatencySampleInterval(int interval)
+	{
+		if (interval < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'interval' argument. The value should be at least 1. Actual value: "
+							+ interval);
+		}
+		this.latencySampleInterval = interval;
+	}
+
+	public int getLatencySampleInterval()
+	{
+		return this.latencySampleInterval;
+	}
+
+	/**
+	 * Takes a snapshot of the runner's metrics: pool and admission state, and
+	 * counters and latency histograms for the tasks run so far, in total, by
+	 * task class and by lane.
+	 *
+	 * @return the snapshot. Taking one copies every histogram, so it is meant for
+	 *         periodic reporting rather than for calling per task.
+	 */
+	public MetricsSnapshot getMetrics()
+	{
+		final TaskLanes lanes = this.lanes;
+		final Map<String, TaskMetricsSnapshot> byTaskClass = new TreeMap<String, TaskMetricsSnapshot>();
+		final Map<String, TaskMetricsSnapshot> byLane = new TreeMap<String, TaskMetricsSnapshot>();
+		TaskMetricsSnapshot total = TaskMetricsSnapshot.empty();
+		for (final Map.Entry<Class<?>, TaskMetrics> entry : this.metricsByTaskClass.entrySet())
+		{
+			final TaskMetricsSnapshot snapshot = entry.getValue().snapshot();
+			byTaskClass.put(entry.getKey().getName(), snapshot);
+			total = total.merge(snapshot);
+			if (lanes != null)
+			{
+				byLane.merge(lanes.getLaneName(entry.getKey()), snapshot, TaskMetricsSnapshot::merge);
+			}
+		}
+		return new MetricsSnapshot(System.nanoTime(), this.poolSize(), this.activeThreads(), this.getQueueDepth(),
+				this.getAdmittedTaskCount(), this.getWaitingSubmissionCount(), total,
+				Collections.unmodifiableMap(byTaskClass), Collections.unmodifiableMap(byLane));
+	}
+
+	/**
+	 * @return the number of worker threads, or 0 if the workers are not a pool.
+	 */
+	int poolSize()
+	{
+		if (this.workers instanceof ThreadPoolExecutor)
+		{
+			return ((ThreadPoolExecutor) this.workers).getPoolSize();
+		} else if (this.workers instanceof ForkJoinPool)
+		{
+			return ((ForkJoinPool) this.workers).getPoolSize();
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the number of worker threads running an attempt, or 0 if the
+	 *         workers are not a pool.
+	 */
+	int activeThreads()
+	{
+		if (this.workers instanceof ThreadPoolExecutor)
+		{
+			return ((ThreadPoolExecutor) this.workers).getActiveCount();
+		} else if (this.workers instanceof ForkJoinPool)
+		{
+			return ((ForkJoinPool) this.workers).getActiveThreadCount();
+		}
+		return 0;
+	}
+
+	/**
+	 * Sums one counter over every task class, without copying any histograms.
+	 */
+	long sumMetric(ToLongFunction<TaskMetrics> counter)
+	{
+		long sum = 0;
+		for (final TaskMetrics metrics : this.metricsByTaskClass.values())
+		{
+			sum += counter.applyAsLong(metrics);
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the names of the task classes with metrics, in order.
+	 */
+	SortedSet<String> metricsTaskClasses()
+	{
+		final SortedSet<String> taskClasses = new TreeSet<String>();
+		for (final Class<?> taskClass : this.metricsByTaskClass.keySet())
+		{
+			taskClasses.add(taskClass.getName());
+		}
+		return taskClasses;
+	}
+
+	/**
+	 * @return a snapshot of the metrics of the task class named
+	 *         <code>taskClass</code>, or null if it has none.
+	 */
+	TaskMetricsSnapshot metricsSnapshot(String taskClass)
+	{
+		for (final Map.Entry<Class<?>, TaskMetrics> entry : this.metricsByTaskClass.entrySet())
+		{
+			if (entry.getKey().getName().equals(taskClass))
+			{
+				return entry.getValue().snapshot();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the recorder for tasks of <code>task</code>'s class, or null if
+	 *         metrics are off.
+	 */
+	TaskMetrics metricsFor(ITask<?> task)
+	{
+		if (!this.metricsEnabled)
+		{
+			return null;
+		}
+		final Class<?> taskClass = task.getClass();
+		final TaskMetrics metrics = this.metricsByTaskClass.get(taskClass);
+		if (metrics != null)
+		{
+			return metrics;
+		}
+		return this.metricsByTaskClass.computeIfAbsent(taskClass, key -> new TaskMetrics());
+	}
+
+	/**
+	 * Puts a result cache in front of the runner, or removes it if
+	 * <code>resultCache</code> is null. Tasks that return a
+	 * <code>cacheKey</code> are answered from the cache while it holds a current
+	 * result for an equivalent task, and their results are stored in it.
+	 */
+	public void setResultCache(ResultCache resultCache)
+	{
+		this.resultCache = resultCache;
+	}
+
+	public ResultCache getResultCache()
+	{
+		return this.resultCache;
+	}
+
+	/**
+	 * @return the key <code>task</code>'s result is cached and coalesced under, or
+	 *         null if there is no cache and coalescing is off, or the task's
+	 *         result cannot be shared.
+	 */
+	private ResultCache.Key cacheKeyFor(ITask<?> task, Class<?> targetClass)
+	{
+		return this.resultCache == null && !this.coalescingEnabled ? null : ResultCache.keyFor(task, targetClass);
+	}
+
+	/**
+	 * @return an already completed Future holding the cached result for
+	 *         <code>cacheKey</code>, or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	private <V> CachedTaskHandle<V> cachedResult(ResultCache.Key cacheKey, Class<V> targetClass)
+	{
+		final ResultCache cache = this.resultCache;
+		if (cacheKey == null || cache == null)
+		{
+			return null;
+		}
+		final Object value = cache.get(cacheKey);
+		if (value == null)
+		{
+			return null;
+		}
+		return new CachedTaskHandle<V>(this, targetClass == null ? (V) value : targetClass.cast(value));
+	}
+
+	/**
+	 * Sets where callbacks registered through <code>TaskHandle.onComplete</code>
+	 * from now on run, so that many results can be gathered without a thread
+	 * waiting on each. By default, or if <code>executor</code> is null, a
+	 * callback runs on the thread that completed the task, which costs nothing
+	 * extra but holds a worker for as long as the callback runs.
+	 */
+	public void setCallbackExecutor(Executor executor)
+	{
+		this.callbackExecutor = executor;
+	}
+
+	/**
+	 * @return where completion callbacks run, or null if they run on the thread
+	 *         that completed the task.
+	 */
+	public Executor getCallbackExecutor()
+	{
+		return this.callbackExecutor;
+	}
+
+	<V> void whenComplete(CompletableFuture<V> future, BiConsumer<? super V, ? super Throwable> callback)
+	{
+		if (callback == null)
+		{
+			throw new NullPointerException("'callback' argument cannot be null.");
+		}
+		final Executor executor = this.callbackExecutor;
+		if (executor == null)
+		{
+			future.whenComplete(callback);
+		} else
+		{
+			future.whenCompleteAsync(callback, executor);
+		}
+	}
+
+	/**
+	 * Resizes the worker pool within the bounds of <code>sizing</code> to suit the
+	 * load from now on, or stops resizing it if <code>sizing</code> is null,
+	 * leaving the pool its current size. The pool is first brought within the
+	 * bounds, so the size it was created with is where the resizing starts.
+	 *
+	 * @see AdaptivePoolSizing
+	 * @throws UnsupportedOperationException - if the runner was not created with
+	 *                                       <code>ExecutionMode.PLATFORM_THREADS</code>.
+	 */
+	public synchronized void setAdaptivePoolSizing(AdaptivePoolSizing sizing) throws UnsupportedOperationException
+	{
+		if (sizing != null && !(this.workers instanceof ThreadPoolExecutor))
+		{
+			throw new UnsupportedOperationException(
+					"Adaptive pool sizing needs a runner created with ExecutionMode.PLATFORM_THREADS.");
+		}
+		if (this.poolSizer != null)
+		{
+			this.poolSizer.stop();
+			this.poolSizer = null;
+		}
+		this.adaptivePoolSizing = sizing;
+		if (sizing != null && !this.workers.isShutdown())
+		{
+			this.poolSizer = new PoolSizer((ThreadPoolExecutor) this.workers, sizing,
+					size -> this.parallelism = size);
+			this.poolSizer.start();
+		}
+	}
+
+	public AdaptivePoolSizing getAdaptivePoolSizing()
+	{
+		return this.adaptivePoolSizing;
+	}
+
+	/**
+	 * Guards the resources tasks work against with <code>circuitBreakers</code>
+	 * from now on, or removes the breakers if it is null.
+	 *
+	 * @see CircuitBreakers
+	 */
+	public void setCircuitBreakers(CircuitBreakers circuitBreakers)
+	{
+		this.circuitBreakers = circuitBreakers;
+	}
+
+	public CircuitBreakers getCircuitBreakers()
+	{
+		return this.circuitBreakers;
+	}
+
+	/**
+	 * Reports the exceptions attempts throw from now on through
+	 * <code>errorReporting</code>, or stops reporting them if it is null. Either
+	 * way, the exception that fails a task reaches its <code>Future</code>.
+	 *
+	 * @see ErrorReporting
+	 */
+	public void setErrorReporting(ErrorReporting errorReporting)
+	{
+		this.errorReporting = errorReporting;
+	}
+
+	public ErrorReporting getErrorReporting()
+	{
+		return this.errorReporting;
+	}
+
+	/**
+	 * Limits the rate at which attempts start from now on to
+	 * <code>rateLimits</code>, or removes the limits if it is null. Attempts held
+	 * back do not occupy a worker thread while they wait.
+	 *
+	 * @see RateLimits
+	 */
+	public void setRateLimits(RateLimits rateLimits)
+	{
+		this.rateLimits = rateLimits;
+	}
+
+	public RateLimits getRateLimits()
+	{
+		return this.rateLimits;
+	}
+
+	/**
+	 * Journals the tasks submitted from now on to <code>journal</code>, or stops
+	 * journaling them if <code>journal</code> is null. Tasks already submitted
+	 * stay journaled, or not, as they were. The journal stays open when the
+	 * runner shuts down, so its owner should close it afterwards.
+	 *
+	 * @see TaskJournal
+	 */
+	public void setJournal(TaskJournal journal)
+	{
+		this.journal = journal;
+	}
+
+	public TaskJournal getJournal()
+	{
+		return this.journal;
+	}
+
+	/**
+	 * Submits a task replayed from <code>journal</code>, with the attempts it had
+	 * left, once <code>delayMillis</code> has elapsed.
+	 */
+	<V> TaskHandle<V> resume(ITask<V> task, RetryPolicy retryPolicy, Class<V> targetClass, TaskJournal journal,
+			long journalId, int remainingAttempts, long previousDelayMillis, long delayMillis)
+	{
+		final TaskExecution<V> execution = new TaskExecution<V>(this, task, retryPolicy, targetClass,
+				TaskExecution.NO_DEADLINE, TaskExecution.NO_TIMEOUT, journal, journalId);
+		execution.resumeFrom(Math.max(1, Math.min(remainingAttempts, retryPolicy.getMaxAttempts())),
+				previousDelayMillis);
+		if (delayMillis <= 0)
+		{
+			this.submit(execution);
+			return execution;
+		}
+		this.timer.schedule(() -> {
+			if (!execution.isDone())
+			{
+				try
+				{
+					this.submit(execution);
+				} catch (final RejectedExecutionException e)
+				{
+					// The Future has already failed with the refusal.
+				}
+			}
+		}, delayMillis);
+		return execution;
+	}
+
+	/**
+	 * Divides the worker threads between the lanes of <code>lanes</code> for
+	 * attempts dispatched from now on, or goes back to a single queue if
+	 * <code>lanes</code> is null. Attempts already queued run as they were
+	 * queued. Lanes need a pool to share, so have no effect with
+	 * <code>ExecutionMode.VIRTUAL_THREADS</code> beyond ordering.
+	 */
+	public void setLanes(TaskLanes lanes)
+	{
+		this.lanes = lanes;
+	}
+
+	public TaskLanes getLanes()
+	{
+		return this.lanes;
+	}
+
+	/**
+	 * Turns request coalescing on or off for tasks submitted from now on. Off by
+	 * default.
+	 *
+	 * With coalescing on, submitting a task that returns a <code>cacheKey</code>
+	 * while an equivalent task is in flight does not run it again: the returned
+	 * Future shares the result of the task in flight, which runs under the retry
+	 * policy it was submitted with. Cancelling one of these Futures only stops
+	 * the shared task once every caller sharing it has cancelled. The task leaves
+	 * flight as soon as it completes, so a submission after that runs it afresh,
+	 * unless a result cache answers it. Submissions with a timeout are never
+	 * coalesced, as their deadlines are their own.
+	 */
+	public void setCoalescingEnabled(boolean enabled)
+	{
+		this.coalescingEnabled = enabled;
+	}
+
+	public boolean isCoalescingEnabled()
+	{
+		return this.coalescingEnabled;
+	}
+
+	/**
+	 * @return the number of submissions that joined an equivalent task in flight
+	 *         instead of running their own.
+	 */
+	public long getCoalescedTaskCount()
+	{
+		return this.coalescedTasks.sum();
+	}
+
+	/**
+	 * Attaches a caller to the execution in flight for <code>cacheKey</code>,
+	 * starting a new one if there is none or every caller of the last one has
+	 * cancelled. If the returned view <code>leads</code>, the caller must submit
+	 * the shared execution.
+	 */
+	@SuppressWarnings("unchecked")
+	private <V> CoalescedFuture<V> joinInFlight(ResultCache.Key cacheKey, ITask<V> task, RetryPolicy retryPolicy,
+			Class<V> targetClass)
+	{
+		for (;;)
+		{
+			final TaskExecution<V> shared = (TaskExecution<V>) this.inFlight.computeIfAbsent(cacheKey, key -> {
+				final TaskExecution<V> execution = new TaskExecution<V>(this, task, retryPolicy, targetClass);
+				execution.cacheKey = key;
+				execution.coalesced = true;
+				return execution;
+			});
+			final int attached = shared.subscribe();
+			if (attached > 0)
+			{
+				this.coalescedTasks.increment();
+			}
+			if (attached >= 0)
+			{
+				return new CoalescedFuture<V>(shared, attached == 0);
+			}
+			this.inFlight.remove(cacheKey, shared);
+		}
+	}
+
+	/**
+	 * Called as a shared execution completes, so later submissions run afresh.
+	 */
+	void leaveInFlight(TaskExecution<?> execution)
+	{
+		this.inFlight.remove(execution.cacheKey, execution);
+	}
+
+	void cacheResult(ResultCache.Key cacheKey, Object value, boolean positive)
+	{
+		final ResultCache cache = this.resultCache;
+		if (cache != null)
+		{
+			cache.put(cacheKey, value, positive);
+		}
+	}
+
+	/**
+	 * @return true if a task being submitted should be timed.
+	 */
+	boolean sampleLatency()
+	{
+		final int interval = this.latencySampleInterval;
+		return interval == 1 || ThreadLocalRandom.current().nextInt(interval) == 0;
+	}
+
+	void onAdmissionReleased()
+	{
+		this.admission.release();
+	}
+
+	/**
+	 * Handles graceful shutdown of thread pool by blocking until either all
+	 * scheduled work is completed or the timeout completes and forcibly closes the
+	 * pool.
+	 *
+	 * @param timeout - the maximum time to wait
+	 * @param unit    - the time unit of the timeout argument
+	 * @return - true if thread pool terminated gracefully and false if the timeout
+	 *         elapsed before termination.
+	 * @throws InterruptedException - if interrupted while waiting
+	 */
+	public boolean Shutdown(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (this)
+		{
+			if (this.poolSizer != null)
+			{
+				this.poolSizer.stop();
+				this.poolSizer = null;
+			}
+		}
+		// Pending retries hand over to the workers, so only stop the workers once the
+		// timer has drained.
+		this.timer.shutdown();
+		boolean terminated = this.timer.awaitTermination(timeout, unit);
+		this.workers.shutdown();
+		terminated = this.workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) && terminated;
+		if (terminated)
+		{
+			return true;
+		}
+		this.timer.shutdownNow();
+		this.workers.shutdownNow();
+		return false;
 	}
 }
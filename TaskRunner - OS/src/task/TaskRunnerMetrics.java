@@ -0,0 +1,165 @@
+package task;
+
+import java.util.Set;
+
+/**
+ * Publishes a <code>TaskRunner</code>'s metrics over JMX. Register it with an
+ * MBean server under a name of your choosing:
+ *
+ * <pre>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(new TaskRunnerMetrics(taskRunner),
+ * 		new ObjectName("task:type=TaskRunner,name=checks"));
+ * </pre>
+ *
+ * Pool sizes and counters are read straight from the runner, without
+ * copying any histograms; only the percentile and maximum attributes, and
+ * <code>describeTaskClass</code>, take a snapshot. Each attribute is read
+ * afresh, so attributes read one after another may not be consistent with
+ * each other.
+ */
+public class TaskRunnerMetrics implements TaskRunnerMetricsMBean
+{
+	private final TaskRunner taskRunner;
+
+	public TaskRunnerMetrics(TaskRunner taskRunner)
+	{
+		if (taskRunner == null)
+		{
+			throw new NullPointerException("'taskRunner' argument cannot be null.");
+		}
+		this.taskRunner = taskRunner;
+	}
+
+	@Override
+	public int getPoolSize()
+	{
+		return this.taskRunner.poolSize();
+	}
+
+	@Override
+	public int getActiveThreads()
+	{
+		return this.taskRunner.activeThreads();
+	}
+
+	@Override
+	public int getQueueDepth()
+	{
+		return this.taskRunner.getQueueDepth();
+	}
+
+	@Override
+	public int getAdmittedTasks()
+	{
+		return this.taskRunner.getAdmittedTaskCount();
+	}
+
+	@Override
+	public int getWaitingSubmissions()
+	{
+		return this.taskRunner.getWaitingSubmissionCount();
+	}
+
+	@Override
+	public long getSubmittedTasks()
+	{
+		return this.taskRunner.sumMetric(TaskMetrics::getSubmitted);
+	}
+
+	@Override
+	public long getAttempts()
+	{
+		return this.taskRunner.sumMetric(TaskMetrics::getAttempts);
+	}
+
+	@Override
+	public long getRetries()
+	{
+		return this.taskRunner.sumMetric(TaskMetrics::getRetries);
+	}
+
+	@Override
+	public long getCompletedTasks()
+	{
+		return this.taskRunner.sumMetric(TaskMetrics::getCompleted);
+	}
+
+	@Override
+	public long getFailedTasks()
+	{
+		return this.taskRunner.sumMetric(TaskMetrics::getFailed);
+	}
+
+	@Override
+	public long getTimedOutTasks()
+	{
+		return this.taskRunner.sumMetric(TaskMetrics::getTimedOut);
+	}
+
+	@Override
+	public long getCancelledTasks()
+	{
+		return this.taskRunner.sumMetric(TaskMetrics::getCancelled);
+	}
+
+	@Override
+	public long getRejectedTasks()
+	{
+		return this.taskRunner.sumMetric(TaskMetrics::getRejected);
+	}
+
+	@Override
+	public long getBusyNanos()
+	{
+		return this.taskRunner.sumMetric(TaskMetrics::getBusyNanos);
+	}
+
+	@Override
+	public long getQueueWaitP50Nanos()
+	{
+		return this.total().getQueueWait().getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getQueueWaitP99Nanos()
+	{
+		return this.total().getQueueWait().getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getAttemptDurationP50Nanos()
+	{
+		return this.total().getAttemptDuration().getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getAttemptDurationP99Nanos()
+	{
+		return this.total().getAttemptDuration().getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getAttemptDurationMaxNanos()
+	{
+		return this.total().getAttemptDuration().getMax();
+	}
+
+	@Override
+	public String[] getTaskClasses()
+	{
+		final Set<String> taskClasses = this.taskRunner.metricsTaskClasses();
+		return taskClasses.toArray(new String[taskClasses.size()]);
+	}
+
+	@Override
+	public String describeTaskClass(String taskClass)
+	{
+		final TaskMetricsSnapshot snapshot = this.taskRunner.metricsSnapshot(taskClass);
+		return snapshot == null ? null : snapshot.toString();
+	}
+
+	private TaskMetricsSnapshot total()
+	{
+		return this.taskRunner.getMetrics().getTotal();
+	}
+}
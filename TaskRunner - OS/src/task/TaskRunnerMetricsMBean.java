@@ -0,0 +1,59 @@
+package task;
+
+/**
+ * JMX view of a <code>TaskRunner</code>'s metrics, totalled over every task
+ * class. Durations are in nanoseconds.
+ *
+ * @see TaskRunnerMetrics
+ */
+public interface TaskRunnerMetricsMBean
+{
+	public int getPoolSize();
+
+	public int getActiveThreads();
+
+	public int getQueueDepth();
+
+	public int getAdmittedTasks();
+
+	public int getWaitingSubmissions();
+
+	public long getSubmittedTasks();
+
+	public long getAttempts();
+
+	public long getRetries();
+
+	public long getCompletedTasks();
+
+	public long getFailedTasks();
+
+	public long getTimedOutTasks();
+
+	public long getCancelledTasks();
+
+	public long getRejectedTasks();
+
+	public long getBusyNanos();
+
+	public long getQueueWaitP50Nanos();
+
+	public long getQueueWaitP99Nanos();
+
+	public long getAttemptDurationP50Nanos();
+
+	public long getAttemptDurationP99Nanos();
+
+	public long getAttemptDurationMaxNanos();
+
+	/**
+	 * @return the names of the task classes run so far.
+	 */
+	public String[] getTaskClasses();
+
+	/**
+	 * @return a summary of the metrics for one task class, or null if no task of
+	 *         that class has been run.
+	 */
+	public String describeTaskClass(String taskClass);
+}
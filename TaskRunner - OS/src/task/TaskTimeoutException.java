@@ -0,0 +1,29 @@
+package task;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The <code>TimeoutException</code> the runner fails an attempt or a task
+ * with when it runs out of time: an attempt overrunning its timeout, a task
+ * passing its deadline, or a retry that would start after the deadline.
+ */
+public class TaskTimeoutException extends TimeoutException
+{
+	private static final long serialVersionUID = 1L;
+
+	public TaskTimeoutException(String message)
+	{
+		super(message);
+	}
+
+	/**
+	 * Has no stack trace. Running out of time is an expected outcome, one is made
+	 * for every timed-out attempt, and its trace would only point into the
+	 * runner's timer or workers.
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
+}
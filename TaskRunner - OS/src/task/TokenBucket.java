@@ -0,0 +1,89 @@
+package task;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket that hands out permits at a steady rate, allowing bursts of
+ * up to its capacity after a quiet spell, without locking.
+ *
+ * Rather than counting tokens and refilling them, the bucket keeps a single
+ * value: the time at which the next permit would be due if permits were taken
+ * back to back at the steady rate. Taking a permit moves that time on by one
+ * interval in a compare-and-set, and the permit is free straight away while
+ * the time is no more than the capacity's worth of intervals ahead of now. The
+ * time never falls behind now when permits are taken, so an idle bucket
+ * refills to its capacity and no further.
+ */
+final class TokenBucket
+{
+	private final long intervalNanos;
+	/** How far ahead of now the next permit may be due while permits are still free. */
+	private final long burstNanos;
+	private final AtomicLong nextPermitNanos;
+
+	/**
+	 * @param permitsPerSecond - the steady rate at which permits are handed out.
+	 * @param capacity         - the number of permits that can be taken at once
+	 *                         after a quiet spell.
+	 */
+	TokenBucket(double permitsPerSecond, int capacity)
+	{
+		if (!(permitsPerSecond > 0))
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'permitsPerSecond' argument. The value should be greater than 0. Actual value: "
+							+ permitsPerSecond);
+		} else if (capacity < 1)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'capacity' argument. The value should be at least 1. Actual value: "
+							+ capacity);
+		}
+		this.intervalNanos = Math.max(1, (long) (1000000000d / permitsPerSecond));
+		this.burstNanos = this.intervalNanos * (capacity - 1);
+		// Starts full, even for a caller that read the clock just before the bucket was created.
+		this.nextPermitNanos = new AtomicLong(System.nanoTime() - this.intervalNanos);
+	}
+
+	/**
+	 * Takes the next permit, whether or not it is free yet.
+	 *
+	 * @param nowNanos - the current <code>System.nanoTime</code>.
+	 * @return how long the caller must wait before using the permit, or 0 if it
+	 *         can be used straight away.
+	 */
+	long reserve(long nowNanos)
+	{
+		for (;;)
+		{
+			final long next = this.nextPermitNanos.get();
+			final long due = next - nowNanos > 0 ? next : nowNanos;
+			if (this.nextPermitNanos.compareAndSet(next, due + this.intervalNanos))
+			{
+				return Math.max(0, due - nowNanos - this.burstNanos);
+			}
+		}
+	}
+
+	/**
+	 * Takes the next permit only if it can be used straight away.
+	 *
+	 * @param nowNanos - the current <code>System.nanoTime</code>.
+	 * @return true if a permit was taken.
+	 */
+	boolean tryTake(long nowNanos)
+	{
+		for (;;)
+		{
+			final long next = this.nextPermitNanos.get();
+			final long due = next - nowNanos > 0 ? next : nowNanos;
+			if (due - nowNanos > this.burstNanos)
+			{
+				return false;
+			} else if (this.nextPermitNanos.compareAndSet(next, due + this.intervalNanos))
+			{
+				return true;
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package task;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads from code compiled for Java 8. The executor factory
+ * is looked up reflectively so that the runner still builds and runs on JDKs
+ * without virtual threads, where requesting one fails with an
+ * <code>UnsupportedOperationException</code>.
+ */
+final class VirtualThreads
+{
+	private static final MethodHandle NEW_EXECUTOR = findExecutorFactory();
+
+	private VirtualThreads()
+	{
+	}
+
+	/**
+	 * @return true if the running JDK supports virtual threads.
+	 */
+	static boolean isSupported()
+	{
+		return VirtualThreads.NEW_EXECUTOR != null;
+	}
+
+	/**
+	 * @return an executor that starts a new virtual thread for each task.
+	 * @throws UnsupportedOperationException - if the running JDK does not support
+	 *                                       virtual threads.
+	 */
+	static ExecutorService newVirtualThreadPerTaskExecutor() throws UnsupportedOperationException
+	{
+		if (!VirtualThreads.isSupported())
+		{
+			throw new UnsupportedOperationException(
+					"Virtual threads are not supported by this JVM. Running version: "
+							+ System.getProperty("java.version"));
+		}
+		try
+		{
+			return (ExecutorService) VirtualThreads.NEW_EXECUTOR.invokeExact();
+		} catch (final RuntimeException | Error e)
+		{
+			throw e;
+		} catch (final Throwable e)
+		{
+			throw new IllegalStateException("Unable to create a virtual thread executor.", e);
+		}
+	}
+
+	private static MethodHandle findExecutorFactory()
+	{
+		try
+		{
+			return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+					MethodType.methodType(ExecutorService.class));
+		} catch (final NoSuchMethodException | IllegalAccessException e)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package util.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import task.ITask;
+
+/**
+ * A task for checking the existence of many files at once, which lists each
+ * of their directories once rather than checking each file on its own.
+ *
+ * The requested files are grouped by parent directory. A directory holding two
+ * or more of them is read once with a <code>DirectoryStream</code> and every
+ * lookup in it is answered from that listing; a directory holding just one is
+ * checked with a single stat, which is cheaper than a listing. A path with no
+ * parent directory, or with a <code>.</code> or <code>..</code> in it, is also
+ * checked with a stat, since no listing names those and through a symbolic
+ * link the directory <code>..</code> leads to may not be the one its name
+ * suggests. A listing matches names exactly, so on a
+ * case-insensitive file system a file requested in a different case from its
+ * name on disk is reported missing.
+ *
+ * Directories are scanned in turn on the thread making the attempt unless the
+ * task is given an executor to list them in parallel on. Listings block on the
+ * file system, so the executor should be one set aside for blocking work, not
+ * the common <code>ForkJoinPool</code>.
+ *
+ * The task is complete once every file has been found. Retries only scan the
+ * directories that still have files missing.
+ *
+ * @param <T> - The return type of this tasks <code>call</code> implementation,
+ *        which must be <code>FileScanResult</code>.
+ */
+public class BulkFileCheckerTask<T> implements ITask<T>
+{
+	/** The requested names still missing, by the directory to look for them in. */
+	private final Map<Path, List<Request>> missingByDirectory = new ConcurrentHashMap<Path, List<Request>>();
+	/** The requested files still missing that are checked on their own. */
+	private List<Request> missingUnlisted = new ArrayList<Request>();
+	/** The executor to list directories on, or null for the calling thread. */
+	private final Executor listingExecutor;
+	private final Set<String> found = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger directoriesListed = new AtomicInteger();
+	private boolean isComplete = false;
+
+	/**
+	 * @param fileNames - the files to check for.
+	 */
+	public BulkFileCheckerTask(Collection<String> fileNames) throws NullPointerException
+	{
+		this(fileNames, null);
+	}
+
+	/**
+	 * @param fileNames       - the files to check for.
+	 * @param listingExecutor - the executor to list directories on in parallel,
+	 *                        or null to list them in turn on the calling thread.
+	 */
+	public BulkFileCheckerTask(Collection<String> fileNames, Executor listingExecutor) throws NullPointerException
+	{
+		final Map<Path, List<Request>> byDirectory = new LinkedHashMap<Path, List<Request>>();
+		for (final String fileName : new HashSet<String>(fileNames))
+		{
+			final Path path = Paths.get(fileName).toAbsolutePath();
+			final Path directory = path.getParent();
+			final Path name = path.getFileName();
+			if (directory == null || BulkFileCheckerTask.hasDotElement(path))
+			{
+				this.missingUnlisted.add(new Request(fileName, null));
+			} else
+			{
+				byDirectory.computeIfAbsent(directory, ignored -> new ArrayList<Request>())
+						.add(new Request(fileName, name.toString()));
+			}
+		}
+		this.missingByDirectory.putAll(byDirectory);
+		this.listingExecutor = listingExecutor;
+	}
+
+	@Override
+	public boolean isComplete()
+	{
+		return this.isComplete;
+	}
+
+	@Override
+	public T call(Class<T> targetClass) throws ClassCastException
+	{
+		this.scanDirectories();
+		final List<Request> unlistedStillMissing = new ArrayList<Request>();
+		for (final Request request : this.missingUnlisted)
+		{
+			this.check(request, new File(request.fileName).exists(), unlistedStillMissing);
+		}
+		this.missingUnlisted = unlistedStillMissing;
+		final Set<String> missing = new HashSet<String>();
+		for (final Request request : unlistedStillMissing)
+		{
+			missing.add(request.fileName);
+		}
+		for (final List<Request> requests : this.missingByDirectory.values())
+		{
+			for (final Request request : requests)
+			{
+				missing.add(request.fileName);
+			}
+		}
+		if (missing.isEmpty())
+		{
+			this.setIsComplete();
+		}
+		final T result = targetClass
+				.cast(new FileScanResult(new HashSet<String>(this.found), missing, this.directoriesListed.get()));
+		return result;
+	}
+
+	/**
+	 * Scans each directory with files still missing, on the listing executor if
+	 * the task has one, and waits for the scans to finish. What the scans find
+	 * is merged on the attempt's thread, so a scan cut off by an interrupt can
+	 * never undo what a later attempt found.
+	 */
+	private void scanDirectories()
+	{
+		final List<Map.Entry<Path, List<Request>>> entries = new ArrayList<Map.Entry<Path, List<Request>>>(
+				this.missingByDirectory.entrySet());
+		if (this.listingExecutor == null)
+		{
+			for (final Map.Entry<Path, List<Request>> entry : entries)
+			{
+				this.merge(entry.getKey(), this.scan(entry.getKey(), entry.getValue()));
+			}
+			return;
+		}
+		final List<CompletableFuture<List<Request>>> scans = new ArrayList<CompletableFuture<List<Request>>>();
+		for (final Map.Entry<Path, List<Request>> entry : entries)
+		{
+			final Path directory = entry.getKey();
+			final List<Request> requests = entry.getValue();
+			scans.add(CompletableFuture.supplyAsync(() -> this.scan(directory, requests), this.listingExecutor));
+		}
+		try
+		{
+			CompletableFuture.allOf(scans.toArray(new CompletableFuture<?>[scans.size()])).get();
+		} catch (final InterruptedException e)
+		{
+			// The attempt is being stopped: keep the scans that finished and discard the rest.
+			Thread.currentThread().interrupt();
+			for (final CompletableFuture<List<Request>> scan : scans)
+			{
+				scan.cancel(false);
+			}
+		} catch (final ExecutionException e)
+		{
+			throw new IllegalStateException("A directory scan failed.", e.getCause());
+		}
+		for (int i = 0; i < scans.size(); i++)
+		{
+			final CompletableFuture<List<Request>> scan = scans.get(i);
+			if (scan.isDone() && !scan.isCompletedExceptionally())
+			{
+				this.merge(entries.get(i).getKey(), scan.join());
+			}
+		}
+	}
+
+	/**
+	 * Records what is still missing from one directory after a scan, forgetting
+	 * the directory if its files were all found.
+	 */
+	private void merge(Path directory, List<Request> stillMissing)
+	{
+		if (stillMissing.isEmpty())
+		{
+			this.missingByDirectory.remove(directory);
+		} else
+		{
+			this.missingByDirectory.put(directory, stillMissing);
+		}
+	}
+
+	/**
+	 * Looks for the files requested in one directory.
+	 *
+	 * @return the requests for files that were not found.
+	 */
+	private List<Request> scan(Path directory, List<Request> requests)
+	{
+		final List<Request> stillMissing = new ArrayList<Request>();
+		if (requests.size() == 1)
+		{
+			for (final Request request : requests)
+			{
+				this.check(request, new File(request.fileName).exists(), stillMissing);
+			}
+			return stillMissing;
+		}
+		final Set<String> names = new HashSet<String>();
+		try (DirectoryStream<Path> listing = Files.newDirectoryStream(directory))
+		{
+			for (final Path entry : listing)
+			{
+				names.add(entry.getFileName().toString());
+			}
+		} catch (final NoSuchFileException | NotDirectoryException e)
+		{
+			// Nothing can exist under a directory that is not there.
+		} catch (final IOException e)
+		{
+			// The directory cannot be listed, but its files may still be reachable.
+			for (final Request request : requests)
+			{
+				this.check(request, new File(request.fileName).exists(), stillMissing);
+			}
+			return stillMissing;
+		}
+		this.directoriesListed.incrementAndGet();
+		for (final Request request : requests)
+		{
+			this.check(request, names.contains(request.name), stillMissing);
+		}
+		return stillMissing;
+	}
+
+	private void check(Request request, boolean exists, List<Request> stillMissing)
+	{
+		if (exists)
+		{
+			this.found.add(request.fileName);
+		} else
+		{
+			stillMissing.add(request);
+		}
+	}
+
+	/**
+	 * @return true if <code>path</code> has a <code>.</code> or <code>..</code>
+	 *         element anywhere.
+	 */
+	private static boolean hasDotElement(Path path)
+	{
+		for (final Path element : path)
+		{
+			final String name = element.toString();
+			if (".".equals(name) || "..".equals(name))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void setIsComplete()
+	{
+		this.isComplete = true;
+	}
+
+	/**
+	 * A requested file, as requested and as named within its directory, or with
+	 * a null name if it is checked on its own.
+	 */
+	private static final class Request
+	{
+		final String fileName;
+		final String name;
+
+		Request(String fileName, String name)
+		{
+			this.fileName = fileName;
+			this.name = name;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package util.tasks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tells listeners when a file is created, using one
+ * <code>WatchService</code> and one thread for any number of files.
+ *
+ * Each directory is registered with the watch service once, however many
+ * files in it are being watched, and cancelled when the last watch on it is
+ * closed. On platforms where the watch service polls rather than being told by
+ * the operating system, events can arrive seconds late, so callers should
+ * check for themselves if they have not heard within the time they can wait.
+ */
+public final class DirectoryWatcher implements Closeable
+{
+	private static DirectoryWatcher shared;
+
+	private final WatchService watchService;
+	/** The watched directories by path. Guarded by this. */
+	private final Map<Path, Directory> directories = new HashMap<Path, Directory>();
+	/** The watched directories by key, read by the watcher thread. Guarded by this. */
+	private final Map<WatchKey, Directory> directoriesByKey = new HashMap<WatchKey, Directory>();
+	private final Thread thread;
+
+	/**
+	 * Starts a watcher with its own watch service and daemon thread.
+	 *
+	 * @throws IOException - if the file system cannot provide a watch service.
+	 */
+	public DirectoryWatcher() throws IOException
+	{
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.thread = new Thread(this::processEvents, "directory-watcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * @return the watcher shared by every task not given one of its own, started
+	 *         on first use.
+	 * @throws IOException - if the file system cannot provide a watch service.
+	 */
+	public static synchronized DirectoryWatcher shared() throws IOException
+	{
+		if (DirectoryWatcher.shared == null)
+		{
+			DirectoryWatcher.shared = new DirectoryWatcher();
+		}
+		return DirectoryWatcher.shared;
+	}
+
+	/**
+	 * Starts watching for <code>file</code> to be created.
+	 *
+	 * @param file     - the file to watch for. Its parent directory must exist.
+	 * @param listener - called on the watcher's thread when the file is created,
+	 *                 or when events may have been lost. Must not block.
+	 * @return the watch, to be closed once it is no longer needed.
+	 * @throws IOException - if the parent directory cannot be watched.
+	 */
+	public Watch watch(Path file, Runnable listener) throws IOException
+	{
+		final Path absolute = file.toAbsolutePath();
+		final Path directoryPath = absolute.getParent();
+		if (directoryPath == null)
+		{
+			throw new IOException("'" + file + "' has no parent directory to watch.");
+		}
+		final Watch watch = new Watch(absolute.getFileName(), listener);
+		synchronized (this)
+		{
+			Directory directory = this.directories.get(directoryPath);
+			if (directory == null)
+			{
+				directory = new Directory(directoryPath);
+				this.directories.put(directoryPath, directory);
+			}
+			if (directory.key == null || !directory.key.isValid())
+			{
+				// New, or deleted and perhaps created again since it was registered.
+				final WatchKey key;
+				try
+				{
+					key = directoryPath.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE);
+				} catch (final IOException e)
+				{
+					if (directory.watches.isEmpty())
+					{
+						this.directories.remove(directoryPath);
+					}
+					throw e;
+				}
+				if (directory.key != null)
+				{
+					this.directoriesByKey.remove(directory.key);
+				}
+				directory.key = key;
+				this.directoriesByKey.put(key, directory);
+			}
+			watch.directory = directory;
+			directory.watches.add(watch);
+		}
+		return watch;
+	}
+
+	/**
+	 * @return the number of directories currently registered with the watch
+	 *         service.
+	 */
+	public synchronized int getWatchedDirectoryCount()
+	{
+		return this.directories.size();
+	}
+
+	/**
+	 * Stops the watcher thread. Watches still open hear nothing further.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.watchService.close();
+	}
+
+	private synchronized void unwatch(Watch watch)
+	{
+		final Directory directory = watch.directory;
+		if (directory.watches.remove(watch) && directory.watches.isEmpty())
+		{
+			directory.key.cancel();
+			this.directories.remove(directory.path);
+			this.directoriesByKey.remove(directory.key);
+		}
+	}
+
+	private void processEvents()
+	{
+		try
+		{
+			for (;;)
+			{
+				final WatchKey key = this.watchService.take();
+				final Directory directory;
+				synchronized (this)
+				{
+					directory = this.directoriesByKey.get(key);
+				}
+				for (final WatchEvent<?> event : key.pollEvents())
+				{
+					if (directory == null)
+					{
+						continue;
+					}
+					final boolean overflow = event.kind() == StandardWatchEventKinds.OVERFLOW;
+					for (final Watch watch : directory.watches)
+					{
+						if (overflow || watch.fileName.equals(event.context()))
+						{
+							watch.listener.run();
+						}
+					}
+				}
+				if (!key.reset() && directory != null)
+				{
+					// The directory has gone, so no creation in it will be heard of.
+					for (final Watch watch : directory.watches)
+					{
+						watch.listener.run();
+					}
+				}
+			}
+		} catch (final InterruptedException | ClosedWatchServiceException e)
+		{
+			// The watcher has been closed.
+		}
+	}
+
+	/**
+	 * A registered interest in one file being created.
+	 */
+	public final class Watch implements Closeable
+	{
+		final Path fileName;
+		final Runnable listener;
+		/** Set under the watcher's lock before the watch is published. */
+		Directory directory;
+
+		Watch(Path fileName, Runnable listener)
+		{
+			this.fileName = fileName;
+			this.listener = listener;
+		}
+
+		/**
+		 * Stops the watch, and watching its directory if it was the last there.
+		 * Closing a watch more than once has no further effect.
+		 */
+		@Override
+		public void close()
+		{
+			DirectoryWatcher.this.unwatch(this);
+		}
+	}
+
+	private static final class Directory
+	{
+		final Path path;
+		/** The directory's registration with the watch service. Guarded by the watcher. */
+		WatchKey key;
+		/** Read by the watcher thread without the lock. */
+		final List<Watch> watches = new CopyOnWriteArrayList<Watch>();
+
+		Directory(Path path)
+		{
+			this.path = path;
+		}
+	}
+}
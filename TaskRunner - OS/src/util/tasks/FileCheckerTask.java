@@ -3,6 +3,7 @@ package util.tasks;
 import java.io.File;
 
 import task.ITask;
+import task.TaskDescriptor;
 
 /**
  * A task for checking the existence of a given filename on the local
@@ -12,6 +13,9 @@ import task.ITask;
  */
 public class FileCheckerTask<T> implements ITask<T>
 {
+	/** The factory key of the tasks' descriptors, under which to register <code>fromDescriptor</code>. */
+	public static final String DESCRIPTOR_KEY = "file";
+
 	private final File fileToCheck;
 	private boolean isComplete = false;
 
@@ -38,6 +42,49 @@ public class FileCheckerTask<T> implements ITask<T>
 		return result;
 	}
 
+	/**
+	 * Tasks checking the same absolute path share their result.
+	 */
+	@Override
+	public Object cacheKey()
+	{
+		return this.fileToCheck.getAbsolutePath();
+	}
+
+	/**
+	 * Tasks checking files in the same directory are rate limited together.
+	 */
+	@Override
+	public Object resourceKey()
+	{
+		return this.fileToCheck.getAbsoluteFile().getParent();
+	}
+
+	/**
+	 * Describes the task by the absolute path of the file, so it can be journaled.
+	 */
+	@Override
+	public TaskDescriptor descriptor()
+	{
+		return new TaskDescriptor(FileCheckerTask.DESCRIPTOR_KEY, this.fileToCheck.getAbsolutePath());
+	}
+
+	/**
+	 * Rebuilds a task from the arguments of its descriptor.
+	 *
+	 * @param arguments - the arguments of a descriptor returned by
+	 *                  <code>descriptor</code>.
+	 * @return the task.
+	 */
+	public static FileCheckerTask<?> fromDescriptor(String[] arguments)
+	{
+		if (arguments.length != 1)
+		{
+			throw new IllegalArgumentException("Expected 1 argument. Actual: " + arguments.length);
+		}
+		return new FileCheckerTask<Object>(arguments[0]);
+	}
+
 	private void setIsComplete()
 	{
 		this.isComplete = true;
@@ -0,0 +1,71 @@
+package util.tasks;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The outcome of a <code>BulkFileCheckerTask</code>: which of the requested
+ * files exist.
+ */
+public final class FileScanResult
+{
+	private final Set<String> found;
+	private final Set<String> missing;
+	private final int directoriesListed;
+
+	FileScanResult(Set<String> found, Set<String> missing, int directoriesListed)
+	{
+		this.found = Collections.unmodifiableSet(found);
+		this.missing = Collections.unmodifiableSet(missing);
+		this.directoriesListed = directoriesListed;
+	}
+
+	/**
+	 * @return true if <code>fileName</code>, exactly as requested, was found.
+	 * @throws IllegalArgumentException - if <code>fileName</code> was not
+	 *                                  requested.
+	 */
+	public boolean exists(String fileName) throws IllegalArgumentException
+	{
+		if (this.found.contains(fileName))
+		{
+			return true;
+		} else if (this.missing.contains(fileName))
+		{
+			return false;
+		}
+		throw new IllegalArgumentException("'" + fileName + "' was not part of the scan.");
+	}
+
+	/**
+	 * @return the requested files that exist, as they were requested.
+	 */
+	public Set<String> getFound()
+	{
+		return this.found;
+	}
+
+	/**
+	 * @return the requested files that do not exist, as they were requested.
+	 */
+	public Set<String> getMissing()
+	{
+		return this.missing;
+	}
+
+	/**
+	 * @return the number of directory listings made so far by the task that
+	 *         produced this result, across all its attempts.
+	 */
+	public int getDirectoriesListed()
+	{
+		return this.directoriesListed;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "FileScanResult [found=" + this.found.size() + ", missing=" + this.missing.size()
+				+ ", directoriesListed=" + this.directoriesListed + "]";
+	}
+}
@@ -0,0 +1,158 @@
+package util.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import task.ITask;
+
+/**
+ * A task for checking the existence of a given filename on the local
+ * filesystem that, rather than polling, waits to be told the file has been
+ * created.
+ *
+ * If the file does not exist when an attempt starts, the attempt watches the
+ * file's directory through a <code>DirectoryWatcher</code> and returns as
+ * soon as the file is created, or after <code>waitMillis</code> with a final
+ * check of its own if it has heard nothing by then. An attempt therefore
+ * checks the file at most three times however long it waits. If the directory
+ * cannot be watched, the attempt returns straight away like
+ * <code>FileCheckerTask</code>.
+ *
+ * The watcher thread only wakes a waiting attempt; the attempt itself holds a
+ * runner thread for as long as it waits. On a runner with a fixed pool, no more
+ * files can be waited for at once than the pool has threads, and tasks queued
+ * behind the waiting attempts wait with them. To wait for many files at once,
+ * run these tasks on a runner using <code>ExecutionMode.VIRTUAL_THREADS</code>,
+ * where a waiting attempt holds no OS thread, or keep <code>waitMillis</code>
+ * short and let retries spread the wait out.
+ *
+ * @param <T> - The return type of this tasks <code>call</code> implementation.
+ */
+public class FileWatcherTask<T> implements ITask<T>
+{
+	private final File fileToCheck;
+	private final long waitMillis;
+	private final DirectoryWatcher watcher;
+	private boolean isComplete = false;
+	/** Released when the file is created or the task is cancelled, during an attempt. */
+	private volatile CountDownLatch waiting;
+	private volatile boolean cancelled;
+
+	/**
+	 * @param fileName   - the file to check for.
+	 * @param waitMillis - how long each attempt waits for the file to be created,
+	 *                   holding the thread it runs on.
+	 */
+	public FileWatcherTask(String fileName, long waitMillis) throws NullPointerException
+	{
+		this(fileName, waitMillis, null);
+	}
+
+	/**
+	 * @param fileName   - the file to check for.
+	 * @param waitMillis - how long each attempt waits for the file to be created.
+	 * @param watcher    - the watcher to watch the file's directory with, or null
+	 *                   for <code>DirectoryWatcher.shared()</code>.
+	 */
+	public FileWatcherTask(String fileName, long waitMillis, DirectoryWatcher watcher) throws NullPointerException
+	{
+		if (waitMillis < 0)
+		{
+			throw new IllegalArgumentException(
+					"Illegal value given for 'waitMillis' argument. The value should be at least 0. Actual value: "
+							+ waitMillis);
+		}
+		this.fileToCheck = new File(fileName);
+		this.waitMillis = waitMillis;
+		this.watcher = watcher;
+	}
+
+	@Override
+	public boolean isComplete()
+	{
+		return this.isComplete;
+	}
+
+	@Override
+	public T call(Class<T> targetClass) throws ClassCastException
+	{
+		boolean fileExists = this.fileToCheck.exists();
+		if (!fileExists && this.waitMillis > 0 && !this.cancelled)
+		{
+			fileExists = this.waitForFile();
+		}
+		if (fileExists)
+		{
+			this.setIsComplete();
+		}
+		final T result = targetClass.cast(fileExists);
+		return result;
+	}
+
+	/**
+	 * Wakes an attempt waiting for the file, which then returns whether the file
+	 * exists.
+	 */
+	@Override
+	public void cancel()
+	{
+		this.cancelled = true;
+		final CountDownLatch waiting = this.waiting;
+		if (waiting != null)
+		{
+			waiting.countDown();
+		}
+	}
+
+	/**
+	 * Tasks checking the same absolute path share their result.
+	 */
+	@Override
+	public Object cacheKey()
+	{
+		return this.fileToCheck.getAbsolutePath();
+	}
+
+	private boolean waitForFile()
+	{
+		final CountDownLatch created = new CountDownLatch(1);
+		final DirectoryWatcher.Watch watch;
+		try
+		{
+			watch = (this.watcher != null ? this.watcher : DirectoryWatcher.shared())
+					.watch(this.fileToCheck.toPath(), created::countDown);
+		} catch (final IOException e)
+		{
+			return false;
+		}
+		this.waiting = created;
+		try
+		{
+			// Checked again now the watch is in place, in case the file was created in between.
+			if (this.fileToCheck.exists())
+			{
+				return true;
+			} else if (this.cancelled)
+			{
+				return false;
+			}
+			created.await(this.waitMillis, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		} finally
+		{
+			this.waiting = null;
+			watch.close();
+		}
+		return this.fileToCheck.exists();
+	}
+
+	private void setIsComplete()
+	{
+		this.isComplete = true;
+	}
+
+}
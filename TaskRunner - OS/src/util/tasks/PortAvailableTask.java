@@ -1,17 +1,20 @@
 package util.tasks;
 
-import java.io.IOException;
-import java.net.ServerSocket;
-
 import task.ITask;
+import task.TaskDescriptor;
 
 /**
- * A task for checking the availability of a given port on the local machine.
+ * A task for checking the availability of a given port on the local machine,
+ * using <code>PortProber</code>.
  *
  * @param <T> - The return type of this tasks <code>call</code> implementation.
  */
 public class PortAvailableTask<T> implements ITask<T>
 {
+	/** The factory key of the tasks' descriptors, under which to register <code>fromDescriptor</code>. */
+	public static final String DESCRIPTOR_KEY = "port";
+	/** The resource key of every task, naming the local machine. */
+	public static final String RESOURCE_KEY = "localhost";
 
 	private final int targetPort;
 	private boolean isComplete = false;
@@ -36,19 +39,57 @@ public class PortAvailableTask<T> implements ITask<T>
 	@Override
 	public T call(Class<T> targetClass) throws ClassCastException
 	{
-		try
+		final boolean available = PortProber.isAvailable(this.targetPort);
+		if (available)
 		{
-			final ServerSocket serverSocket = new ServerSocket(this.targetPort);
-			serverSocket.close();
 			this.setIsComplete();
-			final T result = targetClass.cast(true);
-			return result;
-		} catch (final IOException e)
+		}
+		final T result = targetClass.cast(available);
+		return result;
+	}
+
+	/**
+	 * Tasks checking the same port share their result.
+	 */
+	@Override
+	public Object cacheKey()
+	{
+		return this.targetPort;
+	}
+
+	/**
+	 * Every port is checked on the local machine, so tasks checking any port are
+	 * rate limited together.
+	 */
+	@Override
+	public Object resourceKey()
+	{
+		return PortAvailableTask.RESOURCE_KEY;
+	}
+
+	/**
+	 * Describes the task by the port, so it can be journaled.
+	 */
+	@Override
+	public TaskDescriptor descriptor()
+	{
+		return new TaskDescriptor(PortAvailableTask.DESCRIPTOR_KEY, Integer.toString(this.targetPort));
+	}
+
+	/**
+	 * Rebuilds a task from the arguments of its descriptor.
+	 *
+	 * @param arguments - the arguments of a descriptor returned by
+	 *                  <code>descriptor</code>.
+	 * @return the task.
+	 */
+	public static PortAvailableTask<?> fromDescriptor(String[] arguments)
+	{
+		if (arguments.length != 1)
 		{
-			e.printStackTrace();
-			final T result = targetClass.cast(false);
-			return result;
+			throw new IllegalArgumentException("Expected 1 argument. Actual: " + arguments.length);
 		}
+		return new PortAvailableTask<Object>(Integer.parseInt(arguments[0]));
 	}
 
 	private void setIsComplete()
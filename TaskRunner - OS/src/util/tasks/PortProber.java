@@ -0,0 +1,95 @@
+package util.tasks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.BitSet;
+
+/**
+ * Checks whether local ports are free for a server to listen on, by briefly
+ * binding a non-blocking <code>ServerSocketChannel</code> to each.
+ *
+ * Each check binds the wildcard address with <code>SO_REUSEADDR</code>, as
+ * servers usually do, so a port held only by connections in
+ * <code>TIME_WAIT</code> counts as free while one with a listener does not. A
+ * failed bind is reported by its return value, not by an exception escaping or
+ * a stack trace being printed, so a check of a busy port costs no more than
+ * one of a free port. A bind completes at once, so one thread can check
+ * thousands of ports a second without a selector.
+ */
+public final class PortProber
+{
+	/** The lowest port number that can be checked. */
+	public static final int MIN_PORT = 1;
+	/** The highest port number that can be checked. */
+	public static final int MAX_PORT = 65535;
+
+	private PortProber()
+	{
+	}
+
+	/**
+	 * @return true if a server could listen on <code>port</code> at the moment
+	 *         of the check.
+	 * @throws IllegalArgumentException - if <code>port</code> is out of range.
+	 */
+	public static boolean isAvailable(int port) throws IllegalArgumentException
+	{
+		PortProber.validatePort(port, "port");
+		return PortProber.probe(port);
+	}
+
+	/**
+	 * Checks every port from <code>fromPort</code> to <code>toPort</code>
+	 * inclusive, in turn, on the calling thread.
+	 *
+	 * @return the ports that were available, as the set bits of a
+	 *         <code>BitSet</code> indexed by port number.
+	 * @throws IllegalArgumentException - if either port is out of range, or
+	 *                                  <code>fromPort</code> is greater than
+	 *                                  <code>toPort</code>.
+	 */
+	public static BitSet scan(int fromPort, int toPort) throws IllegalArgumentException
+	{
+		PortProber.validatePort(fromPort, "fromPort");
+		PortProber.validatePort(toPort, "toPort");
+		if (fromPort > toPort)
+		{
+			throw new IllegalArgumentException(
+					"'fromPort' cannot be greater than 'toPort'. Actual values: " + fromPort + ", " + toPort);
+		}
+		final BitSet available = new BitSet(toPort + 1);
+		for (int port = fromPort; port <= toPort; port++)
+		{
+			if (PortProber.probe(port))
+			{
+				available.set(port);
+			}
+		}
+		return available;
+	}
+
+	private static boolean probe(int port)
+	{
+		try (ServerSocketChannel channel = ServerSocketChannel.open())
+		{
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			channel.bind(new InetSocketAddress(port), 1);
+			return true;
+		} catch (final IOException e)
+		{
+			return false;
+		}
+	}
+
+	private static void validatePort(int port, String argumentName)
+	{
+		if (port < PortProber.MIN_PORT || port > PortProber.MAX_PORT)
+		{
+			throw new IllegalArgumentException("Port number out of range. '" + argumentName
+					+ "' must be in range 1 - 65535 inclusive. Provided value: " + port);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package util.tasks;
+
+import java.util.BitSet;
+
+import task.ITask;
+
+/**
+ * A task for finding which ports in a range are available on the local
+ * machine, checking them all from one thread with <code>PortProber</code>.
+ *
+ * The task is complete once it has found at least one available port, so
+ * retries keep looking while the whole range is busy.
+ *
+ * @param <T> - The return type of this tasks <code>call</code> implementation,
+ *        which must be <code>BitSet</code>. Its set bits are the available
+ *        port numbers.
+ */
+public class PortRangeTask<T> implements ITask<T>
+{
+	private final int fromPort;
+	private final int toPort;
+	private boolean isComplete = false;
+
+	/**
+	 * @param fromPort - the first port to check.
+	 * @param toPort   - the last port to check, inclusive.
+	 */
+	public PortRangeTask(int fromPort, int toPort)
+	{
+		if (fromPort < PortProber.MIN_PORT || toPort > PortProber.MAX_PORT || fromPort > toPort)
+		{
+			throw new IllegalArgumentException(
+					"Port range out of range. Ports must be in range 1 - 65535 inclusive, in order. Provided values: "
+							+ fromPort + " - " + toPort);
+		}
+		this.fromPort = fromPort;
+		this.toPort = toPort;
+	}
+
+	@Override
+	public boolean isComplete()
+	{
+		return this.isComplete;
+	}
+
+	@Override
+	public T call(Class<T> targetClass) throws ClassCastException
+	{
+		final BitSet available = PortProber.scan(this.fromPort, this.toPort);
+		if (!available.isEmpty())
+		{
+			this.setIsComplete();
+		}
+		final T result = targetClass.cast(available);
+		return result;
+	}
+
+	private void setIsComplete()
+	{
+		this.isComplete = true;
+	}
+
+}
@@ -0,0 +1,128 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import util.tasks.FileCheckerTask;
+
+public class CircuitBreakerTests
+{
+	private final ITask<Boolean> task = new FileCheckerTask<Boolean>("db/file");
+
+	@Test
+	public void GivenAClosedBreakerWhenTheFailureRateReachesTheThresholdThenItOpens()
+	{
+		// Arrange
+		final List<String> changes = new ArrayList<String>();
+		final CircuitBreakers breakers = new CircuitBreakers(0.5, 4, 60000)
+				.withListener((resourceKey, from, to) -> changes.add(from + "->" + to));
+		final CircuitBreaker breaker = breakers.breakerFor(this.task);
+
+		// Act
+		breaker.onSuccess(breaker.tryAcquire());
+		breaker.onFailure(breaker.tryAcquire());
+		breaker.onSuccess(breaker.tryAcquire());
+		final CircuitState beforeThreshold = breaker.getState();
+		breaker.onFailure(breaker.tryAcquire());
+
+		// Assert
+		assertEquals(CircuitState.CLOSED, beforeThreshold);
+		assertEquals(CircuitState.OPEN, breakers.getState(this.task.resourceKey()));
+		assertEquals(CircuitBreaker.NO_PERMIT, breaker.tryAcquire());
+		assertTrue(breaker.rejectsSubmission());
+		assertEquals(2, breakers.getShortCircuitCount(this.task.resourceKey()));
+		assertEquals(Arrays.asList("CLOSED->OPEN"), changes);
+	}
+
+	@Test
+	public void GivenAClosedBreakerWhenOldFailuresLeaveTheWindowThenOnlyRecentAttemptsCount()
+	{
+		// Arrange
+		final CircuitBreaker breaker = new CircuitBreakers(0.75, 4, 60000).breakerFor(this.task);
+
+		// Act
+		for (final boolean failed : new boolean[] { true, true, false, false, false, true, true })
+		{
+			if (failed)
+			{
+				breaker.onFailure(breaker.tryAcquire());
+			} else
+			{
+				breaker.onSuccess(breaker.tryAcquire());
+			}
+		}
+		final CircuitState halfFailed = breaker.getState();
+		breaker.onFailure(breaker.tryAcquire());
+
+		// Assert
+		assertEquals(CircuitState.CLOSED, halfFailed);
+		assertEquals(CircuitState.OPEN, breaker.getState());
+	}
+
+	@Test
+	public void GivenAnOpenBreakerWhenItsOpenTimeElapsesThenTrialsDecideWhetherItCloses() throws InterruptedException
+	{
+		// Arrange
+		final List<String> changes = new ArrayList<String>();
+		final CircuitBreakers breakers = new CircuitBreakers(1, 2, 20).withHalfOpenTrials(2)
+				.withListener((resourceKey, from, to) -> changes.add(from + "->" + to));
+		final CircuitBreaker breaker = breakers.breakerFor(this.task);
+		breaker.onFailure(breaker.tryAcquire());
+		breaker.onFailure(breaker.tryAcquire());
+		Thread.sleep(30);
+
+		// Act & Assert
+		final long firstTrial = breaker.tryAcquire();
+		assertNotEquals(CircuitBreaker.NO_PERMIT, firstTrial);
+		assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+		assertNotEquals(CircuitBreaker.NO_PERMIT, breaker.tryAcquire());
+		assertEquals(CircuitBreaker.NO_PERMIT, breaker.tryAcquire());
+		breaker.onFailure(firstTrial);
+		assertEquals(CircuitState.OPEN, breaker.getState());
+		Thread.sleep(30);
+		final long secondTrial = breaker.tryAcquire();
+		assertNotEquals(CircuitBreaker.NO_PERMIT, secondTrial);
+		assertNotEquals(CircuitBreaker.NO_PERMIT, breaker.tryAcquire());
+		breaker.release(secondTrial);
+		final long thirdTrial = breaker.tryAcquire();
+		assertNotEquals(CircuitBreaker.NO_PERMIT, thirdTrial);
+		breaker.onSuccess(secondTrial);
+		breaker.onSuccess(thirdTrial);
+		assertEquals(CircuitState.CLOSED, breaker.getState());
+		assertEquals(Arrays.asList("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN", "OPEN->HALF_OPEN",
+				"HALF_OPEN->CLOSED"), changes);
+	}
+
+	@Test
+	public void GivenAHalfOpenBreakerWhenAnAttemptLetThroughBeforeItOpenedFinishesThenItsOutcomeIsIgnored()
+			throws InterruptedException
+	{
+		// Arrange
+		final CircuitBreakers breakers = new CircuitBreakers(1, 2, 20).withHalfOpenTrials(1);
+		final CircuitBreaker breaker = breakers.breakerFor(this.task);
+		final long closedSuccess = breaker.tryAcquire();
+		final long closedRelease = breaker.tryAcquire();
+		breaker.onFailure(breaker.tryAcquire());
+		breaker.onFailure(breaker.tryAcquire());
+		Thread.sleep(30);
+		final long trial = breaker.tryAcquire();
+
+		// Act
+		breaker.onSuccess(closedSuccess);
+		breaker.release(closedRelease);
+
+		// Assert
+		assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+		assertEquals(CircuitBreaker.NO_PERMIT, breaker.tryAcquire());
+		breaker.onSuccess(trial);
+		assertEquals(CircuitState.CLOSED, breaker.getState());
+	}
+
+}
@@ -0,0 +1,95 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ErrorReportingTests
+{
+
+	@Test
+	public void GivenARateLimitWhenABurstOfErrorsReportedThenTheRestAreSuppressedAndCounted()
+	{
+		// Arrange
+		final List<Long> suppressedCounts = new ArrayList<Long>();
+		final ErrorReporting errorReporting = new ErrorReporting(
+				(task, attempt, error, suppressed) -> suppressedCounts.add(suppressed))
+						.withRateLimit(IllegalStateException.class, 0.001, 2);
+		final ITask<?> task = mock(ITask.class);
+
+		// Act
+		for (int i = 0; i < 10; i++)
+		{
+			errorReporting.report(task, 1, new IllegalStateException());
+		}
+		errorReporting.report(task, 1, new IllegalArgumentException());
+
+		// Assert
+		assertEquals(Arrays.asList(0L, 0L, 0L), suppressedCounts);
+		assertEquals(10, errorReporting.getErrorCount(IllegalStateException.class));
+		assertEquals(2, errorReporting.getReportedCount(IllegalStateException.class));
+		assertEquals(1, errorReporting.getReportedCount(IllegalArgumentException.class));
+		assertEquals(2, errorReporting.getErrorCounts().size());
+	}
+
+	@Test
+	public void GivenDefaultSamplingWhenErrorsReportedThenEachClassIsSampledSeparately()
+	{
+		// Arrange
+		final List<String> reports = new ArrayList<String>();
+		final ErrorReporting errorReporting = new ErrorReporting(
+				(task, attempt, error, suppressed) -> reports.add(error.getClass().getSimpleName() + ":" + suppressed))
+						.withDefaultSampling(3);
+		final ITask<?> task = mock(ITask.class);
+
+		// Act
+		for (int i = 0; i < 4; i++)
+		{
+			errorReporting.report(task, 1, new IllegalStateException());
+			errorReporting.report(task, 1, new IllegalArgumentException());
+		}
+
+		// Assert
+		assertEquals(Arrays.asList("IllegalStateException:0", "IllegalArgumentException:0",
+				"IllegalStateException:2", "IllegalArgumentException:2"), reports);
+	}
+
+	@Test
+	public void GivenAListenerThatThrowsWhenAnErrorReportedThenTheExceptionIsIgnored()
+	{
+		// Arrange
+		final ErrorReporting errorReporting = new ErrorReporting((task, attempt, error, suppressed) ->
+		{
+			throw new IllegalStateException("listener");
+		});
+
+		// Act
+		errorReporting.report(mock(ITask.class), 1, new IllegalArgumentException());
+
+		// Assert
+		assertEquals(1, errorReporting.getReportedCount(IllegalArgumentException.class));
+	}
+
+	@Test
+	public void GivenInvalidArgumentsWhenReportingConfiguredThenExceptionThrown()
+	{
+		// Arrange
+		final ErrorReporting errorReporting = new ErrorReporting((task, attempt, error, suppressed) ->
+		{
+		});
+
+		// Act & Assert
+		assertThrows(NullPointerException.class, () -> new ErrorReporting(null));
+		assertThrows(IllegalArgumentException.class, () -> errorReporting.withSampling(Exception.class, 0));
+		assertThrows(IllegalArgumentException.class, () -> errorReporting.withDefaultSampling(0));
+		assertThrows(IllegalArgumentException.class, () -> errorReporting.withRateLimit(Exception.class, 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> errorReporting.withDefaultRateLimit(1, 0));
+	}
+
+}
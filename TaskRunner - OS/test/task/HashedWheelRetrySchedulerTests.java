@@ -0,0 +1,198 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HashedWheelRetrySchedulerTests
+{
+	private final HashedWheelRetryScheduler scheduler = new HashedWheelRetryScheduler(1, 8);
+
+	@After
+	public void StopScheduler()
+	{
+		this.scheduler.shutdownNow();
+	}
+
+	@Test
+	public void GivenAScheduledRetryWhenDelayElapsesThenRetryRunsNoEarlierThanItsDelay() throws InterruptedException
+	{
+		// Arrange
+		final CountDownLatch ran = new CountDownLatch(1);
+		final long start = System.nanoTime();
+
+		// Act
+		this.scheduler.schedule(ran::countDown, 20);
+		final boolean completed = ran.await(1, TimeUnit.SECONDS);
+		final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// Assert
+		assertTrue("Retry should have run.", completed);
+		assertTrue("Retry should not run before its delay. Elapsed: " + elapsedMillis, elapsedMillis >= 20);
+	}
+
+	@Test
+	public void GivenADelayLongerThanOneTurnOfTheWheelWhenScheduledThenRetryWaitsForTheFullDelay()
+			throws InterruptedException
+	{
+		// Arrange
+		final CountDownLatch ran = new CountDownLatch(1);
+		final long start = System.nanoTime();
+
+		// Act
+		this.scheduler.schedule(ran::countDown, 50);
+		final boolean completed = ran.await(1, TimeUnit.SECONDS);
+		final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// Assert
+		assertTrue("Retry should have run.", completed);
+		assertTrue("Retry should wait several turns of an 8 tick wheel. Elapsed: " + elapsedMillis,
+				elapsedMillis >= 50);
+	}
+
+	@Test
+	public void GivenACancelledRetryWhenDelayElapsesThenRetryDoesNotRun() throws InterruptedException
+	{
+		// Arrange
+		final AtomicInteger runs = new AtomicInteger();
+		final RetryScheduler.ScheduledRetry retry = this.scheduler.schedule(runs::incrementAndGet, 10);
+
+		// Act
+		final boolean cancelled = retry.cancel();
+		Thread.sleep(50);
+
+		// Assert
+		assertTrue("First cancel should succeed.", cancelled);
+		assertFalse("Second cancel should report the retry as already cancelled.", retry.cancel());
+		assertEquals(0, runs.get());
+		assertEquals(0, this.scheduler.getPendingRetries());
+	}
+
+	@Test
+	public void GivenPendingRetriesWhenShutdownThenRetriesStillRunAndSchedulerTerminates()
+			throws InterruptedException
+	{
+		// Arrange
+		final CountDownLatch ran = new CountDownLatch(2);
+		this.scheduler.schedule(ran::countDown, 5);
+		this.scheduler.schedule(ran::countDown, 15);
+
+		// Act
+		this.scheduler.shutdown();
+		final boolean terminated = this.scheduler.awaitTermination(1, TimeUnit.SECONDS);
+
+		// Assert
+		assertTrue("Scheduler should terminate once pending retries have run.", terminated);
+		assertEquals(0, ran.getCount());
+	}
+
+	@Test
+	public void GivenARetryThatHasRunWhenRescheduledWithItsHandleThenTheHandleIsReusedAndRunsAgain()
+			throws InterruptedException
+	{
+		// Arrange
+		final CountDownLatch firstRun = new CountDownLatch(1);
+		final CountDownLatch secondRun = new CountDownLatch(1);
+		final RetryScheduler.ScheduledRetry first = this.scheduler.schedule(firstRun::countDown, 1);
+		assertTrue("First retry should have run.", firstRun.await(1, TimeUnit.SECONDS));
+
+		// Act
+		final RetryScheduler.ScheduledRetry second = this.scheduler.reschedule(first, secondRun::countDown, 1);
+		final boolean ran = secondRun.await(1, TimeUnit.SECONDS);
+
+		// Assert
+		assertSame(first, second);
+		assertTrue("Rescheduled retry should have run.", ran);
+		assertEquals(0, this.scheduler.getPendingRetries());
+	}
+
+	@Test
+	public void GivenACancelledRetryWhenRescheduledWithItsHandleThenANewHandleIsUsed() throws InterruptedException
+	{
+		// Arrange
+		final AtomicInteger runs = new AtomicInteger();
+		final RetryScheduler.ScheduledRetry cancelled = this.scheduler.schedule(runs::incrementAndGet, 10);
+		cancelled.cancel();
+
+		// Act
+		final RetryScheduler.ScheduledRetry retry = this.scheduler.reschedule(cancelled, runs::incrementAndGet, 1);
+		Thread.sleep(50);
+
+		// Assert
+		assertNotSame(cancelled, retry);
+		assertFalse("The cancelled retry should stay cancelled.", cancelled.cancel());
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	public void GivenRetriesScheduledWhileShuttingDownWhenTheSchedulerTerminatesThenEveryAcceptedRetryHasRun()
+			throws InterruptedException
+	{
+		for (int round = 0; round < 20; round++)
+		{
+			// Arrange
+			final HashedWheelRetryScheduler scheduler = new HashedWheelRetryScheduler(1, 8);
+			final AtomicInteger accepted = new AtomicInteger();
+			final AtomicInteger ran = new AtomicInteger();
+			final CountDownLatch schedulersDone = new CountDownLatch(2);
+			for (int i = 0; i < 2; i++)
+			{
+				new Thread(() -> {
+					try
+					{
+						for (;;)
+						{
+							scheduler.schedule(ran::incrementAndGet, 0);
+							accepted.incrementAndGet();
+						}
+					} catch (final RejectedExecutionException e)
+					{
+						// Shut down.
+					} finally
+					{
+						schedulersDone.countDown();
+					}
+				}).start();
+			}
+
+			// Act
+			Thread.sleep(2);
+			scheduler.shutdown();
+			assertTrue(schedulersDone.await(5, TimeUnit.SECONDS));
+			final boolean terminated = scheduler.awaitTermination(5, TimeUnit.SECONDS);
+
+			// Assert
+			assertTrue("Scheduler should terminate.", terminated);
+			assertEquals("Every retry accepted should run before the scheduler terminates.", accepted.get(),
+					ran.get());
+		}
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void GivenAShutdownSchedulerWhenRetryScheduledThenExceptionThrown()
+	{
+		// Arrange
+		this.scheduler.shutdown();
+
+		// Act
+		this.scheduler.schedule(() -> {
+		}, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void GivenAZeroTickLengthWhenSchedulerCreatedThenExceptionThrown()
+	{
+		// Arrange
+		new HashedWheelRetryScheduler(0, 8);
+	}
+}
@@ -0,0 +1,84 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTests
+{
+
+	@Test
+	public void GivenSmallValuesWhenRecordedThenTheyAreReportedExactly()
+	{
+		// Arrange
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		// Act
+		for (int value = 1; value <= 10; value++)
+		{
+			histogram.record(value);
+		}
+		final HistogramSnapshot snapshot = histogram.snapshot();
+
+		// Assert
+		assertEquals(10, snapshot.getCount());
+		assertEquals(55, snapshot.getSum());
+		assertEquals(5.5, snapshot.getMean(), 0.0001);
+		assertEquals(5, snapshot.getValueAtPercentile(50));
+		assertEquals(10, snapshot.getValueAtPercentile(100));
+		assertEquals(10, snapshot.getMax());
+	}
+
+	@Test
+	public void GivenLargeValuesWhenRecordedThenEachIsReportedWithinItsBucketPrecision()
+	{
+		// Arrange
+		final long[] values = { 17, 1000, 123456, 987654321, 3600000000000L };
+
+		for (final long value : values)
+		{
+			final LatencyHistogram histogram = new LatencyHistogram();
+
+			// Act
+			histogram.record(value);
+			final long reported = histogram.snapshot().getMax();
+
+			// Assert
+			assertTrue("Reported value " + reported + " should not be below " + value, reported >= value);
+			assertTrue("Reported value " + reported + " should be within 6.25% of " + value,
+					reported - value <= value / LatencyHistogram.SUB_BUCKET_COUNT);
+		}
+	}
+
+	@Test
+	public void GivenEveryBucketWhenBoundsCalculatedThenBucketsAreContiguous()
+	{
+		// Act & Assert
+		for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++)
+		{
+			assertEquals(LatencyHistogram.highestValue(i - 1) + 1, LatencyHistogram.lowestValue(i));
+			assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.lowestValue(i)));
+			assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.highestValue(i)));
+		}
+		assertEquals(LatencyHistogram.MAX_TRACKABLE_VALUE,
+				LatencyHistogram.highestValue(LatencyHistogram.BUCKET_COUNT - 1));
+	}
+
+	@Test
+	public void GivenOutOfRangeValuesWhenRecordedThenTheyAreClamped()
+	{
+		// Arrange
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		// Act
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+		final HistogramSnapshot snapshot = histogram.snapshot();
+
+		// Assert
+		assertEquals(2, snapshot.getCount());
+		assertEquals(0, snapshot.getValueAtPercentile(50));
+		assertEquals(LatencyHistogram.MAX_TRACKABLE_VALUE, snapshot.getMax());
+	}
+}
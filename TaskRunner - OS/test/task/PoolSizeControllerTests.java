@@ -0,0 +1,119 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.IntToDoubleFunction;
+
+import org.junit.Test;
+
+public class PoolSizeControllerTests
+{
+
+	@Test
+	public void GivenCpuBoundLoadWhenSampledThenTheSizeSettlesAtTheKneeWithoutOscillating()
+	{
+		// Arrange
+		final PoolSizeController controller = new PoolSizeController(1, 64);
+		// Four cores: extra threads only add contention.
+		final IntToDoubleFunction throughput = size -> 1000 * Math.min(size, 4) - 10 * Math.max(0, size - 4);
+
+		// Act
+		final int[] sizes = PoolSizeControllerTests.simulate(controller, 1, throughput, 60);
+
+		// Assert
+		PoolSizeControllerTests.assertSettled(sizes, 20, 4, 4);
+	}
+
+	@Test
+	public void GivenIoBoundLoadWhenSampledThenTheSizeClimbsToWhereThroughputStopsGrowing()
+	{
+		// Arrange
+		final PoolSizeController controller = new PoolSizeController(1, 64);
+		// Blocking attempts: throughput grows with threads until the target saturates at 40.
+		final IntToDoubleFunction throughput = size -> 100 * Math.min(size, 40);
+
+		// Act
+		final int[] sizes = PoolSizeControllerTests.simulate(controller, 1, throughput, 120);
+
+		// Assert
+		PoolSizeControllerTests.assertSettled(sizes, 40, 38, 42);
+	}
+
+	@Test
+	public void GivenASettledSizeWhenTheLoadChangesThenTheSizeFollowsIt()
+	{
+		// Arrange
+		final PoolSizeController controller = new PoolSizeController(1, 64);
+		final int[] before = PoolSizeControllerTests.simulate(controller, 1, size -> 1000 * Math.min(size, 4), 20);
+
+		// Act: throughput at the settled size is unchanged, so only the periodic check finds the new best size.
+		final int[] after = PoolSizeControllerTests.simulate(controller, before[before.length - 1],
+				size -> 1000 * Math.min(size, 16), 120);
+
+		// Assert
+		PoolSizeControllerTests.assertSettled(after, 60, 16, 17);
+	}
+
+	@Test
+	public void GivenNothingQueuedWhenSampledThenIdleThreadsAreTrimmedWithinBounds()
+	{
+		// Arrange
+		final PoolSizeController controller = new PoolSizeController(2, 64);
+		int size = 10;
+
+		// Act
+		for (int i = 0; i < 20; i++)
+		{
+			size = controller.nextSize(size, 500, 0, 1);
+		}
+
+		// Assert
+		assertEquals(2, size);
+		assertEquals(3, new PoolSizeController(1, 64).nextSize(3, 500, 0, 2));
+		assertEquals(4, new PoolSizeController(4, 64).nextSize(4, 500, 0, 0));
+	}
+
+	/**
+	 * Feeds the controller samples of a backlogged pool whose throughput at each
+	 * size is given by <code>throughput</code>.
+	 *
+	 * @return the size after each sample.
+	 */
+	private static int[] simulate(PoolSizeController controller, int size, IntToDoubleFunction throughput,
+			int samples)
+	{
+		final int[] sizes = new int[samples];
+		for (int i = 0; i < samples; i++)
+		{
+			size = controller.nextSize(size, throughput.applyAsDouble(size), 100, size);
+			sizes[i] = size;
+		}
+		return sizes;
+	}
+
+	/**
+	 * Asserts that from sample <code>from</code> on the pool stays at one size
+	 * between <code>min</code> and <code>max</code>, apart from single samples a
+	 * step either side of it while the controller checks the best size has not
+	 * moved.
+	 */
+	private static void assertSettled(int[] sizes, int from, int min, int max)
+	{
+		final int settled = sizes[from];
+		assertTrue("Expected to settle between " + min + " and " + max + ". Actual: " + settled,
+				settled >= min && settled <= max);
+		int away = 0;
+		for (int i = from; i < sizes.length; i++)
+		{
+			assertTrue("Size moved more than a step after settling at sample " + i + ": " + sizes[i],
+					Math.abs(sizes[i] - settled) <= 1);
+			if (sizes[i] != settled)
+			{
+				away++;
+			}
+		}
+		assertTrue("Size was away from where it settled for " + away + " samples", away <= (sizes.length - from) / 10);
+	}
+
+}
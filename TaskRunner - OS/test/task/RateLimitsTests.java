@@ -0,0 +1,64 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import util.tasks.FileCheckerTask;
+import util.tasks.PortAvailableTask;
+
+public class RateLimitsTests
+{
+
+	@Test
+	public void GivenATaskClassLimitAndAResourceLimitWhenReservedThenTheLongerWaitApplies()
+	{
+		// Arrange
+		final RateLimits rateLimits = new RateLimits().forTaskClass(FileCheckerTask.class, 1000, 1)
+				.forResource(new FileCheckerTask<Boolean>("dir/file").resourceKey(), 1, 1);
+
+		// Act
+		final long first = rateLimits.reserve(new FileCheckerTask<Boolean>("dir/file"));
+		final long second = rateLimits.reserve(new FileCheckerTask<Boolean>("dir/other"));
+
+		// Assert
+		assertEquals(0, first);
+		assertTrue("Expected close to a second's wait. Actual: " + second, second > 900000000L);
+	}
+
+	@Test
+	public void GivenALimitForEachResourceWhenReservedThenOnlyTasksAgainstTheSameResourceShareIt()
+	{
+		// Arrange
+		final RateLimits rateLimits = new RateLimits().forEachResource(1, 1);
+
+		// Act
+		final long firstDirectory = rateLimits.reserve(new FileCheckerTask<Boolean>("one/file"));
+		final long secondDirectory = rateLimits.reserve(new FileCheckerTask<Boolean>("two/file"));
+		final long firstDirectoryAgain = rateLimits.reserve(new FileCheckerTask<Boolean>("one/other"));
+
+		// Assert
+		assertEquals(0, firstDirectory);
+		assertEquals(0, secondDirectory);
+		assertTrue("Expected close to a second's wait. Actual: " + firstDirectoryAgain,
+				firstDirectoryAgain > 900000000L);
+	}
+
+	@Test
+	public void GivenATaskNotSubjectToAnyLimitWhenReservedThenItNeverWaits()
+	{
+		// Arrange
+		final RateLimits rateLimits = new RateLimits().forTaskClass(FileCheckerTask.class, 1, 1);
+
+		// Act & Assert
+		for (int i = 0; i < 10; i++)
+		{
+			assertEquals(0, rateLimits.reserve(new PortAvailableTask<Boolean>(8080)));
+		}
+		assertThrows(IllegalArgumentException.class, () -> rateLimits.forEachResource(1, 0));
+		assertThrows(NullPointerException.class, () -> rateLimits.forResource(null, 1, 1));
+	}
+
+}
@@ -0,0 +1,127 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+
+import util.tasks.FileCheckerTask;
+import util.tasks.PortAvailableTask;
+
+public class ResultCacheTests
+{
+
+	@Test
+	public void GivenAStoredResultWhenLookedUpThenItIsAHit()
+	{
+		// Arrange
+		final ResultCache cache = new ResultCache(10, 60000, 60000);
+		final ResultCache.Key key = ResultCache.keyFor(new PortAvailableTask<Boolean>(8080), Boolean.class);
+		cache.put(key, true, true);
+
+		// Act
+		final Object hit = cache.get(ResultCache.keyFor(new PortAvailableTask<Boolean>(8080), Boolean.class));
+		final Object miss = cache.get(ResultCache.keyFor(new PortAvailableTask<Boolean>(8081), Boolean.class));
+
+		// Assert
+		assertEquals(true, hit);
+		assertNull(miss);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRate(), 0.0001);
+	}
+
+	@Test
+	public void GivenEquivalentKeysOfDifferentTaskClassesWhenLookedUpThenTheyDoNotShareResults()
+	{
+		// Arrange
+		final ResultCache cache = new ResultCache(10, 60000, 60000);
+		cache.put(new ResultCache.Key(FileCheckerTask.class, Boolean.class, "8080"), true, true);
+
+		// Act
+		final Object result = cache.get(new ResultCache.Key(PortAvailableTask.class, Boolean.class, "8080"));
+
+		// Assert
+		assertNull(result);
+	}
+
+	@Test
+	public void GivenANegativeResultWhenItsShorterTtlElapsesThenItExpires() throws InterruptedException
+	{
+		// Arrange
+		final ResultCache cache = new ResultCache(10, 60000, 20);
+		final ResultCache.Key positiveKey = new ResultCache.Key(PortAvailableTask.class, Boolean.class, 1);
+		final ResultCache.Key negativeKey = new ResultCache.Key(PortAvailableTask.class, Boolean.class, 2);
+		cache.put(positiveKey, true, true);
+		cache.put(negativeKey, false, false);
+
+		// Act
+		Thread.sleep(50);
+
+		// Assert
+		assertEquals(true, cache.get(positiveKey));
+		assertNull(cache.get(negativeKey));
+		assertEquals(1, cache.getExpirationCount());
+	}
+
+	@Test
+	public void GivenATtlForATaskClassWhenNegativeTtlIsZeroThenNegativeResultsAreNotCached()
+	{
+		// Arrange
+		final ResultCache cache = new ResultCache(10, 60000, 60000).withTtl(FileCheckerTask.class, 60000, 0);
+		final ResultCache.Key fileKey = new ResultCache.Key(FileCheckerTask.class, Boolean.class, "missing");
+		final ResultCache.Key portKey = new ResultCache.Key(PortAvailableTask.class, Boolean.class, 80);
+
+		// Act
+		cache.put(fileKey, false, false);
+		cache.put(portKey, false, false);
+
+		// Assert
+		assertNull(cache.get(fileKey));
+		assertEquals(false, cache.get(portKey));
+	}
+
+	@Test
+	public void GivenAFullCacheWhenResultStoredThenLeastRecentlyUsedIsEvicted()
+	{
+		// Arrange
+		final ResultCache cache = new ResultCache(2, 60000, 60000);
+		final ResultCache.Key first = new ResultCache.Key(PortAvailableTask.class, Boolean.class, 1);
+		final ResultCache.Key second = new ResultCache.Key(PortAvailableTask.class, Boolean.class, 2);
+		final ResultCache.Key third = new ResultCache.Key(PortAvailableTask.class, Boolean.class, 3);
+
+		// Act
+		for (int i = 1; i <= 100; i++)
+		{
+			cache.put(new ResultCache.Key(PortAvailableTask.class, Boolean.class, i), true, true);
+		}
+
+		// Assert
+		assertEquals(2, cache.size());
+		assertEquals(98, cache.getEvictionCount());
+		assertNull(cache.get(first));
+		assertNull(cache.get(second));
+		assertNull(cache.get(third));
+	}
+
+	@Test
+	public void GivenATaskWithoutACacheKeyWhenKeyRequestedThenThereIsNone()
+	{
+		// Arrange
+		final ITask<Boolean> mockTask = mock(ITask.class);
+
+		// Act & Assert
+		assertNull(ResultCache.keyFor(mockTask, Boolean.class));
+	}
+
+	@Test
+	public void GivenAnOutOfRangeSizeWhenCacheCreatedThenExceptionThrown()
+	{
+		// Act & Assert
+		assertThrows(IllegalArgumentException.class, () -> new ResultCache(0, 1, 1));
+		assertThrows(IllegalArgumentException.class, () -> new ResultCache(1, 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new ResultCache(1, 1, -1));
+	}
+}
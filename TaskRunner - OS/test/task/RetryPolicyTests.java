@@ -0,0 +1,124 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class RetryPolicyTests
+{
+
+	@Test
+	public void GivenAFixedPolicyWhenDelaysCalculatedThenEveryDelayIsTheSame()
+	{
+		// Arrange
+		final RetryPolicy policy = RetryPolicy.fixed(10, 250);
+
+		// Act
+		final long first = policy.delayMillis(1, 0);
+		final long ninth = policy.delayMillis(9, first);
+
+		// Assert
+		assertEquals(250, first);
+		assertEquals(250, ninth);
+		assertEquals(10, policy.getMaxAttempts());
+	}
+
+	@Test
+	public void GivenAnExponentialPolicyWhenDelaysCalculatedThenDelayDoublesUpToTheCap()
+	{
+		// Arrange
+		final RetryPolicy policy = RetryPolicy.exponential(100, 10, 1000);
+
+		// Act & Assert
+		assertEquals(10, policy.delayMillis(1, 0));
+		assertEquals(20, policy.delayMillis(2, 10));
+		assertEquals(640, policy.delayMillis(7, 320));
+		assertEquals(1000, policy.delayMillis(8, 640));
+		assertEquals(1000, policy.delayMillis(99, 1000));
+	}
+
+	@Test
+	public void GivenAFullJitterPolicyWhenDelaysCalculatedThenDelaysStayWithinTheExponentialBound()
+	{
+		// Arrange
+		final RetryPolicy policy = RetryPolicy.fullJitter(100, 10, 1000);
+
+		// Act & Assert
+		for (int i = 0; i < 1000; i++)
+		{
+			final long delay = policy.delayMillis(3, 0);
+			assertTrue("Delay should be in the range 0-40. Actual: " + delay, delay >= 0 && delay <= 40);
+		}
+	}
+
+	@Test
+	public void GivenADecorrelatedJitterPolicyWhenDelaysCalculatedThenDelaysStayBetweenBaseAndThreeTimesPrevious()
+	{
+		// Arrange
+		final RetryPolicy policy = RetryPolicy.decorrelatedJitter(100, 10, 1000);
+
+		// Act & Assert
+		for (int i = 0; i < 1000; i++)
+		{
+			final long delay = policy.delayMillis(3, 100);
+			assertTrue("Delay should be in the range 10-300. Actual: " + delay, delay >= 10 && delay <= 300);
+			final long capped = policy.delayMillis(3, 900);
+			assertTrue("Delay should be capped at 1000. Actual: " + capped, capped <= 1000);
+		}
+	}
+
+	@Test
+	public void GivenAPolicyWithRetryOnAndAbortOnWhenExceptionsCheckedThenOnlyMatchingExceptionsAreRetried()
+	{
+		// Arrange
+		final RetryPolicy policy = RetryPolicy.fixed(3, 1).retryOn(IOException.class)
+				.abortOn(FileNotFoundException.class);
+
+		// Act & Assert
+		assertTrue(policy.shouldRetry(new IOException()));
+		assertFalse(policy.shouldRetry(new FileNotFoundException()));
+		assertFalse(policy.shouldRetry(new IllegalStateException()));
+	}
+
+	@Test
+	public void GivenAnyPolicyWhenClassCastExceptionCheckedThenItIsNeverRetried()
+	{
+		// Arrange
+		final RetryPolicy policy = RetryPolicy.fixed(3, 1).retryOn(RuntimeException.class);
+
+		// Act & Assert
+		assertFalse(policy.shouldRetry(new ClassCastException()));
+	}
+
+	@Test
+	public void GivenADescribedPolicyWhenRebuiltFromItsDescriptionThenItBehavesTheSame()
+	{
+		// Arrange
+		final RetryPolicy policy = RetryPolicy.exponential(4, 10, 1000).retryOn(IOException.class)
+				.abortOn(FileNotFoundException.class);
+
+		// Act
+		final RetryPolicy rebuilt = RetryPolicy.fromDescription(policy.describe());
+
+		// Assert
+		assertEquals(policy.describe(), rebuilt.describe());
+		assertEquals(4, rebuilt.getMaxAttempts());
+		assertEquals(40, rebuilt.delayMillis(3, 20));
+		assertTrue(rebuilt.shouldRetry(new IOException()));
+		assertFalse(rebuilt.shouldRetry(new FileNotFoundException()));
+		assertNull(RetryPolicy.of(4, (failedAttempts, previousDelayMillis) -> 0).describe());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void GivenZeroAttemptsWhenPolicyCreatedThenExceptionThrown()
+	{
+		// Arrange
+		RetryPolicy.fixed(0, 1);
+	}
+}
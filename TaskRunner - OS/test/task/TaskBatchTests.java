@@ -0,0 +1,143 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class TaskBatchTests
+{
+
+	@Test
+	public void GivenABatchWhenAllTasksSucceedThenAllOfReturnsResultsInSubmissionOrder()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final CompletableFuture<Integer> first = new CompletableFuture<Integer>();
+		final CompletableFuture<Integer> second = new CompletableFuture<Integer>();
+		final TaskBatch<Integer> batch = new TaskBatch<Integer>(Arrays.asList(first, second));
+
+		// Act
+		final Future<List<Integer>> all = batch.allOf();
+		second.complete(2);
+		assertFalse("allOf should wait for every task.", all.isDone());
+		first.complete(1);
+
+		// Assert
+		assertEquals(Arrays.asList(1, 2), all.get());
+	}
+
+	@Test
+	public void GivenABatchWhenOneTaskFailsThenAllOfFailsWithThatException()
+	{
+		// Arrange
+		final CompletableFuture<Integer> first = new CompletableFuture<Integer>();
+		final CompletableFuture<Integer> second = new CompletableFuture<Integer>();
+		final TaskBatch<Integer> batch = new TaskBatch<Integer>(Arrays.asList(first, second));
+
+		// Act
+		final Future<List<Integer>> all = batch.allOf();
+		first.complete(1);
+		second.completeExceptionally(new IllegalStateException());
+
+		// Assert
+		final ExecutionException exception = assertThrows(ExecutionException.class, () -> all.get());
+		assertEquals(IllegalStateException.class, exception.getCause().getClass());
+	}
+
+	@Test
+	public void GivenABatchWhenFirstTaskFailsAndSecondSucceedsThenAnyOfReturnsSuccessfulResult()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final CompletableFuture<Integer> first = new CompletableFuture<Integer>();
+		final CompletableFuture<Integer> second = new CompletableFuture<Integer>();
+		final TaskBatch<Integer> batch = new TaskBatch<Integer>(Arrays.asList(first, second));
+
+		// Act
+		final Future<Integer> any = batch.anyOf();
+		first.completeExceptionally(new IllegalStateException());
+		assertFalse("anyOf should not fail while a task can still succeed.", any.isDone());
+		second.complete(2);
+
+		// Assert
+		assertEquals(Integer.valueOf(2), any.get());
+	}
+
+	@Test
+	public void GivenABatchWhenTooManyTasksFailThenFirstNFails()
+	{
+		// Arrange
+		final CompletableFuture<Integer> first = new CompletableFuture<Integer>();
+		final CompletableFuture<Integer> second = new CompletableFuture<Integer>();
+		final CompletableFuture<Integer> third = new CompletableFuture<Integer>();
+		final TaskBatch<Integer> batch = new TaskBatch<Integer>(Arrays.asList(first, second, third));
+
+		// Act
+		final Future<List<Integer>> firstTwo = batch.firstN(2);
+		first.complete(1);
+		second.completeExceptionally(new IllegalStateException());
+		third.completeExceptionally(new IllegalArgumentException());
+
+		// Assert
+		final ExecutionException exception = assertThrows(ExecutionException.class, () -> firstTwo.get());
+		assertEquals(IllegalArgumentException.class, exception.getCause().getClass());
+	}
+
+	@Test
+	public void GivenABatchWhenFirstNTasksSucceedThenFirstNReturnsResultsInCompletionOrder()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final CompletableFuture<Integer> first = new CompletableFuture<Integer>();
+		final CompletableFuture<Integer> second = new CompletableFuture<Integer>();
+		final CompletableFuture<Integer> third = new CompletableFuture<Integer>();
+		final TaskBatch<Integer> batch = new TaskBatch<Integer>(Arrays.asList(first, second, third));
+
+		// Act
+		final Future<List<Integer>> firstTwo = batch.firstN(2);
+		third.complete(3);
+		first.complete(1);
+
+		// Assert
+		assertTrue(firstTwo.isDone());
+		assertEquals(Arrays.asList(3, 1), firstTwo.get());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void GivenABatchWhenMoreResultsRequestedThanTasksThenExceptionThrown()
+	{
+		// Arrange
+		final TaskBatch<Integer> batch = new TaskBatch<Integer>(
+				Arrays.asList(new CompletableFuture<Integer>()));
+
+		// Act
+		batch.firstN(2);
+	}
+
+	@Test
+	public void GivenABatchWithOneCompletedTaskWhenCancelAllCalledThenOnlyPendingTasksAreCancelled()
+	{
+		// Arrange
+		final CompletableFuture<Integer> first = new CompletableFuture<Integer>();
+		final CompletableFuture<Integer> second = new CompletableFuture<Integer>();
+		final TaskBatch<Integer> batch = new TaskBatch<Integer>(Arrays.asList(first, second));
+		first.complete(1);
+
+		// Act
+		final int cancelled = batch.cancelAll(true);
+
+		// Assert
+		assertEquals(1, cancelled);
+		assertFalse(first.isCancelled());
+		assertTrue(second.isCancelled());
+	}
+}
@@ -0,0 +1,209 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class TaskGraphTests
+{
+
+	@Test
+	public void GivenAFanOutAndFanInWhenRunThenEachNodeReceivesItsDependenciesResults()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(2);
+		final TaskGraph graph = new TaskGraph(taskRunner);
+		final TaskGraph.Node<Integer> source = graph.add("source", TaskGraphTests.completing(2),
+				RetryPolicy.fixed(1, 1), Integer.class);
+		final TaskGraph.Node<Integer> doubled = graph.add("doubled",
+				results -> TaskGraphTests.completing(results.get(source) * 2), RetryPolicy.fixed(1, 1),
+				Integer.class, source);
+		final TaskGraph.Node<Integer> squared = graph.add("squared",
+				results -> TaskGraphTests.completing(results.get(source) * results.get(source)),
+				RetryPolicy.fixed(1, 1), Integer.class, source);
+		final TaskGraph.Node<Integer> sum = graph.add("sum",
+				results -> TaskGraphTests.completing(results.get(doubled) + results.get(squared)),
+				RetryPolicy.fixed(1, 1), Integer.class, doubled, squared);
+
+		// Act
+		final TaskGraphRun run = graph.run();
+		run.allOf().get(5, TimeUnit.SECONDS);
+
+		// Assert
+		assertEquals(Integer.valueOf(4), run.get(doubled).get());
+		assertEquals(Integer.valueOf(4), run.get(squared).get());
+		assertEquals(Integer.valueOf(8), run.get(sum).get());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAFailingNodeWhenRunThenDownstreamNodesAreNotRunAndOtherBranchesAre()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(2);
+		final TaskGraph graph = new TaskGraph(taskRunner);
+		final ITask<Integer> failingTask = mock(ITask.class);
+		final IllegalStateException failure = new IllegalStateException();
+		when(failingTask.call(Integer.class)).thenThrow(failure);
+		final ITask<Integer> downstreamTask = TaskGraphTests.completing(1);
+		final TaskGraph.Node<Integer> failing = graph.add("failing", failingTask, RetryPolicy.fixed(1, 1),
+				Integer.class);
+		final TaskGraph.Node<Integer> child = graph.add("child", downstreamTask, RetryPolicy.fixed(1, 1),
+				Integer.class, failing);
+		final TaskGraph.Node<Integer> grandchild = graph.add("grandchild", downstreamTask, RetryPolicy.fixed(1, 1),
+				Integer.class, child);
+		final TaskGraph.Node<Integer> independent = graph.add("independent", TaskGraphTests.completing(3),
+				RetryPolicy.fixed(1, 1), Integer.class);
+
+		// Act
+		final TaskGraphRun run = graph.run();
+		assertThrows(ExecutionException.class, () -> run.allOf().get(5, TimeUnit.SECONDS));
+
+		// Assert
+		final ExecutionException childException = assertThrows(ExecutionException.class, () -> run.get(child).get());
+		assertEquals(DependencyFailedException.class, childException.getCause().getClass());
+		assertEquals("failing", ((DependencyFailedException) childException.getCause()).getDependencyName());
+		final ExecutionException grandchildException = assertThrows(ExecutionException.class,
+				() -> run.get(grandchild).get());
+		assertSame(childException.getCause(), grandchildException.getCause().getCause());
+		assertEquals(Integer.valueOf(3), run.get(independent).get());
+		verify(downstreamTask, never()).call(Integer.class);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenALongChainWhenItsFirstNodeFailsThenEveryDownstreamNodeFailsWithoutOverflowingTheStack()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final TaskGraph graph = new TaskGraph(taskRunner);
+		final ITask<Integer> failingTask = mock(ITask.class);
+		when(failingTask.call(Integer.class)).thenThrow(new IllegalStateException());
+		final ITask<Integer> downstreamTask = TaskGraphTests.completing(1);
+		TaskGraph.Node<Integer> previous = graph.add("node0", failingTask, RetryPolicy.fixed(1, 1), Integer.class);
+		for (int i = 1; i < 20000; i++)
+		{
+			previous = graph.add("node" + i, downstreamTask, RetryPolicy.fixed(1, 1), Integer.class, previous);
+		}
+		final TaskGraph.Node<Integer> last = previous;
+
+		// Act
+		final TaskGraphRun run = graph.run();
+		assertThrows(ExecutionException.class, () -> run.allOf().get(5, TimeUnit.SECONDS));
+
+		// Assert
+		final ExecutionException lastException = assertThrows(ExecutionException.class, () -> run.get(last).get());
+		assertEquals(DependencyFailedException.class, lastException.getCause().getClass());
+		verify(downstreamTask, never()).call(Integer.class);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAFullBlockingRunnerWhenANodeReleasesSeveralSuccessorsThenTheRunCompletes()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1, 1, AdmissionPolicy.BLOCK);
+		final TaskGraph graph = new TaskGraph(taskRunner);
+		final TaskGraph.Node<Integer> root = graph.add("root", TaskGraphTests.completing(1), RetryPolicy.fixed(1, 1),
+				Integer.class);
+		final TaskGraph.Node<Integer> first = graph.add("first", TaskGraphTests.completing(2),
+				RetryPolicy.fixed(1, 1), Integer.class, root);
+		final TaskGraph.Node<Integer> second = graph.add("second", TaskGraphTests.completing(3),
+				RetryPolicy.fixed(1, 1), Integer.class, root);
+		final TaskGraph.Node<Integer> third = graph.add("third", TaskGraphTests.completing(4),
+				RetryPolicy.fixed(1, 1), Integer.class, root);
+
+		// Act
+		final TaskGraphRun run = graph.run();
+		run.allOf().get(5, TimeUnit.SECONDS);
+
+		// Assert
+		assertEquals(Integer.valueOf(2), run.get(first).get());
+		assertEquals(Integer.valueOf(3), run.get(second).get());
+		assertEquals(Integer.valueOf(4), run.get(third).get());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenACompletedRunWhenCriticalPathRequestedThenItFollowsTheSlowestBranch()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(2);
+		final TaskGraph graph = new TaskGraph(taskRunner);
+		final CountDownLatch releaseSlow = new CountDownLatch(1);
+		final TaskGraph.Node<Integer> slow = graph.add("slow", results -> {
+			final ITask<Integer> task = TaskGraphTests.completing(1);
+			when(task.call(Integer.class)).thenAnswer(invocation -> {
+				releaseSlow.await(5, TimeUnit.SECONDS);
+				Thread.sleep(20);
+				return 1;
+			});
+			return task;
+		}, RetryPolicy.fixed(1, 1), Integer.class);
+		final TaskGraph.Node<Integer> fast = graph.add("fast", TaskGraphTests.completing(2), RetryPolicy.fixed(1, 1),
+				Integer.class);
+		final TaskGraph.Node<Integer> join = graph.add("join", TaskGraphTests.completing(3), RetryPolicy.fixed(1, 1),
+				Integer.class, slow, fast);
+		final TaskGraphRun run = graph.run();
+		run.get(fast).get(5, TimeUnit.SECONDS);
+		assertThrows(IllegalStateException.class, () -> run.getCriticalPath());
+		releaseSlow.countDown();
+
+		// Act
+		run.allOf().get(5, TimeUnit.SECONDS);
+		final CriticalPath criticalPath = run.getCriticalPath();
+
+		// Assert
+		assertEquals(Arrays.asList("slow", "join"), criticalPath.getNodeNames());
+		assertTrue("The slow node should take at least its sleep. Actual: " + criticalPath,
+				criticalPath.getNodeNanos().get(0) >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertTrue("The path cannot be longer than the run. Actual: " + criticalPath, criticalPath
+				.getTotalNanos() >= criticalPath.getNodeNanos().get(0) + criticalPath.getNodeNanos().get(1));
+		assertEquals(Integer.valueOf(3), run.get(join).get());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenANodeFromAnotherGraphWhenAddedAsDependencyThenExceptionThrown()
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final TaskGraph other = new TaskGraph(taskRunner);
+		final TaskGraph.Node<Integer> foreign = other.add("foreign", TaskGraphTests.completing(1),
+				RetryPolicy.fixed(1, 1), Integer.class);
+		final TaskGraph graph = new TaskGraph(taskRunner);
+
+		// Act & Assert
+		assertThrows(IllegalArgumentException.class,
+				() -> graph.add("node", TaskGraphTests.completing(2), RetryPolicy.fixed(1, 1), Integer.class, foreign));
+		assertEquals(0, graph.size());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ITask<Integer> completing(int result)
+	{
+		final ITask<Integer> task = mock(ITask.class);
+		when(task.call(Integer.class)).thenReturn(result);
+		when(task.isComplete()).thenReturn(true);
+		return task;
+	}
+
+}
@@ -0,0 +1,295 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import util.tasks.FileCheckerTask;
+
+public class TaskJournalTests
+{
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void GivenATaskWaitingToRetryWhenTheJournalIsReopenedThenItIsReplayedWithTheAttemptsItHadLeft()
+			throws IOException, InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final Path directory = this.folder.newFolder("journal").toPath();
+		final String missingFile = new File(this.folder.getRoot(), "missing").getAbsolutePath();
+		this.crashWithPendingRetry(directory, missingFile);
+
+		// Act
+		final List<TaskHandle<?>> handles;
+		final TaskRunner taskRunner = new TaskRunner(1);
+		try (TaskJournal journal = TaskJournal.open(directory))
+		{
+			journal.registerFactory(FileCheckerTask.DESCRIPTOR_KEY, FileCheckerTask::fromDescriptor);
+			taskRunner.setJournal(journal);
+			assertEquals(1, journal.getPendingCount());
+			handles = journal.recover(taskRunner);
+			assertEquals(1, handles.size());
+			assertEquals(false, handles.get(0).get(5, TimeUnit.SECONDS));
+			assertEquals(0, journal.getPendingCount());
+		}
+
+		// Assert
+		assertEquals(2, handles.get(0).getAttempts());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+		try (TaskJournal journal = TaskJournal.open(directory))
+		{
+			assertEquals(0, journal.getPendingCount());
+		}
+	}
+
+	@Test
+	public void GivenACompletedTaskWhenTheJournalIsReopenedThenItIsNotReplayed()
+			throws IOException, InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final Path directory = this.folder.newFolder("journal").toPath();
+		final String existingFile = this.folder.newFile("existing").getAbsolutePath();
+		final TaskRunner taskRunner = new TaskRunner(1);
+		try (TaskJournal journal = TaskJournal.open(directory))
+		{
+			taskRunner.setJournal(journal);
+			assertTrue(taskRunner.runTaskAsync(new FileCheckerTask<Boolean>(existingFile), RetryPolicy.fixed(3, 1),
+					Boolean.class).get(5, TimeUnit.SECONDS));
+		}
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+
+		// Act
+		try (TaskJournal journal = TaskJournal.open(directory))
+		{
+			journal.registerFactory(FileCheckerTask.DESCRIPTOR_KEY, FileCheckerTask::fromDescriptor);
+
+			// Assert
+			assertEquals(0, journal.getPendingCount());
+			assertTrue(journal.recover(new TaskRunner(1)).isEmpty());
+		}
+	}
+
+	@Test
+	public void GivenMoreSegmentsThanTheLimitWhenRecordsAppendedThenTheJournalIsCompactedAndKeepsPendingTasks()
+			throws IOException, InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final Path directory = this.folder.newFolder("journal").toPath();
+		final String existingFile = this.folder.newFile("existing").getAbsolutePath();
+		final HeldRetryScheduler retryScheduler = new HeldRetryScheduler();
+		final TaskRunner taskRunner = new TaskRunner(1, ExecutionMode.PLATFORM_THREADS, retryScheduler);
+		try (TaskJournal journal = TaskJournal.open(directory, 1024, 5, 2))
+		{
+			taskRunner.setJournal(journal);
+			taskRunner.runTaskAsync(new FileCheckerTask<Boolean>(new File(this.folder.getRoot(), "missing").getPath()),
+					RetryPolicy.fixed(3, 1), Boolean.class);
+			assertTrue(retryScheduler.scheduled.await(5, TimeUnit.SECONDS));
+
+			// Act
+			for (int i = 0; i < 100; i++)
+			{
+				taskRunner.runTaskAsync(new FileCheckerTask<Boolean>(existingFile), RetryPolicy.fixed(3, 1),
+						Boolean.class).get(5, TimeUnit.SECONDS);
+			}
+			// Compaction happens in the background; syncing does it now if it is due.
+			journal.sync();
+
+			// Assert
+			assertTrue("Expected at most 3 segments. Actual: " + journal.getSegmentCount(),
+					journal.getSegmentCount() <= 3);
+			assertEquals(1, journal.getPendingCount());
+		}
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+		try (TaskJournal journal = TaskJournal.open(directory, 1024, 5, 2))
+		{
+			assertEquals(1, journal.getPendingCount());
+		}
+	}
+
+	@Test
+	public void GivenABurstOfRecordsFillingManySegmentsWhenTheJournalIsReopenedThenEveryPendingTaskIsReplayed()
+			throws IOException
+	{
+		// Arrange
+		final Path directory = this.folder.newFolder("journal").toPath();
+		final String missingFile = new File(this.folder.getRoot(), "missing").getAbsolutePath();
+		try (TaskJournal journal = TaskJournal.open(directory, 1024, 1000, 3))
+		{
+			// Act
+			for (int i = 0; i < 200; i++)
+			{
+				journal.recordSubmitted(new FileCheckerTask<Boolean>(missingFile + i), RetryPolicy.fixed(3, 1),
+						Boolean.class);
+			}
+		}
+
+		// Assert
+		try (TaskJournal journal = TaskJournal.open(directory, 1024, 1000, 3))
+		{
+			assertEquals(200, journal.getPendingCount());
+			assertEquals(null, journal.getFailure());
+		}
+	}
+
+	@Test
+	public void GivenAThrottledTaskWhenTheRetryTimerRefusesItThenItStaysInTheJournal()
+			throws IOException, InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final Path directory = this.folder.newFolder("journal").toPath();
+		final String existingFile = this.folder.newFile("existing").getAbsolutePath();
+		final TaskRunner taskRunner = new TaskRunner(1, ExecutionMode.PLATFORM_THREADS, new RejectingRetryScheduler());
+		taskRunner.setRateLimits(new RateLimits().forTaskClass(FileCheckerTask.class, 0.001, 1));
+		try (TaskJournal journal = TaskJournal.open(directory))
+		{
+			taskRunner.setJournal(journal);
+
+			// Act
+			final TaskHandle<Boolean> admitted = taskRunner.runTaskAsync(new FileCheckerTask<Boolean>(existingFile),
+					RetryPolicy.fixed(1, 1), Boolean.class);
+			assertTrue(admitted.get(5, TimeUnit.SECONDS));
+			final TaskHandle<Boolean> throttled = taskRunner.runTaskAsync(
+					new FileCheckerTask<Boolean>(existingFile), RetryPolicy.fixed(1, 1), Boolean.class);
+			assertThrows(ExecutionException.class, () -> throttled.get(5, TimeUnit.SECONDS));
+
+			// Assert
+			assertEquals(1, journal.getPendingCount());
+		}
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenACorruptRecordWhenTheJournalIsReopenedThenReplayStopsBeforeIt()
+			throws IOException, InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final Path directory = this.folder.newFolder("journal").toPath();
+		final String missingFile = new File(this.folder.getRoot(), "missing").getAbsolutePath();
+		this.crashWithPendingRetry(directory, missingFile);
+		try (RandomAccessFile segment = new RandomAccessFile(
+				directory.resolve("segment-0000000000000000.journal").toFile(), "rw"))
+		{
+			// Flip the last byte of the second record, the scheduled retry.
+			final int firstLength = segment.readInt();
+			segment.seek(8 + firstLength);
+			final int secondLength = segment.readInt();
+			final long lastByte = 8 + firstLength + 8 + secondLength - 1;
+			segment.seek(lastByte);
+			final int value = segment.read();
+			segment.seek(lastByte);
+			segment.write(value ^ 0xFF);
+		}
+
+		// Act
+		final TaskRunner taskRunner = new TaskRunner(1);
+		try (TaskJournal journal = TaskJournal.open(directory))
+		{
+			journal.registerFactory(FileCheckerTask.DESCRIPTOR_KEY, FileCheckerTask::fromDescriptor);
+			final List<TaskHandle<?>> handles = journal.recover(taskRunner);
+
+			// Assert
+			assertEquals(1, handles.size());
+			assertFalse((Boolean) handles.get(0).get(5, TimeUnit.SECONDS));
+			assertEquals(3, handles.get(0).getAttempts());
+		}
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Runs the first of three attempts to find <code>missingFile</code>, then
+	 * closes the journal while the retry is waiting, as if the process had
+	 * stopped.
+	 */
+	private void crashWithPendingRetry(Path directory, String missingFile)
+			throws IOException, InterruptedException
+	{
+		final HeldRetryScheduler retryScheduler = new HeldRetryScheduler();
+		final TaskRunner taskRunner = new TaskRunner(1, ExecutionMode.PLATFORM_THREADS, retryScheduler);
+		try (TaskJournal journal = TaskJournal.open(directory))
+		{
+			taskRunner.setJournal(journal);
+			taskRunner.runTaskAsync(new FileCheckerTask<Boolean>(missingFile), RetryPolicy.fixed(3, 1),
+					Boolean.class);
+			assertTrue(retryScheduler.scheduled.await(5, TimeUnit.SECONDS));
+		}
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * A retry scheduler that refuses everything, as a runner's timer does once it
+	 * has shut down.
+	 */
+	private static final class RejectingRetryScheduler implements RetryScheduler
+	{
+		@Override
+		public ScheduledRetry schedule(Runnable command, long delayMillis)
+		{
+			throw new RejectedExecutionException("Shut down.");
+		}
+
+		@Override
+		public void shutdown()
+		{
+		}
+
+		@Override
+		public void shutdownNow()
+		{
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit)
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * A retry scheduler that never runs what it is given, so retries stay
+	 * pending.
+	 */
+	private static final class HeldRetryScheduler implements RetryScheduler
+	{
+		final CountDownLatch scheduled = new CountDownLatch(1);
+
+		@Override
+		public ScheduledRetry schedule(Runnable command, long delayMillis)
+		{
+			this.scheduled.countDown();
+			return () -> true;
+		}
+
+		@Override
+		public void shutdown()
+		{
+		}
+
+		@Override
+		public void shutdownNow()
+		{
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit)
+		{
+			return true;
+		}
+	}
+}
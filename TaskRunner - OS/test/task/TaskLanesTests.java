@@ -0,0 +1,86 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import util.tasks.FileCheckerTask;
+import util.tasks.PortAvailableTask;
+
+public class TaskLanesTests
+{
+
+	@Test
+	public void GivenTwoBackloggedLanesWhenPolledThenEachGetsTurnsInProportionToItsWeight() throws InterruptedException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final TaskLanes lanes = new TaskLanes(1).withLane("files", 3, FileCheckerTask.class).withLane("ports", 1,
+				PortAvailableTask.class);
+		for (int i = 0; i < 4; i++)
+		{
+			lanes.enqueue(new TaskExecution<Boolean>(taskRunner, new FileCheckerTask<Boolean>("file" + i),
+					RetryPolicy.fixed(1, 1), Boolean.class));
+		}
+		for (int i = 0; i < 4; i++)
+		{
+			lanes.enqueue(new TaskExecution<Boolean>(taskRunner, new PortAvailableTask<Boolean>(8080 + i),
+					RetryPolicy.fixed(1, 1), Boolean.class));
+		}
+
+		// Act
+		final StringBuilder order = new StringBuilder();
+		TaskExecution<?> next;
+		while ((next = lanes.poll()) != null)
+		{
+			order.append(next.task instanceof FileCheckerTask ? 'F' : 'P');
+		}
+
+		// Assert
+		assertEquals("FFFPFPPP", order.toString());
+		assertEquals(0, lanes.getQueueDepth("files"));
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAnUnassignedTaskClassWhenEnqueuedThenItRunsInTheDefaultLane() throws InterruptedException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final TaskLanes lanes = new TaskLanes(1).withLane("ports", 4, PortAvailableTask.class);
+		final TaskExecution<Boolean> execution = new TaskExecution<Boolean>(taskRunner,
+				new FileCheckerTask<Boolean>("file"), RetryPolicy.fixed(1, 1), Boolean.class);
+
+		// Act
+		lanes.enqueue(execution);
+
+		// Assert
+		assertEquals(TaskLanes.DEFAULT_LANE, lanes.getLaneName(FileCheckerTask.class));
+		assertEquals(1, lanes.getQueueDepth(TaskLanes.DEFAULT_LANE));
+		assertEquals(0, lanes.getQueueDepth("ports"));
+		assertSame(execution, lanes.poll());
+		assertNull(lanes.poll());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenInvalidLaneArgumentsWhenLaneAddedThenExceptionThrown()
+	{
+		// Arrange
+		final TaskLanes lanes = new TaskLanes(1).withLane("ports", 4, PortAvailableTask.class);
+
+		// Act & Assert
+		assertThrows(IllegalArgumentException.class, () -> new TaskLanes(0));
+		assertThrows(IllegalArgumentException.class, () -> lanes.withLane("files", 0, FileCheckerTask.class));
+		assertThrows(IllegalArgumentException.class, () -> lanes.withLane("ports", 1, FileCheckerTask.class));
+		assertThrows(IllegalArgumentException.class, () -> lanes.getQueueDepth("files"));
+		assertEquals(Arrays.asList(TaskLanes.DEFAULT_LANE, "ports"), lanes.getLaneNames());
+	}
+
+}
@@ -0,0 +1,79 @@
+package task;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class TaskRunnerMetricsTests
+{
+
+	@Test
+	public void GivenARegisteredMBeanWhenTasksRunThenAttributesReflectThem() throws Exception
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = new ObjectName("task:type=TaskRunner,name=TaskRunnerMetricsTests");
+		server.registerMBean(new TaskRunnerMetrics(taskRunner), name);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(false, true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(false, true);
+
+		try
+		{
+			// Act
+			taskRunner.runTaskAsync(mockSuccessfulTask, 2, 1, Boolean.class).get();
+			taskRunner.Shutdown(1, TimeUnit.SECONDS);
+
+			// Assert
+			assertEquals(1L, server.getAttribute(name, "SubmittedTasks"));
+			assertEquals(1L, server.getAttribute(name, "CompletedTasks"));
+			assertEquals(2L, server.getAttribute(name, "Attempts"));
+			assertEquals(1L, server.getAttribute(name, "Retries"));
+			assertEquals(0L, server.getAttribute(name, "FailedTasks"));
+			assertArrayEquals(new String[] { mockSuccessfulTask.getClass().getName() },
+					(String[]) server.getAttribute(name, "TaskClasses"));
+			assertTrue((Long) server.getAttribute(name, "AttemptDurationMaxNanos") > 0);
+		} finally
+		{
+			server.unregisterMBean(name);
+		}
+	}
+
+	@Test
+	public void GivenAFailingTaskWhenDescribedThenSummaryIncludesTheFailure()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ITask<Boolean> mockFailingTask = mock(ITask.class);
+		when(mockFailingTask.call(Boolean.class)).thenThrow(new IllegalStateException());
+		final TaskRunnerMetrics metrics = new TaskRunnerMetrics(taskRunner);
+
+		// Act
+		try
+		{
+			taskRunner.runTaskAsync(mockFailingTask, 1, 1, Boolean.class).get();
+		} catch (final ExecutionException e)
+		{
+			// Expected.
+		}
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+		final String description = metrics.describeTaskClass(mockFailingTask.getClass().getName());
+
+		// Assert
+		assertEquals(1, metrics.getFailedTasks());
+		assertTrue(description, description.contains("failed=1"));
+	}
+}
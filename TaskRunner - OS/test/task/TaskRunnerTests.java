@@ -5,18 +5,33 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.junit.Assume;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import util.tasks.FileCheckerTask;
+import util.tasks.PortAvailableTask;
+
 public class TaskRunnerTests
 {
 
@@ -295,4 +310,1045 @@ public class TaskRunnerTests
 		assertTrue("call() should be invoked once times.", verify(mockSuccessfulTask2, times(1)).call(any()));
 	}
 
+	@Test
+	public void GivenVirtualThreadModeWhenTaskSucceedsSecondTimeThenTaskRunnerReturnsCorrectly()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		Assume.assumeTrue("Virtual threads need JDK 21+", VirtualThreads.isSupported());
+		final TaskRunner taskRunner = new TaskRunner(1, ExecutionMode.VIRTUAL_THREADS);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(false, true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(false, true);
+
+		// Act
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockSuccessfulTask, 2, 1, Boolean.class);
+		final boolean result = pendingResult.get();
+
+		// Assert
+		assertTrue("Task should return true on successful completion. Expected: true, actual: " + result, result);
+		verify(mockSuccessfulTask, times(2)).call(Boolean.class);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAWorkStealingRunnerWhenTaskSucceedsAfterImmediateRetriesThenTaskRunnerReturnsCorrectly()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(2, ExecutionMode.WORK_STEALING);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(false, false, true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(false, false, true);
+		final List<ITask<Boolean>> tasks = Arrays.asList(mockSuccessfulTask, mockSuccessfulTask);
+
+		// Act
+		final boolean result = taskRunner
+				.runTaskAsync(mockSuccessfulTask, RetryPolicy.of(3, (failedAttempts, previousDelayMillis) -> 0),
+						Boolean.class)
+				.get();
+		final List<Boolean> batchResults = taskRunner.runTasksAsync(tasks, 1, 1, Boolean.class).allOf().get();
+
+		// Assert
+		assertTrue("Task should return true on successful completion. Expected: true, actual: " + result, result);
+		assertEquals(Arrays.asList(true, true), batchResults);
+		verify(mockSuccessfulTask, times(5)).call(Boolean.class);
+		assertTrue(taskRunner.Shutdown(1, TimeUnit.SECONDS));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void GivenAJvmWithoutVirtualThreadsWhenVirtualThreadRunnerCreatedThenExceptionThrown()
+	{
+		// Arrange
+		Assume.assumeFalse("Virtual threads are supported on this JVM", VirtualThreads.isSupported());
+
+		// Act
+		new TaskRunner(1, ExecutionMode.VIRTUAL_THREADS);
+	}
+
+	@Test
+	public void GivenABatchOfTasksWhenTasksSucceedThenEachFutureAndTheAggregateReturnCorrectly()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(2);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+		final ITask<Boolean> mockRetriedTask = mock(ITask.class);
+		when(mockRetriedTask.call(Boolean.class)).thenReturn(false, true);
+		when(mockRetriedTask.isComplete()).thenReturn(false, true);
+		final List<ITask<Boolean>> tasks = Arrays.asList(mockSuccessfulTask, mockRetriedTask, mockSuccessfulTask);
+
+		// Act
+		final TaskBatch<Boolean> batch = taskRunner.runTasksAsync(tasks, 2, 1, Boolean.class);
+		final List<Boolean> results = batch.allOf().get();
+
+		// Assert
+		assertEquals(Arrays.asList(true, true, true), results);
+		assertEquals(3, batch.getFutures().size());
+		verify(mockRetriedTask, times(2)).call(Boolean.class);
+	}
+
+	@Test
+	public void GivenABatchWithASlowTaskWhenTasksSubmittedThenTheRestCompleteWhileItRuns()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(2);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+		final List<ITask<Boolean>> tasks = Arrays.asList(TaskRunnerTests.blockingTask(release), mockSuccessfulTask,
+				mockSuccessfulTask, mockSuccessfulTask, mockSuccessfulTask);
+
+		// Act
+		final TaskBatch<Boolean> batch = taskRunner.runTasksAsync(tasks, 1, 1, Boolean.class);
+		final List<Boolean> firstResults = batch.firstN(4).get(5, TimeUnit.SECONDS);
+
+		// Assert
+		assertEquals(Arrays.asList(true, true, true, true), firstResults);
+		assertFalse(batch.getFutures().get(0).isDone());
+		release.countDown();
+		assertEquals(Arrays.asList(true, true, true, true, true), batch.allOf().get(5, TimeUnit.SECONDS));
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAnOpenCircuitBreakerWhenABatchSubmittedThenItsTasksAreShortCircuited()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final CircuitBreakers breakers = new CircuitBreakers(1, 1, 60000);
+		taskRunner.setCircuitBreakers(breakers);
+		final ITask<Boolean> mockFailingTask = mock(ITask.class);
+		when(mockFailingTask.call(Boolean.class)).thenThrow(new IllegalStateException("down"));
+		when(mockFailingTask.resourceKey()).thenReturn("down");
+		final TaskHandle<Boolean> tripping = taskRunner.runTaskAsync(mockFailingTask, RetryPolicy.fixed(1, 1),
+				Boolean.class);
+		assertThrows(ExecutionException.class, () -> tripping.get(5, TimeUnit.SECONDS));
+		breakers.withFallback(Boolean.class, false);
+
+		// Act
+		final TaskBatch<Boolean> batch = taskRunner.runTasksAsync(Arrays.asList(mockFailingTask, mockFailingTask),
+				1, 1, Boolean.class);
+
+		// Assert
+		assertEquals(Arrays.asList(false, false), batch.allOf().get(5, TimeUnit.SECONDS));
+		verify(mockFailingTask, times(1)).call(Boolean.class);
+		assertEquals(2, breakers.getShortCircuitCount("down"));
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void GivenABatchContainingANullTaskWhenTasksSubmittedThenExceptionThrown()
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+
+		// Act
+		taskRunner.runTasksAsync(Arrays.<ITask<Boolean>>asList((ITask<Boolean>) null), 1, 1, Boolean.class);
+	}
+
+	@Test
+	public void GivenATimingWheelRetrySchedulerWhenTaskSucceedsThirdTimeThenTaskRunnerReturnsCorrectly()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1, ExecutionMode.PLATFORM_THREADS,
+				new HashedWheelRetryScheduler());
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenThrow(new IllegalArgumentException()).thenReturn(false, true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(false, true);
+
+		// Act
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockSuccessfulTask, 3, 5, Boolean.class);
+		final boolean result = pendingResult.get();
+
+		// Assert
+		assertTrue("Task should return true on successful completion. Expected: true, actual: " + result, result);
+		verify(mockSuccessfulTask, times(3)).call(Boolean.class);
+		assertTrue("Runner should shut down cleanly.", taskRunner.Shutdown(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void GivenATaskWaitingToRetryWhenFutureCancelledThenNoFurtherAttemptsAreMade()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final CountDownLatch firstAttempt = new CountDownLatch(1);
+		final ITask<Boolean> mockFailingTask = mock(ITask.class);
+		when(mockFailingTask.call(Boolean.class)).thenAnswer(invocation -> {
+			firstAttempt.countDown();
+			return false;
+		});
+		when(mockFailingTask.isComplete()).thenReturn(false);
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockFailingTask, 5, 100, Boolean.class);
+		firstAttempt.await();
+
+		// Act
+		final boolean cancelled = pendingResult.cancel(false);
+		Thread.sleep(300);
+
+		// Assert
+		assertTrue("Future should be cancelled.", cancelled && pendingResult.isCancelled());
+		verify(mockFailingTask, times(1)).call(Boolean.class);
+		verify(mockFailingTask, times(1)).cancel();
+		assertEquals(1, taskRunner.getCancelledTaskCount());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenARunningTaskWhenFutureCancelledWithInterruptThenRunningAttemptIsInterrupted()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final CountDownLatch attemptStarted = new CountDownLatch(1);
+		final CountDownLatch attemptInterrupted = new CountDownLatch(1);
+		final ITask<Boolean> mockBlockingTask = mock(ITask.class);
+		when(mockBlockingTask.call(Boolean.class)).thenAnswer(invocation -> {
+			attemptStarted.countDown();
+			try
+			{
+				Thread.sleep(10000);
+			} catch (final InterruptedException e)
+			{
+				attemptInterrupted.countDown();
+			}
+			return false;
+		});
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockBlockingTask, 5, 1, Boolean.class);
+		attemptStarted.await();
+
+		// Act
+		pendingResult.cancel(true);
+
+		// Assert
+		assertTrue("Running attempt should be interrupted.", attemptInterrupted.await(1, TimeUnit.SECONDS));
+		Thread.sleep(50);
+		verify(mockBlockingTask, times(1)).call(Boolean.class);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAnAttemptThatHangsWhenAttemptTimeoutElapsesThenAttemptIsAbandonedAndTaskRetried()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ITask<Boolean> mockHangingTask = mock(ITask.class);
+		when(mockHangingTask.call(Boolean.class)).thenAnswer(invocation -> {
+			Thread.sleep(10000);
+			return false;
+		}).thenReturn(true);
+		when(mockHangingTask.isComplete()).thenReturn(true);
+		final long start = System.nanoTime();
+
+		// Act
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockHangingTask, 2, 1, Boolean.class, 5000,
+				100);
+		final boolean result = pendingResult.get();
+		final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// Assert
+		assertTrue("Second attempt should succeed. Expected: true, actual: " + result, result);
+		assertTrue("Hung attempt should be abandoned after its timeout. Elapsed: " + elapsedMillis,
+				elapsedMillis < 2000);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenARetryThatWouldStartAfterTheDeadlineWhenTaskFailsThenFutureFailsWithoutRetrying()
+			throws InterruptedException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ITask<Boolean> mockFailingTask = mock(ITask.class);
+		when(mockFailingTask.call(Boolean.class)).thenReturn(false);
+		when(mockFailingTask.isComplete()).thenReturn(false);
+
+		// Act
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockFailingTask, 5, 200, Boolean.class, 300,
+				1000);
+		final ExecutionException exception = assertThrows(ExecutionException.class, () -> pendingResult.get());
+
+		// Assert
+		assertEquals(TaskTimeoutException.class, exception.getCause().getClass());
+		verify(mockFailingTask, times(2)).call(Boolean.class);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAnAttemptThatHangsWithNoAttemptsRemainingWhenAttemptTimeoutElapsesThenFutureFailsWithTimeout()
+			throws InterruptedException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ITask<Boolean> mockHangingTask = mock(ITask.class);
+		when(mockHangingTask.call(Boolean.class)).thenAnswer(invocation -> {
+			Thread.sleep(10000);
+			return true;
+		});
+
+		// Act
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockHangingTask, 1, 1, Boolean.class, 5000,
+				50);
+		final ExecutionException exception = assertThrows(ExecutionException.class, () -> pendingResult.get());
+
+		// Assert
+		assertEquals(TaskTimeoutException.class, exception.getCause().getClass());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenATaskThatMissesItsDeadlineWhenItExpiresThenItIsCancelledAndCompletedOffTheTimerThread()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final RetryScheduler retryScheduler = new ScheduledExecutorRetryScheduler(1);
+		final CompletableFuture<Thread> timerThread = new CompletableFuture<Thread>();
+		retryScheduler.schedule(() -> timerThread.complete(Thread.currentThread()), 0);
+		final TaskRunner taskRunner = new TaskRunner(1, ExecutionMode.PLATFORM_THREADS, retryScheduler);
+		final CompletableFuture<Thread> cancellingThread = new CompletableFuture<Thread>();
+		final ITask<Boolean> mockHangingTask = mock(ITask.class);
+		when(mockHangingTask.call(Boolean.class)).thenAnswer(invocation -> {
+			Thread.sleep(10000);
+			return true;
+		});
+		doAnswer(invocation -> cancellingThread.complete(Thread.currentThread())).when(mockHangingTask)
+				.cancel();
+
+		// Act
+		final TaskHandle<Boolean> handle = taskRunner.runTaskAsync(mockHangingTask, 1, 1, Boolean.class, 50, 5000);
+		final CompletableFuture<Thread> completingThread = handle.toCompletableFuture()
+				.handle((result, e) -> Thread.currentThread());
+
+		// Assert
+		final ExecutionException exception = assertThrows(ExecutionException.class, () -> handle.get());
+		assertEquals(TaskTimeoutException.class, exception.getCause().getClass());
+		assertFalse(timerThread.get() == completingThread.get());
+		assertFalse(timerThread.get() == cancellingThread.get());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenARetryPolicyWithMoreThanFiveAttemptsWhenTaskSucceedsOnSeventhAttemptThenTaskRunnerReturnsCorrectly()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(false, false, false, false, false, false, true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(false, false, false, false, false, false, true);
+
+		// Act
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockSuccessfulTask,
+				RetryPolicy.exponential(10, 1, 4), Boolean.class);
+		final boolean result = pendingResult.get();
+
+		// Assert
+		assertTrue("Task should return true on successful completion. Expected: true, actual: " + result, result);
+		verify(mockSuccessfulTask, times(7)).call(Boolean.class);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenARetryPolicyThatAbortsOnAnExceptionWhenTaskThrowsItThenTaskIsNotRetried()
+			throws InterruptedException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ITask<Boolean> mockFailingTask = mock(ITask.class);
+		when(mockFailingTask.call(Boolean.class)).thenThrow(new IllegalStateException());
+
+		// Act
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockFailingTask,
+				RetryPolicy.fixed(5, 1).abortOn(IllegalStateException.class), Boolean.class);
+		final ExecutionException exception = assertThrows(ExecutionException.class, () -> pendingResult.get());
+
+		// Assert
+		assertEquals(IllegalStateException.class, exception.getCause().getClass());
+		verify(mockFailingTask, times(1)).call(Boolean.class);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAFullFailFastRunnerWhenTaskSubmittedThenSubmissionIsRejected()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1, 1, AdmissionPolicy.FAIL_FAST);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Future<Boolean> blockingResult = taskRunner.runTaskAsync(TaskRunnerTests.blockingTask(release),
+				RetryPolicy.fixed(1, 1), Boolean.class);
+		final ITask<Boolean> mockTask = mock(ITask.class);
+
+		// Act
+		assertThrows(TaskRejectedException.class,
+				() -> taskRunner.runTaskAsync(mockTask, RetryPolicy.fixed(1, 1), Boolean.class));
+		release.countDown();
+
+		// Assert
+		verify(mockTask, times(0)).call(Boolean.class);
+		assertEquals(1, taskRunner.getRejectedTaskCount());
+		assertTrue(blockingResult.get());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+		assertEquals(0, taskRunner.getAdmittedTaskCount());
+	}
+
+	@Test
+	public void GivenAFullBlockingRunnerWhenTaskSubmittedThenSubmitterWaitsForRoom()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1, 1, AdmissionPolicy.BLOCK);
+		final CountDownLatch release = new CountDownLatch(1);
+		taskRunner.runTaskAsync(TaskRunnerTests.blockingTask(release), RetryPolicy.fixed(1, 1), Boolean.class);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+		final Thread releaser = new Thread(() -> {
+			while (taskRunner.getWaitingSubmissionCount() == 0)
+			{
+				Thread.yield();
+			}
+			release.countDown();
+		});
+		releaser.start();
+
+		// Act
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockSuccessfulTask, RetryPolicy.fixed(1, 1),
+				Boolean.class);
+		final boolean result = pendingResult.get();
+
+		// Assert
+		assertTrue("Task should return true on successful completion. Expected: true, actual: " + result, result);
+		assertEquals(0, taskRunner.getRejectedTaskCount());
+		releaser.join();
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAFullBlockingRunnerWhenAContinuationSubmitsMoreWorkThenItIsAdmittedInTheFinishedTasksPlace()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(2, 1, AdmissionPolicy.BLOCK);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+		final TaskHandle<Boolean> first = taskRunner.runTaskAsync(TaskRunnerTests.blockingTask(release),
+				RetryPolicy.fixed(1, 1), Boolean.class);
+		final CompletableFuture<TaskHandle<Boolean>> next = first.toCompletableFuture()
+				.thenApply(result -> taskRunner.runTaskAsync(mockSuccessfulTask, RetryPolicy.fixed(1, 1), Boolean.class));
+
+		// Act
+		release.countDown();
+		final boolean result = next.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+
+		// Assert
+		assertTrue(result);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAFullDropOldestRunnerWhenTaskSubmittedThenOldestWaitingTaskIsDropped()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1, 2, AdmissionPolicy.DROP_OLDEST);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch started = new CountDownLatch(1);
+		final ITask<Boolean> mockRunningTask = mock(ITask.class);
+		when(mockRunningTask.call(Boolean.class)).thenAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return true;
+		});
+		taskRunner.runTaskAsync(mockRunningTask, RetryPolicy.fixed(1, 1), Boolean.class);
+		started.await();
+		final ITask<Boolean> mockDroppedTask = mock(ITask.class);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+
+		// Act
+		final Future<Boolean> droppedResult = taskRunner.runTaskAsync(mockDroppedTask, RetryPolicy.fixed(1, 1),
+				Boolean.class);
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockSuccessfulTask, RetryPolicy.fixed(1, 1),
+				Boolean.class);
+		release.countDown();
+		final ExecutionException exception = assertThrows(ExecutionException.class, () -> droppedResult.get());
+
+		// Assert
+		assertEquals(TaskRejectedException.class, exception.getCause().getClass());
+		assertTrue(pendingResult.get());
+		verify(mockDroppedTask, times(0)).call(Boolean.class);
+		assertEquals(1, taskRunner.getRejectedTaskCount());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAFullCallerRunsRunnerWhenTaskSubmittedThenSubmittingThreadRunsIt()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1, 1, AdmissionPolicy.CALLER_RUNS);
+		final CountDownLatch release = new CountDownLatch(1);
+		taskRunner.runTaskAsync(TaskRunnerTests.blockingTask(release), RetryPolicy.fixed(1, 1), Boolean.class);
+		final Thread caller = Thread.currentThread();
+		final Thread[] runner = new Thread[1];
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenAnswer(invocation -> {
+			runner[0] = Thread.currentThread();
+			return true;
+		});
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+
+		// Act
+		final Future<Boolean> pendingResult = taskRunner.runTaskAsync(mockSuccessfulTask, RetryPolicy.fixed(1, 1),
+				Boolean.class);
+		release.countDown();
+
+		// Assert
+		assertTrue(pendingResult.isDone());
+		assertTrue(pendingResult.get());
+		assertEquals(caller, runner[0]);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAFullRunnerWhenTaskSubmittedThroughTrySubmitThenSignalCompletesOnceThereIsRoom()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1, 1, AdmissionPolicy.FAIL_FAST);
+		final CountDownLatch release = new CountDownLatch(1);
+		taskRunner.runTaskAsync(TaskRunnerTests.blockingTask(release), RetryPolicy.fixed(1, 1), Boolean.class);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+		final ITask<Boolean> mockWithdrawnTask = mock(ITask.class);
+
+		// Act
+		final CompletableFuture<Future<Boolean>> admitted = taskRunner.trySubmit(mockSuccessfulTask,
+				RetryPolicy.fixed(1, 1), Boolean.class);
+		final CompletableFuture<Future<Boolean>> withdrawn = taskRunner.trySubmit(mockWithdrawnTask,
+				RetryPolicy.fixed(1, 1), Boolean.class);
+		final boolean waitedForRoom = !admitted.isDone() && taskRunner.getWaitingSubmissionCount() == 2;
+		withdrawn.cancel(false);
+		release.countDown();
+		final boolean result = admitted.get().get();
+
+		// Assert
+		assertTrue("Signal should only complete once there is room.", waitedForRoom);
+		assertTrue("Task should return true on successful completion. Expected: true, actual: " + result, result);
+		verify(mockWithdrawnTask, times(0)).call(Boolean.class);
+		assertEquals(0, taskRunner.getWaitingSubmissionCount());
+		assertEquals(0, taskRunner.getRejectedTaskCount());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	private static ITask<Boolean> blockingTask(CountDownLatch release)
+	{
+		final ITask<Boolean> mockBlockingTask = mock(ITask.class);
+		when(mockBlockingTask.call(Boolean.class)).thenAnswer(invocation -> {
+			release.await();
+			return true;
+		});
+		when(mockBlockingTask.isComplete()).thenReturn(true);
+		return mockBlockingTask;
+	}
+
+	@Test
+	public void GivenATaskThatSucceedsSecondTimeWhenMetricsSnapshotTakenThenAttemptsAndOutcomeAreRecorded()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(false, true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(false, true);
+
+		// Act
+		taskRunner.runTaskAsync(mockSuccessfulTask, 2, 1, Boolean.class).get();
+		final MetricsSnapshot metrics = taskRunner.getMetrics();
+
+		// Assert
+		final TaskMetricsSnapshot taskMetrics = metrics.getByTaskClass().get(mockSuccessfulTask.getClass().getName());
+		assertEquals(1, taskMetrics.getSubmitted());
+		assertEquals(2, taskMetrics.getAttempts());
+		assertEquals(1, taskMetrics.getRetries());
+		assertEquals(1, taskMetrics.getCompleted());
+		assertEquals(2, taskMetrics.getAttemptDuration().getCount());
+		assertEquals(2, taskMetrics.getQueueWait().getCount());
+		assertEquals(2, taskMetrics.getAttemptsPerTask().getMax());
+		assertEquals(1, metrics.getTotal().getCompleted());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void GivenARateLimitWhenTasksSubmittedThenHeldBackAttemptsLeaveTheWorkerFreeAndAreRecorded()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		taskRunner.setRateLimits(new RateLimits().forTaskClass(FileCheckerTask.class, 5, 1));
+		final ITask<Boolean> mockUnlimitedTask = mock(ITask.class);
+		when(mockUnlimitedTask.call(Boolean.class)).thenReturn(true);
+		when(mockUnlimitedTask.isComplete()).thenReturn(true);
+		final List<TaskHandle<Boolean>> limited = new ArrayList<TaskHandle<Boolean>>();
+
+		// Act
+		for (int i = 0; i < 3; i++)
+		{
+			limited.add(taskRunner.runTaskAsync(new FileCheckerTask<Boolean>("file" + i), RetryPolicy.fixed(1, 1),
+					Boolean.class));
+		}
+		final TaskHandle<Boolean> unlimited = taskRunner.runTaskAsync(mockUnlimitedTask, RetryPolicy.fixed(1, 1),
+				Boolean.class);
+
+		// Assert
+		assertTrue(unlimited.get(150, TimeUnit.MILLISECONDS));
+		assertFalse(limited.get(2).isDone());
+		for (final TaskHandle<Boolean> handle : limited)
+		{
+			assertFalse(handle.get(5, TimeUnit.SECONDS));
+			assertEquals(1, handle.getAttempts());
+		}
+		assertTrue(limited.get(2).getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(350));
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+		final TaskMetricsSnapshot taskMetrics = taskRunner.getMetrics().getByTaskClass()
+				.get(FileCheckerTask.class.getName());
+		assertEquals(2, taskMetrics.getThrottled());
+		assertEquals(2, taskMetrics.getThrottleWait().getCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void GivenAdaptivePoolSizingWhenBlockingTasksBackUpThenThePoolGrowsWithinItsBounds()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		taskRunner.setAdaptivePoolSizing(new AdaptivePoolSizing(1, 8, 20));
+		final ITask<Boolean> mockBlockingTask = mock(ITask.class);
+		when(mockBlockingTask.call(Boolean.class)).thenAnswer(invocation -> {
+			Thread.sleep(5);
+			return true;
+		});
+		when(mockBlockingTask.isComplete()).thenReturn(true);
+		final List<TaskHandle<Boolean>> handles = new ArrayList<TaskHandle<Boolean>>();
+
+		// Act
+		for (int i = 0; i < 400; i++)
+		{
+			handles.add(taskRunner.runTaskAsync(mockBlockingTask, RetryPolicy.fixed(1, 1), Boolean.class));
+		}
+		int poolSize = 0;
+		for (final TaskHandle<Boolean> handle : handles)
+		{
+			handle.get(10, TimeUnit.SECONDS);
+			poolSize = Math.max(poolSize, taskRunner.getMetrics().getPoolSize());
+		}
+
+		// Assert
+		assertTrue("Expected the pool to grow from 1 to at most 8. Actual: " + poolSize,
+				poolSize > 1 && poolSize <= 8);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+		assertThrows(UnsupportedOperationException.class, () -> new TaskRunner(1, ExecutionMode.WORK_STEALING)
+				.setAdaptivePoolSizing(new AdaptivePoolSizing(1, 8)));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void GivenAFailingResourceWhenItsBreakerOpensThenAttemptsStopAndSubmissionsFailFastOrFallBack()
+			throws InterruptedException, TimeoutException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final CircuitBreakers breakers = new CircuitBreakers(1, 2, 60000);
+		taskRunner.setCircuitBreakers(breakers);
+		final ITask<Boolean> mockFailingTask = mock(ITask.class);
+		when(mockFailingTask.call(Boolean.class)).thenThrow(new IllegalStateException("down"));
+		when(mockFailingTask.resourceKey()).thenReturn("down");
+
+		// Act
+		final TaskHandle<Boolean> first = taskRunner.runTaskAsync(mockFailingTask, RetryPolicy.fixed(5, 1),
+				Boolean.class);
+		final ExecutionException firstFailure = assertThrows(ExecutionException.class,
+				() -> first.get(5, TimeUnit.SECONDS));
+		final TaskHandle<Boolean> second = taskRunner.runTaskAsync(mockFailingTask, RetryPolicy.fixed(5, 1),
+				Boolean.class);
+		breakers.withFallback(Boolean.class, false);
+		final TaskHandle<Boolean> third = taskRunner.runTaskAsync(mockFailingTask, RetryPolicy.fixed(5, 1),
+				Boolean.class);
+
+		// Assert
+		assertTrue(firstFailure.getCause() instanceof CircuitOpenException);
+		assertEquals(2, first.getAttempts());
+		assertTrue(second.toCompletableFuture().isCompletedExceptionally());
+		assertEquals(0, second.getAttempts());
+		assertTrue(third.isDone());
+		assertFalse(third.toCompletableFuture().getNow(true));
+		verify(mockFailingTask, times(2)).call(Boolean.class);
+		assertEquals(CircuitState.OPEN, breakers.getState("down"));
+		assertEquals(3, breakers.getShortCircuitCount("down"));
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenErrorReportingWhenAttemptsThrowThenSampledErrorsAreReportedAndTheFailureReachesTheFuture()
+			throws InterruptedException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final List<String> reports = Collections.synchronizedList(new ArrayList<String>());
+		final ErrorReporting errorReporting = new ErrorReporting(
+				(task, attempt, error, suppressed) -> reports.add(attempt + ":" + suppressed))
+						.withSampling(ExpectedFailureException.class, 2);
+		taskRunner.setErrorReporting(errorReporting);
+		final ExpectedFailureException failure = new ExpectedFailureException("not ready");
+		final ITask<Boolean> mockFailingTask = mock(ITask.class);
+		when(mockFailingTask.call(Boolean.class)).thenThrow(failure);
+
+		// Act
+		final TaskHandle<Boolean> handle = taskRunner.runTaskAsync(mockFailingTask, RetryPolicy.fixed(3, 1),
+				Boolean.class);
+		final ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> handle.get(5, TimeUnit.SECONDS));
+
+		// Assert
+		assertEquals(failure, exception.getCause());
+		assertEquals(0, failure.getStackTrace().length);
+		assertEquals(Arrays.asList("1:0", "3:1"), reports);
+		assertEquals(3, errorReporting.getErrorCount(ExpectedFailureException.class));
+		assertEquals(2, errorReporting.getReportedCount(ExpectedFailureException.class));
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenMetricsDisabledWhenTaskRunThenNothingIsRecorded() throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		taskRunner.setMetricsEnabled(false);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+
+		// Act
+		taskRunner.runTaskAsync(mockSuccessfulTask, 1, 1, Boolean.class).get();
+
+		// Assert
+		assertTrue(taskRunner.getMetrics().getByTaskClass().isEmpty());
+		assertEquals(0, taskRunner.getMetrics().getTotal().getSubmitted());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenALatencySampleIntervalBelowOneWhenSetThenExceptionThrown() throws InterruptedException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+
+		// Act & Assert
+		assertThrows(IllegalArgumentException.class, () -> taskRunner.setLatencySampleInterval(0));
+		assertEquals(1, taskRunner.getLatencySampleInterval());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAResultCacheWhenAnEquivalentTaskIsSubmittedAgainThenCachedResultIsReturnedWithoutRunningIt()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ResultCache cache = new ResultCache(100, 60000, 60000);
+		taskRunner.setResultCache(cache);
+		final ITask<Boolean> mockFirstTask = mock(ITask.class);
+		when(mockFirstTask.cacheKey()).thenReturn("key");
+		when(mockFirstTask.call(Boolean.class)).thenReturn(true);
+		when(mockFirstTask.isComplete()).thenReturn(true);
+		final ITask<Boolean> mockSecondTask = mock(ITask.class);
+		when(mockSecondTask.cacheKey()).thenReturn("key");
+
+		// Act
+		final boolean first = taskRunner.runTaskAsync(mockFirstTask, 1, 1, Boolean.class).get();
+		final boolean second = taskRunner.runTaskAsync(mockSecondTask, 1, 1, Boolean.class).get();
+
+		// Assert
+		assertTrue(first);
+		assertTrue(second);
+		verify(mockSecondTask, times(0)).call(Boolean.class);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenAResultCacheWhenAHandleIsCompletedByItsCallerThenTheValueIsNotCached()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ResultCache cache = new ResultCache(100, 60000, 60000);
+		taskRunner.setResultCache(cache);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ITask<Boolean> mockBlockingTask = TaskRunnerTests.blockingTask(release);
+		when(mockBlockingTask.cacheKey()).thenReturn("key");
+		final ITask<Boolean> mockSecondTask = mock(ITask.class);
+		when(mockSecondTask.cacheKey()).thenReturn("key");
+		when(mockSecondTask.call(Boolean.class)).thenReturn(true);
+		when(mockSecondTask.isComplete()).thenReturn(true);
+
+		// Act
+		final TaskHandle<Boolean> first = taskRunner.runTaskAsync(mockBlockingTask, 1, 1, Boolean.class);
+		first.toCompletableFuture().complete(false);
+		release.countDown();
+		final boolean second = taskRunner.runTaskAsync(mockSecondTask, 1, 1, Boolean.class).get();
+
+		// Assert
+		assertFalse(first.get());
+		assertTrue(second);
+		verify(mockSecondTask, times(1)).call(Boolean.class);
+		assertEquals(0, cache.getHitCount());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenCoalescingWhenEquivalentTasksAreSubmittedWhileOneIsInFlightThenItRunsOnceAndAllShareItsResult()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		taskRunner.setCoalescingEnabled(true);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ITask<Boolean> mockBlockingTask = TaskRunnerTests.blockingTask(release);
+		when(mockBlockingTask.cacheKey()).thenReturn("key");
+		final ITask<Boolean> mockEquivalentTask = mock(ITask.class);
+		when(mockEquivalentTask.cacheKey()).thenReturn("key");
+
+		// Act
+		final Future<Boolean> first = taskRunner.runTaskAsync(mockBlockingTask, 1, 1, Boolean.class);
+		final Future<Boolean> second = taskRunner.runTaskAsync(mockEquivalentTask, 1, 1, Boolean.class);
+		final TaskBatch<Boolean> batch = taskRunner.runTasksAsync(Arrays.asList(mockEquivalentTask, mockEquivalentTask),
+				1, 1, Boolean.class);
+		release.countDown();
+
+		// Assert
+		assertTrue(first.get());
+		assertTrue(second.get());
+		assertEquals(Arrays.asList(true, true), batch.allOf().get());
+		verify(mockBlockingTask, times(1)).call(Boolean.class);
+		verify(mockEquivalentTask, times(0)).call(Boolean.class);
+		assertEquals(3, taskRunner.getCoalescedTaskCount());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenCoalescedTasksWhenOneCallerCancelsThenTheOthersStillGetTheResult()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		taskRunner.setCoalescingEnabled(true);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ITask<Boolean> mockBlockingTask = TaskRunnerTests.blockingTask(release);
+		when(mockBlockingTask.cacheKey()).thenReturn("key");
+
+		// Act
+		final Future<Boolean> first = taskRunner.runTaskAsync(mockBlockingTask, 1, 1, Boolean.class);
+		final Future<Boolean> second = taskRunner.runTaskAsync(mockBlockingTask, 1, 1, Boolean.class);
+		final boolean cancelled = first.cancel(true);
+		release.countDown();
+
+		// Assert
+		assertTrue(cancelled);
+		assertTrue(first.isCancelled());
+		assertTrue(second.get());
+		verify(mockBlockingTask, times(0)).cancel();
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenCoalescedTasksWhenEveryCallerCancelsThenTheSharedTaskIsStopped()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		taskRunner.setCoalescingEnabled(true);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ITask<Boolean> mockBlockingTask = TaskRunnerTests.blockingTask(release);
+		when(mockBlockingTask.cacheKey()).thenReturn("key");
+
+		// Act
+		final Future<Boolean> first = taskRunner.runTaskAsync(mockBlockingTask, 1, 1, Boolean.class);
+		final Future<Boolean> second = taskRunner.runTaskAsync(mockBlockingTask, 1, 1, Boolean.class);
+		first.cancel(false);
+		second.cancel(false);
+		release.countDown();
+
+		// Assert
+		verify(mockBlockingTask, times(1)).cancel();
+		assertEquals(1, taskRunner.getCancelledTaskCount());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenCoalescingWhenAnEquivalentTaskIsSubmittedAfterTheFirstCompletesThenItRunsAgain()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		taskRunner.setCoalescingEnabled(true);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.cacheKey()).thenReturn("key");
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+
+		// Act
+		final boolean first = taskRunner.runTaskAsync(mockSuccessfulTask, 1, 1, Boolean.class).get();
+		final boolean second = taskRunner.runTaskAsync(mockSuccessfulTask, 1, 1, Boolean.class).get();
+
+		// Assert
+		assertTrue(first);
+		assertTrue(second);
+		verify(mockSuccessfulTask, times(2)).call(Boolean.class);
+		assertEquals(0, taskRunner.getCoalescedTaskCount());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenLanesWhenASlowLaneIsBackloggedThenAHeavierLaneIsNotStarvedAndReportsItsOwnMetrics()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+		final FileCheckerTask<Boolean> mockFileTask = mock(FileCheckerTask.class);
+		when(mockFileTask.call(Boolean.class)).thenAnswer(invocation -> order.add("file"));
+		when(mockFileTask.isComplete()).thenReturn(true);
+		final PortAvailableTask<Boolean> mockPortTask = mock(PortAvailableTask.class);
+		when(mockPortTask.call(Boolean.class)).thenAnswer(invocation -> order.add("port"));
+		when(mockPortTask.isComplete()).thenReturn(true);
+		taskRunner.setLanes(new TaskLanes(1).withLane("files", 1, mockFileTask.getClass()).withLane("health", 4,
+				mockPortTask.getClass()));
+		final CountDownLatch release = new CountDownLatch(1);
+		final Future<Boolean> blocker = taskRunner.runTaskAsync(TaskRunnerTests.blockingTask(release), 1, 1,
+				Boolean.class);
+
+		// Act
+		final TaskBatch<Boolean> files = taskRunner.runTasksAsync(Collections.nCopies(6, mockFileTask), 1, 1,
+				Boolean.class);
+		final TaskBatch<Boolean> ports = taskRunner.runTasksAsync(Collections.nCopies(2, mockPortTask), 1, 1,
+				Boolean.class);
+		release.countDown();
+		blocker.get();
+		files.allOf().get();
+		ports.allOf().get();
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+
+		// Assert
+		assertEquals(Arrays.asList("file", "port", "port", "file", "file", "file", "file", "file"), order);
+		final MetricsSnapshot metrics = taskRunner.getMetrics();
+		assertEquals(6, metrics.getByLane().get("files").getCompleted());
+		assertEquals(2, metrics.getByLane().get("health").getCompleted());
+		assertEquals(1, metrics.getByLane().get(TaskLanes.DEFAULT_LANE).getCompleted());
+	}
+
+	@Test
+	public void GivenATaskThatThrowsThenSucceedsWhenRunThenHandleReportsAttemptsLastExceptionAndTimings()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ITask<Boolean> mockTask = mock(ITask.class);
+		final IllegalStateException failure = new IllegalStateException();
+		when(mockTask.call(Boolean.class)).thenThrow(failure).thenReturn(true);
+		when(mockTask.isComplete()).thenReturn(true);
+
+		// Act
+		final TaskHandle<Boolean> handle = taskRunner.runTaskAsync(mockTask, 3, 1, Boolean.class);
+		final boolean result = handle.toCompletableFuture().thenApply(value -> !value).get();
+
+		// Assert
+		assertFalse(result);
+		assertEquals(2, handle.getAttempts());
+		assertEquals(failure, handle.getLastException());
+		assertTrue("The task should have started. Actual: " + handle.getQueuedNanos(), handle.getQueuedNanos() >= 0);
+		final long elapsedNanos = handle.getElapsedNanos();
+		assertTrue("The task should have waited for its retry. Actual: " + elapsedNanos,
+				elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(1));
+		assertEquals("A completed task's elapsed time should not grow.", elapsedNanos, handle.getElapsedNanos());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void GivenACallbackExecutorWhenTasksCompleteThenOnCompleteCallbacksRunOnIt()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		final ExecutorService callbacks = Executors
+				.newSingleThreadExecutor(runnable -> new Thread(runnable, "callbacks"));
+		taskRunner.setCallbackExecutor(callbacks);
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+		final int taskCount = 100;
+		final CountDownLatch done = new CountDownLatch(taskCount);
+		final List<String> threadNames = Collections.synchronizedList(new ArrayList<String>());
+
+		// Act
+		for (int i = 0; i < taskCount; i++)
+		{
+			taskRunner.runTaskAsync(mockSuccessfulTask, 1, 1, Boolean.class).onComplete((result, e) -> {
+				if (e == null && result)
+				{
+					threadNames.add(Thread.currentThread().getName());
+				}
+				done.countDown();
+			});
+		}
+
+		// Assert
+		assertTrue("Every callback should run.", done.await(5, TimeUnit.SECONDS));
+		assertEquals(Collections.nCopies(taskCount, "callbacks"), threadNames);
+		assertEquals(callbacks, taskRunner.getCallbackExecutor());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+		callbacks.shutdown();
+	}
+
+	@Test
+	public void GivenACachedResultWhenTaskSubmittedThenHandleReportsNoAttempts()
+			throws InterruptedException, ExecutionException
+	{
+		// Arrange
+		final TaskRunner taskRunner = new TaskRunner(1);
+		taskRunner.setResultCache(new ResultCache(10, 60000, 60000));
+		final ITask<Boolean> mockSuccessfulTask = mock(ITask.class);
+		when(mockSuccessfulTask.cacheKey()).thenReturn("key");
+		when(mockSuccessfulTask.call(Boolean.class)).thenReturn(true);
+		when(mockSuccessfulTask.isComplete()).thenReturn(true);
+		taskRunner.runTaskAsync(mockSuccessfulTask, 1, 1, Boolean.class).get();
+
+		// Act
+		final TaskHandle<Boolean> handle = taskRunner.runTaskAsync(mockSuccessfulTask, 1, 1, Boolean.class);
+
+		// Assert
+		assertTrue(handle.isDone());
+		assertTrue(handle.get());
+		assertEquals(0, handle.getAttempts());
+		assertEquals(-1, handle.getQueuedNanos());
+		verify(mockSuccessfulTask, times(1)).call(Boolean.class);
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
 }
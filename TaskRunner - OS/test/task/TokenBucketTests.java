@@ -0,0 +1,70 @@
+package task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TokenBucketTests
+{
+
+	@Test
+	public void GivenAFullBucketWhenMoreThanItsCapacityReservedAtOnceThenOnlyTheExcessWaits()
+	{
+		// Arrange
+		final TokenBucket bucket = new TokenBucket(10, 3);
+		final long now = System.nanoTime();
+
+		// Act & Assert
+		assertEquals(0, bucket.reserve(now));
+		assertEquals(0, bucket.reserve(now));
+		assertEquals(0, bucket.reserve(now));
+		assertEquals(100000000L, bucket.reserve(now));
+		assertEquals(200000000L, bucket.reserve(now));
+	}
+
+	@Test
+	public void GivenAnIdleBucketWhenTimePassesThenItRefillsOnlyToItsCapacity()
+	{
+		// Arrange
+		final TokenBucket bucket = new TokenBucket(10, 2);
+		final long now = System.nanoTime();
+		bucket.reserve(now);
+		bucket.reserve(now);
+
+		// Act
+		final long later = now + 10000000000L;
+
+		// Assert
+		assertEquals(0, bucket.reserve(later));
+		assertEquals(0, bucket.reserve(later));
+		assertEquals(100000000L, bucket.reserve(later));
+	}
+
+	@Test
+	public void GivenAnEmptyBucketWhenAPermitIsTriedThenNoneIsTakenUntilOneIsFree()
+	{
+		// Arrange
+		final TokenBucket bucket = new TokenBucket(10, 1);
+		final long now = System.nanoTime();
+
+		// Act & Assert
+		assertTrue(bucket.tryTake(now));
+		assertFalse(bucket.tryTake(now));
+		assertFalse(bucket.tryTake(now + 50000000L));
+		assertTrue(bucket.tryTake(now + 100000000L));
+		assertFalse(bucket.tryTake(now + 100000000L));
+	}
+
+	@Test
+	public void GivenInvalidArgumentsWhenBucketCreatedThenExceptionThrown()
+	{
+		// Act & Assert
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(Double.NaN, 1));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+	}
+
+}
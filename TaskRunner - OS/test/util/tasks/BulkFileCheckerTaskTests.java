@@ -0,0 +1,241 @@
+package util.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import task.TaskRunner;
+
+public class BulkFileCheckerTaskTests
+{
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void GivenFilesInOneDirectoryWhenCheckedThenDirectoryIsListedOnceAndEachFileIsAnswered()
+			throws IOException
+	{
+		// Arrange
+		final String first = this.folder.newFile("first.txt").getPath();
+		final String second = this.folder.newFile("second.txt").getPath();
+		final String missing = new File(this.folder.getRoot(), "missing.txt").getPath();
+		final BulkFileCheckerTask<FileScanResult> bulkChecker = new BulkFileCheckerTask<FileScanResult>(
+				Arrays.asList(first, second, missing));
+
+		// Act
+		final FileScanResult result = bulkChecker.call(FileScanResult.class);
+
+		// Assert
+		assertTrue(result.exists(first));
+		assertTrue(result.exists(second));
+		assertFalse(result.exists(missing));
+		assertEquals(new HashSet<String>(Arrays.asList(first, second)), result.getFound());
+		assertEquals(Collections.singleton(missing), result.getMissing());
+		assertEquals(1, result.getDirectoriesListed());
+		assertFalse(bulkChecker.isComplete());
+		assertThrows(IllegalArgumentException.class, () -> result.exists("unrequested.txt"));
+	}
+
+	@Test
+	public void GivenOneFilePerDirectoryWhenCheckedThenEachIsStattedRatherThanListed() throws IOException
+	{
+		// Arrange
+		final String first = new File(this.folder.newFolder("a"), "first.txt").getPath();
+		final File secondFile = new File(this.folder.newFolder("b"), "second.txt");
+		assertTrue(secondFile.createNewFile());
+		final BulkFileCheckerTask<FileScanResult> bulkChecker = new BulkFileCheckerTask<FileScanResult>(
+				Arrays.asList(first, secondFile.getPath()));
+
+		// Act
+		final FileScanResult result = bulkChecker.call(FileScanResult.class);
+
+		// Assert
+		assertFalse(result.exists(first));
+		assertTrue(result.exists(secondFile.getPath()));
+		assertEquals(0, result.getDirectoriesListed());
+	}
+
+	@Test
+	public void GivenAMissingDirectoryWhenCheckedThenEveryFileInItIsMissing()
+	{
+		// Arrange
+		final File directory = new File(this.folder.getRoot(), "absent");
+		final String first = new File(directory, "first.txt").getPath();
+		final String second = new File(directory, "second.txt").getPath();
+		final BulkFileCheckerTask<FileScanResult> bulkChecker = new BulkFileCheckerTask<FileScanResult>(
+				Arrays.asList(first, second));
+
+		// Act
+		final FileScanResult result = bulkChecker.call(FileScanResult.class);
+
+		// Assert
+		assertEquals(new HashSet<String>(Arrays.asList(first, second)), result.getMissing());
+	}
+
+	@Test
+	public void GivenPathsWithoutAParentOrThroughASymbolicLinkWhenCheckedThenEachIsAnsweredAsFileExistsWould()
+			throws IOException
+	{
+		// Arrange
+		final File target = this.folder.newFolder("target");
+		final File linkParent = this.folder.newFolder("links");
+		final Path link = Files.createSymbolicLink(new File(linkParent, "link").toPath(), target.toPath());
+		assertTrue(new File(this.folder.getRoot(), "sibling.txt").createNewFile());
+		assertTrue(new File(linkParent, "beside.txt").createNewFile());
+		final String root = File.listRoots()[0].getPath();
+		final String throughLink = link + File.separator + ".." + File.separator + "sibling.txt";
+		final String lexical = link + File.separator + ".." + File.separator + "beside.txt";
+		final BulkFileCheckerTask<FileScanResult> bulkChecker = new BulkFileCheckerTask<FileScanResult>(
+				Arrays.asList(root, throughLink, lexical));
+
+		// Act
+		final FileScanResult result = bulkChecker.call(FileScanResult.class);
+
+		// Assert
+		assertTrue(result.exists(root));
+		assertEquals(new File(throughLink).exists(), result.exists(throughLink));
+		assertEquals(new File(lexical).exists(), result.exists(lexical));
+		assertEquals(0, result.getDirectoriesListed());
+	}
+
+	@Test
+	public void GivenAListingExecutorWhenCheckedThenDirectoriesAreListedOnIt() throws IOException
+	{
+		// Arrange
+		final File first = this.folder.newFolder("first");
+		final File second = this.folder.newFolder("second");
+		assertTrue(new File(first, "a.txt").createNewFile());
+		assertTrue(new File(second, "a.txt").createNewFile());
+		final AtomicInteger listings = new AtomicInteger();
+		final Executor executor = command -> {
+			listings.incrementAndGet();
+			command.run();
+		};
+		final BulkFileCheckerTask<FileScanResult> bulkChecker = new BulkFileCheckerTask<FileScanResult>(
+				Arrays.asList(new File(first, "a.txt").getPath(), new File(first, "b.txt").getPath(),
+						new File(second, "a.txt").getPath(), new File(second, "b.txt").getPath()),
+				executor);
+
+		// Act
+		final FileScanResult result = bulkChecker.call(FileScanResult.class);
+
+		// Assert
+		assertEquals(2, listings.get());
+		assertEquals(2, result.getDirectoriesListed());
+		assertEquals(2, result.getFound().size());
+	}
+
+	@Test
+	public void GivenAnAttemptInterruptedWhileListingWhenItsScanRunsLaterThenItDoesNotUndoALaterAttempt()
+			throws IOException, InterruptedException
+	{
+		// Arrange
+		final File directory = this.folder.newFolder("directory");
+		final File first = new File(directory, "first.txt");
+		final File second = new File(directory, "second.txt");
+		final List<Runnable> held = Collections.synchronizedList(new ArrayList<Runnable>());
+		final CountDownLatch scanHeld = new CountDownLatch(1);
+		final AtomicBoolean holding = new AtomicBoolean(true);
+		final Executor executor = command -> {
+			if (holding.get())
+			{
+				held.add(command);
+				scanHeld.countDown();
+			} else
+			{
+				command.run();
+			}
+		};
+		final BulkFileCheckerTask<FileScanResult> bulkChecker = new BulkFileCheckerTask<FileScanResult>(
+				Arrays.asList(first.getPath(), second.getPath()), executor);
+		final AtomicReference<FileScanResult> interrupted = new AtomicReference<FileScanResult>();
+		final Thread attempt = new Thread(() -> interrupted.set(bulkChecker.call(FileScanResult.class)));
+		attempt.start();
+		assertTrue(scanHeld.await(5, TimeUnit.SECONDS));
+		attempt.interrupt();
+		attempt.join(5000);
+		holding.set(false);
+		assertTrue(first.createNewFile());
+		assertTrue(second.createNewFile());
+		assertTrue(bulkChecker.call(FileScanResult.class).getMissing().isEmpty());
+		assertTrue(second.delete());
+
+		// Act
+		for (final Runnable command : held)
+		{
+			command.run();
+		}
+		final FileScanResult result = bulkChecker.call(FileScanResult.class);
+
+		// Assert
+		assertEquals(2, interrupted.get().getMissing().size());
+		assertTrue(result.getMissing().isEmpty());
+		assertEquals(2, result.getFound().size());
+		assertTrue(bulkChecker.isComplete());
+	}
+
+	@Test
+	public void GivenAFileCreatedBetweenAttemptsWhenRunByTheTaskRunnerThenOnlyTheFilesStillMissingAreCheckedAgain()
+			throws IOException, InterruptedException, ExecutionException
+	{
+		// Arrange
+		final File complete = this.folder.newFolder("complete");
+		final File incomplete = this.folder.newFolder("incomplete");
+		assertTrue(new File(complete, "a.txt").createNewFile());
+		assertTrue(new File(complete, "b.txt").createNewFile());
+		assertTrue(new File(incomplete, "a.txt").createNewFile());
+		final File late = new File(incomplete, "late.txt");
+		final BulkFileCheckerTask<FileScanResult> bulkChecker = new BulkFileCheckerTask<FileScanResult>(
+				Arrays.asList(new File(complete, "a.txt").getPath(), new File(complete, "b.txt").getPath(),
+						new File(incomplete, "a.txt").getPath(), late.getPath()));
+		assertFalse(bulkChecker.call(FileScanResult.class).exists(late.getPath()));
+		assertTrue(late.createNewFile());
+		final TaskRunner taskRunner = new TaskRunner(1);
+
+		// Act
+		final FileScanResult result = taskRunner.runTaskAsync(bulkChecker, 5, 1, FileScanResult.class).get();
+
+		// Assert
+		assertTrue(result.getMissing().isEmpty());
+		assertEquals(4, result.getFound().size());
+		assertEquals("Only the first attempt should list directories.", 2, result.getDirectoriesListed());
+		assertTrue(bulkChecker.isComplete());
+		taskRunner.Shutdown(1, TimeUnit.SECONDS);
+	}
+
+	@Test(expected = ClassCastException.class)
+	public void GivenIncorrectReturnTypeWhenFilesCheckedThenAnExceptionIsThrown()
+	{
+		// Arrange
+		final BulkFileCheckerTask<String> bulkChecker = new BulkFileCheckerTask<String>(
+				Collections.singleton("missing.txt"));
+
+		// Act
+		bulkChecker.call(String.class);
+
+		// Assert
+	}
+
+}
@@ -0,0 +1,71 @@
+package util.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DirectoryWatcherTests
+{
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void GivenTwoWatchesInOneDirectoryWhenClosedInTurnThenDirectoryIsRegisteredUntilTheLastCloses()
+			throws IOException
+	{
+		// Arrange
+		final DirectoryWatcher watcher = new DirectoryWatcher();
+
+		// Act
+		final DirectoryWatcher.Watch first = watcher.watch(new File(this.folder.getRoot(), "a.txt").toPath(),
+				() -> {
+				});
+		final DirectoryWatcher.Watch second = watcher.watch(new File(this.folder.getRoot(), "b.txt").toPath(),
+				() -> {
+				});
+		final int watchedWithBoth = watcher.getWatchedDirectoryCount();
+		first.close();
+		final int watchedWithOne = watcher.getWatchedDirectoryCount();
+		second.close();
+		second.close();
+
+		// Assert
+		assertEquals(1, watchedWithBoth);
+		assertEquals(1, watchedWithOne);
+		assertEquals(0, watcher.getWatchedDirectoryCount());
+		watcher.close();
+	}
+
+	@Test
+	public void GivenWatchesOnTwoFilesWhenOneIsCreatedThenOnlyItsListenerIsCalled()
+			throws IOException, InterruptedException
+	{
+		// Arrange
+		final DirectoryWatcher watcher = new DirectoryWatcher();
+		final CountDownLatch createdA = new CountDownLatch(1);
+		final CountDownLatch createdB = new CountDownLatch(1);
+		final DirectoryWatcher.Watch watchA = watcher.watch(new File(this.folder.getRoot(), "a.txt").toPath(),
+				createdA::countDown);
+		final DirectoryWatcher.Watch watchB = watcher.watch(new File(this.folder.getRoot(), "b.txt").toPath(),
+				createdB::countDown);
+
+		// Act
+		this.folder.newFile("a.txt");
+
+		// Assert
+		assertTrue("The listener for the created file should be called.", createdA.await(30, TimeUnit.SECONDS));
+		assertEquals(1, createdB.getCount());
+		watchA.close();
+		watchB.close();
+		watcher.close();
+	}
+
+}
@@ -1,5 +1,6 @@
 package util.tasks;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -102,4 +103,16 @@ public class FileCheckerTaskTests
 		// Assert
 	}
 
+	@Test
+	public void GivenRelativeAndAbsoluteNamesForTheSameFileWhenCacheKeysComparedThenTheyAreEqual()
+	{
+		// Arrange
+		final FileCheckerTask<Boolean> relative = new FileCheckerTask<Boolean>(FileCheckerTaskTests.existsFileName);
+		final FileCheckerTask<Boolean> absolute = new FileCheckerTask<Boolean>(
+				new File(FileCheckerTaskTests.existsFileName).getAbsolutePath());
+
+		// Act & Assert
+		assertEquals(relative.cacheKey(), absolute.cacheKey());
+	}
+
 }
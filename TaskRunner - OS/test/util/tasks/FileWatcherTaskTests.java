@@ -0,0 +1,123 @@
+package util.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileWatcherTaskTests
+{
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private DirectoryWatcher watcher;
+
+	@Before
+	public void StartWatcher() throws IOException
+	{
+		this.watcher = new DirectoryWatcher();
+	}
+
+	@After
+	public void StopWatcher() throws IOException
+	{
+		this.watcher.close();
+	}
+
+	@Test
+	public void GivenAFileThatExistsWhenCheckedThenResultIsTrueWithoutWatching() throws IOException
+	{
+		// Arrange
+		final File file = this.folder.newFile("exists.txt");
+		final FileWatcherTask<Boolean> fileWatcher = new FileWatcherTask<Boolean>(file.getPath(), 10000,
+				this.watcher);
+
+		// Act
+		final boolean result = fileWatcher.call(Boolean.class);
+
+		// Assert
+		assertTrue(result);
+		assertTrue(fileWatcher.isComplete());
+		assertEquals(0, this.watcher.getWatchedDirectoryCount());
+	}
+
+	@Test
+	public void GivenAFileCreatedWhileWaitingWhenCheckedThenResultIsTrueBeforeTheWaitEnds()
+			throws InterruptedException, ExecutionException, TimeoutException, IOException
+	{
+		// Arrange
+		final File file = new File(this.folder.getRoot(), "created.txt");
+		final FileWatcherTask<Boolean> fileWatcher = new FileWatcherTask<Boolean>(file.getPath(), 60000,
+				this.watcher);
+		final CompletableFuture<Boolean> pendingResult = CompletableFuture
+				.supplyAsync(() -> fileWatcher.call(Boolean.class));
+		while (this.watcher.getWatchedDirectoryCount() == 0 && !pendingResult.isDone())
+		{
+			Thread.sleep(1);
+		}
+
+		// Act
+		assertTrue(file.createNewFile());
+		final boolean result = pendingResult.get(30, TimeUnit.SECONDS);
+
+		// Assert
+		assertTrue(result);
+		assertTrue(fileWatcher.isComplete());
+		assertEquals(0, this.watcher.getWatchedDirectoryCount());
+	}
+
+	@Test
+	public void GivenAFileThatIsNeverCreatedWhenCheckedThenResultIsFalseAfterTheWait()
+	{
+		// Arrange
+		final File file = new File(this.folder.getRoot(), "missing.txt");
+		final FileWatcherTask<Boolean> fileWatcher = new FileWatcherTask<Boolean>(file.getPath(), 50,
+				this.watcher);
+		final long startNanos = System.nanoTime();
+
+		// Act
+		final boolean result = fileWatcher.call(Boolean.class);
+
+		// Assert
+		assertFalse(result);
+		assertFalse(fileWatcher.isComplete());
+		assertTrue("The attempt should wait for the file.",
+				System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(0, this.watcher.getWatchedDirectoryCount());
+	}
+
+	@Test
+	public void GivenAWaitingAttemptWhenTaskCancelledThenAttemptReturns()
+			throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Arrange
+		final File file = new File(this.folder.getRoot(), "missing.txt");
+		final FileWatcherTask<Boolean> fileWatcher = new FileWatcherTask<Boolean>(file.getPath(), 60000,
+				this.watcher);
+		final CompletableFuture<Boolean> pendingResult = CompletableFuture
+				.supplyAsync(() -> fileWatcher.call(Boolean.class));
+		while (this.watcher.getWatchedDirectoryCount() == 0 && !pendingResult.isDone())
+		{
+			Thread.sleep(1);
+		}
+
+		// Act
+		fileWatcher.cancel();
+
+		// Assert
+		assertFalse(pendingResult.get(30, TimeUnit.SECONDS));
+	}
+
+}
@@ -0,0 +1,70 @@
+package util.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+public class PortProberTests
+{
+
+	@Test
+	public void GivenABoundPortWhenProbedThenItIsUnavailableUntilReleased() throws IOException
+	{
+		// Arrange
+		final ServerSocket blockingSocket = new ServerSocket(0);
+		final int targetPort = blockingSocket.getLocalPort();
+
+		// Act
+		final boolean whileBound = PortProber.isAvailable(targetPort);
+		blockingSocket.close();
+		final boolean afterRelease = PortProber.isAvailable(targetPort);
+
+		// Assert
+		assertFalse("Port should be unavailable while bound.", whileBound);
+		assertTrue("Port should be available once released.", afterRelease);
+	}
+
+	@Test
+	public void GivenARangeWithABoundPortWhenScannedThenOnlyThatPortIsMissingFromTheResult() throws IOException
+	{
+		// Arrange
+		final ServerSocket blockingSocket = new ServerSocket(0);
+		final int blockedPort = blockingSocket.getLocalPort();
+		final int fromPort = Math.max(PortProber.MIN_PORT, blockedPort - 2);
+		final int toPort = Math.min(PortProber.MAX_PORT, blockedPort + 2);
+
+		// Act
+		final BitSet available = PortProber.scan(fromPort, toPort);
+		blockingSocket.close();
+
+		// Assert
+		assertFalse(available.get(blockedPort));
+		assertTrue("No port outside the range should be reported.",
+				available.isEmpty() || available.nextSetBit(0) >= fromPort && available.length() <= toPort + 1);
+		for (int port = fromPort; port <= toPort; port++)
+		{
+			if (port != blockedPort)
+			{
+				assertEquals("Port " + port, PortProber.isAvailable(port), available.get(port));
+			}
+		}
+	}
+
+	@Test
+	public void GivenInvalidPortsWhenProbedThenExceptionThrown()
+	{
+		// Act & Assert
+		assertThrows(IllegalArgumentException.class, () -> PortProber.isAvailable(0));
+		assertThrows(IllegalArgumentException.class, () -> PortProber.isAvailable(65536));
+		assertThrows(IllegalArgumentException.class, () -> PortProber.scan(9000, 8000));
+		assertThrows(IllegalArgumentException.class, () -> PortProber.scan(0, 8000));
+	}
+
+}
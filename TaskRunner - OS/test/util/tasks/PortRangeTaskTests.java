@@ -0,0 +1,60 @@
+package util.tasks;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+public class PortRangeTaskTests
+{
+
+	@Test
+	public void GivenARangeWithAnAvailablePortWhenCheckedThenTaskIsCompleteAndReportsIt() throws IOException
+	{
+		// Arrange
+		final ServerSocket socket = new ServerSocket(0);
+		final int targetPort = socket.getLocalPort();
+		socket.close();
+		final PortRangeTask<BitSet> portRange = new PortRangeTask<BitSet>(targetPort, targetPort);
+		assertFalse(portRange.isComplete());
+
+		// Act
+		final BitSet result = portRange.call(BitSet.class);
+
+		// Assert
+		assertTrue(result.get(targetPort));
+		assertTrue(portRange.isComplete());
+	}
+
+	@Test
+	public void GivenARangeWhosePortsAreAllBoundWhenCheckedThenTaskIsNotComplete() throws IOException
+	{
+		// Arrange
+		final ServerSocket blockingSocket = new ServerSocket(0);
+		final int targetPort = blockingSocket.getLocalPort();
+		final PortRangeTask<BitSet> portRange = new PortRangeTask<BitSet>(targetPort, targetPort);
+
+		// Act
+		final BitSet result = portRange.call(BitSet.class);
+		blockingSocket.close();
+
+		// Assert
+		assertTrue(result.isEmpty());
+		assertFalse(portRange.isComplete());
+	}
+
+	@Test
+	public void GivenAnInvalidRangeWhenTaskCreatedThenExceptionThrown()
+	{
+		// Act & Assert
+		assertThrows(IllegalArgumentException.class, () -> new PortRangeTask<BitSet>(9000, 8000));
+		assertThrows(IllegalArgumentException.class, () -> new PortRangeTask<BitSet>(0, 8000));
+		assertThrows(IllegalArgumentException.class, () -> new PortRangeTask<BitSet>(8000, 65536));
+	}
+
+}